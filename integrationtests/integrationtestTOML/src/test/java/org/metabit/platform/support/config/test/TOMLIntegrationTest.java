@@ -166,6 +166,39 @@ public class TOMLIntegrationTest
         assertTrue(outputContent.contains("# Port inline"), "Should preserve inline comment");
         }
 
+    @Test
+    @DisplayName("Set a comment through a lazily loaded TOML layer")
+    void testCommentOnLazyLayer()
+            throws ConfigCheckedException, IOException
+        {
+        Path tomlDir = tempDir.resolve("toml_lazy");
+        Files.createDirectories(tomlDir);
+        Path tomlFile = tomlDir.resolve("lazyComment.toml");
+        Files.writeString(tomlFile, "port = 8080\n");
+
+        ConfigFactoryBuilder tomlBuilder = ConfigFactoryBuilder.create("myCompany", "myApp");
+        tomlBuilder.setFeature(ConfigFeature.PERMIT_TEST_MODE, true);
+        tomlBuilder.setFeature(ConfigFeature.TEST_MODE, true);
+        tomlBuilder.setFeature(ConfigFeature.DISABLED_MODULE_IDS, Collections.singletonList("TOMLwithJackson"));
+        tomlBuilder.setFeature(ConfigFeature.FILE_FORMAT_READING_PRIORITIES, Collections.singletonList("TOML"));
+        tomlBuilder.setTestConfigPaths(ConfigScope.RUNTIME, Collections.singletonList(tomlDir.toString()));
+        tomlBuilder.setFeature(ConfigFeature.FILE_LAZY_LAYER_LOADING, true);
+        tomlBuilder.setFeature(ConfigFeature.COMMENTS_WRITING, true);
+        tomlBuilder.setFeature(ConfigFeature.WRITE_SYNC, true);
+
+        ConfigFactory factory = tomlBuilder.build();
+        LayeredConfiguration cfg = (LayeredConfiguration) factory.getConfig("lazyComment");
+        ConfigEntry entry = cfg.getConfigEntryForWriting(ConfigScope.RUNTIME, "port");
+        assertNotNull(entry, "the lazy layer provides an entry for writing");
+        entry.setComment("set lazily");
+        entry.putValue(8081, ConfigEntryType.NUMBER);
+        cfg.flush();
+
+        String written = Files.readString(tomlFile);
+        assertTrue(written.contains("# set lazily"), written);
+        assertTrue(written.contains("port = 8081"), written);
+        }
+
     private void assertEntryType(Configuration cfg, String key, ConfigEntryType expectedType)
         {
         assertTrue(cfg instanceof LayeredConfiguration, "Expected LayeredConfiguration");
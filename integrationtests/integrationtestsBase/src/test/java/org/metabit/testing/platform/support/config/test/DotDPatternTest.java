@@ -14,6 +14,7 @@ import java.util.List;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class DotDPatternTest
 {
@@ -131,6 +132,140 @@ public class DotDPatternTest
         }
     }
 
+    private static void waitForValue(Configuration cfg, String key, String expected) throws InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!expected.equals(cfg.getString(key)) && System.currentTimeMillis() < deadline)
+        {
+            Thread.sleep(50);
+        }
+    }
+
+    @Test
+    void testFragmentChangesAreReloadedInOrder() throws Exception
+    {
+        Files.write(tempDir.resolve(CONFIG_NAME + ".properties"), List.of("key1=main", "key2=main"));
+        Path dotDDir = tempDir.resolve(CONFIG_NAME + ".d");
+        Files.createDirectory(dotDDir);
+        Files.write(dotDDir.resolve("00-default.properties"), List.of("key2=default", "key3=default"));
+        Files.write(dotDDir.resolve("01-custom.properties"), List.of("key3=custom"));
+        Files.write(dotDDir.resolve("99-override.properties"), List.of("key1=override"));
+
+        ConfigFactoryBuilder builder = ConfigFactoryBuilder.create(COMPANY_NAME, APPLICATION_NAME);
+        builder.setFeature(ConfigFeature.TEST_MODE, true);
+        builder.setFeature(ConfigFeature.TESTMODE_DIRECTORIES, List.of("USER:" + tempDir.toAbsolutePath()));
+        builder.setFeature(ConfigFeature.UPDATE_CHECK_FREQUENCY_MS, 100);
+
+        try (ConfigFactory factory = builder.build())
+        {
+            Configuration cfg = factory.getConfig(CONFIG_NAME);
+            int layerCount = cfg.getSourceLocations().size();
+            assertEquals("custom", cfg.getString("key3"));
+
+            // modified fragment: replaced at its position, still below 99-override
+            Files.write(dotDDir.resolve("01-custom.properties"), List.of("key3=changed", "key1=changed"));
+            waitForValue(cfg, "key3", "changed");
+            assertEquals("changed", cfg.getString("key3"));
+            assertEquals("override", cfg.getString("key1"));
+            assertEquals(layerCount, cfg.getSourceLocations().size(), "layers duplicated on reload");
+
+            // deleted fragment
+            Files.delete(dotDDir.resolve("99-override.properties"));
+            waitForValue(cfg, "key1", "changed");
+            assertEquals("changed", cfg.getString("key1"));
+            assertEquals(layerCount - 1, cfg.getSourceLocations().size());
+
+            // new fragment, sorted in between
+            Files.write(dotDDir.resolve("50-new.properties"), List.of("key2=new"));
+            waitForValue(cfg, "key2", "new");
+            assertEquals("new", cfg.getString("key2"));
+            assertEquals("changed", cfg.getString("key3"));
+            assertEquals(layerCount, cfg.getSourceLocations().size());
+        }
+    }
+
+    @Test
+    void testDotDCreatedAfterStartup() throws Exception
+    {
+        Files.write(tempDir.resolve(CONFIG_NAME + ".properties"), List.of("key1=main"));
+
+        ConfigFactoryBuilder builder = ConfigFactoryBuilder.create(COMPANY_NAME, APPLICATION_NAME);
+        builder.setFeature(ConfigFeature.TEST_MODE, true);
+        builder.setFeature(ConfigFeature.TESTMODE_DIRECTORIES, List.of("USER:" + tempDir.toAbsolutePath()));
+        builder.setFeature(ConfigFeature.UPDATE_CHECK_FREQUENCY_MS, 100);
+
+        try (ConfigFactory factory = builder.build())
+        {
+            Configuration cfg = factory.getConfig(CONFIG_NAME);
+            assertEquals("main", cfg.getString("key1"));
+
+            Path dotDDir = tempDir.resolve(CONFIG_NAME + ".d");
+            Files.createDirectory(dotDDir);
+            Files.write(dotDDir.resolve("10-late.properties"), List.of("key1=late"));
+            waitForValue(cfg, "key1", "late");
+            assertEquals("late", cfg.getString("key1"));
+
+            // and further fragments in the new directory are picked up, too
+            Files.write(dotDDir.resolve("20-later.properties"), List.of("key1=later"));
+            waitForValue(cfg, "key1", "later");
+            assertEquals("later", cfg.getString("key1"));
+        }
+    }
+
+    @Test
+    void testDiscoveryIndexAcrossStarts() throws Exception
+    {
+        Files.write(tempDir.resolve(CONFIG_NAME + ".properties"), List.of("key1=main", "key2=main"));
+        Path dotDDir = tempDir.resolve(CONFIG_NAME + ".d");
+        Files.createDirectory(dotDDir);
+        Files.write(dotDDir.resolve("10-site.properties"), List.of("key2=site"));
+        // directories changed within the last moments are not indexed; pretend they are older.
+        java.nio.file.attribute.FileTime past = java.nio.file.attribute.FileTime.fromMillis(System.currentTimeMillis() - 60000);
+        Files.setLastModifiedTime(dotDDir, past);
+        Files.setLastModifiedTime(tempDir, past);
+        Path indexDir = Files.createTempDirectory("mConfigDotDIndex");
+
+        try
+        {
+            for (int start = 0; start < 2; start++)
+            {
+                ConfigFactoryBuilder builder = ConfigFactoryBuilder.create(COMPANY_NAME, APPLICATION_NAME);
+                builder.setFeature(ConfigFeature.TEST_MODE, true);
+                builder.setFeature(ConfigFeature.TESTMODE_DIRECTORIES, List.of("USER:" + tempDir.toAbsolutePath()));
+                builder.setFeature(ConfigFeature.FILE_DISCOVERY_INDEX_DIRECTORY, indexDir.toString());
+                try (ConfigFactory factory = builder.build())
+                {
+                    Configuration cfg = factory.getConfig(CONFIG_NAME);
+                    assertEquals("main", cfg.getString("key1"));
+                    assertEquals("site", cfg.getString("key2"));
+                }
+                try (Stream<Path> files = Files.list(indexDir))
+                {
+                    List<Path> indexFiles = files.collect(java.util.stream.Collectors.toList());
+                    assertEquals(1, indexFiles.size(), "index file written");
+                    String index = Files.readString(indexFiles.get(0));
+                    assertTrue(index.contains(tempDir.toAbsolutePath() + "\t" + CONFIG_NAME + "\t"), index);
+                    assertTrue(index.contains("10-site.properties"), index);
+                }
+            }
+
+            // a new fragment invalidates the entry for this directory
+            Files.write(dotDDir.resolve("20-override.properties"), List.of("key1=override"));
+            ConfigFactoryBuilder builder = ConfigFactoryBuilder.create(COMPANY_NAME, APPLICATION_NAME);
+            builder.setFeature(ConfigFeature.TEST_MODE, true);
+            builder.setFeature(ConfigFeature.TESTMODE_DIRECTORIES, List.of("USER:" + tempDir.toAbsolutePath()));
+            builder.setFeature(ConfigFeature.FILE_DISCOVERY_INDEX_DIRECTORY, indexDir.toString());
+            try (ConfigFactory factory = builder.build())
+            {
+                assertEquals("override", factory.getConfig(CONFIG_NAME).getString("key1"));
+            }
+        }
+        finally
+        {
+            deleteDirectoryWithContents(indexDir);
+        }
+    }
+
     @Test
     void testDiscoveryWithDotD() throws IOException
     {
@@ -31,6 +31,7 @@ module metabit.mconfig.core
     exports org.metabit.platform.support.config.impl.logging;
     exports org.metabit.platform.support.config.impl.entry;
     exports org.metabit.platform.support.config.impl;
+    exports org.metabit.platform.support.config.impl.util;
     exports org.metabit.platform.support.config.schema.repository;
     exports org.metabit.platform.support.config.schema.impl;
     exports org.metabit.platform.support.config.schema.provider;
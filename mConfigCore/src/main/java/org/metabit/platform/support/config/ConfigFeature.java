@@ -177,6 +177,80 @@ public enum ConfigFeature implements ConfigFeatureInterface
      * default: true
      */
     FILE_FORMAT_WRITING_ALLOW_ALL_FORMATS,
+    /**
+     * size in bytes from which config files are memory-mapped instead of read via streams,
+     * and handed to the file format as ByteBuffer. Helps with large generated configurations.
+     * Applies only to formats parsing from a buffer themselves; others read the file as before.
+     * 0 or negative values disable memory mapping.
+     * default: 4194304 (4 MiB)
+     */
+    FILE_MEMORY_MAP_THRESHOLD,
+    /**
+     * write config files via a temporary file, which is then moved over the original with ATOMIC_MOVE.
+     * Readers (including other processes) never see half-written files that way.
+     * default: true
+     */
+    FILE_WRITE_ATOMIC,
+    /**
+     * force written config files to disk (fsync) before they replace the original.
+     * Slower, but survives power loss.
+     * default: false
+     */
+    FILE_WRITE_FSYNC,
+    /**
+     * time window in milliseconds in which flushes to the same config file are grouped into a single write.
+     * Callers of flush() wait for the grouped write to finish. 0 turns grouping off.
+     * default: 0
+     */
+    FILE_WRITE_COALESCE_MS,
+    /**
+     * write changed and added entries back as patch to the text read, keeping comments, blank lines and layout
+     * of the rest of the file. Structural changes, like new tables or changed comments, still rewrite the file
+     * as a whole. With FILE_WRITE_ATOMIC off, a patch writes only from the first changed byte on.
+     * Applies to TOML, INI and Java properties files.
+     * default: true
+     */
+    FILE_WRITE_PATCH,
+    /**
+     * directory for a persistent index of the config files found in the search directories.
+     * With it, later starts check one timestamp per directory instead of probing for each possible file name;
+     * entries invalidate themselves when files are added to or removed from a directory.
+     * Useful for short-lived processes like CLI tools. Empty or unset turns the index off.
+     * default: not set
+     */
+    FILE_DISCOVERY_INDEX_DIRECTORY,
+    /**
+     * parse config files on first access to their entries, instead of when the configuration is loaded.
+     * Files are still found at load time; layers which are never consulted, because a more specific layer
+     * always has the entry, are never parsed. A file which then fails to parse acts as an empty layer.
+     * default: false
+     */
+    FILE_LAZY_LAYER_LOADING,
+    /**
+     * with FILE_LAZY_LAYER_LOADING, parse the deferred files on a background thread right after loading,
+     * so first accesses usually find them ready.
+     * default: false
+     */
+    FILE_LAZY_LAYER_PREWARM,
+    /**
+     * size in bytes from which config files are loaded read-only, by formats which can do so without
+     * building a document tree (JSON with Jackson). Saves heap for large generated configurations,
+     * but such layers can't be written to. Files the process can't write to are loaded this way regardless of size.
+     * 0 or negative values: only those.
+     * default: 0
+     */
+    FILE_READ_ONLY_STREAMING_THRESHOLD,
+    /**
+     * have the format readers of a factory share one pool for keys and short values,
+     * so equal strings from different files and fragments are kept once. The pool holds them weakly.
+     * default: true
+     */
+    STRING_DEDUPLICATION,
+    /**
+     * longest string, in characters, put into the STRING_DEDUPLICATION pool.
+     * default: 64
+     */
+    STRING_DEDUPLICATION_MAX_LENGTH,
 
     /**
      * Defines the order in which config storages (FILE, JAR, registry, etc.) are initialized.
@@ -190,6 +264,20 @@ public enum ConfigFeature implements ConfigFeatureInterface
      * default: true
      */
     STORAGE_TYPE_ALLOW_ALL_STORAGES,
+    /**
+     * load the layers of a configuration from different storages concurrently.
+     * Each storage still processes its own search list locations in order, on a single thread;
+     * the resulting layers are inserted in search list order, so the outcome is the same as
+     * with sequential loading.
+     * Useful if remote storages (vault, ZooKeeper, ...) add noticeable latency.
+     * default: false
+     */
+    PARALLEL_LAYER_LOADING,
+    /**
+     * maximum number of threads used for PARALLEL_LAYER_LOADING.
+     * default: 4
+     */
+    PARALLEL_LAYER_LOADING_THREADS,
 
 
     /**
@@ -282,6 +370,20 @@ public enum ConfigFeature implements ConfigFeatureInterface
      * but writes cannot.
      */
     WRITE_SYNC,
+    /**
+     * write-behind: with WRITE_SYNC false, flush cached writes on a background thread,
+     * this many milliseconds after the first cached write to a layer.
+     * Everything still cached is flushed when the factory is closed, or the JVM shuts down.
+     * 0 turns write-behind off; then only explicit flush() and close() write.
+     * default: 0
+     */
+    WRITE_BEHIND_DELAY_MS,
+    /**
+     * write-behind: flush a layer right away, without waiting for WRITE_BEHIND_DELAY_MS,
+     * once this many writes have been cached for it. 0 for no limit.
+     * default: 100
+     */
+    WRITE_BEHIND_MAX_DIRTY_ENTRIES,
     /**
      * if for the given scope no matching config is found, should mConfig keep searching in the more general
      * scope levels? default: true.
@@ -564,11 +666,36 @@ public enum ConfigFeature implements ConfigFeatureInterface
         FILE_FORMAT_READING_ALLOW_ALL_FORMATS.defaultValue = Boolean.TRUE;
         FILE_FORMAT_WRITING_ALLOW_ALL_FORMATS.valueType = ValueType.BOOLEAN;
         FILE_FORMAT_WRITING_ALLOW_ALL_FORMATS.defaultValue = Boolean.TRUE;
+        FILE_MEMORY_MAP_THRESHOLD.valueType = ValueType.NUMBER;
+        FILE_MEMORY_MAP_THRESHOLD.defaultValue = 4*1024*1024;
+        FILE_WRITE_ATOMIC.valueType = ValueType.BOOLEAN;
+        FILE_WRITE_ATOMIC.defaultValue = Boolean.TRUE;
+        FILE_WRITE_FSYNC.valueType = ValueType.BOOLEAN;
+        FILE_WRITE_FSYNC.defaultValue = Boolean.FALSE;
+        FILE_WRITE_COALESCE_MS.valueType = ValueType.NUMBER;
+        FILE_WRITE_COALESCE_MS.defaultValue = 0;
+        FILE_WRITE_PATCH.valueType = ValueType.BOOLEAN;
+        FILE_WRITE_PATCH.defaultValue = Boolean.TRUE;
+        FILE_DISCOVERY_INDEX_DIRECTORY.valueType = ValueType.STRING;
+        FILE_LAZY_LAYER_LOADING.valueType = ValueType.BOOLEAN;
+        FILE_LAZY_LAYER_LOADING.defaultValue = Boolean.FALSE;
+        FILE_LAZY_LAYER_PREWARM.valueType = ValueType.BOOLEAN;
+        FILE_LAZY_LAYER_PREWARM.defaultValue = Boolean.FALSE;
+        FILE_READ_ONLY_STREAMING_THRESHOLD.valueType = ValueType.NUMBER;
+        FILE_READ_ONLY_STREAMING_THRESHOLD.defaultValue = 0;
+        STRING_DEDUPLICATION.valueType = ValueType.BOOLEAN;
+        STRING_DEDUPLICATION.defaultValue = Boolean.TRUE;
+        STRING_DEDUPLICATION_MAX_LENGTH.valueType = ValueType.NUMBER;
+        STRING_DEDUPLICATION_MAX_LENGTH.defaultValue = 64;
 
         STORAGE_TYPE_PRIORITIES.valueType = ValueType.STRINGLIST;
         STORAGE_TYPE_PRIORITIES.defaultValue = new ArrayList<String>(Arrays.asList("RAM", "secrets", "vault", "aws-secrets", "files", "registry", "registryjni", "zookeeper", "JAR"));
         STORAGE_TYPE_ALLOW_ALL_STORAGES.valueType = ValueType.BOOLEAN;
         STORAGE_TYPE_ALLOW_ALL_STORAGES.defaultValue = Boolean.TRUE;
+        PARALLEL_LAYER_LOADING.valueType = ValueType.BOOLEAN;
+        PARALLEL_LAYER_LOADING.defaultValue = Boolean.FALSE;
+        PARALLEL_LAYER_LOADING_THREADS.valueType = ValueType.NUMBER;
+        PARALLEL_LAYER_LOADING_THREADS.defaultValue = 4;
 
         FILENAME_EXTENSION_MAPPINGS.valueType = ValueType.STRINGLIST;
         AUTOMATIC_CONFIG_LOADING.valueType = ValueType.BOOLEAN;
@@ -585,6 +712,10 @@ public enum ConfigFeature implements ConfigFeatureInterface
 
         CACHE_CONFIGS.valueType = ValueType.BOOLEAN;
         WRITE_SYNC.valueType = ValueType.BOOLEAN;
+        WRITE_BEHIND_DELAY_MS.valueType = ValueType.NUMBER;
+        WRITE_BEHIND_DELAY_MS.defaultValue = 0;
+        WRITE_BEHIND_MAX_DIRTY_ENTRIES.valueType = ValueType.NUMBER;
+        WRITE_BEHIND_MAX_DIRTY_ENTRIES.defaultValue = 100;
         NO_DEFAULT_DIRECTORIES.valueType = ValueType.BOOLEAN;
 
         ALLOW_MCONFIG_RUNTIME_SETTINGS.valueType = ValueType.BOOLEAN;
@@ -1,7 +1,9 @@
 package org.metabit.platform.support.config.impl;
 
 import org.metabit.platform.support.config.ConfigFactory;
+import org.metabit.platform.support.config.ConfigFeature;
 import org.metabit.platform.support.config.impl.logging.NullLogging;
+import org.metabit.platform.support.config.impl.util.StringPool;
 import org.metabit.platform.support.config.interfaces.ConfigFormatInterface;
 import org.metabit.platform.support.config.interfaces.ConfigLoggingInterface;
 import org.metabit.platform.support.config.interfaces.ConfigSecretsProviderInterface;
@@ -28,8 +30,10 @@ public class ConfigFactoryInstanceContext
     private final ConfigSearchList                            searchList;
     private       ClassLoader                                 classLoader;
     private       SourceChangeNotifier                        sourceChangeNotifier;
+    private       WriteBehindScheduler                        writeBehindScheduler; // null unless write-behind is active
     private final ConfigSchemaRepository                      schemeRepository = new DefaultConfigSchemaRepository();
     private       ConfigFactory                               factory;
+    private       StringPool                                  stringPool; // created on first use
 
     /**
      * constructor.
@@ -195,6 +199,21 @@ public class ConfigFactoryInstanceContext
         this.sourceChangeNotifier = sourceChangeNotifier;
         }
 
+    /**
+     * get the write-behind scheduler.
+     *
+     * @return the scheduler, or null if write-behind is not active.
+     */
+    public WriteBehindScheduler getWriteBehindScheduler()
+        {
+        return writeBehindScheduler;
+        }
+
+    void setWriteBehindScheduler(WriteBehindScheduler writeBehindScheduler)
+        {
+        this.writeBehindScheduler = writeBehindScheduler;
+        }
+
     /**
      * get the scheme repository.
      *
@@ -205,5 +224,21 @@ public class ConfigFactoryInstanceContext
         return schemeRepository;
         }
 
+    /**
+     * get the string pool the format readers of this factory share.
+     *
+     * @return the pool; {@link StringPool#NONE} if STRING_DEDUPLICATION is off.
+     */
+    public synchronized StringPool getStringPool()
+        {
+        if (stringPool == null)
+            {
+            stringPool = settings.getBoolean(ConfigFeature.STRING_DEDUPLICATION)
+                    ? new StringPool(settings.getInteger(ConfigFeature.STRING_DEDUPLICATION_MAX_LENGTH))
+                    : StringPool.NONE;
+            }
+        return stringPool;
+        }
+
 // formats
 }
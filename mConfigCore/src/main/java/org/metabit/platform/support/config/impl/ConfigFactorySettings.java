@@ -154,6 +154,7 @@ public class ConfigFactorySettings
         if (feature.getValueType() != ConfigFeature.ValueType.STRINGLIST)
             throw new IllegalArgumentException(MessageFormat.format(TYPE_MISMATCH_MSG, feature.name(), "List of Strings", feature.getValueType().name()));
         Object value = get(feature);
+        if (value == null) value = feature.getDefaultValue(); // as for the other getters
         if (value == null) return Collections.emptyList();
         if (!(value instanceof List)) return Collections.singletonList(String.valueOf(value));
         List<String> out = new ArrayList<>();
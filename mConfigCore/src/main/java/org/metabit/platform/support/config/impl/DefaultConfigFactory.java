@@ -1,6 +1,7 @@
 package org.metabit.platform.support.config.impl;
 
 import org.metabit.platform.support.config.*;
+import org.metabit.platform.support.config.impl.util.StringPool;
 import org.metabit.platform.support.config.interfaces.ConfigFactoryComponent;
 import org.metabit.platform.support.config.interfaces.ConfigLoggingInterface;
 import org.metabit.platform.support.config.interfaces.ConfigSecretsProviderInterface;
@@ -11,6 +12,11 @@ import org.metabit.platform.support.osdetection.OperatingSystem;
 
 import java.lang.ref.WeakReference;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * <p>DefaultConfigFactory class.</p>
@@ -26,6 +32,7 @@ public class DefaultConfigFactory implements ConfigFactory
     private       ConfigLoggingInterface                      logger;
     private       Map<String, ConfigSecretsProviderInterface> activeSecretsProviders;
     private       boolean                                     closed;
+    private       ExecutorService                             layerLoadingExecutor; // only with PARALLEL_LAYER_LOADING
 
 
     /**
@@ -146,6 +153,26 @@ public class DefaultConfigFactory implements ConfigFactory
             return pB-pA;
             });
 
+        // optional: a bounded thread pool for loading layers from different storages concurrently.
+        if (settings.getBoolean(ConfigFeature.PARALLEL_LAYER_LOADING))
+            {
+            Integer threads = settings.getInteger(ConfigFeature.PARALLEL_LAYER_LOADING_THREADS);
+            int poolSize = ((threads == null) || (threads < 1)) ? 1 : threads;
+            final AtomicInteger threadCounter = new AtomicInteger();
+            layerLoadingExecutor = Executors.newFixedThreadPool(poolSize, runnable->
+                {
+                Thread t = new Thread(runnable, "mConfig-LayerLoader-"+threadCounter.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+                });
+            }
+
+        // optional: write-behind for cached writes.
+        if (!settings.getBoolean(ConfigFeature.WRITE_SYNC) && (settings.getInteger(ConfigFeature.WRITE_BEHIND_DELAY_MS) > 0) && (ctx.getWriteBehindScheduler() == null))
+            {
+            ctx.setWriteBehindScheduler(new WriteBehindScheduler(ctx));
+            }
+
         // debug output
         if (ctx.getSettings().getBoolean(ConfigFeature.QUIET) == Boolean.FALSE)
             {
@@ -252,6 +279,12 @@ public class DefaultConfigFactory implements ConfigFactory
             return;
             }
         
+        // final write-behind flush first, while all configurations are still open.
+        if (ctx.getWriteBehindScheduler() != null)
+            {
+            ctx.getWriteBehindScheduler().exit();
+            }
+
         List<Configuration> toClose = new ArrayList<>();
         instantiatedConfigs.values().forEach(v -> {
             Configuration config = v.get();
@@ -273,6 +306,11 @@ public class DefaultConfigFactory implements ConfigFactory
             }
         instantiatedConfigs.clear();
 
+        if (layerLoadingExecutor != null)
+            {
+            layerLoadingExecutor.shutdownNow();
+            }
+
         if (ctx.getSourceChangeNotifier() != null)
             {
             ctx.getSourceChangeNotifier().exit();
@@ -397,12 +435,20 @@ public class DefaultConfigFactory implements ConfigFactory
         // 3. go through the search list. For each entry, check with the respective ConfigSource whether the combination SearchListEntry + configName yields results.
         List<ConfigLocation> searchList = ctx.getSearchList().getEntries();
 
-        for (ConfigLocation location : searchList)
+        if ((layerLoadingExecutor != null) && (searchList.size() > 1))
             {
-            ConfigStorageInterface storage = location.getStorage();
-            storage.updateConfigurationLayers(sanitizedConfigName, location, layeredCfg);
-            storage.provideAdditionalLayers(sanitizedConfigName, layeredCfg);
+            loadLayersInParallel(sanitizedConfigName, new ArrayList<>(searchList), layeredCfg);
             }
+        else
+            {
+            for (ConfigLocation location : searchList)
+                {
+                ConfigStorageInterface storage = location.getStorage();
+                storage.updateConfigurationLayers(sanitizedConfigName, location, layeredCfg);
+                storage.provideAdditionalLayers(sanitizedConfigName, layeredCfg);
+                }
+            }
+        reportStringPool(sanitizedConfigName);
 
         // 4. check whether an exception is wanted for empty configs
         if (throwExceptionOnEmptyConfigsFlag)
@@ -417,6 +463,83 @@ public class DefaultConfigFactory implements ConfigFactory
         }
 
 
+    // statistics of the shared string pool, logged at debug level.
+    private void reportStringPool(final String sanitizedConfigName)
+        {
+        StringPool pool = ctx.getStringPool();
+        if (!pool.isActive() || (logger == null) || !logger.isDebugEnabled())
+            {
+            return;
+            }
+        logger.debug("string pool after loading "+sanitizedConfigName+": "+pool.size()+" strings pooled, "
+                +pool.getHits()+" of "+pool.getLookups()+" lookups reused, about "+pool.getSavedBytes()+" bytes saved");
+        return;
+        }
+
+    /*
+    parallel variant of the search list loop in getConfig.
+    Storages are not required to be thread-safe, so each storage gets a single task processing its locations
+    in search list order; different storages run concurrently. Every location collects into its own LayerCollector,
+    and the collected layers are inserted in search list order afterwards - same result as the sequential loop.
+     */
+    private void loadLayersInParallel(final String sanitizedConfigName, final List<ConfigLocation> searchList, final LayeredConfiguration layeredCfg)
+        {
+        final LayerCollector[] collectors = new LayerCollector[searchList.size()];
+        final Map<ConfigStorageInterface, List<Integer>> locationsByStorage = new LinkedHashMap<>();
+        for (int i = 0; i < searchList.size(); i++)
+            {
+            collectors[i] = new LayerCollector(layeredCfg);
+            locationsByStorage.computeIfAbsent(searchList.get(i).getStorage(), k->new ArrayList<>()).add(i);
+            }
+
+        List<Future<?>> futures = new ArrayList<>(locationsByStorage.size());
+        for (Map.Entry<ConfigStorageInterface, List<Integer>> entry : locationsByStorage.entrySet())
+            {
+            final ConfigStorageInterface storage = entry.getKey();
+            final List<Integer> indices = entry.getValue();
+            futures.add(layerLoadingExecutor.submit(()->
+                {
+                for (int index : indices)
+                    {
+                    storage.updateConfigurationLayers(sanitizedConfigName, searchList.get(index), collectors[index]);
+                    storage.provideAdditionalLayers(sanitizedConfigName, collectors[index]);
+                    }
+                }));
+            }
+
+        for (Future<?> future : futures)
+            {
+            try
+                {
+                future.get();
+                }
+            catch (InterruptedException e)
+                {
+                Thread.currentThread().interrupt();
+                futures.forEach(f->f.cancel(true));
+                throw new ConfigException(e);
+                }
+            catch (ExecutionException e)
+                {
+                futures.forEach(f->f.cancel(true));
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException)
+                    { throw (RuntimeException) cause; }
+                if (cause instanceof Error)
+                    { throw (Error) cause; }
+                throw new ConfigException(e);
+                }
+            }
+
+        // deterministic insertion, in search list order.
+        for (LayerCollector collector : collectors)
+            {
+            collector.transferTo(layeredCfg);
+            }
+        return;
+        }
+
+
     // Planned: explicit creation improvements (derive scope/format from scheme, return writable layer).
 
     /**
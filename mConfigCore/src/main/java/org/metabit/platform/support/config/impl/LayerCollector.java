@@ -0,0 +1,107 @@
+package org.metabit.platform.support.config.impl;
+
+import org.metabit.platform.support.config.ConfigCheckedException;
+import org.metabit.platform.support.config.ConfigEntry;
+import org.metabit.platform.support.config.ConfigLocation;
+import org.metabit.platform.support.config.ConfigScope;
+import org.metabit.platform.support.config.interfaces.ConfigLayerInterface;
+import org.metabit.platform.support.config.interfaces.LayeredConfigurationInterface;
+import org.metabit.platform.support.config.schema.ConfigSchema;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * internal helper for parallel layer loading.
+ * Collects the layers a storage provides for a single search list location,
+ * so they can be inserted into the target configuration later, in search list order.
+ * <p>
+ * Everything except {@link #add(ConfigLayerInterface, ConfigLocation)} is passed through to the target.
+ */
+class LayerCollector implements LayeredConfigurationInterface
+{
+    private final LayeredConfigurationInterface target;
+    private final List<ConfigLayerInterface>    layers;
+    private final List<ConfigLocation>          locations;
+
+    LayerCollector(final LayeredConfigurationInterface target)
+        {
+        this.target = target;
+        this.layers = new ArrayList<>();
+        this.locations = new ArrayList<>();
+        }
+
+    /**
+     * insert all collected layers into the target, in the order they were provided.
+     */
+    void transferTo(final LayeredConfigurationInterface destination)
+        {
+        for (int i = 0; i < layers.size(); i++)
+            {
+            destination.add(layers.get(i), locations.get(i));
+            }
+        layers.clear();
+        locations.clear();
+        return;
+        }
+
+    @Override
+    public synchronized void add(ConfigLayerInterface singleConfig, ConfigLocation location)
+        {
+        layers.add(singleConfig);
+        locations.add(location);
+        }
+
+    @Override
+    public List<ConfigLocation> getSourceLocations()
+        { return target.getSourceLocations(); }
+
+    @Override
+    public ConfigFactoryInstanceContext getContext()
+        { return target.getContext(); }
+
+    @Override
+    public void setConfigSchema(ConfigSchema schema)
+        { target.setConfigSchema(schema); }
+
+    @Override
+    public String getConfigName()
+        { return target.getConfigName(); }
+
+    @Override
+    public ConfigEntry getConfigEntryFromFullKey(String fullKey, EnumSet<ConfigScope> scopes)
+        { return target.getConfigEntryFromFullKey(fullKey, scopes); }
+
+    @Override
+    public boolean isWriteable()
+        { return target.isWriteable(); }
+
+    @Override
+    public int flush()
+            throws ConfigCheckedException
+        { return 0; } // nothing written through a collector.
+
+    @Override
+    public boolean reload()
+            throws ConfigCheckedException
+        { return false; }
+
+    @Override
+    public boolean isEmpty()
+        { return layers.isEmpty() && target.isEmpty(); }
+
+    @Override
+    public Iterator<String> getEntryKeyTreeIterator()
+        { return target.getEntryKeyTreeIterator(); }
+
+    @Override
+    public boolean isClosed()
+        { return target.isClosed(); }
+
+    @Override
+    public void close()
+        { } // the collector holds no resources of its own.
+}
+//___EOF___
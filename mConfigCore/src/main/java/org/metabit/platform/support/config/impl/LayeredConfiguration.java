@@ -1,6 +1,7 @@
 package org.metabit.platform.support.config.impl;
 
 import org.metabit.platform.support.config.*;
+import org.metabit.platform.support.config.impl.entry.AbstractConfigEntry;
 import org.metabit.platform.support.config.impl.entry.ConfigEntryFactory;
 import org.metabit.platform.support.config.impl.entry.SpecifiedConfigEntryWrapper;
 import org.metabit.platform.support.config.interfaces.ConfigEntrySpecification;
@@ -29,7 +30,9 @@ public class LayeredConfiguration extends AbstractConfiguration implements Layer
 {
     final String                         configName; // the name this goes by
     ConfigSchema configSchema; // the scheme the contents are to be validated by
-    final List<ConfigLayerInterface>     configs; // the actual config data. sorted list, sort on insertion.
+    volatile List<ConfigLayerInterface>  configs; // the actual config data. sorted list, sort on insertion. immutable; replaced on change, under layerLock.
+    private final Object                 layerLock = new Object();
+    private       List<ConfigLayerInterface> refreshTarget; // while refreshing a location, add() collects here. guarded by layerLock
     final SourceChangeNotifier           changeNotifier;
     final SourceChangeChecker            changeChecker;
     final         ConfigFactory          configFactory; // parent, producing this
@@ -73,8 +76,7 @@ public class LayeredConfiguration extends AbstractConfiguration implements Layer
             {
             this.configSchema = NullConfigSchema.INSTANCE;
             }
-        configs = new ArrayList<>();
-        configs.add(defaultLayer);    // needs to go at the lowest priority.
+        configs = Collections.singletonList(defaultLayer);    // needs to go at the lowest priority.
         int maxEvents = ctx.getSettings().getInteger(ConfigFeature.EVENTS_MAX_CONFIGURATION);
         int dedupLimit = ctx.getSettings().getInteger(ConfigFeature.EVENTS_DEDUP_RECENT_LIMIT);
         this.events = new ConfigEventList(maxEvents, dedupLimit);
@@ -101,14 +103,34 @@ public class LayeredConfiguration extends AbstractConfiguration implements Layer
             return;
             }
         logger.debug("LayeredConfiguration notified about update in location: " + location);
-        synchronized (configs)
+        ConfigStorageInterface storage = location.getStorage();
+        synchronized(layerLock)
             {
-            // 1. remove old layers from this location
-            configs.removeIf(layer -> location.equals(layer.getSource()));
+            // 1. remove old layers from this location. configs is ordered highest priority first, the storage added them the other way round.
+            List<ConfigLayerInterface> previousLayers = new ArrayList<>();
+            List<ConfigLayerInterface> updated = new ArrayList<>(configs.size());
+            for (int i = configs.size()-1; i >= 0; i--)
+                {
+                if (storage.isLayerFromLocation(location, configs.get(i)))
+                    { previousLayers.add(configs.get(i)); }
+                else
+                    { updated.add(0, configs.get(i)); }
+                }
 
-            // 2. try to read new layers from this location
-            location.getStorage().updateConfigurationLayers(configName, location, this);
+            // 2. read new layers from this location; the storage may re-use unchanged ones.
+            // readers keep seeing the previous list until the new one is complete.
+            refreshTarget = updated;
+            try
+                {
+                storage.refreshConfigurationLayers(configName, location, previousLayers, this);
+                }
+            finally
+                {
+                refreshTarget = null;
+                }
+            configs = Collections.unmodifiableList(updated);
             }
+        changeChecker.updateConfigList(configs); // in case nothing was added back
         }
 
     @Override
@@ -122,23 +144,28 @@ public class LayeredConfiguration extends AbstractConfiguration implements Layer
     public void add(ConfigLayerInterface singleConfig, ConfigLocation location)
         {
         checkClosed();
-        synchronized(configs)
+        synchronized(layerLock)
             {
             ConfigScope targetScope = location.getScope();
             if (targetScope != singleConfig.getScope())
                 logger.warn("insertion of configuration with scope "+singleConfig.getScope()+" at scope "+targetScope);
             // they are to be added ordered by scope.
             // higher priority (more specific scope) = lower index, lower priority (more generic scope) = higher index.
-            int indexToInsertAt = configs.size();
-            for (int i = 0; i < configs.size(); i++)
+            List<ConfigLayerInterface> updated = (refreshTarget != null) ? refreshTarget : new ArrayList<>(configs);
+            int indexToInsertAt = updated.size();
+            for (int i = 0; i < updated.size(); i++)
                 {
-                if (singleConfig.getScope().ordinal() >= configs.get(i).getScope().ordinal())
+                if (singleConfig.getScope().ordinal() >= updated.get(i).getScope().ordinal())
                     {
                     indexToInsertAt = i;
                     break;
                     }
                 }
-            configs.add(indexToInsertAt, singleConfig);
+            updated.add(indexToInsertAt, singleConfig);
+            if (refreshTarget == null)
+                {
+                configs = Collections.unmodifiableList(updated);
+                }
             }
 
         changeChecker.updateConfigList(configs);
@@ -150,7 +177,7 @@ public class LayeredConfiguration extends AbstractConfiguration implements Layer
         {
         checkClosed();
         // config locations, including default layer.
-        synchronized(configs)
+        synchronized(layerLock)
             {
             return configs.stream().map(ConfigLayerInterface::getSource).collect(Collectors.toList());
             }
@@ -162,7 +189,7 @@ public class LayeredConfiguration extends AbstractConfiguration implements Layer
     public List<ConfigLayerInterface> getLayers()
         {
         checkClosed();
-        synchronized(configs)
+        synchronized(layerLock)
             {
             return new ArrayList<>(configs);
             }
@@ -223,6 +250,10 @@ public class LayeredConfiguration extends AbstractConfiguration implements Layer
             }
         flush();
         closed = true;
+        if (ctx.getWriteBehindScheduler() != null)
+            {
+            ctx.getWriteBehindScheduler().forget(this);
+            }
 
         if (configFactory != null)
             {
@@ -258,20 +289,49 @@ public class LayeredConfiguration extends AbstractConfiguration implements Layer
         int collectedNumberOfChangesFlushed = 0;
 
         // iterate through all layers, no matter the scope, and try to flush() each.
-        for (ConfigLayerInterface configLayer : configs)
+        // under layerLock, as writes and write-behind flushes; layers are not thread-safe themselves.
+        synchronized(layerLock)
             {
-            int flushed = configLayer.flush();
-
-            if (flushed > 0)
+            for (ConfigLayerInterface configLayer : configs)
                 {
-                collectedNumberOfChangesFlushed += flushed;
-                logger.trace("flushed "+flushed+" entries from "+configLayer);
+                int flushed = configLayer.flush();
+
+                if (flushed > 0)
+                    {
+                    collectedNumberOfChangesFlushed += flushed;
+                    logger.trace("flushed "+flushed+" entries from "+configLayer);
+                    }
                 }
             }
 
         return collectedNumberOfChangesFlushed;
         }
 
+    /**
+     * flush a single layer; used by write-behind.
+     *
+     * @param layer the layer to flush
+     * @return number of entries flushed
+     * @throws ConfigCheckedException on write errors
+     */
+    int flushLayer(final ConfigLayerInterface layer)
+            throws ConfigCheckedException
+        {
+        synchronized(layerLock)
+            {
+            return layer.flush();
+            }
+        }
+
+    private void notifyWriteBehind(final ConfigLayerInterface layer)
+        {
+        WriteBehindScheduler writeBehind = ctx.getWriteBehindScheduler();
+        if (writeBehind != null)
+            {
+            writeBehind.markDirty(this, layer);
+            }
+        }
+
     /** {@inheritDoc} */
     @Override
     public boolean reload()
@@ -313,7 +373,7 @@ public class LayeredConfiguration extends AbstractConfiguration implements Layer
                 continue;                                         // skip read-only layers.
                 }
 
-            ConfigEntry entry = configLayer.getEntry(fullKey);
+            ConfigEntry entry = configLayer.getEntryForWriting(fullKey);
 
             if (entry != null)
                 {
@@ -362,7 +422,7 @@ public class LayeredConfiguration extends AbstractConfiguration implements Layer
             if (entry != null)
                 {
                 logger.info(entry.getKey()+" found in ["+entry.getScope()+"] at location "+configLayer.getSource().toLocationString());
-                if (!(spec instanceof NullConfigEntrySpecification))
+                if (!(spec instanceof NullConfigEntrySpecification) && !AbstractConfigEntry.isSpecifiedAs(entry, spec))
                     { entry = new SpecifiedConfigEntryWrapper(entry, spec); }
 
                 if (!configSchema.checkConfigEntryValidity(fullKey, entry))
@@ -415,7 +475,7 @@ public class LayeredConfiguration extends AbstractConfiguration implements Layer
         {
         checkClosed();
         // Runtime check: any existing writable layer?
-        synchronized(configs)
+        synchronized(layerLock)
             {
             for (ConfigLayerInterface configLayer : configs)
                 {
@@ -543,7 +603,7 @@ public class LayeredConfiguration extends AbstractConfiguration implements Layer
             }
 
         // Priority 1: Update existing entry in the scope (highest priority writeable layer first)
-        synchronized(configs)
+        synchronized(layerLock)
             {
             for (ConfigLayerInterface configLayer : configs)
                 {
@@ -558,6 +618,7 @@ public class LayeredConfiguration extends AbstractConfiguration implements Layer
                     // Update: do not auto-add description on update
                     ConfigEntry updatedEntry = ConfigEntryFactory.createEntry(fullKey, value, type, this.configSchema, configLayer.getSource());
                     configLayer.writeEntry(updatedEntry);
+                    notifyWriteBehind(configLayer);
                     return;
                     }
                 }
@@ -601,7 +662,10 @@ public class LayeredConfiguration extends AbstractConfiguration implements Layer
                 }
             throw e;
             }
-        createAndWriteEntry(newLayer, fullKey, value, type, spec);
+        synchronized(layerLock)
+            {
+            createAndWriteEntry(newLayer, fullKey, value, type, spec);
+            }
         }
 
     private void createAndWriteEntry(ConfigLayerInterface layer, String fullKey, Object value, ConfigEntryType type, ConfigEntrySpecification spec)
@@ -620,6 +684,7 @@ public class LayeredConfiguration extends AbstractConfiguration implements Layer
                 }
             }
         layer.writeEntry(newEntry);
+        notifyWriteBehind(layer);
         }
 
 
@@ -732,7 +797,7 @@ public class LayeredConfiguration extends AbstractConfiguration implements Layer
         {
         checkClosed();
         Set<String> allKeys = new HashSet<>();
-        synchronized(configs)
+        synchronized(layerLock)
             {
             for (ConfigLayerInterface configLayer : configs)
                 {
@@ -787,7 +852,7 @@ public class LayeredConfiguration extends AbstractConfiguration implements Layer
         {
         checkClosed();
         // Subscribe to all current layers
-        synchronized(configs)
+        synchronized(layerLock)
             {
             for (ConfigLayerInterface config : configs)
                 { changeNotifier.subscribeToConfigLocationUpdates(config.getSource(), listener); }
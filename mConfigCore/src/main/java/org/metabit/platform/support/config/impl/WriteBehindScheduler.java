@@ -0,0 +1,217 @@
+package org.metabit.platform.support.config.impl;
+
+import org.metabit.platform.support.config.ConfigCheckedException;
+import org.metabit.platform.support.config.ConfigFeature;
+import org.metabit.platform.support.config.interfaces.ConfigLayerInterface;
+import org.metabit.platform.support.config.interfaces.ConfigLoggingInterface;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * write-behind for layers with write-cache (WRITE_SYNC=false).
+ * <p>
+ * Dirty layers are flushed on a background thread, WRITE_BEHIND_DELAY_MS after their first cached write,
+ * or right away once WRITE_BEHIND_MAX_DIRTY_ENTRIES writes have accumulated.
+ * On factory close - and, as last resort, on JVM shutdown - everything still dirty is flushed.
+ * <p>
+ * One JVM shutdown hook serves all schedulers; it holds them weakly, so factories never closed can still be
+ * collected. Layers with pending writes stay reachable through their scheduled flush until it has run.
+ */
+public class WriteBehindScheduler
+{
+    private static final Map<WriteBehindScheduler, Boolean> ACTIVE = new WeakHashMap<>(); // guarded by itself
+    private static       boolean                            shutdownHookAdded; // guarded by ACTIVE
+
+    private final ConfigLoggingInterface                     logger;
+    private final ScheduledThreadPoolExecutor                executor;
+    private final long                                       delayMs;
+    private final int                                        maxDirtyEntries;
+    private final Map<ConfigLayerInterface, DirtyLayer>      dirtyLayers; // guarded by itself
+    private volatile boolean                                 closed;
+
+    private static final class DirtyLayer
+    {
+        final LayeredConfiguration configuration;
+        ScheduledFuture<?>         pending;
+
+        DirtyLayer(LayeredConfiguration configuration)
+            {
+            this.configuration = configuration;
+            }
+    }
+
+    WriteBehindScheduler(ConfigFactoryInstanceContext ctx)
+        {
+        this.logger = ctx.getLogger();
+        Integer delay = ctx.getSettings().getInteger(ConfigFeature.WRITE_BEHIND_DELAY_MS);
+        Integer max = ctx.getSettings().getInteger(ConfigFeature.WRITE_BEHIND_MAX_DIRTY_ENTRIES);
+        this.delayMs = (delay == null) ? 0 : delay;
+        this.maxDirtyEntries = (max == null) ? 0 : max;
+        this.dirtyLayers = new IdentityHashMap<>(); // layers may implement equals() by content.
+        this.executor = new ScheduledThreadPoolExecutor(1, runnable->
+            {
+            Thread t = new Thread(runnable, "mConfig-WriteBehind");
+            t.setDaemon(true);
+            return t;
+            });
+        // no idle thread, and no cancelled tasks, keeping an abandoned scheduler alive.
+        executor.setKeepAliveTime(1, TimeUnit.SECONDS);
+        executor.allowCoreThreadTimeOut(true);
+        executor.setRemoveOnCancelPolicy(true);
+        register(this);
+        }
+
+    private static void register(final WriteBehindScheduler scheduler)
+        {
+        synchronized (ACTIVE)
+            {
+            ACTIVE.put(scheduler, Boolean.TRUE);
+            if (!shutdownHookAdded)
+                {
+                Runtime.getRuntime().addShutdownHook(new Thread(WriteBehindScheduler::flushAllOnShutdown, "mConfig-WriteBehind-Shutdown"));
+                shutdownHookAdded = true;
+                }
+            }
+        }
+
+    private static void flushAllOnShutdown()
+        {
+        List<WriteBehindScheduler> schedulers;
+        synchronized (ACTIVE)
+            {
+            schedulers = new ArrayList<>(ACTIVE.keySet());
+            }
+        for (WriteBehindScheduler scheduler : schedulers)
+            {
+            scheduler.flushAll();
+            }
+        }
+
+    /**
+     * report a write to a layer. Call after the write.
+     *
+     * @param configuration the configuration the layer belongs to
+     * @param layer         the layer written to
+     */
+    void markDirty(final LayeredConfiguration configuration, final ConfigLayerInterface layer)
+        {
+        if (closed)
+            {
+            return;
+            }
+        int pendingWrites = layer.getPendingWriteCount();
+        if (pendingWrites <= 0)
+            {
+            return; // written through already.
+            }
+        synchronized (dirtyLayers)
+            {
+            DirtyLayer dirty = dirtyLayers.computeIfAbsent(layer, k->new DirtyLayer(configuration));
+            boolean overLimit = (maxDirtyEntries > 0) && (pendingWrites >= maxDirtyEntries);
+            if (dirty.pending != null)
+                {
+                if (!overLimit || (dirty.pending.getDelay(TimeUnit.MILLISECONDS) <= 0))
+                    {
+                    return; // already scheduled in time.
+                    }
+                dirty.pending.cancel(false);
+                }
+            dirty.pending = executor.schedule(()->flushLayer(layer), overLimit ? 0 : delayMs, TimeUnit.MILLISECONDS);
+            }
+        }
+
+    /**
+     * drop all entries of a configuration; used when it is closed (and flushed) by its owner.
+     *
+     * @param configuration configuration to forget
+     */
+    void forget(final LayeredConfiguration configuration)
+        {
+        synchronized (dirtyLayers)
+            {
+            dirtyLayers.values().removeIf(dirty->
+                {
+                if (dirty.configuration != configuration)
+                    {
+                    return false;
+                    }
+                if (dirty.pending != null)
+                    {
+                    dirty.pending.cancel(false);
+                    }
+                return true;
+                });
+            }
+        }
+
+    private void flushLayer(final ConfigLayerInterface layer)
+        {
+        DirtyLayer dirty;
+        synchronized (dirtyLayers)
+            {
+            dirty = dirtyLayers.remove(layer);
+            }
+        if (dirty == null)
+            {
+            return;
+            }
+        try
+            {
+            int flushed = dirty.configuration.flushLayer(layer);
+            logger.trace("write-behind flushed "+flushed+" entries from "+layer);
+            }
+        catch (ConfigCheckedException|RuntimeException ex)
+            {
+            logger.error("write-behind flush failed for "+layer, ex);
+            }
+        }
+
+    /**
+     * flush everything still dirty, on the calling thread.
+     */
+    void flushAll()
+        {
+        List<ConfigLayerInterface> layers;
+        synchronized (dirtyLayers)
+            {
+            layers = new ArrayList<>(dirtyLayers.keySet());
+            for (DirtyLayer dirty : dirtyLayers.values())
+                {
+                if (dirty.pending != null)
+                    {
+                    dirty.pending.cancel(false);
+                    }
+                }
+            }
+        for (ConfigLayerInterface layer : layers)
+            {
+            flushLayer(layer);
+            }
+        }
+
+    /**
+     * final flush, then stop the background thread.
+     */
+    void exit()
+        {
+        if (closed)
+            {
+            return;
+            }
+        closed = true;
+        flushAll();
+        executor.shutdown();
+        synchronized (ACTIVE)
+            {
+            ACTIVE.remove(this);
+            }
+        }
+}
+//___EOF___
@@ -21,7 +21,7 @@ import java.time.Duration;
 public abstract class AbstractConfigEntry implements ConfigEntry
     {
     protected final String              key;
-    protected final ConfigEntryMetadata meta;
+    protected final ConfigEntryMetadata meta; // may be shared with other entries of the layer; then read-only
 
     protected AbstractConfigEntry(String key, ConfigEntryMetadata meta)
         {
@@ -110,11 +110,20 @@ public abstract class AbstractConfigEntry implements ConfigEntry
         return (meta != null) ? meta.getComment() : null;
         }
 
+    /**
+     * set the comment.
+     * Entries sharing read-only metadata are cached by their layer, and never changed;
+     * use the entry the layer provides for writing instead.
+     *
+     * @param comment the comment to be set
+     * @throws UnsupportedOperationException if this entry shares read-only metadata.
+     */
     @Override
     public void setComment(String comment)
         {
         if (meta != null)
             {
+            checkModifiable();
             meta.setComment(comment);
             }
         }
@@ -127,6 +136,32 @@ public abstract class AbstractConfigEntry implements ConfigEntry
         return meta;
         }
 
+    /**
+     * @param entry         entry to check
+     * @param specification specification to check for
+     * @return true if the entry holds exactly this specification in its own metadata, and needs no wrapper to apply it.
+     */
+    public static boolean isSpecifiedAs(ConfigEntry entry, ConfigEntrySpecification specification)
+        {
+        if (!(entry instanceof AbstractConfigEntry))
+            {
+            return false;
+            }
+        ConfigEntryMetadata entryMeta = ((AbstractConfigEntry) entry).meta;
+        return (entryMeta != null) && (entryMeta.getSpecification() == specification);
+        }
+
+    /**
+     * @throws UnsupportedOperationException if this entry is cached by its layer, sharing read-only metadata.
+     */
+    protected void checkModifiable()
+        {
+        if ((meta != null) && meta.isShared())
+            {
+            throw new UnsupportedOperationException("entry \""+key+"\" is shared by its layer and read-only; get it with getEntryForWriting");
+            }
+        }
+
     /**
      * Helper to write the entry back to its source.
      */
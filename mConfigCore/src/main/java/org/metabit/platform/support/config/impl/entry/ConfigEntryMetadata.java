@@ -25,6 +25,7 @@ public class ConfigEntryMetadata
 private ConfigEntrySpecification specification;
 private ConfigSource             source;
 private String                   comment;
+private final boolean            shared;
 
 /**
  * <p>Constructor for ConfigEntryMetadata.</p>
@@ -34,6 +35,69 @@ private String                   comment;
 public ConfigEntryMetadata(ConfigSource source)
     {
     this.source = source;
+    this.shared = false;
+    }
+
+private ConfigEntryMetadata(ConfigSource source, ConfigEntrySpecification specification, String comment, boolean shared)
+    {
+    this.source = source;
+    this.specification = specification;
+    this.comment = comment;
+    this.shared = shared;
+    }
+
+/**
+ * metadata to be shared by the entries of a layer which have no comment or specification of their own.
+ * Shared metadata is read-only; entries holding it are read-only, too. Writeable layers give their entries metadata of their own.
+ *
+ * @param source source of the layer
+ * @return shared metadata
+ */
+public static ConfigEntryMetadata shared(ConfigSource source)
+    {
+    return new ConfigEntryMetadata(source, null, null, true);
+    }
+
+/**
+ * @return true if this is read-only metadata, shared by several entries.
+ */
+public boolean isShared()
+    {
+    return shared;
+    }
+
+/**
+ * @param specification specification to set
+ * @return read-only metadata like this one, with the specification given; for entries cached with their specification.
+ */
+public ConfigEntryMetadata withSpecification(ConfigEntrySpecification specification)
+    {
+    return new ConfigEntryMetadata(source, specification, comment, true);
+    }
+
+/**
+ * @param comment comment to set
+ * @return read-only metadata like this one, with the comment given; for cached entries which have a comment of their own.
+ */
+public ConfigEntryMetadata withComment(String comment)
+    {
+    return new ConfigEntryMetadata(source, specification, comment, true);
+    }
+
+/**
+ * @return a modifiable copy.
+ */
+public ConfigEntryMetadata copy()
+    {
+    return new ConfigEntryMetadata(source, specification, comment, false);
+    }
+
+private void checkModifiable()
+    {
+    if (shared)
+        {
+        throw new UnsupportedOperationException("shared entry metadata is read-only");
+        }
     }
 /**
  * <p>getLocation.</p>
@@ -52,6 +116,7 @@ public ConfigLocation getLocation()
  */
 public void setSource(ConfigSource source)
     {
+    checkModifiable();
     this.source = source;
     }
 
@@ -89,6 +154,7 @@ public ConfigEntrySpecification getSpecification()
  */
     public void setSpecification(ConfigEntrySpecification specification)
         {
+        checkModifiable();
         this.specification = specification;
         }
 
@@ -109,6 +175,7 @@ public ConfigEntrySpecification getSpecification()
      */
     public void setComment(String comment)
         {
+        checkModifiable();
         this.comment = comment;
         }
 // type
@@ -17,11 +17,31 @@ import java.util.List;
 /**
  * A unified implementation of ConfigEntry leaf nodes that handles all type conversions
  * through ConfigTypeConverter.
+ * <p>
+ * Conversions to immutable types (numbers, URI, Path, date/time, Duration) are memoized,
+ * one result per target type, for as long as the value is not replaced.
+ * Byte arrays and lists are converted on every call, as callers may modify them.
  */
 public class GenericConfigEntryLeaf extends AbstractConfigEntry implements SecretConfigEntry
 {
-    private Object value;
-    private ConfigEntryType type;
+    private static final int AS_INTEGER         = 0;
+    private static final int AS_LONG            = 1;
+    private static final int AS_DOUBLE          = 2;
+    private static final int AS_BIG_INTEGER     = 3;
+    private static final int AS_BIG_DECIMAL     = 4;
+    private static final int AS_URI             = 5;
+    private static final int AS_PATH            = 6;
+    private static final int AS_LOCAL_DATE      = 7;
+    private static final int AS_LOCAL_TIME      = 8;
+    private static final int AS_LOCAL_DATETIME  = 9;
+    private static final int AS_OFFSET_DATETIME = 10;
+    private static final int AS_ZONED_DATETIME  = 11;
+    private static final int AS_DURATION        = 12;
+    private static final int CONVERSIONS        = 13;
+
+    private          Object          value;
+    private          ConfigEntryType type;
+    private volatile Converted       converted; // memoized conversions of value; replaced as a whole, never modified
 
     public GenericConfigEntryLeaf(String key, Object value, ConfigEntryType type, ConfigEntryMetadata meta)
         {
@@ -58,35 +78,50 @@ public class GenericConfigEntryLeaf extends AbstractConfigEntry implements Secre
     @Override
     public Integer getValueAsInteger() throws ConfigCheckedException
         {
-        try { return ConfigTypeConverter.toInteger(value); }
+        Object source = value;
+        Object memo = memoized(source, AS_INTEGER);
+        if (memo != null) return (Integer) memo;
+        try { return memoize(AS_INTEGER, source, ConfigTypeConverter.toInteger(source)); }
         catch (NumberFormatException e) { throw new ConfigCheckedException(e); }
         }
 
     @Override
     public Long getValueAsLong() throws ConfigCheckedException
         {
-        try { return ConfigTypeConverter.toLong(value); }
+        Object source = value;
+        Object memo = memoized(source, AS_LONG);
+        if (memo != null) return (Long) memo;
+        try { return memoize(AS_LONG, source, ConfigTypeConverter.toLong(source)); }
         catch (NumberFormatException e) { throw new ConfigCheckedException(e); }
         }
 
     @Override
     public Double getValueAsDouble() throws ConfigCheckedException
         {
-        try { return ConfigTypeConverter.tryToDouble(value); }
+        Object source = value;
+        Object memo = memoized(source, AS_DOUBLE);
+        if (memo != null) return (Double) memo;
+        try { return memoize(AS_DOUBLE, source, ConfigTypeConverter.tryToDouble(source)); }
         catch (NumberFormatException e) { throw new ConfigCheckedException(e); }
         }
 
     @Override
     public BigInteger getValueAsBigInteger() throws ConfigCheckedException
         {
-        try { return ConfigTypeConverter.toBigInteger(value); }
+        Object source = value;
+        Object memo = memoized(source, AS_BIG_INTEGER);
+        if (memo != null) return (BigInteger) memo;
+        try { return memoize(AS_BIG_INTEGER, source, ConfigTypeConverter.toBigInteger(source)); }
         catch (NumberFormatException e) { throw new ConfigCheckedException(e); }
         }
 
     @Override
     public BigDecimal getValueAsBigDecimal() throws ConfigCheckedException
         {
-        try { return ConfigTypeConverter.toBigDecimal(value); }
+        Object source = value;
+        Object memo = memoized(source, AS_BIG_DECIMAL);
+        if (memo != null) return (BigDecimal) memo;
+        try { return memoize(AS_BIG_DECIMAL, source, ConfigTypeConverter.toBigDecimal(source)); }
         catch (NumberFormatException e) { throw new ConfigCheckedException(e); }
         }
 
@@ -97,35 +132,93 @@ public class GenericConfigEntryLeaf extends AbstractConfigEntry implements Secre
     public List<String> getValueAsStringList() throws ConfigCheckedException { return ConfigTypeConverter.toStringList(value); }
 
     @Override
-    public URI getValueAsURI() throws ConfigCheckedException { return ConfigTypeConverter.toURI(value); }
+    public URI getValueAsURI() throws ConfigCheckedException
+        {
+        Object source = value;
+        Object memo = memoized(source, AS_URI);
+        return (memo != null) ? (URI) memo : memoize(AS_URI, source, ConfigTypeConverter.toURI(source));
+        }
 
     @Override
-    public Path getValueAsPath() throws ConfigCheckedException { return ConfigTypeConverter.toPath(value, null); }
+    public Path getValueAsPath() throws ConfigCheckedException
+        {
+        Object source = value;
+        Object memo = memoized(source, AS_PATH);
+        return (memo != null) ? (Path) memo : memoize(AS_PATH, source, ConfigTypeConverter.toPath(source, null));
+        }
 
     @Override
     public Path getValueAsPath(FileSystem fs) throws ConfigCheckedException { return ConfigTypeConverter.toPath(value, fs); }
 
     @Override
-    public LocalDate getValueAsLocalDate() throws ConfigCheckedException { return ConfigTypeConverter.toLocalDate(value); }
+    public LocalDate getValueAsLocalDate() throws ConfigCheckedException
+        {
+        Object source = value;
+        Object memo = memoized(source, AS_LOCAL_DATE);
+        return (memo != null) ? (LocalDate) memo : memoize(AS_LOCAL_DATE, source, ConfigTypeConverter.toLocalDate(source));
+        }
 
     @Override
-    public LocalTime getValueAsLocalTime() throws ConfigCheckedException { return ConfigTypeConverter.toLocalTime(value); }
+    public LocalTime getValueAsLocalTime() throws ConfigCheckedException
+        {
+        Object source = value;
+        Object memo = memoized(source, AS_LOCAL_TIME);
+        return (memo != null) ? (LocalTime) memo : memoize(AS_LOCAL_TIME, source, ConfigTypeConverter.toLocalTime(source));
+        }
 
     @Override
-    public LocalDateTime getValueAsLocalDateTime() throws ConfigCheckedException { return ConfigTypeConverter.toLocalDateTime(value); }
+    public LocalDateTime getValueAsLocalDateTime() throws ConfigCheckedException
+        {
+        Object source = value;
+        Object memo = memoized(source, AS_LOCAL_DATETIME);
+        return (memo != null) ? (LocalDateTime) memo : memoize(AS_LOCAL_DATETIME, source, ConfigTypeConverter.toLocalDateTime(source));
+        }
 
     @Override
-    public OffsetDateTime getValueAsOffsetDateTime() throws ConfigCheckedException { return ConfigTypeConverter.toOffsetDateTime(value); }
+    public OffsetDateTime getValueAsOffsetDateTime() throws ConfigCheckedException
+        {
+        Object source = value;
+        Object memo = memoized(source, AS_OFFSET_DATETIME);
+        return (memo != null) ? (OffsetDateTime) memo : memoize(AS_OFFSET_DATETIME, source, ConfigTypeConverter.toOffsetDateTime(source));
+        }
 
     @Override
-    public ZonedDateTime getValueAsZonedDateTime() throws ConfigCheckedException { return ConfigTypeConverter.toZonedDateTime(value); }
+    public ZonedDateTime getValueAsZonedDateTime() throws ConfigCheckedException
+        {
+        Object source = value;
+        Object memo = memoized(source, AS_ZONED_DATETIME);
+        return (memo != null) ? (ZonedDateTime) memo : memoize(AS_ZONED_DATETIME, source, ConfigTypeConverter.toZonedDateTime(source));
+        }
 
     @Override
-    public Duration getValueAsDuration() throws ConfigCheckedException { return ConfigTypeConverter.toDuration(value); }
+    public Duration getValueAsDuration() throws ConfigCheckedException
+        {
+        Object source = value;
+        Object memo = memoized(source, AS_DURATION);
+        return (memo != null) ? (Duration) memo : memoize(AS_DURATION, source, ConfigTypeConverter.toDuration(source));
+        }
+
+    private Object memoized(final Object source, final int conversion)
+        {
+        Converted current = converted;
+        return ((current != null) && (current.source == source)) ? current.results[conversion] : null;
+        }
+
+    // lock-free; if two threads memoize at the same time, one result may get lost, and is converted again next time.
+    private <T> T memoize(final int conversion, final Object source, final T result)
+        {
+        if (result == null) return null;
+        Converted current = converted;
+        Object[] results = ((current != null) && (current.source == source)) ? current.results.clone() : new Object[CONVERSIONS];
+        results[conversion] = result;
+        converted = new Converted(source, results);
+        return result;
+        }
 
     @Override
     public void putString(String newValue) throws ConfigCheckedException
         {
+        checkModifiable();
         ConfigStorageInterface storage = this.meta.getLocation().getStorage();
         if (!storage.isGenerallyWriteable())
             {
@@ -138,6 +231,7 @@ public class GenericConfigEntryLeaf extends AbstractConfigEntry implements Secre
     @Override
     public void putValue(Object newValue, ConfigEntryType newValueType) throws ConfigCheckedException
         {
+        checkModifiable();
         ConfigStorageInterface storage = this.meta.getLocation().getStorage();
         if (!storage.isGenerallyWriteable())
             {
@@ -158,4 +252,16 @@ public class GenericConfigEntryLeaf extends AbstractConfigEntry implements Secre
                 ", type=" + type +
                 '}';
         }
+
+    private static final class Converted
+    {
+        final Object   source;
+        final Object[] results;
+
+        Converted(Object source, Object[] results)
+            {
+            this.source = source;
+            this.results = results;
+            }
+    }
 }
@@ -0,0 +1,393 @@
+package org.metabit.platform.support.config.impl.util;
+
+import org.metabit.platform.support.config.ConfigFeature;
+import org.metabit.platform.support.config.impl.ConfigFactorySettings;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * shared write pipeline for file-based config formats.
+ * <p>
+ * Content is written to a temporary file next to the target, optionally forced to disk,
+ * and then moved over the target with ATOMIC_MOVE; readers never see a truncated file.
+ * Writes to the same file arriving within FILE_WRITE_COALESCE_MS are grouped, and performed once
+ * with the latest content; all callers return after that write completed.
+ * <p>
+ * Files written here are remembered for a short time, so file watchers can skip
+ * the change events caused by our own writes, see {@link #isOwnWrite(Path)}.
+ * Internal implementation class.
+ */
+public final class AtomicFileWriter
+{
+    /** callback writing the actual file content. */
+    @FunctionalInterface
+    public interface ContentWriter
+    {
+        void writeTo(BufferedWriter writer) throws IOException;
+    }
+
+    private static final String TEMP_SUFFIX         = ".mconfig.tmp";
+    private static final long OWN_WRITE_MEMORY_MS = 10_000;
+
+    private static final ConcurrentHashMap<Path, GroupWrite> PENDING    = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<Path, OwnWrite>   OWN_WRITES = new ConcurrentHashMap<>();
+
+    private final boolean atomic;
+    private final boolean fsync;
+    private final int     coalesceMilliseconds;
+
+    /**
+     * @param settings factory settings to take FILE_WRITE_* features from; null for defaults.
+     */
+    public AtomicFileWriter(final ConfigFactorySettings settings)
+        {
+        if (settings == null)
+            {
+            this.atomic = (Boolean) ConfigFeature.FILE_WRITE_ATOMIC.getDefault();
+            this.fsync = (Boolean) ConfigFeature.FILE_WRITE_FSYNC.getDefault();
+            this.coalesceMilliseconds = (Integer) ConfigFeature.FILE_WRITE_COALESCE_MS.getDefault();
+            }
+        else
+            {
+            this.atomic = settings.getBoolean(ConfigFeature.FILE_WRITE_ATOMIC);
+            this.fsync = settings.getBoolean(ConfigFeature.FILE_WRITE_FSYNC);
+            this.coalesceMilliseconds = settings.getInteger(ConfigFeature.FILE_WRITE_COALESCE_MS);
+            }
+        }
+
+    /**
+     * write a text file.
+     *
+     * @param target  file to (re)write
+     * @param charset charset to encode with
+     * @param content callback producing the content
+     * @throws IOException on failure; the previous file content is left intact in atomic mode.
+     */
+    public void write(final Path target, final Charset charset, final ContentWriter content)
+            throws IOException
+        {
+        final Path key = target.toAbsolutePath().normalize();
+        if (coalesceMilliseconds <= 0)
+            {
+            writeNow(key, charset, content);
+            return;
+            }
+        GroupWrite group;
+        boolean leader;
+        while (true)
+            {
+            GroupWrite fresh = new GroupWrite();
+            GroupWrite existing = PENDING.putIfAbsent(key, fresh);
+            group = (existing == null) ? fresh : existing;
+            if (group.offer(charset, content))
+                {
+                leader = (existing == null);
+                break;
+                }
+            // the group was closed in between; its leader is writing already. start a new one.
+            PENDING.remove(key, group);
+            }
+        if (!leader)
+            {
+            group.await();
+            return;
+            }
+        try
+            {
+            Thread.sleep(coalesceMilliseconds);
+            }
+        catch (InterruptedException e)
+            {
+            Thread.currentThread().interrupt(); // write anyway, others are waiting for it.
+            }
+        PENDING.remove(key, group);
+        group.close();
+        try
+            {
+            writeNow(key, group.charset, group.content);
+            group.complete(null);
+            }
+        catch (Throwable t) // Errors, too; the others must not wait forever.
+            {
+            group.complete(t);
+            throw t;
+            }
+        }
+
+    /**
+     * write a text file whose previous content is known, e.g. after patching it.
+     * <p>
+     * Without FILE_WRITE_ATOMIC and write coalescing, only the part from the first changed byte on is written, in place;
+     * appending an entry writes just that entry. Otherwise, and if the file on disk does not have
+     * the size of the previous content, the whole file is written as with {@link #write}.
+     *
+     * @param target   file to update
+     * @param charset  charset to encode with
+     * @param previous content the file is known to have
+     * @param content  new content
+     * @throws IOException on failure
+     */
+    public void writeChanged(final Path target, final Charset charset, final String previous, final String content)
+            throws IOException
+        {
+        if (atomic || (coalesceMilliseconds > 0) || !Files.isRegularFile(target))
+            {
+            write(target, charset, writer->writer.write(content));
+            return;
+            }
+        int common = 0;
+        int limit = Math.min(previous.length(), content.length());
+        while ((common < limit) && (previous.charAt(common) == content.charAt(common)))
+            {
+            common++;
+            }
+        if ((common > 0) && Character.isHighSurrogate(previous.charAt(common-1)))
+            {
+            common--; // don't split a surrogate pair
+            }
+        byte[] previousBytes = previous.getBytes(charset);
+        byte[] unchanged = previous.substring(0, common).getBytes(charset);
+        final Path key = target.toAbsolutePath().normalize();
+        if (Files.size(key) != previousBytes.length)
+            {
+            write(target, charset, writer->writer.write(content)); // changed on disk meanwhile
+            return;
+            }
+        byte[] tail = content.substring(common).getBytes(charset);
+        try (FileChannel channel = FileChannel.open(key, StandardOpenOption.WRITE))
+            {
+            ByteBuffer buffer = ByteBuffer.wrap(tail);
+            long position = unchanged.length;
+            while (buffer.hasRemaining())
+                {
+                position += channel.write(buffer, position);
+                }
+            channel.truncate(position);
+            if (fsync)
+                {
+                channel.force(true);
+                }
+            }
+        rememberOwnWrite(key);
+        }
+
+    private void writeNow(final Path target, final Charset charset, final ContentWriter content)
+            throws IOException
+        {
+        if (!atomic)
+            {
+            try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+                {
+                writeToChannel(channel, charset, content);
+                }
+            rememberOwnWrite(target);
+            return;
+            }
+        // write through symbolic links, instead of replacing them.
+        final Path realTarget = Files.isSymbolicLink(target) ? target.toRealPath() : target;
+        final Path directory = realTarget.getParent();
+        final Path temp = directory.resolve("."+realTarget.getFileName()+"."+Long.toHexString(ThreadLocalRandom.current().nextLong())+TEMP_SUFFIX);
+        try
+            {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE))
+                {
+                writeToChannel(channel, charset, content);
+                }
+            copyPermissions(realTarget, temp);
+            try
+                {
+                Files.move(temp, realTarget, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                }
+            catch (AtomicMoveNotSupportedException ex)
+                {
+                Files.move(temp, realTarget, StandardCopyOption.REPLACE_EXISTING);
+                }
+            if (fsync)
+                {
+                forceDirectory(directory);
+                }
+            }
+        finally
+            {
+            Files.deleteIfExists(temp);
+            }
+        rememberOwnWrite(target);
+        if (!realTarget.equals(target))
+            {
+            rememberOwnWrite(realTarget);
+            }
+        return;
+        }
+
+    private void writeToChannel(final FileChannel channel, final Charset charset, final ContentWriter content)
+            throws IOException
+        {
+        // not closing the writer here; the channel is closed by the caller.
+        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(channel), charset));
+        content.writeTo(writer);
+        writer.flush();
+        if (fsync)
+            {
+            channel.force(true);
+            }
+        }
+
+    private static void copyPermissions(final Path from, final Path to)
+        {
+        try
+            {
+            if (Files.exists(from) && Files.getFileAttributeView(from, PosixFileAttributeView.class) != null)
+                {
+                Files.setPosixFilePermissions(to, Files.getPosixFilePermissions(from));
+                }
+            }
+        catch (IOException|UnsupportedOperationException ignored)
+            {
+            // best effort; the temp file keeps the default permissions then.
+            }
+        }
+
+    // makes the rename itself durable. Not possible on all platforms (e.g. Windows); skipped there.
+    private static void forceDirectory(final Path directory)
+        {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ))
+            {
+            channel.force(true);
+            }
+        catch (IOException|UnsupportedOperationException ignored)
+            {
+            }
+        }
+
+    private static void rememberOwnWrite(final Path file)
+        {
+        try
+            {
+            Path key = file.toAbsolutePath().normalize();
+            OWN_WRITES.put(key, new OwnWrite(Files.getLastModifiedTime(key), Files.size(key), System.currentTimeMillis()));
+            }
+        catch (IOException ignored)
+            {
+            }
+        }
+
+    /**
+     * check whether the current state of a file is the result of a recent write through this class.
+     * Used by file watchers to suppress change events caused by our own writes.
+     *
+     * @param file file to check
+     * @return true if the file still has the timestamp and size of our last write to it.
+     */
+    public static boolean isOwnWrite(final Path file)
+        {
+        Path key = file.toAbsolutePath().normalize();
+        OwnWrite own = OWN_WRITES.get(key);
+        if (own == null)
+            {
+            return false;
+            }
+        if (System.currentTimeMillis()-own.recorded > OWN_WRITE_MEMORY_MS)
+            {
+            OWN_WRITES.remove(key, own);
+            return false;
+            }
+        try
+            {
+            return own.modified.equals(Files.getLastModifiedTime(key)) && (own.size == Files.size(key));
+            }
+        catch (IOException ex)
+            {
+            return false; // e.g. deleted meanwhile - that's not us.
+            }
+        }
+
+    /**
+     * @param file file to check
+     * @return true if this is one of the temporary files used during atomic writes.
+     */
+    public static boolean isTemporaryFile(final Path file)
+        {
+        Path name = file.getFileName();
+        return (name != null) && name.toString().endsWith(TEMP_SUFFIX);
+        }
+
+    private static final class OwnWrite
+    {
+        final FileTime modified;
+        final long     size;
+        final long     recorded;
+
+        OwnWrite(FileTime modified, long size, long recorded)
+            {
+            this.modified = modified;
+            this.size = size;
+            this.recorded = recorded;
+            }
+    }
+
+    // writes to one file, collected during the coalescing window.
+    private static final class GroupWrite
+    {
+        private Charset       charset;
+        private ContentWriter content;
+        private boolean       closed;
+        private boolean       done;
+        private Throwable     failure;
+
+        synchronized boolean offer(Charset charset, ContentWriter content)
+            {
+            if (closed)
+                {
+                return false;
+                }
+            this.charset = charset;
+            this.content = content; // latest wins
+            return true;
+            }
+
+        synchronized void close()
+            {
+            closed = true;
+            }
+
+        synchronized void complete(Throwable failure)
+            {
+            this.failure = failure;
+            this.done = true;
+            notifyAll();
+            }
+
+        synchronized void await()
+                throws IOException
+            {
+            while (!done)
+                {
+                try
+                    {
+                    wait();
+                    }
+                catch (InterruptedException e)
+                    {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("interrupted while waiting for grouped write");
+                    }
+                }
+            if (failure != null)
+                {
+                throw (failure instanceof IOException) ? new IOException(failure.getMessage(), failure) : new IOException(failure);
+                }
+            }
+    }
+}
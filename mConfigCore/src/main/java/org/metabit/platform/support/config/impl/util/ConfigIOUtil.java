@@ -1,5 +1,14 @@
 package org.metabit.platform.support.config.impl.util;
 
+import java.io.CharArrayReader;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+
 /**
  * Low-level IO and data transformation utility functions for mConfig core.
  * Internal implementation class.
@@ -75,4 +84,76 @@ public class ConfigIOUtil
         System.arraycopy(byteBuffer, 0, resultBytes, 0, offset);
         return resultBytes;
         }
+    /**
+     * decode a byte buffer (e.g. a memory-mapped file) into a character buffer, in one pass.
+     * The buffer position is not modified. Malformed input is replaced, as InputStreamReader would.
+     *
+     * @param buffer  bytes to decode
+     * @param charset charset to decode with
+     * @return heap-backed character buffer with the decoded content
+     * @throws CharacterCodingException on decoder failure
+     */
+    public static CharBuffer decode(final ByteBuffer buffer, final Charset charset)
+            throws CharacterCodingException
+        {
+        return charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                .decode(buffer.duplicate());
+        }
+
+    /**
+     * reader on the content of a heap-backed character buffer, without copying it.
+     *
+     * @param chars character buffer, as returned by {@link #decode(ByteBuffer, Charset)}
+     * @return reader over the remaining characters
+     */
+    public static Reader newReader(final CharBuffer chars)
+        {
+        if (chars.hasArray())
+            {
+            return new CharArrayReader(chars.array(), chars.arrayOffset()+chars.position(), chars.remaining());
+            }
+        char[] copy = new char[chars.remaining()];
+        chars.duplicate().get(copy);
+        return new CharArrayReader(copy);
+        }
+
+    /**
+     * input stream on the remaining content of a byte buffer, without copying it.
+     * The buffer passed in is not modified.
+     *
+     * @param buffer byte buffer to read from
+     * @return input stream
+     */
+    public static InputStream newInputStream(final ByteBuffer buffer)
+        {
+        final ByteBuffer view = buffer.duplicate();
+        return new InputStream()
+            {
+            @Override
+            public int read()
+                {
+                return view.hasRemaining() ? (view.get() & 0xFF) : -1;
+                }
+
+            @Override
+            public int read(byte[] b, int off, int len)
+                {
+                if (len == 0)
+                    return 0;
+                if (!view.hasRemaining())
+                    return -1;
+                int count = Math.min(len, view.remaining());
+                view.get(b, off, count);
+                return count;
+                }
+
+            @Override
+            public int available()
+                {
+                return view.remaining();
+                }
+            };
+        }
 }
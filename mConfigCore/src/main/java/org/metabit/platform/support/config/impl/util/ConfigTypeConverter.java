@@ -143,4 +143,63 @@ public final class ConfigTypeConverter
         if (value instanceof Duration) return (Duration) value;
         return Duration.parse(toString(value));
         }
+
+    /**
+     * convert a text to the value used for entries of the given type, where that is lossless:
+     * the value has to print as the text did. Otherwise, and for types kept as text
+     * (lists, bytes, file paths, date-times), the text itself is returned.
+     *
+     * @param text text to convert
+     * @param type entry type to convert for
+     * @return the typed value, or the text
+     */
+    public static Object toTypedValue(final String text, final ConfigEntryType type)
+        {
+        if ((text == null) || (type == null)) return text;
+        Object typed;
+        try
+            {
+            switch (type)
+                {
+                case NUMBER:
+                    typed = toNumber(text);
+                    break;
+                case BOOLEAN:
+                    typed = Boolean.valueOf(text);
+                    break;
+                case URI:
+                    typed = URI.create(text);
+                    break;
+                case DATE:
+                    typed = LocalDate.parse(text);
+                    break;
+                case TIME:
+                    typed = LocalTime.parse(text);
+                    break;
+                case DURATION:
+                    typed = Duration.parse(text);
+                    break;
+                default:
+                    return text;
+                }
+            }
+        catch (RuntimeException e) // not valid for the type; left to validation, as before
+            {
+            return text;
+            }
+        return text.equals(toString(typed)) ? typed : text;
+        }
+
+    // Integer or Long where they fit, so reading them needs no parsing or widening.
+    private static Number toNumber(final String text)
+        {
+        if ((text.indexOf('.') >= 0) || (text.indexOf('e') >= 0) || (text.indexOf('E') >= 0))
+            {
+            return new BigDecimal(text);
+            }
+        BigInteger value = new BigInteger(text);
+        if (value.bitLength() < 32) return value.intValue();
+        if (value.bitLength() < 64) return value.longValue();
+        return value;
+        }
 }
@@ -0,0 +1,240 @@
+package org.metabit.platform.support.config.impl.util;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * comments of a parsed config file, kept as offsets into its text until they are needed.
+ * <p>
+ * Format readers record where comment blocks and inline comments are, instead of creating
+ * strings for them. The strings are created when an entry's comment is asked for, or the
+ * layer is written; comment-heavy files then cost little more than the text itself.
+ * <p>
+ * Keeping the offsets means keeping the text. Where nothing else holds the text, and comments are
+ * not read (COMMENTS_READING off), readers have the comment strings created while parsing instead;
+ * the text can then be dropped, and only the comments are kept for writing.
+ * Internal implementation class.
+ */
+public final class SourceComments
+{
+    /** extracts the comment lines from a part of the text, as the format's reader would have. */
+    @FunctionalInterface
+    public interface LineReader
+    {
+        void read(String text, int start, int end, List<String> lines);
+    }
+
+    private final String     text;
+    private final LineReader reader;
+    private final boolean    keepText;
+
+    /**
+     * @param text     source text, as read
+     * @param reader   how to get the comment lines of a block
+     * @param keepText true to keep the text, and create the comment strings when accessed;
+     *                 false to create them right away, so the text is not held on to.
+     */
+    public SourceComments(final String text, final LineReader reader, final boolean keepText)
+        {
+        this.text = text;
+        this.reader = reader;
+        this.keepText = keepText;
+        }
+
+    /**
+     * line reader for formats with one comment per line.
+     *
+     * @param markers characters a comment line starts with, after leading whitespace
+     * @param trim    true to remove trailing whitespace from the lines as well
+     * @return line reader keeping the comment lines, without leading whitespace
+     */
+    public static LineReader commentLines(final String markers, final boolean trim)
+        {
+        return (text, start, end, lines)->
+            {
+            int position = start;
+            while (position < end)
+                {
+                int lineEnd = position;
+                while ((lineEnd < end) && (text.charAt(lineEnd) != '\n') && (text.charAt(lineEnd) != '\r'))
+                    {
+                    lineEnd++;
+                    }
+                int from = position;
+                while ((from < lineEnd) && Character.isWhitespace(text.charAt(from)))
+                    {
+                    from++;
+                    }
+                int to = lineEnd;
+                while (trim && (to > from) && Character.isWhitespace(text.charAt(to-1)))
+                    {
+                    to--;
+                    }
+                if ((from < to) && (markers.indexOf(text.charAt(from)) >= 0))
+                    {
+                    lines.add(text.substring(from, to));
+                    }
+                position = lineEnd+1;
+                }
+            };
+        }
+
+    /**
+     * pack a part of the text into one long.
+     *
+     * @param start offset of the first character
+     * @param end   offset behind the last character
+     * @return range for {@link #lines(long)}
+     */
+    public static long range(final int start, final int end)
+        {
+        return ((long) start << 32) | (end & 0xFFFFFFFFL);
+        }
+
+    /**
+     * comment lines of a block.
+     *
+     * @param range block of comment lines; must hold at least one.
+     * @return list creating its strings on first access, if the text is kept
+     */
+    public List<String> lines(final long range)
+        {
+        if (!keepText)
+            {
+            List<String> lines = new ArrayList<>(2);
+            reader.read(text, (int) (range >>> 32), (int) range, lines);
+            return Collections.unmodifiableList(lines);
+            }
+        return new LazyLines(this, new long[]{range});
+        }
+
+    /**
+     * a comment in one line, e.g. behind a value.
+     *
+     * @param start offset of the comment
+     * @param end   offset behind the comment
+     * @return the comment; if the text is kept, its string is created on toString().
+     */
+    public CharSequence text(final int start, final int end)
+        {
+        return keepText ? new LazyText(text, start, end) : text.substring(start, end);
+        }
+
+    /**
+     * join two lists of comment lines, without creating their strings if possible.
+     *
+     * @param first  lines, may be null
+     * @param second lines to append, may be null
+     * @return joined lines; null if both are null.
+     */
+    public static List<String> join(final List<String> first, final List<String> second)
+        {
+        if ((second == null) || second.isEmpty())
+            {
+            return first;
+            }
+        if ((first == null) || first.isEmpty())
+            {
+            return second;
+            }
+        if ((first instanceof LazyLines) && (second instanceof LazyLines) && (((LazyLines) first).source == ((LazyLines) second).source))
+            {
+            long[] a = ((LazyLines) first).ranges;
+            long[] b = ((LazyLines) second).ranges;
+            long[] ranges = Arrays.copyOf(a, a.length+b.length);
+            System.arraycopy(b, 0, ranges, a.length, b.length);
+            return new LazyLines(((LazyLines) first).source, ranges);
+            }
+        List<String> joined = new ArrayList<>(first);
+        joined.addAll(second);
+        return joined;
+        }
+
+    private static final class LazyLines extends AbstractList<String>
+    {
+        private final    SourceComments source;
+        private final    long[]         ranges;
+        private volatile List<String>   lines;
+
+        LazyLines(SourceComments source, long[] ranges)
+            {
+            this.source = source;
+            this.ranges = ranges;
+            }
+
+        private List<String> lines()
+            {
+            List<String> result = lines;
+            if (result == null)
+                {
+                result = new ArrayList<>();
+                for (long range : ranges)
+                    {
+                    source.reader.read(source.text, (int) (range >>> 32), (int) range, result);
+                    }
+                result = Collections.unmodifiableList(result);
+                lines = result;
+                }
+            return result;
+            }
+
+        @Override
+        public String get(int index)
+            {
+            return lines().get(index);
+            }
+
+        @Override
+        public int size()
+            {
+            return lines().size();
+            }
+
+        @Override
+        public boolean isEmpty()
+            {
+            return ranges.length == 0; // every block holds a comment line; no need to create them here.
+            }
+    }
+
+    private static final class LazyText implements CharSequence
+    {
+        private final String text;
+        private final int    start;
+        private final int    end;
+
+        LazyText(String text, int start, int end)
+            {
+            this.text = text;
+            this.start = start;
+            this.end = end;
+            }
+
+        @Override
+        public int length()
+            {
+            return end-start;
+            }
+
+        @Override
+        public char charAt(int index)
+            {
+            return text.charAt(start+index);
+            }
+
+        @Override
+        public CharSequence subSequence(int from, int to)
+            {
+            return text.subSequence(start+from, start+to);
+            }
+
+        @Override
+        public String toString()
+            {
+            return text.substring(start, end);
+            }
+    }
+}
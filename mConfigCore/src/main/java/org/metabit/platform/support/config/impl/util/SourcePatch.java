@@ -0,0 +1,256 @@
+package org.metabit.platform.support.config.impl.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * source text of a config file, with the spans of its values, for writing changes back as patch.
+ * <p>
+ * Format readers record the character span of each value while parsing. On flush, the format
+ * replaces the spans of changed values and inserts lines for added entries; everything else -
+ * comments, blank lines, layout - is kept as it was. After {@link #apply()}, all spans refer to the new text.
+ * <p>
+ * Not thread-safe; used under the lock of the layer owning it. Internal implementation class.
+ */
+public final class SourcePatch
+{
+    /** a span of the source text; moves along when the text is patched. */
+    public static final class Span
+    {
+        private int  start;
+        private int  end;
+        private Edit inserted; // set for spans of text inserted by the pending patch
+
+        private Span(int start, int end)
+            {
+            this.start = start;
+            this.end = end;
+            }
+
+        public int getStart()
+            { return start; }
+
+        public int getEnd()
+            { return end; }
+    }
+
+    private static final class Edit
+    {
+        final int    start;
+        final int    end;
+        final int    sequence;
+        String       text;
+        int          newStart;
+
+        Edit(int start, int end, int sequence, String text)
+            {
+            this.start = start;
+            this.end = end;
+            this.sequence = sequence;
+            this.text = text;
+            }
+    }
+
+    private       String           text;
+    private final String           lineSeparator;
+    private final List<Span>       spans;
+    private final Map<Span, Edit>  replacements;
+    private final List<Edit>       insertions;
+    private       int              sequence;
+
+    /**
+     * @param text source text, as read.
+     */
+    public SourcePatch(final String text)
+        {
+        this.text = text;
+        int newline = text.indexOf('\n');
+        if (newline < 0)
+            {
+            this.lineSeparator = System.lineSeparator(); // as BufferedWriter.newLine() in full rewrites
+            }
+        else
+            {
+            this.lineSeparator = ((newline > 0) && (text.charAt(newline-1) == '\r')) ? "\r\n" : "\n";
+            }
+        this.spans = new ArrayList<>();
+        this.replacements = new LinkedHashMap<>();
+        this.insertions = new ArrayList<>();
+        }
+
+    /** @return the current text; before {@link #apply()}, the text without the pending changes. */
+    public String getText()
+        { return text; }
+
+    /** @return the line separator the text uses. */
+    public String getLineSeparator()
+        { return lineSeparator; }
+
+    /**
+     * track a span of the current text, e.g. a value, or (with start == end) an insert position.
+     *
+     * @param start offset of the first char
+     * @param end   offset after the last char
+     * @return the tracked span
+     */
+    public Span track(final int start, final int end)
+        {
+        if ((start < 0) || (end < start) || (end > text.length()))
+            {
+            throw new IndexOutOfBoundsException("span "+start+"-"+end+" outside of text with length "+text.length());
+            }
+        Span span = new Span(start, end);
+        spans.add(span);
+        return span;
+        }
+
+    /**
+     * replace the text of a span. A later replacement of the same span wins.
+     *
+     * @param span    tracked span
+     * @param newText replacement text
+     */
+    public void replace(final Span span, final String newText)
+        {
+        if (span.inserted != null)
+            {
+            // inserted by this pending patch; patch the inserted text instead.
+            Edit insertion = span.inserted;
+            int relative = span.start;
+            insertion.text = insertion.text.substring(0, relative)+newText+insertion.text.substring(span.end);
+            span.end = relative+newText.length();
+            return;
+            }
+        Edit previous = replacements.get(span);
+        if (previous != null)
+            {
+            previous.text = newText;
+            return;
+            }
+        replacements.put(span, new Edit(span.start, span.end, sequence++, newText));
+        }
+
+    /**
+     * insert a line, e.g. for an added entry. A line break is put in front if the text at the position does not start a line.
+     *
+     * @param position tracked insert position; it moves behind the inserted line, so further lines follow in order.
+     * @param before   text of the line before the value, e.g. key and separator; may contain line separators itself
+     * @param value    the value text
+     * @param after    text of the line after the value; the line separator is added.
+     * @return span of the inserted value
+     */
+    public Span insertLine(final Span position, final String before, final String value, final String after)
+        {
+        int offset = position.start;
+        StringBuilder sb = new StringBuilder();
+        if ((offset > 0) && (text.charAt(offset-1) != '\n') && (text.charAt(offset-1) != '\r'))
+            {
+            sb.append(lineSeparator);
+            }
+        sb.append(before);
+        int valueStart = sb.length();
+        sb.append(value);
+        int valueEnd = sb.length();
+        sb.append(after).append(lineSeparator);
+        Edit edit = new Edit(offset, offset, sequence++, sb.toString());
+        insertions.add(edit);
+        Span span = new Span(valueStart, valueEnd); // relative to the inserted text until applied
+        span.inserted = edit;
+        spans.add(span);
+        return span;
+        }
+
+    /** @return true if changes are pending. */
+    public boolean hasChanges()
+        {
+        return !replacements.isEmpty() || !insertions.isEmpty();
+        }
+
+    /**
+     * apply the pending changes. Tracked spans are moved to their place in the new text.
+     *
+     * @return the new text
+     * @throws IllegalStateException if replacements overlap.
+     */
+    public String apply()
+        {
+        if (!hasChanges())
+            {
+            return text;
+            }
+        List<Edit> edits = new ArrayList<>(replacements.values());
+        edits.addAll(insertions);
+        edits.sort(Comparator.<Edit>comparingInt(e->e.start).thenComparingInt(e->e.sequence));
+        StringBuilder sb = new StringBuilder(text.length()+64);
+        int last = 0;
+        for (Edit edit : edits)
+            {
+            if (edit.start < last)
+                {
+                throw new IllegalStateException("overlapping changes at offset "+edit.start);
+                }
+            sb.append(text, last, edit.start);
+            edit.newStart = sb.length();
+            sb.append(edit.text);
+            last = edit.end;
+            }
+        sb.append(text, last, text.length());
+
+        // sorted by start and non-overlapping, so also sorted by end.
+        int[] ends = new int[edits.size()];
+        int[] shifts = new int[edits.size()]; // sum of length changes up to and including edit i
+        int shift = 0;
+        for (int i = 0; i < ends.length; i++)
+            {
+            Edit edit = edits.get(i);
+            shift += edit.text.length()-(edit.end-edit.start);
+            ends[i] = edit.end;
+            shifts[i] = shift;
+            }
+        for (Span span : spans)
+            {
+            if (span.inserted != null)
+                {
+                span.start += span.inserted.newStart;
+                span.end += span.inserted.newStart;
+                span.inserted = null;
+                continue;
+                }
+            Edit replaced = replacements.get(span);
+            if (replaced != null)
+                {
+                span.start = replaced.newStart;
+                span.end = replaced.newStart+replaced.text.length();
+                continue;
+                }
+            span.start = move(span.start, ends, shifts);
+            span.end = move(span.end, ends, shifts);
+            }
+        replacements.clear();
+        insertions.clear();
+        text = sb.toString();
+        return text;
+        }
+
+    // moves an offset by the length changes of all edits ending at or before it.
+    private static int move(final int offset, final int[] ends, final int[] shifts)
+        {
+        int index = Arrays.binarySearch(ends, offset);
+        if (index >= 0)
+            {
+            while ((index+1 < ends.length) && (ends[index+1] == offset))
+                {
+                index++; // several insertions at the same offset
+                }
+            }
+        else
+            {
+            index = -index-2; // last edit ending before the offset
+            }
+        return (index < 0) ? offset : offset+shifts[index];
+        }
+}
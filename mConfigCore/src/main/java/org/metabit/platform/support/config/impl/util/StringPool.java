@@ -0,0 +1,150 @@
+package org.metabit.platform.support.config.impl.util;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * weak interning pool for key segments and short scalar values, shared by the format readers of a factory.
+ * <p>
+ * Equal strings read from different files and fragments ("true", host names, key paths) end up as one instance.
+ * Pooled strings are held weakly; once no layer uses a string any more, it can be collected.
+ * Unlike {@link String#intern()}, the pool goes away with its factory.
+ * <p>
+ * Thread-safe; the pool is split into stripes by hash, each with its own lock, so readers
+ * parsing in parallel rarely wait for each other. Internal implementation class.
+ */
+public final class StringPool
+{
+    /** pool which does nothing; returns every string as given. */
+    public static final StringPool NONE = new StringPool(0);
+
+    private static final int STRING_OBJECT_SIZE = 24; // header, hash, coder, reference to the array
+    private static final int ARRAY_HEADER_SIZE  = 16;
+    private static final int STRIPES            = 16; // power of two
+
+    private final int      maxLength;
+    private final Stripe[] stripes;
+
+    // one part of the pool, with its statistics; guarded by its own monitor.
+    private static final class Stripe
+        {
+        final Map<String, WeakReference<String>> pool = new WeakHashMap<>();
+        long lookups;
+        long hits;
+        long savedBytes;
+        }
+
+    /**
+     * @param maxLength longest string to pool; longer ones are returned as given. 0 or less: pool nothing.
+     */
+    public StringPool(final int maxLength)
+        {
+        this.maxLength = maxLength;
+        this.stripes = new Stripe[(maxLength > 0) ? STRIPES : 0];
+        for (int i = 0; i < stripes.length; i++)
+            {
+            stripes[i] = new Stripe();
+            }
+        }
+
+    /**
+     * get the pooled instance of a string.
+     *
+     * @param s string; may be null
+     * @return an equal string; the pooled instance if s is short enough.
+     */
+    public String intern(final String s)
+        {
+        if ((s == null) || (s.length() > maxLength) || (stripes.length == 0))
+            {
+            return s;
+            }
+        int h = s.hashCode();
+        Stripe stripe = stripes[(h ^ (h >>> 16)) & (STRIPES-1)];
+        synchronized (stripe)
+            {
+            stripe.lookups++;
+            WeakReference<String> ref = stripe.pool.get(s);
+            String pooled = (ref != null) ? ref.get() : null;
+            if (pooled == null)
+                {
+                stripe.pool.put(s, new WeakReference<>(s));
+                return s;
+                }
+            if (pooled != s)
+                {
+                stripe.hits++;
+                stripe.savedBytes += estimatedSize(s);
+                }
+            return pooled;
+            }
+        }
+
+    /** @return whether this pool does pool anything. */
+    public boolean isActive()
+        { return maxLength > 0; }
+
+    /** @return number of strings currently pooled. */
+    public int size()
+        {
+        int size = 0;
+        for (Stripe stripe : stripes)
+            {
+            synchronized (stripe)
+                { size += stripe.pool.size(); }
+            }
+        return size;
+        }
+
+    /** @return number of strings looked up so far. */
+    public long getLookups()
+        {
+        long lookups = 0;
+        for (Stripe stripe : stripes)
+            {
+            synchronized (stripe)
+                { lookups += stripe.lookups; }
+            }
+        return lookups;
+        }
+
+    /** @return number of lookups which returned an already pooled instance. */
+    public long getHits()
+        {
+        long hits = 0;
+        for (Stripe stripe : stripes)
+            {
+            synchronized (stripe)
+                { hits += stripe.hits; }
+            }
+        return hits;
+        }
+
+    /** @return estimated heap bytes saved so far: the size of the duplicates which could be dropped. */
+    public long getSavedBytes()
+        {
+        long savedBytes = 0;
+        for (Stripe stripe : stripes)
+            {
+            synchronized (stripe)
+                { savedBytes += stripe.savedBytes; }
+            }
+        return savedBytes;
+        }
+
+    // heap size of a String with compact strings and compressed references; close enough for statistics.
+    static int estimatedSize(final String s)
+        {
+        int bytes = s.length();
+        for (int i = 0; i < s.length(); i++)
+            {
+            if (s.charAt(i) > 0xFF)
+                {
+                bytes = 2 * s.length();
+                break;
+                }
+            }
+        return STRING_OBJECT_SIZE+((ARRAY_HEADER_SIZE+bytes+7) & ~7);
+        }
+}
@@ -0,0 +1,202 @@
+package org.metabit.platform.support.config.impl.util;
+
+import org.metabit.platform.support.config.ConfigEntry;
+import org.metabit.platform.support.config.impl.entry.AbstractConfigEntry;
+import org.metabit.platform.support.config.interfaces.ConfigEntrySpecification;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * flat index of a tree-shaped document: full key to leaf node, and the entries created from the leaves so far.
+ * <p>
+ * Entries once created are returned without locking. Creating an entry, and changing the tree, happen holding
+ * this index's monitor; layers changing their tree do so in a block synchronized on the index, and report the
+ * change with {@link #removeSubtree(String, Object)} and {@link #putLeaf(String, Object)}.
+ * Only the keys written are updated, not the whole index.
+ * <p>
+ * Internal implementation class.
+ *
+ * @param <N> node type of the tree
+ */
+public final class TreeKeyIndex<N>
+{
+    private final Function<N, Iterable<Map.Entry<String, N>>> fields;
+    private final Predicate<N>                                 isBranch;
+    private final StringPool                                   strings;
+    private final Map<String, N>                               leaves; // guarded by this
+    private final Map<String, ConfigEntry>                     entries;
+    private final Map<String, ConfigEntry>                     specifiedEntries; // created for a specification, with it
+    private volatile List<String>                              keys; // snapshot for iteration; null after a change
+
+    /**
+     * @param root     root node; a branch
+     * @param fields   named children of a branch node
+     * @param isBranch whether a node is a branch; all other nodes are leaves
+     * @param strings  pool for the full keys
+     */
+    public TreeKeyIndex(final N root, final Function<N, Iterable<Map.Entry<String, N>>> fields, final Predicate<N> isBranch, final StringPool strings)
+        {
+        this.fields = fields;
+        this.isBranch = isBranch;
+        this.strings = strings;
+        this.leaves = new LinkedHashMap<>();
+        this.entries = new ConcurrentHashMap<>();
+        this.specifiedEntries = new ConcurrentHashMap<>();
+        collect(root, "");
+        }
+
+    private void collect(final N node, final String prefix)
+        {
+        for (Map.Entry<String, N> field : fields.apply(node))
+            {
+            String fullKey = strings.intern(prefix.isEmpty() ? field.getKey() : prefix+"/"+field.getKey());
+            N value = field.getValue();
+            if (isBranch.test(value))
+                {
+                collect(value, fullKey);
+                }
+            else
+                {
+                leaves.put(fullKey, value);
+                }
+            }
+        }
+
+    /**
+     * get the entry for a key, creating it from its leaf node on first access.
+     *
+     * @param fullKey full key
+     * @param create  creates the entry from key and leaf node; may return null
+     * @return entry, or null if there is none.
+     */
+    public ConfigEntry getEntry(final String fullKey, final BiFunction<String, N, ConfigEntry> create)
+        {
+        ConfigEntry entry = entries.get(fullKey);
+        if (entry != null)
+            {
+            return entry;
+            }
+        synchronized (this)
+            {
+            entry = entries.get(fullKey);
+            if (entry == null)
+                {
+                N leaf = leaves.get(fullKey);
+                entry = (leaf == null) ? null : create.apply(fullKey, leaf);
+                if (entry != null)
+                    {
+                    entries.put(fullKey, entry);
+                    }
+                }
+            return entry;
+            }
+        }
+
+    /**
+     * get the entry for a key made for a specification; kept until it is asked for with a different one.
+     *
+     * @param fullKey       full key
+     * @param specification specification the entry is made for
+     * @param create        creates the entry from key and leaf node; may return null
+     * @return entry, or null if there is none.
+     */
+    public ConfigEntry getEntry(final String fullKey, final ConfigEntrySpecification specification, final BiFunction<String, N, ConfigEntry> create)
+        {
+        ConfigEntry entry = specifiedEntries.get(fullKey);
+        if (AbstractConfigEntry.isSpecifiedAs(entry, specification))
+            {
+            return entry;
+            }
+        synchronized (this)
+            {
+            N leaf = leaves.get(fullKey);
+            entry = (leaf == null) ? null : create.apply(fullKey, leaf);
+            if (entry != null)
+                {
+                specifiedEntries.put(fullKey, entry);
+                }
+            else
+                {
+                specifiedEntries.remove(fullKey);
+                }
+            return entry;
+            }
+        }
+
+    /**
+     * @param fullKey full key
+     * @return the leaf node for a key, or null if there is none; for entries not to be cached.
+     */
+    public synchronized N getLeaf(final String fullKey)
+        {
+        return leaves.get(fullKey);
+        }
+
+    /**
+     * forget the leaves at and below a key, before the node there is replaced.
+     *
+     * @param fullKey full key
+     * @param oldNode node at that key so far; null if none.
+     */
+    public synchronized void removeSubtree(final String fullKey, final N oldNode)
+        {
+        if (oldNode == null)
+            {
+            return;
+            }
+        if (isBranch.test(oldNode))
+            {
+            for (Map.Entry<String, N> field : fields.apply(oldNode))
+                {
+                removeSubtree(fullKey+"/"+field.getKey(), field.getValue());
+                }
+            return;
+            }
+        leaves.remove(fullKey);
+        entries.remove(fullKey);
+        specifiedEntries.remove(fullKey);
+        keys = null;
+        }
+
+    /**
+     * set the leaf node for a key, after it was written to the tree.
+     *
+     * @param fullKey full key
+     * @param node    new leaf node
+     */
+    public synchronized void putLeaf(final String fullKey, final N node)
+        {
+        if (leaves.put(strings.intern(fullKey), node) == null)
+            {
+            keys = null;
+            }
+        entries.remove(fullKey);
+        specifiedEntries.remove(fullKey);
+        }
+
+    /**
+     * @return the full keys of all leaves, in document order as far as it is known.
+     */
+    public Iterator<String> keyIterator()
+        {
+        List<String> snapshot = keys;
+        if (snapshot == null)
+            {
+            synchronized (this)
+                {
+                snapshot = Collections.unmodifiableList(new ArrayList<>(leaves.keySet()));
+                keys = snapshot;
+                }
+            }
+        return snapshot.iterator();
+        }
+}
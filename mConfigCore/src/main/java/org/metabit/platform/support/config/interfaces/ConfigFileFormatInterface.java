@@ -2,8 +2,11 @@ package org.metabit.platform.support.config.interfaces;
 
 import org.metabit.platform.support.config.ConfigCheckedException;
 import org.metabit.platform.support.config.ConfigLocation;
+import org.metabit.platform.support.config.impl.util.ConfigIOUtil;
+
 import java.io.File;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
 import java.util.List;
 
@@ -39,6 +42,52 @@ public interface ConfigFileFormatInterface extends ConfigFormatInterface
      * @return a {@link org.metabit.platform.support.config.interfaces.ConfigLayerInterface} object
      */
     ConfigLayerInterface readStream(InputStream inputStream, final ConfigLocation location);
+
+    /**
+     * read config content from a byte buffer, e.g. a memory-mapped file.
+     * Formats which can parse directly from the buffer should override
+     * {@link #readBuffer(ByteBuffer, ConfigLocation, Path)}; the default wraps the buffer as a stream.
+     *
+     * @param buffer   content; its position is not modified.
+     * @param location a {@link org.metabit.platform.support.config.ConfigLocation} object
+     * @return config layer, or null.
+     */
+    default ConfigLayerInterface readBuffer(ByteBuffer buffer, final ConfigLocation location)
+        {
+        return readStream(ConfigIOUtil.newInputStream(buffer), location);
+        }
+
+    /**
+     * read config content from a byte buffer holding the contents of a file.
+     * The file path is kept as handle, so the resulting layer stays writeable like one from {@link #readFile(File, ConfigLocation)}.
+     * The default implementation falls back to {@link #readFile(File, ConfigLocation)};
+     * formats overriding it report so via {@link #readsBuffers()}.
+     *
+     * @param buffer     file content; its position is not modified.
+     * @param location   a {@link org.metabit.platform.support.config.ConfigLocation} object
+     * @param sourceFile the file the buffer was read or mapped from; may be null.
+     * @return config layer, or null.
+     */
+    default ConfigLayerInterface readBuffer(ByteBuffer buffer, final ConfigLocation location, Path sourceFile)
+        {
+        if (sourceFile == null)
+            {
+            return readBuffer(buffer, location);
+            }
+        return readFile(sourceFile.toFile(), location);
+        }
+
+    /**
+     * whether this format parses file contents from a buffer itself.
+     * Only then it is worth mapping a large file into memory for it.
+     *
+     * @return true if {@link #readBuffer(ByteBuffer, ConfigLocation, Path)} is implemented by the format.
+     */
+    default boolean readsBuffers()
+        {
+        return false;
+        }
+
     /**
      * <p>createFile.</p>
      *
@@ -29,6 +29,18 @@ public interface ConfigLayerInterface extends Comparable<ConfigLayerInterface>
      */
     ConfigEntry getEntry(final String hierarchicalKey);
 
+    /**
+     * get an entry to be changed and written back, e.g. with a comment set.
+     * Layers caching their entries return a new one with metadata of its own, so cached entries stay unchanged.
+     *
+     * @param hierarchicalKey key(s), with '/' as separator for key parts.
+     * @return the matching ConfigEntry instance, or null if no match was found.
+     */
+    default ConfigEntry getEntryForWriting(final String hierarchicalKey)
+        {
+        return getEntry(hierarchicalKey);
+        }
+
     /**
      * get an entry with a specific specification.
      * @param hierarchicalKey key(s), with '/' as separator for key parts.
@@ -85,6 +97,17 @@ public interface ConfigLayerInterface extends Comparable<ConfigLayerInterface>
     int flush()
             throws ConfigCheckedException;
 
+    /**
+     * number of writes held in the write-cache, not yet flushed.
+     * Layers without write-cache always return 0.
+     *
+     * @return number of pending writes.
+     */
+    default int getPendingWriteCount()
+        {
+        return 0;
+        }
+
     /**
      * <p>getSource.</p>
      *
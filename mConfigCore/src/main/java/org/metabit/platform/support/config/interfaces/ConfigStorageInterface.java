@@ -15,6 +15,7 @@ import org.metabit.platform.support.config.impl.LayeredConfiguration;
 import org.metabit.platform.support.config.schema.ConfigSchema;
 
 import java.net.URI;
+import java.util.List;
 
 /**
  * interface for accessing a type of config storage adapter.
@@ -147,6 +148,36 @@ public interface ConfigStorageInterface extends Cloneable
      */
     void updateConfigurationLayers(final String sanitizedConfigName, final ConfigLocation possibleSource, LayeredConfigurationInterface layeredCfg);
 
+    /**
+     * Re-read the configuration layers of a location after a change has been reported for it.
+     * <p>
+     * The previous layers have been removed from the layered configuration already.
+     * Storages which can tell what actually changed may add unchanged layers back, and read only the changed parts;
+     * the default reads the whole location again.
+     *
+     * @param sanitizedConfigName name of the configuration to read
+     * @param location the location reported as changed
+     * @param previousLayers layers previously read from this location, in the order they had been added
+     * @param layeredCfg the configuration facade that collects the layers
+     */
+    default void refreshConfigurationLayers(final String sanitizedConfigName, final ConfigLocation location, final List<ConfigLayerInterface> previousLayers, LayeredConfigurationInterface layeredCfg)
+        {
+        updateConfigurationLayers(sanitizedConfigName, location, layeredCfg);
+        }
+
+    /**
+     * check whether a layer has been read from a location.
+     * A location may contribute several layers, whose sources are more specific than the location itself.
+     *
+     * @param location the location, as in the search list
+     * @param layer the layer to check
+     * @return true if the layer was read from this location.
+     */
+    default boolean isLayerFromLocation(final ConfigLocation location, final ConfigLayerInterface layer)
+        {
+        return location.equals(layer.getSource());
+        }
+
     /**
      * Optional: provide additional layers for a configuration.
      * This can be used by specialized storages like secrets to add their layers.
@@ -8,6 +8,7 @@ import org.metabit.platform.support.config.source.core.DefaultLayer;
 import org.metabit.platform.support.config.ConfigEntry;
 
 import java.util.EnumSet;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
 
@@ -38,6 +39,24 @@ public interface ConfigSchema
      */
     boolean checkConfigEntryValidity(final String fullKey, final ConfigEntry entry);
 
+    /**
+     * check a set of entries in one go, e.g. all entries of a merged configuration.
+     * Schemas able to check a complete document do so in a single pass; the default checks entry by entry.
+     *
+     * @param entries config entries, by full key
+     * @return full keys of the entries failing the check, in order; empty if all are valid.
+     */
+    default Set<String> checkConfigEntries(final Map<String, ConfigEntry> entries)
+        {
+        Set<String> invalid = new LinkedHashSet<>();
+        for (Map.Entry<String, ConfigEntry> entry : entries.entrySet())
+            {
+            if (!checkConfigEntryValidity(entry.getKey(), entry.getValue()))
+                { invalid.add(entry.getKey()); }
+            }
+        return invalid;
+        }
+
     /**
      * add Scheme entries in a single-string format, described thus:
      * INVALID NEEDS REPHRASING KEY ";" DESCRIPTION ";" TYPE ("(" DEFAULT_VALUE ")"){0,1} (, VALIDITY_Scheme)* (";" (FLAG )+)*
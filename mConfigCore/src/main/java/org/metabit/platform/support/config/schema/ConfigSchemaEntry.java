@@ -6,7 +6,6 @@ import org.metabit.platform.support.config.impl.entry.GenericConfigEntryLeaf;
 import org.metabit.platform.support.config.interfaces.ConfigEntrySpecification;
 import org.metabit.platform.support.config.schema.impl.*;
 
-import java.time.format.DateTimeParseException;
 import java.util.*;
 import java.util.regex.Pattern;
 
@@ -41,6 +40,7 @@ public class ConfigSchemaEntry implements ConfigEntrySpecification
     private EmailValidator                                                    emailValidator;
     private DurationValidator                                                 durationValidator;
     private SizeValidator                                                     sizeValidator;
+    private volatile ValidationPlan                                           validationPlan;
 
     /**
      * <p>Constructor for ConfigSchemaEntry.</p>
@@ -106,143 +106,25 @@ public class ConfigSchemaEntry implements ConfigEntrySpecification
      */
     public boolean validateEntry(final ConfigEntry entry)
         {
-        if (type != entry.getType()) return false;
-
-        // Arity validation for list types
-        if (type == ConfigEntryType.MULTIPLE_STRINGS || type == ConfigEntryType.ENUM_SET)
-            {
-            try
-                {
-                java.util.List<String> list = entry.getValueAsStringList();
-                int size = (list == null) ? 0 : list.size();
-                int min = getMinArity();
-                int max = getMaxArity();
-                if (size < min) return false;
-                if (max != -1 && size > max) return false;
-                }
-            catch (ConfigCheckedException e)
-                {
-                return false;
-                }
-            }
-
-        // Basic type validation
-        try
-            {
-            switch (type)
-                {
-                case NUMBER:
-                    entry.getValueAsBigDecimal(); // Just check if it's a valid number
-                    break;
-                case BOOLEAN:
-                    entry.getValueAsBoolean();
-                    break;
-                case ENUM_SET:
-                    entry.getValueAsStringList();
-                    break;
-                case ENUM:
-                case STRING:
-                case URI:
-                case FILEPATH:
-                case DATE:
-                case TIME:
-                case DATETIME:
-                    entry.getValueAsString();
-                    break;
-                default:
-                    break;
-                }
-            }
-        catch (ConfigCheckedException|NumberFormatException ex)
-            {
-            return false;
-            }
-
-        if (type == ConfigEntryType.URI)
-            {
-            try { entry.getValueAsURI(); }
-            catch (ConfigCheckedException e) { return false; }
-            }
-        else if (type == ConfigEntryType.FILEPATH)
-            {
-            try { entry.getValueAsPath(); }
-            catch (ConfigCheckedException e) { return false; }
-            }
-        else if (type == ConfigEntryType.DATE)
-            {
-            try { entry.getValueAsLocalDate(); }
-            catch (ConfigCheckedException e) { return false; }
-            }
-        else if (type == ConfigEntryType.TIME)
-            {
-            try { entry.getValueAsLocalTime(); }
-            catch (ConfigCheckedException e) { return false; }
-            }
-        else if (type == ConfigEntryType.DATETIME)
-            {
-            try { entry.getValueAsOffsetDateTime(); }
-            catch (ConfigCheckedException|DateTimeParseException e)
-                {
-                try { entry.getValueAsLocalDateTime(); }
-                catch (ConfigCheckedException|DateTimeParseException e2)
-                    {
-                    try { entry.getValueAsZonedDateTime(); }
-                    catch (ConfigCheckedException|DateTimeParseException e3) { return false; }
-                    }
-                }
-            }
-        else if (type == ConfigEntryType.DURATION)
-            {
-            try { entry.getValueAsDuration(); }
-            catch (ConfigCheckedException|java.time.format.DateTimeParseException e) { return false; }
-            }
-
-        if (rangeValidator != null)
-            {
-            if (!rangeValidator.validate(entry)) return false;
-            }
-
-        if (enumValidator != null)
-            {
-            if (!enumValidator.validate(entry)) return false;
-            }
-
-        if (filePathValidator != null)
-            {
-            if (!filePathValidator.validate(entry)) return false;
-            }
-
-        if (temporalValidator != null)
-            {
-            if (!temporalValidator.validate(entry)) return false;
-            }
-
-        if (emailValidator != null)
-            {
-            if (!emailValidator.validate(entry)) return false;
-            }
-        if (durationValidator != null)
-            {
-            if (!durationValidator.validate(entry)) return false;
-            }
-        if (sizeValidator != null)
-            {
-            if (!sizeValidator.validate(entry)) return false;
-            }
+        return compileValidation().validate(entry);
+        }
 
-        if (validationPattern != null)
+    /**
+     * compile the validation settings of this entry into a plan, if not done yet.
+     * Schemas call this when they are initialized; changing the settings afterwards compiles anew.
+     *
+     * @return the plan validateEntry() runs.
+     */
+    public ValidationPlan compileValidation()
+        {
+        ValidationPlan plan = validationPlan;
+        if ((plan == null) || !plan.isFor(type, validationPattern))
             {
-            try
-                {
-                if (!validationPattern.matcher(entry.getValueAsString()).matches())
-                    return false;
-                }
-            catch (ConfigCheckedException cex)
-                {
-                return false;
-                }
+            plan = new ValidationPlan(type, validationPattern, this, rangeValidator, enumValidator,
+                    filePathValidator, temporalValidator, emailValidator, durationValidator, sizeValidator);
+            validationPlan = plan;
             }
-        return true;
+        return plan;
         }
 
     /**
@@ -420,6 +302,7 @@ public class ConfigSchemaEntry implements ConfigEntrySpecification
     public ConfigSchemaEntry setValidationPattern(String pattern)
         {
         if (pattern == null || pattern.isEmpty()) return this;
+        validationPlan = null;
 
         String p = pattern.trim();
         if (p.equals("email") && (type == ConfigEntryType.STRING || type == ConfigEntryType.MULTIPLE_STRINGS))
@@ -559,6 +442,7 @@ public class ConfigSchemaEntry implements ConfigEntrySpecification
             {
             this.pathValidationFlags = flags;
             this.filePathValidator = new FilePathValidator(flags);
+            this.validationPlan = null;
             }
         }
 
@@ -569,6 +453,7 @@ public class ConfigSchemaEntry implements ConfigEntrySpecification
             this.temporalValidationFlags = flags;
             // System.out.println("[DEBUG_LOG] setTemporalValidationFlags for " + this.key + ": " + flags);
             this.temporalValidator = new TemporalValidator(this.type, flags);
+            this.validationPlan = null;
             }
         }
 
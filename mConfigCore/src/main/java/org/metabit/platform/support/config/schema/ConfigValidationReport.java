@@ -0,0 +1,163 @@
+package org.metabit.platform.support.config.schema;
+
+import org.metabit.platform.support.config.ConfigScope;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * result of validating all layers of a configuration against its schema.
+ * Findings are kept per layer, so every invalid value can be traced to the file or source it came from.
+ *
+ * @see ConfigValidator
+ */
+public final class ConfigValidationReport
+{
+    private final String            configName;
+    private final List<LayerResult> layers;
+
+    ConfigValidationReport(final String configName, final List<LayerResult> layers)
+        {
+        this.configName = configName;
+        this.layers = Collections.unmodifiableList(layers);
+        }
+
+    /**
+     * @return name of the configuration validated
+     */
+    public String getConfigName()
+        {
+        return configName;
+        }
+
+    /**
+     * @return results per layer, from the most specific layer to the defaults.
+     */
+    public List<LayerResult> getLayers()
+        {
+        return layers;
+        }
+
+    /**
+     * @return all findings, layer by layer.
+     */
+    public List<Finding> getFindings()
+        {
+        List<Finding> all = new ArrayList<>();
+        for (LayerResult layer : layers)
+            {
+            all.addAll(layer.findings);
+            }
+        return all;
+        }
+
+    /**
+     * @return number of entries checked, over all layers.
+     */
+    public int getCheckedEntryCount()
+        {
+        int count = 0;
+        for (LayerResult layer : layers)
+            {
+            count += layer.checkedEntries;
+            }
+        return count;
+        }
+
+    /**
+     * @return number of invalid entries, over all layers.
+     */
+    public int getErrorCount()
+        {
+        int count = 0;
+        for (LayerResult layer : layers)
+            {
+            count += layer.findings.size();
+            }
+        return count;
+        }
+
+    /**
+     * @return true if no layer holds an invalid entry.
+     */
+    public boolean isValid()
+        {
+        return getErrorCount() == 0;
+        }
+
+    /**
+     * validation result of a single layer.
+     */
+    public static final class LayerResult
+    {
+        private final ConfigScope   scope;
+        private final String        location;
+        private final boolean       keysAvailable;
+        private final int           checkedEntries;
+        private final List<Finding> findings;
+
+        LayerResult(ConfigScope scope, String location, boolean keysAvailable, int checkedEntries, List<Finding> findings)
+            {
+            this.scope = scope;
+            this.location = location;
+            this.keysAvailable = keysAvailable;
+            this.checkedEntries = checkedEntries;
+            this.findings = Collections.unmodifiableList(findings);
+            }
+
+        /** @return scope of the layer */
+        public ConfigScope getScope() { return scope; }
+
+        /** @return where the layer was read from, as location string */
+        public String getLocation() { return location; }
+
+        /** @return false if the layer cannot list its keys, and was not checked for that reason. */
+        public boolean isKeysAvailable() { return keysAvailable; }
+
+        /** @return number of entries checked in this layer */
+        public int getCheckedEntries() { return checkedEntries; }
+
+        /** @return invalid entries of this layer, in key order of the layer */
+        public List<Finding> getFindings() { return findings; }
+    }
+
+    /**
+     * an invalid entry, and where it came from.
+     */
+    public static final class Finding
+    {
+        private final String      key;
+        private final String      value;
+        private final String      message;
+        private final ConfigScope scope;
+        private final String      location;
+
+        Finding(String key, String value, String message, ConfigScope scope, String location)
+            {
+            this.key = key;
+            this.value = value;
+            this.message = message;
+            this.scope = scope;
+            this.location = location;
+            }
+
+        /** @return full key of the entry */
+        public String getKey() { return key; }
+
+        /** @return value as string; masked for secrets, null if it could not be read. */
+        public String getValue() { return value; }
+
+        /** @return what is wrong with it */
+        public String getMessage() { return message; }
+
+        /** @return scope of the layer holding the entry */
+        public ConfigScope getScope() { return scope; }
+
+        /** @return location of the layer holding the entry */
+        public String getLocation() { return location; }
+
+        @Override
+        public String toString() { return "["+scope+"] "+key+": "+message+" ("+location+")"; }
+    }
+}
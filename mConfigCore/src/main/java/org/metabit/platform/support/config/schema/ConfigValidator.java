@@ -0,0 +1,236 @@
+package org.metabit.platform.support.config.schema;
+
+import org.metabit.platform.support.config.ConfigEntry;
+import org.metabit.platform.support.config.Configuration;
+import org.metabit.platform.support.config.impl.LayeredConfiguration;
+import org.metabit.platform.support.config.impl.entry.AbstractConfigEntry;
+import org.metabit.platform.support.config.impl.entry.SpecifiedConfigEntryWrapper;
+import org.metabit.platform.support.config.interfaces.ConfigEntrySpecification;
+import org.metabit.platform.support.config.interfaces.ConfigLayerInterface;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * validates every layer of a configuration against its schema, not just the values in effect.
+ * <p>
+ * A layer value hidden by a more specific layer is still reported, with the layer it came from;
+ * it takes effect as soon as the overriding one is removed. With a ForkJoinPool, the entries of all
+ * layers are checked in parallel; the report is the same as the sequential one, in the same order.
+ * Schemas have to allow concurrent checks for this, as all schemas in mConfig do.
+ */
+public final class ConfigValidator
+{
+    private static final int          SPLIT_THRESHOLD = 64; // entries checked per task without splitting further
+    private static final String       SECRET_MASK     = "********";
+    private final        ForkJoinPool pool;
+
+    private ConfigValidator(final ForkJoinPool pool)
+        {
+        this.pool = pool;
+        }
+
+    /**
+     * @return validator checking in the calling thread
+     */
+    public static ConfigValidator sequential()
+        {
+        return new ConfigValidator(null);
+        }
+
+    /**
+     * @return validator checking in parallel, on the common ForkJoinPool
+     */
+    public static ConfigValidator parallel()
+        {
+        return new ConfigValidator(ForkJoinPool.commonPool());
+        }
+
+    /**
+     * @param pool pool to check in
+     * @return validator checking in parallel, on the pool given
+     */
+    public static ConfigValidator parallel(final ForkJoinPool pool)
+        {
+        return new ConfigValidator(pool);
+        }
+
+    /**
+     * validate all layers of a configuration against its schema.
+     *
+     * @param configuration configuration, as provided by the ConfigFactory
+     * @return the report
+     * @throws IllegalArgumentException if the configuration does not give access to its layers.
+     */
+    public ConfigValidationReport validate(final Configuration configuration)
+        {
+        if (!(configuration instanceof LayeredConfiguration))
+            {
+            throw new IllegalArgumentException("configuration layers are not accessible for "+configuration.getClass().getName());
+            }
+        LayeredConfiguration layered = (LayeredConfiguration) configuration;
+        return validate(layered.getConfigName(), layered.getLayers(), layered.getConfigSchema());
+        }
+
+    /**
+     * validate layers against a schema.
+     *
+     * @param configName name to put in the report
+     * @param layers     layers to check, in order
+     * @param schema     schema to check against
+     * @return the report
+     */
+    public ConfigValidationReport validate(final String configName, final List<ConfigLayerInterface> layers, final ConfigSchema schema)
+        {
+        // collecting the keys is sequential; layers are not required to iterate concurrently.
+        List<Check> checks = new ArrayList<>();
+        boolean[] keysAvailable = new boolean[layers.size()];
+        int[] checkedEntries = new int[layers.size()];
+        for (int i = 0; i < layers.size(); i++)
+            {
+            Iterator<String> keys = layers.get(i).tryToGetKeyIterator();
+            keysAvailable[i] = (keys != null);
+            while ((keys != null) && keys.hasNext())
+                {
+                checks.add(new Check(i, keys.next()));
+                checkedEntries[i]++;
+                }
+            }
+
+        Check[] all = checks.toArray(new Check[0]);
+        List<IndexedFinding> findings = (pool == null) ? check(all, 0, all.length, layers, schema) : pool.invoke(new CheckTask(all, 0, all.length, layers, schema));
+
+        List<List<ConfigValidationReport.Finding>> perLayer = new ArrayList<>(layers.size());
+        for (int i = 0; i < layers.size(); i++)
+            {
+            perLayer.add(new ArrayList<>());
+            }
+        for (IndexedFinding finding : findings)
+            {
+            perLayer.get(finding.layer).add(finding.finding);
+            }
+        List<ConfigValidationReport.LayerResult> results = new ArrayList<>(layers.size());
+        for (int i = 0; i < layers.size(); i++)
+            {
+            ConfigLayerInterface layer = layers.get(i);
+            results.add(new ConfigValidationReport.LayerResult(layer.getScope(), location(layer), keysAvailable[i], checkedEntries[i], perLayer.get(i)));
+            }
+        return new ConfigValidationReport(configName, results);
+        }
+
+    private static List<IndexedFinding> check(final Check[] checks, final int from, final int to, final List<ConfigLayerInterface> layers, final ConfigSchema schema)
+        {
+        List<IndexedFinding> findings = new ArrayList<>();
+        for (int i = from; i < to; i++)
+            {
+            ConfigLayerInterface layer = layers.get(checks[i].layer);
+            String key = checks[i].key;
+            ConfigEntrySpecification spec = schema.getSpecification(key);
+            String message = null;
+            ConfigEntry entry = null;
+            try
+                {
+                entry = layer.getEntry(key, spec);
+                if (entry == null)
+                    { continue; }
+                // same as in LayeredConfiguration, on reading
+                if ((spec != null) && !(spec instanceof NullConfigEntrySpecification) && !AbstractConfigEntry.isSpecifiedAs(entry, spec))
+                    { entry = new SpecifiedConfigEntryWrapper(entry, spec); }
+                if (!schema.checkConfigEntryValidity(key, entry))
+                    { message = "value does not match schema"; }
+                }
+            catch (RuntimeException ex)
+                {
+                message = "entry cannot be checked: "+ex.getMessage();
+                }
+            if (message != null)
+                {
+                ConfigValidationReport.Finding finding = new ConfigValidationReport.Finding(key, valueOf(entry, spec), message, layer.getScope(), location(layer));
+                findings.add(new IndexedFinding(checks[i].layer, finding));
+                }
+            }
+        return findings;
+        }
+
+    private static String valueOf(final ConfigEntry entry, final ConfigEntrySpecification spec)
+        {
+        if (entry == null)
+            { return null; }
+        if ((spec != null) && spec.isSecret())
+            { return SECRET_MASK; }
+        try
+            {
+            return entry.getValueAsString();
+            }
+        catch (Exception ex)
+            {
+            return null;
+            }
+        }
+
+    private static String location(final ConfigLayerInterface layer)
+        {
+        return (layer.getSource() == null) ? null : layer.getSource().toLocationString();
+        }
+
+    private static final class Check
+    {
+        final int    layer;
+        final String key;
+
+        Check(int layer, String key)
+            {
+            this.layer = layer;
+            this.key = key;
+            }
+    }
+
+    private static final class IndexedFinding
+    {
+        final int                            layer;
+        final ConfigValidationReport.Finding finding;
+
+        IndexedFinding(int layer, ConfigValidationReport.Finding finding)
+            {
+            this.layer = layer;
+            this.finding = finding;
+            }
+    }
+
+    // splits the checks in halves until they are small enough; results are joined in order.
+    private static final class CheckTask extends RecursiveTask<List<IndexedFinding>>
+    {
+        private final Check[]                    checks;
+        private final int                        from;
+        private final int                        to;
+        private final List<ConfigLayerInterface> layers;
+        private final ConfigSchema               schema;
+
+        CheckTask(Check[] checks, int from, int to, List<ConfigLayerInterface> layers, ConfigSchema schema)
+            {
+            this.checks = checks;
+            this.from = from;
+            this.to = to;
+            this.layers = layers;
+            this.schema = schema;
+            }
+
+        @Override
+        protected List<IndexedFinding> compute()
+            {
+            if (to-from <= SPLIT_THRESHOLD)
+                {
+                return check(checks, from, to, layers, schema);
+                }
+            int middle = (from+to) >>> 1;
+            CheckTask second = new CheckTask(checks, middle, to, layers, schema);
+            second.fork();
+            List<IndexedFinding> result = new CheckTask(checks, from, middle, layers, schema).compute();
+            result.addAll(second.join());
+            return result;
+            }
+    }
+}
@@ -12,9 +12,17 @@ import java.time.Duration;
 public class DurationValidator {
     public boolean validate(ConfigEntry entry) {
         try {
-            Duration.parse(entry.getValueAsString());
+            return validate(entry.getValueAsString());
+        } catch (ConfigCheckedException e) {
+            return false;
+        }
+    }
+
+    public boolean validate(String value) {
+        try {
+            Duration.parse(value);
             return true;
-        } catch (ConfigCheckedException | java.time.format.DateTimeParseException e) {
+        } catch (java.time.format.DateTimeParseException e) {
             return false;
         }
     }
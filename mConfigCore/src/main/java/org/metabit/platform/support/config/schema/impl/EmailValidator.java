@@ -28,18 +28,24 @@ public class EmailValidator {
     public boolean validate(ConfigEntry entry) {
         try {
             if (entry.getType() == ConfigEntryType.MULTIPLE_STRINGS) {
-                List<String> emails = entry.getValueAsStringList();
-                if (emails == null) return false;
-                for (String email : emails) {
-                    if (!pattern.matcher(email).matches()) return false;
-                }
-                return true;
+                return validate(entry.getValueAsStringList());
             } else {
-                String email = entry.getValueAsString();
-                return pattern.matcher(email).matches();
+                return validate(entry.getValueAsString());
             }
         } catch (ConfigCheckedException e) {
             return false;
         }
     }
+
+    public boolean validate(String email) {
+        return (email != null) && pattern.matcher(email).matches();
+    }
+
+    public boolean validate(List<String> emails) {
+        if (emails == null) return false;
+        for (String email : emails) {
+            if (!validate(email)) return false;
+        }
+        return true;
+    }
 }
\ No newline at end of file
@@ -28,18 +28,11 @@ public class EnumValidator
             {
             if (isSet)
                 {
-                List<String> values = entry.getValueAsStringList();
-                if (values == null || values.isEmpty()) return true;
-                for (String val : values)
-                    {
-                    if (!validOptions.contains(val)) return false;
-                    }
-                return true;
+                return validate(entry.getValueAsStringList());
                 }
             else
                 {
-                String val = entry.getValueAsString();
-                return validOptions.contains(val);
+                return validate(entry.getValueAsString());
                 }
             }
         catch (ConfigCheckedException e)
@@ -47,4 +40,19 @@ public class EnumValidator
             return false;
             }
         }
+
+    public boolean validate(String value)
+        {
+        return validOptions.contains(value);
+        }
+
+    public boolean validate(List<String> values)
+        {
+        if (values == null || values.isEmpty()) return true;
+        for (String val : values)
+            {
+            if (!validOptions.contains(val)) return false;
+            }
+        return true;
+        }
 }
@@ -28,7 +28,18 @@ public class FilePathValidator
         {
         try
             {
-            Path p = entry.getValueAsPath();
+            return validate(entry.getValueAsPath());
+            }
+        catch (Exception e)
+            {
+            return false;
+            }
+        }
+
+    public boolean validate(Path p)
+        {
+        try
+            {
             if (exists && !Files.exists(p)) return false;
             if (isDirectory && !Files.isDirectory(p)) return false;
             if (isFile && !Files.isRegularFile(p)) return false;
@@ -3,6 +3,7 @@ package org.metabit.platform.support.config.schema.impl;
 import org.metabit.platform.support.config.ConfigEntry;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.regex.Matcher;
@@ -32,7 +33,13 @@ public class RangeValidator
 
     private static final Pattern INTERVAL_PATTERN = Pattern.compile("([\\(\\[])\\s*([-+]?[0-9]*\\.?[0-9]+)\\s*,\\s*([-+]?[0-9]*\\.?[0-9]+)\\s*([\\)\\]])");
 
+    private static final BigDecimal LONG_MIN = BigDecimal.valueOf(Long.MIN_VALUE);
+    private static final BigDecimal LONG_MAX = BigDecimal.valueOf(Long.MAX_VALUE);
+
     private final Range range;
+    // the range as inclusive long bounds, for checking integer values without BigDecimal
+    private final long  lowest;
+    private final long  highest;
 
     public RangeValidator(String pattern)
         {
@@ -56,6 +63,29 @@ public class RangeValidator
                 this.range = null;
                 }
             }
+        if (range == null)
+            {
+            lowest = Long.MIN_VALUE;
+            highest = Long.MAX_VALUE;
+            }
+        else
+            {
+            // smallest and largest integer inside the range; an empty range gets lowest > highest.
+            BigDecimal lo = range.min.setScale(0, RoundingMode.CEILING);
+            if (!range.minInclusive && (lo.compareTo(range.min) == 0)) lo = lo.add(BigDecimal.ONE);
+            BigDecimal hi = range.max.setScale(0, RoundingMode.FLOOR);
+            if (!range.maxInclusive && (hi.compareTo(range.max) == 0)) hi = hi.subtract(BigDecimal.ONE);
+            if ((lo.compareTo(hi) > 0) || (lo.compareTo(LONG_MAX) > 0) || (hi.compareTo(LONG_MIN) < 0))
+                {
+                lowest = Long.MAX_VALUE;
+                highest = Long.MIN_VALUE;
+                }
+            else
+                {
+                lowest = lo.max(LONG_MIN).longValueExact();
+                highest = hi.min(LONG_MAX).longValueExact();
+                }
+            }
         }
 
     public boolean isValid()
@@ -68,21 +98,7 @@ public class RangeValidator
         if (range == null) return true;
         try
             {
-            BigDecimal val = entry.getValueAsBigDecimal();
-            if (range.integerOnly)
-                {
-                if (val.remainder(BigDecimal.ONE).compareTo(BigDecimal.ZERO) != 0) return false;
-                }
-            
-            int minCmp = val.compareTo(range.min);
-            if (range.minInclusive) { if (minCmp < 0) return false; }
-            else { if (minCmp <= 0) return false; }
-
-            int maxCmp = val.compareTo(range.max);
-            if (range.maxInclusive) { if (maxCmp > 0) return false; }
-            else { if (maxCmp >= 0) return false; }
-
-            return true;
+            return inRange(entry.getValueAsBigDecimal());
             }
         catch (Exception e)
             {
@@ -90,6 +106,69 @@ public class RangeValidator
             }
         }
 
+    /**
+     * check a number given as text. Plain integers are compared as long, everything else
+     * goes through BigDecimal.
+     *
+     * @param text the value, as string
+     * @return true if it is a number inside the range
+     */
+    public boolean validate(String text)
+        {
+        if (text == null) return false;
+        if (isPlainInteger(text))
+            {
+            long val = Long.parseLong(text);
+            return (val >= lowest) && (val <= highest);
+            }
+        try
+            {
+            BigDecimal val = new BigDecimal(text);
+            return (range == null) || inRange(val);
+            }
+        catch (NumberFormatException e)
+            {
+            return false;
+            }
+        }
+
+    /**
+     * check whether a string is an integer that fits into a long for sure: optional sign, 1 to 18 ASCII digits.
+     *
+     * @param text string to check
+     * @return true if Long.parseLong() takes it, with the same value new BigDecimal() would give.
+     */
+    static boolean isPlainInteger(String text)
+        {
+        int length = text.length();
+        int i = ((length > 0) && ((text.charAt(0) == '-') || (text.charAt(0) == '+'))) ? 1 : 0;
+        if ((length == i) || (length-i > 18)) return false;
+        for (; i < length; i++)
+            {
+            char c = text.charAt(i);
+            if ((c < '0') || (c > '9')) return false;
+            }
+        return true;
+        }
+
+    private boolean inRange(BigDecimal val)
+        {
+        if (range.integerOnly)
+            {
+            if (val.remainder(BigDecimal.ONE).compareTo(BigDecimal.ZERO) != 0) return false;
+            }
+
+        int minCmp = val.compareTo(range.min);
+        if (range.minInclusive) { if (minCmp < 0) return false; }
+        else { if (minCmp <= 0) return false; }
+
+        int maxCmp = val.compareTo(range.max);
+        if (range.maxInclusive) { if (maxCmp > 0) return false; }
+        else { if (maxCmp >= 0) return false; }
+
+        return true;
+        }
+
     private static class Range
     {
         final BigDecimal min;
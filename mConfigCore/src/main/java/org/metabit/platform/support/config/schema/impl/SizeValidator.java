@@ -36,7 +36,15 @@ public class SizeValidator {
 
     public boolean validate(ConfigEntry entry) {
         try {
-            String s = entry.getValueAsString().trim().toUpperCase();
+            return validate(entry.getValueAsString());
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    public boolean validate(String value) {
+        try {
+            String s = value.trim().toUpperCase();
             Matcher m = SIZE_PATTERN.matcher(s);
             if (!m.matches()) return false;
 
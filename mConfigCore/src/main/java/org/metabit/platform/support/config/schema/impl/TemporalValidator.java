@@ -54,6 +54,34 @@ public class TemporalValidator
             }
         }
 
+    /**
+     * check a value already parsed from the entry.
+     *
+     * @param val LocalDate, LocalTime, or for DATETIME an OffsetDateTime, ZonedDateTime or LocalDateTime
+     * @return true if it passes the flags
+     */
+    public boolean validate(Temporal val)
+        {
+        try
+            {
+            switch (type)
+                {
+                case DATE:
+                    return validateDate((LocalDate) val);
+                case TIME:
+                    return validateTime((LocalTime) val);
+                case DATETIME:
+                    return validateDateTime(val, (val instanceof OffsetDateTime) || (val instanceof ZonedDateTime));
+                default:
+                    return true;
+                }
+            }
+        catch (Exception e)
+            {
+            return false;
+            }
+        }
+
     private boolean validateDate(LocalDate val)
         {
         if (val == null) return false;
@@ -120,7 +148,11 @@ public class TemporalValidator
                 catch (Exception e2) { return false; }
                 }
             }
+        return validateDateTime(val, hasOffset);
+        }
 
+    private boolean validateDateTime(Temporal val, boolean hasOffset)
+        {
         if (requireOffset && !hasOffset)
             {
             return false;
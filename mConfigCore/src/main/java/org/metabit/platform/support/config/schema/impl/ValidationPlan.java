@@ -0,0 +1,200 @@
+package org.metabit.platform.support.config.schema.impl;
+
+import org.metabit.platform.support.config.ConfigCheckedException;
+import org.metabit.platform.support.config.ConfigEntry;
+import org.metabit.platform.support.config.ConfigEntryType;
+import org.metabit.platform.support.config.interfaces.ConfigEntrySpecification;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.Temporal;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * validation of one schema entry, compiled from its settings.
+ * <p>
+ * The plan fetches the entry value once, in the form the entry type needs, and runs only
+ * the checks that are set on it. Numbers are checked as long where they fit, without
+ * BigDecimal. Internal implementation class, created by ConfigSchemaEntry.
+ */
+public final class ValidationPlan
+{
+    private final ConfigEntryType          type;
+    private final Pattern                  pattern;
+    private final ConfigEntrySpecification specification;
+    private final RangeValidator           range;
+    private final EnumValidator            enums;
+    private final FilePathValidator        filePath;
+    private final TemporalValidator        temporal;
+    private final EmailValidator           email;
+    private final DurationValidator        duration;
+    private final SizeValidator            size;
+
+    /**
+     * @param type          entry type
+     * @param pattern       regular expression the value has to match, may be null
+     * @param specification the entry; asked for the arity of lists on each check, as that depends on its flags.
+     * @param range         may be null, as may all the other validators
+     * @param enums         enum validator
+     * @param filePath      file path validator
+     * @param temporal      temporal validator
+     * @param email         email validator
+     * @param duration      duration validator
+     * @param size          size validator
+     */
+    public ValidationPlan(ConfigEntryType type, Pattern pattern, ConfigEntrySpecification specification, RangeValidator range, EnumValidator enums,
+                          FilePathValidator filePath, TemporalValidator temporal, EmailValidator email, DurationValidator duration, SizeValidator size)
+        {
+        this.type = type;
+        this.pattern = pattern;
+        this.specification = specification;
+        this.range = range;
+        this.enums = enums;
+        this.filePath = filePath;
+        this.temporal = temporal;
+        this.email = email;
+        this.duration = duration;
+        this.size = size;
+        }
+
+    /**
+     * @param type    current entry type
+     * @param pattern current regular expression
+     * @return true if the plan was compiled for these; the public fields of the schema entry may change without notice.
+     */
+    public boolean isFor(ConfigEntryType type, Pattern pattern)
+        {
+        return (this.type == type) && (this.pattern == pattern);
+        }
+
+    /**
+     * validate an entry.
+     *
+     * @param entry entry to check
+     * @return true if valid
+     */
+    public boolean validate(final ConfigEntry entry)
+        {
+        if (type != entry.getType()) return false;
+        try
+            {
+            switch (type)
+                {
+                case MULTIPLE_STRINGS:
+                case ENUM_SET:
+                    return validateList(entry);
+                case NUMBER:
+                    return validateNumber(entry.getValueAsString());
+                case BOOLEAN:
+                    entry.getValueAsBoolean();
+                    break;
+                case URI:
+                    entry.getValueAsURI();
+                    break;
+                case FILEPATH:
+                    Path path = entry.getValueAsPath();
+                    if ((filePath != null) && !filePath.validate(path)) return false;
+                    break;
+                case DATE:
+                    if (!validateTemporal(entry.getValueAsLocalDate())) return false;
+                    break;
+                case TIME:
+                    if (!validateTemporal(entry.getValueAsLocalTime())) return false;
+                    break;
+                case DATETIME:
+                    if (!validateTemporal(getDateTime(entry))) return false;
+                    break;
+                case DURATION:
+                    entry.getValueAsDuration();
+                    break;
+                default:
+                    break;
+                }
+            if ((enums == null) && (email == null) && (duration == null) && (pattern == null))
+                {
+                return true;
+                }
+            return validateText(entry.getValueAsString());
+            }
+        catch (ConfigCheckedException|NumberFormatException|DateTimeParseException e)
+            {
+            return false;
+            }
+        }
+
+    private boolean validateList(final ConfigEntry entry)
+            throws ConfigCheckedException
+        {
+        List<String> list = entry.getValueAsStringList();
+        int count = (list == null) ? 0 : list.size();
+        int max = specification.getMaxArity();
+        if (count < specification.getMinArity()) return false;
+        if ((max != -1) && (count > max)) return false;
+        if ((enums != null) && !enums.validate(list)) return false;
+        if ((email != null) && !email.validate(list)) return false;
+        if (pattern != null)
+            {
+            String text = entry.getValueAsString();
+            return (text != null) && pattern.matcher(text).matches();
+            }
+        return true;
+        }
+
+    private boolean validateNumber(final String text)
+        {
+        if (range != null)
+            {
+            if (!range.validate(text)) return false;
+            }
+        else if ((text != null) && !RangeValidator.isPlainInteger(text))
+            {
+            new BigDecimal(text); // throws NumberFormatException if it is no number at all
+            }
+        if ((size != null) && !size.validate(text)) return false;
+        if (pattern != null)
+            {
+            return (text != null) && pattern.matcher(text).matches();
+            }
+        return true;
+        }
+
+    private boolean validateText(final String text)
+        {
+        if ((enums != null) && !enums.validate(text)) return false;
+        if ((email != null) && !email.validate(text)) return false;
+        if ((duration != null) && !duration.validate(text)) return false;
+        if (pattern != null)
+            {
+            return (text != null) && pattern.matcher(text).matches();
+            }
+        return true;
+        }
+
+    private boolean validateTemporal(final Temporal value)
+        {
+        return (temporal == null) || temporal.validate(value);
+        }
+
+    // same order as ConfigEntry conversions are tried everywhere else: with offset, local, with zone.
+    private static Temporal getDateTime(final ConfigEntry entry)
+            throws ConfigCheckedException
+        {
+        try
+            {
+            return entry.getValueAsOffsetDateTime();
+            }
+        catch (ConfigCheckedException|DateTimeParseException e)
+            {
+            try
+                {
+                return entry.getValueAsLocalDateTime();
+                }
+            catch (ConfigCheckedException|DateTimeParseException e2)
+                {
+                return entry.getValueAsZonedDateTime();
+                }
+            }
+        }
+}
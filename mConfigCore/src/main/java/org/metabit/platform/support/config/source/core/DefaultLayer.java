@@ -11,8 +11,11 @@ import java.util.Map;
 
 /**
  * <p>DefaultLayer class.</p>
+ * <p>
+ * The entries are kept in an immutable map, replaced as a whole when defaults are transferred
+ * from a schema; reads need no locking. Schemas put their defaults in converted to the entry type,
+ * so falling back to a default does not parse its text again.
  *
- * 
  * @version $Id: $Id
  */
 public class DefaultLayer implements ConfigLayerInterface
@@ -20,7 +23,7 @@ public class DefaultLayer implements ConfigLayerInterface
     private final Boolean flag1;
     private final Boolean                 flag2;
     private final ConfigLocationImpl      source;
-    private final Map<String,ConfigEntry> map;
+    private volatile Map<String,ConfigEntry> map;
 
     /**
      * <p>Constructor for DefaultLayer.</p>
@@ -29,7 +32,7 @@ public class DefaultLayer implements ConfigLayerInterface
      */
     public DefaultLayer(ConfigFactoryInstanceContext ctx)
         {
-        map = new HashMap<>();
+        map = Map.of();
         flag1 = ctx.getSettings().getBoolean(ConfigFeature.DEFAULT_ON_MISSING_ENTRY);
         flag2 = ctx.getSettings().getBoolean(ConfigFeature.EXCEPTION_ON_MISSING_ENTRY);
         source = new ConfigLocationImpl(getScope(), new DefaultLayerStorage(), null, null); // no storage, no format
@@ -102,11 +105,34 @@ public class DefaultLayer implements ConfigLayerInterface
      * @param fullKey a {@link java.lang.String} object
      * @param preparedEntry a {@link org.metabit.platform.support.config.ConfigEntry} object
      */
-    public void putEntry(final String fullKey, final ConfigEntry preparedEntry) {  map.put(fullKey,preparedEntry); }
+    public void putEntry(final String fullKey, final ConfigEntry preparedEntry)
+        { putEntries(Map.of(fullKey, preparedEntry)); }
+
+    /**
+     * put several entries at once; the map is rebuilt once for all of them.
+     *
+     * @param preparedEntries entries by full key
+     */
+    public synchronized void putEntries(final Map<String, ConfigEntry> preparedEntries)
+        {
+        if (preparedEntries.isEmpty())
+            { return; }
+        Map<String, ConfigEntry> updated = new HashMap<>(map);
+        updated.putAll(preparedEntries);
+        map = Map.copyOf(updated);
+        }
+
+    /**
+     * replace all entries at once; readers see either the old entries or the new ones, never a mix or none.
+     *
+     * @param preparedEntries entries by full key
+     */
+    public synchronized void replaceEntries(final Map<String, ConfigEntry> preparedEntries)
+        { map = Map.copyOf(preparedEntries); }
 
     /**
      * <p>clear.</p>
      */
-    public void clear()
-        { map.clear(); }
+    public synchronized void clear()
+        { map = Map.of(); }
 }
@@ -243,6 +243,21 @@ class ConfigFeatureTypeTest
         assertTrue(FALLBACKS_ACROSS_SCOPES.isBooleanType());
         assertTrue(WRITE_FALLBACK_ACROSS_SCOPES.isBooleanType());
         assertTrue(UPDATE_CHECK_FREQUENCY_MS.isNumberType());
+        assertTrue(PARALLEL_LAYER_LOADING.isBooleanType());
+        assertTrue(PARALLEL_LAYER_LOADING_THREADS.isNumberType());
+        assertTrue(FILE_MEMORY_MAP_THRESHOLD.isNumberType());
+        assertTrue(FILE_WRITE_ATOMIC.isBooleanType());
+        assertTrue(FILE_WRITE_FSYNC.isBooleanType());
+        assertTrue(FILE_WRITE_COALESCE_MS.isNumberType());
+        assertTrue(FILE_WRITE_PATCH.isBooleanType());
+        assertTrue(FILE_DISCOVERY_INDEX_DIRECTORY.isStringType());
+        assertTrue(FILE_LAZY_LAYER_LOADING.isBooleanType());
+        assertTrue(FILE_LAZY_LAYER_PREWARM.isBooleanType());
+        assertTrue(FILE_READ_ONLY_STREAMING_THRESHOLD.isNumberType());
+        assertTrue(STRING_DEDUPLICATION.isBooleanType());
+        assertTrue(STRING_DEDUPLICATION_MAX_LENGTH.isNumberType());
+        assertTrue(WRITE_BEHIND_DELAY_MS.isNumberType());
+        assertTrue(WRITE_BEHIND_MAX_DIRTY_ENTRIES.isNumberType());
         assertTrue(WRITE_CONDENSED_FORMAT.isBooleanType());
         assertTrue(UPDATE_CHECK_SCOPES.isStringListType());
         assertTrue(EXCEPTION_ON_MISSING_ENTRY.isBooleanType());
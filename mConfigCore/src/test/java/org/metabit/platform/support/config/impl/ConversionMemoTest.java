@@ -0,0 +1,51 @@
+package org.metabit.platform.support.config.impl;
+
+import org.junit.jupiter.api.Test;
+import org.metabit.platform.support.config.*;
+import org.metabit.platform.support.config.impl.entry.GenericConfigEntryLeaf;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConversionMemoTest
+{
+    @Test
+    public void testRepeatedConversionsAreMemoized()
+            throws ConfigCheckedException
+        {
+        GenericConfigEntryLeaf entry = new GenericConfigEntryLeaf("timeout", "PT30S", ConfigEntryType.DURATION, null);
+        Duration first = entry.getValueAsDuration();
+        assertEquals(Duration.ofSeconds(30), first);
+        assertSame(first, entry.getValueAsDuration());
+
+        GenericConfigEntryLeaf time = new GenericConfigEntryLeaf("since", "2024-01-02T03:04:05+02:00", ConfigEntryType.DATETIME, null);
+        OffsetDateTime odt = time.getValueAsOffsetDateTime();
+        assertSame(odt, time.getValueAsOffsetDateTime());
+        assertEquals(odt.toInstant(), time.getValueAsZonedDateTime().toInstant(), "each target type memoized on its own");
+        assertSame(odt, time.getValueAsOffsetDateTime());
+
+        GenericConfigEntryLeaf number = new GenericConfigEntryLeaf("count", "12345678901234567890", ConfigEntryType.NUMBER, null);
+        assertSame(number.getValueAsBigInteger(), number.getValueAsBigInteger());
+        assertThrows(ConfigCheckedException.class, number::getValueAsLong);
+        assertThrows(ConfigCheckedException.class, number::getValueAsLong, "failed conversions are not memoized");
+        }
+
+    @Test
+    public void testChangedValueIsConvertedAgain()
+            throws ConfigCheckedException
+        {
+        ConfigFactory factory = ConfigFactoryBuilder.create("metabit", "testapp").build();
+        Configuration cfg = factory.getConfig("testconfig");
+        cfg.put("timeout", "PT30S", ConfigScope.SESSION);
+        ConfigEntry entry = cfg.getConfigEntryFromFullKey("timeout", null);
+        assertInstanceOf(GenericConfigEntryLeaf.class, entry);
+        assertEquals(Duration.ofSeconds(30), entry.getValueAsDuration());
+
+        entry.putString("PT10S");
+        assertEquals(Duration.ofSeconds(10), entry.getValueAsDuration());
+        byte[] bytes = entry.getValueAsBytes();
+        assertNotSame(bytes, entry.getValueAsBytes(), "mutable results are not shared");
+        }
+}
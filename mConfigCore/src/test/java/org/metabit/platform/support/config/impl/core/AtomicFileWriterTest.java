@@ -0,0 +1,160 @@
+package org.metabit.platform.support.config.impl.core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.metabit.platform.support.config.ConfigFeature;
+import org.metabit.platform.support.config.impl.ConfigFactorySettings;
+import org.metabit.platform.support.config.impl.util.AtomicFileWriter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AtomicFileWriterTest
+{
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void replacesContentWithoutLeftovers() throws Exception
+        {
+        Path target = tempDir.resolve("test.properties");
+        Files.writeString(target, "old=value\n");
+        new AtomicFileWriter(null).write(target, StandardCharsets.UTF_8, w->w.write("new=value\n"));
+
+        assertEquals("new=value\n", Files.readString(target));
+        try (Stream<Path> files = Files.list(tempDir))
+            {
+            assertEquals(1, files.count(), "temporary file left behind");
+            }
+        assertTrue(AtomicFileWriter.isOwnWrite(target));
+
+        Files.writeString(target, "changed=elsewhere, and longer\n");
+        assertFalse(AtomicFileWriter.isOwnWrite(target));
+        }
+
+    @Test
+    void failedWriteKeepsOriginal() throws Exception
+        {
+        Path target = tempDir.resolve("keep.toml");
+        Files.writeString(target, "a = 1\n");
+        AtomicFileWriter writer = new AtomicFileWriter(null);
+        assertThrows(java.io.IOException.class, ()->writer.write(target, StandardCharsets.UTF_8, w->
+            {
+            w.write("a = ");
+            throw new java.io.IOException("simulated failure");
+            }));
+        assertEquals("a = 1\n", Files.readString(target));
+        }
+
+    @Test
+    void changedTailIsWrittenInPlace() throws Exception
+        {
+        ConfigFactorySettings settings = new ConfigFactorySettings();
+        settings.setBoolean(ConfigFeature.FILE_WRITE_ATOMIC, false);
+        AtomicFileWriter writer = new AtomicFileWriter(settings);
+        Path target = tempDir.resolve("patched.properties");
+        String previous = "# äöü\na=1\nb=2\n";
+        Files.writeString(target, previous);
+        Object inode = Files.readAttributes(target, java.nio.file.attribute.BasicFileAttributes.class).fileKey();
+
+        writer.writeChanged(target, StandardCharsets.UTF_8, previous, "# äöü\na=1\nb=3\nc=4\n");
+        assertEquals("# äöü\na=1\nb=3\nc=4\n", Files.readString(target));
+        writer.writeChanged(target, StandardCharsets.UTF_8, "# äöü\na=1\nb=3\nc=4\n", "# äöü\na=1\n");
+        assertEquals("# äöü\na=1\n", Files.readString(target), "shorter content truncates");
+        if (inode != null)
+            {
+            assertEquals(inode, Files.readAttributes(target, java.nio.file.attribute.BasicFileAttributes.class).fileKey(), "same file, not replaced");
+            }
+        assertTrue(AtomicFileWriter.isOwnWrite(target));
+
+        // content on disk is not what the caller expects; written as a whole.
+        Files.writeString(target, "x=1\n");
+        writer.writeChanged(target, StandardCharsets.UTF_8, "# äöü\na=1\n", "# äöü\na=2\n");
+        assertEquals("# äöü\na=2\n", Files.readString(target));
+        }
+
+    @Test
+    void concurrentFlushesAreGrouped() throws Exception
+        {
+        ConfigFactorySettings settings = new ConfigFactorySettings();
+        settings.setInteger(ConfigFeature.FILE_WRITE_COALESCE_MS, 200);
+        AtomicFileWriter writer = new AtomicFileWriter(settings);
+        Path target = tempDir.resolve("grouped.ini");
+        Files.createFile(target);
+
+        AtomicInteger actualWrites = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try
+            {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++)
+                {
+                final int n = i;
+                futures.add(executor.submit(()->
+                    {
+                    writer.write(target, StandardCharsets.UTF_8, w->
+                        {
+                        actualWrites.incrementAndGet();
+                        w.write("value="+n+"\n");
+                        });
+                    return null;
+                    }));
+                Thread.sleep(20);
+                }
+            for (Future<?> f : futures)
+                {
+                f.get(5, TimeUnit.SECONDS);
+                }
+            }
+        finally
+            {
+            executor.shutdownNow();
+            }
+        assertEquals(1, actualWrites.get());
+        assertEquals("value=3\n", Files.readString(target));
+        }
+
+    @Test
+    void groupedWritersAreReleasedWhenTheWriteFailsWithAnError() throws Exception
+        {
+        ConfigFactorySettings settings = new ConfigFactorySettings();
+        settings.setInteger(ConfigFeature.FILE_WRITE_COALESCE_MS, 200);
+        AtomicFileWriter writer = new AtomicFileWriter(settings);
+        Path target = tempDir.resolve("failing.ini");
+        Files.createFile(target);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try
+            {
+            Future<?> leader = executor.submit(()->
+                {
+                writer.write(target, StandardCharsets.UTF_8, w->w.write("value=0\n"));
+                return null;
+                });
+            Thread.sleep(20);
+            // the latest content wins, so the leader runs the follower's writer.
+            Future<?> follower = executor.submit(()->
+                {
+                writer.write(target, StandardCharsets.UTF_8, w->{ throw new AssertionError("broken writer"); });
+                return null;
+                });
+            ExecutionException leaderFailure = assertThrows(ExecutionException.class, ()->leader.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(AssertionError.class, leaderFailure.getCause());
+            ExecutionException followerFailure = assertThrows(ExecutionException.class, ()->follower.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IOException.class, followerFailure.getCause());
+            }
+        finally
+            {
+            executor.shutdownNow();
+            }
+        }
+}
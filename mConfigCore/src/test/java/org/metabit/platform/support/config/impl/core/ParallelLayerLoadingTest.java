@@ -0,0 +1,93 @@
+package org.metabit.platform.support.config.impl.core;
+
+import org.junit.jupiter.api.Test;
+import org.metabit.platform.support.config.*;
+import org.metabit.platform.support.config.impl.DefaultConfigFactory;
+import org.metabit.platform.support.config.interfaces.LayeredConfigurationInterface;
+import org.metabit.platform.support.config.source.core.InMemoryLayerSource;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelLayerLoadingTest
+{
+    private static final long DELAY_MS = 400;
+
+    /** in-memory storage simulating a slow remote source */
+    private static class SlowStorage extends InMemoryLayerSource
+    {
+        private final String id;
+
+        SlowStorage(String id)
+            {
+            super(ConfigScope.CLUSTER);
+            this.id = id;
+            }
+
+        @Override
+        public String getStorageID() { return id; }
+
+        @Override
+        public void updateConfigurationLayers(String sanitizedConfigName, ConfigLocation possibleSource, LayeredConfigurationInterface cfgCollector)
+            {
+            try
+                {
+                Thread.sleep(DELAY_MS);
+                }
+            catch (InterruptedException e)
+                {
+                Thread.currentThread().interrupt();
+                }
+            super.updateConfigurationLayers(sanitizedConfigName, possibleSource, cfgCollector);
+            }
+    }
+
+    private ConfigFactory createFactory(boolean parallel)
+        {
+        ConfigFactory factory = ConfigFactoryBuilder.create("metabit", "PARALLEL_TEST")
+                .setFeature(ConfigFeature.PARALLEL_LAYER_LOADING, parallel)
+                .setFeature(ConfigFeature.PARALLEL_LAYER_LOADING_THREADS, 4)
+                .build();
+        DefaultConfigFactory defaultFactory = (DefaultConfigFactory) factory;
+        for (String id : List.of("slow-a", "slow-b", "slow-c"))
+            {
+            new SlowStorage(id).init(defaultFactory.ctx);
+            }
+        return factory;
+        }
+
+    private static List<String> storageOrder(Configuration config)
+        {
+        return config.getSourceLocations().stream().map(l->l.getStorage().getStorageID()).collect(Collectors.toList());
+        }
+
+    @Test
+    void parallelLoadingKeepsSearchListOrder() throws Exception
+        {
+        List<String> sequentialOrder;
+        try (ConfigFactory factory = createFactory(false))
+            {
+            sequentialOrder = storageOrder(factory.getConfig("testConfig"));
+            }
+        try (ConfigFactory factory = createFactory(true))
+            {
+            List<String> parallelOrder = storageOrder(factory.getConfig("testConfig"));
+            assertEquals(sequentialOrder, parallelOrder);
+            assertTrue(parallelOrder.containsAll(List.of("slow-a", "slow-b", "slow-c")));
+            }
+        }
+
+    @Test
+    void parallelLoadingOverlapsSlowStorages() throws Exception
+        {
+        try (ConfigFactory factory = createFactory(true))
+            {
+            long start = System.nanoTime();
+            factory.getConfig("timedConfig");
+            long elapsedMs = (System.nanoTime()-start)/1_000_000;
+            assertTrue(elapsedMs < 3*DELAY_MS, "parallel loading took "+elapsedMs+"ms");
+            }
+        }
+}
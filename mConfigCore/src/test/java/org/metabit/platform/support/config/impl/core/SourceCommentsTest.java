@@ -0,0 +1,69 @@
+package org.metabit.platform.support.config.impl.core;
+
+import org.junit.jupiter.api.Test;
+import org.metabit.platform.support.config.impl.util.SourceComments;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SourceCommentsTest
+{
+    private static final String TEXT = "# first  \n   ; second\nkey = value # inline\n\n# trailer\n";
+
+    @Test
+    void linesAreCreatedOnFirstAccess()
+        {
+        AtomicInteger reads = new AtomicInteger();
+        SourceComments.LineReader lines = SourceComments.commentLines("#;", true);
+        SourceComments comments = new SourceComments(TEXT, (text, start, end, out)->
+            {
+            reads.incrementAndGet();
+            lines.read(text, start, end, out);
+            }, true);
+        List<String> block = comments.lines(SourceComments.range(0, 21));
+        assertFalse(block.isEmpty());
+        assertEquals(0, reads.get(), "nothing read before access");
+
+        assertEquals(List.of("# first", "; second"), block);
+        assertEquals(2, block.size());
+        assertEquals(1, reads.get(), "read once, then kept");
+
+        CharSequence inline = comments.text(34, 42);
+        assertEquals("# inline", inline.toString());
+        assertEquals('#', inline.charAt(0));
+        }
+
+    @Test
+    void joinKeepsBlocksLazy()
+        {
+        SourceComments comments = new SourceComments(TEXT, SourceComments.commentLines("#", false), true);
+        List<String> first = comments.lines(SourceComments.range(0, 9));
+        List<String> second = comments.lines(SourceComments.range(44, 53));
+        List<String> joined = SourceComments.join(first, second);
+        assertEquals(List.of("# first  ", "# trailer"), joined);
+        assertSame(first, SourceComments.join(first, null));
+        assertSame(second, SourceComments.join(List.of(), second));
+        assertEquals(List.of("x", "# trailer"), SourceComments.join(List.of("x"), second));
+        }
+
+    @Test
+    void withoutTheTextStringsAreCreatedRightAway()
+        {
+        AtomicInteger reads = new AtomicInteger();
+        SourceComments.LineReader lines = SourceComments.commentLines("#;", true);
+        SourceComments comments = new SourceComments(TEXT, (text, start, end, out)->
+            {
+            reads.incrementAndGet();
+            lines.read(text, start, end, out);
+            }, false);
+        List<String> block = comments.lines(SourceComments.range(0, 21));
+        assertEquals(1, reads.get(), "read while parsing");
+        assertEquals(List.of("# first", "; second"), block);
+        CharSequence inline = comments.text(34, 42);
+        assertInstanceOf(String.class, inline);
+        assertEquals("# inline", inline);
+        assertEquals(List.of("# first", "; second", "# trailer"), SourceComments.join(block, comments.lines(SourceComments.range(44, 53))));
+        }
+}
@@ -0,0 +1,61 @@
+package org.metabit.platform.support.config.impl.core;
+
+import org.junit.jupiter.api.Test;
+import org.metabit.platform.support.config.impl.util.SourcePatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SourcePatchTest
+{
+    private static final String TEXT = "# header\na = 1 # one\nb = 22\n\n# trailer\n";
+
+    @Test
+    void replacesValuesAndMovesSpans()
+        {
+        SourcePatch patch = new SourcePatch(TEXT);
+        SourcePatch.Span a = patch.track(13, 14);
+        SourcePatch.Span b = patch.track(25, 27);
+        SourcePatch.Span end = patch.track(28, 28);
+        patch.replace(a, "1000");
+        patch.replace(b, "3");
+        patch.replace(b, "4"); // later replacement wins
+        assertTrue(patch.hasChanges());
+
+        String patched = patch.apply();
+        assertEquals("# header\na = 1000 # one\nb = 4\n\n# trailer\n", patched);
+        assertFalse(patch.hasChanges());
+        assertEquals("1000", patched.substring(a.getStart(), a.getEnd()));
+        assertEquals("4", patched.substring(b.getStart(), b.getEnd()));
+        assertEquals(patched.indexOf("\n# trailer"), end.getStart());
+        }
+
+    @Test
+    void insertsLinesInOrder()
+        {
+        SourcePatch patch = new SourcePatch(TEXT);
+        SourcePatch.Span b = patch.track(25, 27);
+        SourcePatch.Span anchor = patch.track(28, 28); // after the "b" line
+        SourcePatch.Span c = patch.insertLine(anchor, "c = ", "3", "");
+        SourcePatch.Span d = patch.insertLine(anchor, "d = ", "4", " # four");
+        patch.replace(c, "33"); // not applied yet; patches the inserted text
+        patch.replace(b, "2");
+
+        String patched = patch.apply();
+        assertEquals("# header\na = 1 # one\nb = 2\nc = 33\nd = 4 # four\n\n# trailer\n", patched);
+        assertEquals("33", patched.substring(c.getStart(), c.getEnd()));
+        assertEquals("4", patched.substring(d.getStart(), d.getEnd()));
+
+        // the anchor moved behind the inserted lines
+        patch.insertLine(anchor, "e = ", "5", "");
+        assertEquals("# header\na = 1 # one\nb = 2\nc = 33\nd = 4 # four\ne = 5\n\n# trailer\n", patch.apply());
+        }
+
+    @Test
+    void insertStartsNewLineIfNeeded()
+        {
+        SourcePatch patch = new SourcePatch("a=1\r\nb=2");
+        assertEquals("\r\n", patch.getLineSeparator());
+        patch.insertLine(patch.track(8, 8), "c=", "3", "");
+        assertEquals("a=1\r\nb=2\r\nc=3\r\n", patch.apply());
+        }
+}
@@ -0,0 +1,143 @@
+package org.metabit.platform.support.config.impl.core;
+
+import org.junit.jupiter.api.Test;
+import org.metabit.platform.support.config.*;
+import org.metabit.platform.support.config.impl.ConfigFactoryInstanceContext;
+import org.metabit.platform.support.config.impl.DefaultConfigFactory;
+import org.metabit.platform.support.config.interfaces.LayeredConfigurationInterface;
+import org.metabit.platform.support.config.source.core.InMemoryLayer;
+import org.metabit.platform.support.config.source.core.InMemoryLayerSource;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteBehindTest
+{
+    /** in-memory layer with a write-cache, counting what gets flushed. */
+    private static class CachingLayer extends InMemoryLayer
+    {
+        final AtomicInteger flushedEntries = new AtomicInteger();
+        volatile String     flushingThread;
+        private int         pending;
+
+        CachingLayer(ConfigFactoryInstanceContext ctx, ConfigLocation location)
+            {
+            super(ctx, location, location.getScope());
+            }
+
+        @Override
+        public void writeEntry(ConfigEntry entryToWrite) throws ConfigCheckedException
+            {
+            super.writeEntry(entryToWrite);
+            pending++;
+            }
+
+        @Override
+        public int flush()
+            {
+            int tmp = pending;
+            pending = 0;
+            if (tmp > 0)
+                {
+                flushingThread = Thread.currentThread().getName();
+                flushedEntries.addAndGet(tmp);
+                }
+            return tmp;
+            }
+
+        @Override
+        public int getPendingWriteCount()
+            {
+            return pending;
+            }
+    }
+
+    private static class CachingStorage extends InMemoryLayerSource
+    {
+        private final ConfigFactoryInstanceContext ctx;
+        CachingLayer layer;
+
+        CachingStorage(ConfigFactoryInstanceContext ctx)
+            {
+            super(ConfigScope.USER);
+            this.ctx = ctx;
+            }
+
+        @Override
+        public String getStorageID() { return "caching"; }
+
+        @Override
+        public void updateConfigurationLayers(String sanitizedConfigName, ConfigLocation possibleSource, LayeredConfigurationInterface cfgCollector)
+            {
+            layer = new CachingLayer(ctx, possibleSource);
+            cfgCollector.add(layer, possibleSource);
+            }
+    }
+
+    private static ConfigFactory createFactory(int delayMs, int maxDirty, CachingStorage[] storageHolder)
+        {
+        ConfigFactory factory = ConfigFactoryBuilder.create("metabit", "WRITEBEHIND_TEST")
+                .setFeature(ConfigFeature.WRITE_SYNC, false)
+                .setFeature(ConfigFeature.WRITE_BEHIND_DELAY_MS, delayMs)
+                .setFeature(ConfigFeature.WRITE_BEHIND_MAX_DIRTY_ENTRIES, maxDirty)
+                .build();
+        ConfigFactoryInstanceContext ctx = ((DefaultConfigFactory) factory).ctx;
+        storageHolder[0] = new CachingStorage(ctx);
+        storageHolder[0].init(ctx);
+        return factory;
+        }
+
+    private static void waitFor(AtomicInteger counter, int expected) throws InterruptedException
+        {
+        long deadline = System.currentTimeMillis()+5000;
+        while (counter.get() < expected && System.currentTimeMillis() < deadline)
+            {
+            Thread.sleep(10);
+            }
+        }
+
+    @Test
+    void flushesAfterDelayOffCallerThread() throws Exception
+        {
+        CachingStorage[] storage = new CachingStorage[1];
+        try (ConfigFactory factory = createFactory(100, 0, storage))
+            {
+            Configuration config = factory.getConfig("geometry");
+            config.put("window/width", 800, ConfigScope.USER);
+            config.put("window/height", 600, ConfigScope.USER);
+            assertEquals(0, storage[0].layer.flushedEntries.get(), "flushed synchronously");
+            waitFor(storage[0].layer.flushedEntries, 2);
+            assertEquals(2, storage[0].layer.flushedEntries.get());
+            assertEquals("mConfig-WriteBehind", storage[0].layer.flushingThread);
+            }
+        }
+
+    @Test
+    void flushesEarlyOnDirtyEntryLimit() throws Exception
+        {
+        CachingStorage[] storage = new CachingStorage[1];
+        try (ConfigFactory factory = createFactory(60_000, 3, storage))
+            {
+            Configuration config = factory.getConfig("tuning");
+            for (int i = 0; i < 3; i++)
+                {
+                config.put("tuning/value"+i, i, ConfigScope.USER);
+                }
+            waitFor(storage[0].layer.flushedEntries, 3);
+            assertEquals(3, storage[0].layer.flushedEntries.get());
+            }
+        }
+
+    @Test
+    void finalFlushOnFactoryClose() throws Exception
+        {
+        CachingStorage[] storage = new CachingStorage[1];
+        ConfigFactory factory = createFactory(60_000, 0, storage);
+        Configuration config = factory.getConfig("state");
+        config.put("last/opened", "file.txt", ConfigScope.USER);
+        assertEquals(0, storage[0].layer.flushedEntries.get());
+        factory.close();
+        assertEquals(1, storage[0].layer.flushedEntries.get());
+        }
+}
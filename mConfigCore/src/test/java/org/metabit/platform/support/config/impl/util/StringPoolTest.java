@@ -0,0 +1,112 @@
+package org.metabit.platform.support.config.impl.util;
+
+import org.junit.jupiter.api.Test;
+import org.metabit.platform.support.config.ConfigFeature;
+import org.metabit.platform.support.config.impl.ConfigFactoryInstanceContext;
+import org.metabit.platform.support.config.impl.ConfigFactorySettings;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StringPoolTest
+{
+    @Test
+    void equalStringsShareOneInstance()
+        {
+        StringPool pool = new StringPool(64);
+        String first = pool.intern(new String("localhost"));
+        String second = pool.intern(new String("localhost"));
+        assertSame(first, second);
+        assertEquals(2, pool.getLookups());
+        assertEquals(1, pool.getHits());
+        assertEquals(1, pool.size());
+        assertEquals(StringPool.estimatedSize("localhost"), pool.getSavedBytes());
+        }
+
+    @Test
+    void longStringsAndNullPassThrough()
+        {
+        StringPool pool = new StringPool(4);
+        String longer = new String("hostname");
+        assertSame(longer, pool.intern(longer));
+        assertNull(pool.intern(null));
+        assertEquals(0, pool.getLookups());
+        assertSame(longer, StringPool.NONE.intern(longer));
+        assertFalse(StringPool.NONE.isActive());
+        assertEquals("", StringPool.NONE.intern(""));
+        }
+
+    @Test
+    void sameInstanceIsNoSaving()
+        {
+        StringPool pool = new StringPool(64);
+        String s = pool.intern(new String("true"));
+        assertSame(s, pool.intern(s));
+        assertEquals(0, pool.getHits());
+        assertEquals(0, pool.getSavedBytes());
+        }
+
+    @Test
+    void parallelReadersGetOneInstance() throws Exception
+        {
+        StringPool pool = new StringPool(64);
+        int threads = 8;
+        int values = 500;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try
+            {
+            List<Future<String[]>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++)
+                {
+                results.add(executor.submit(()->
+                    {
+                    String[] interned = new String[values];
+                    for (int i = 0; i < values; i++)
+                        {
+                        interned[i] = pool.intern(new String("key-"+i));
+                        }
+                    return interned;
+                    }));
+                }
+            String[] first = results.get(0).get(10, TimeUnit.SECONDS);
+            for (Future<String[]> result : results)
+                {
+                String[] interned = result.get(10, TimeUnit.SECONDS);
+                for (int i = 0; i < values; i++)
+                    {
+                    assertSame(first[i], interned[i]);
+                    }
+                }
+            assertEquals((long) threads * values, pool.getLookups());
+            assertEquals((long) (threads-1) * values, pool.getHits());
+            assertEquals(values, pool.size());
+            }
+        finally
+            {
+            executor.shutdownNow();
+            }
+        }
+
+    @Test
+    void sizeEstimateAccountsForWideCharacters()
+        {
+        assertEquals(24+24, StringPool.estimatedSize("abcdefgh"));
+        assertEquals(24+32, StringPool.estimatedSize("€€€€€€€€"));
+        }
+
+    @Test
+    void contextPoolFollowsFeatures()
+        {
+        ConfigFactorySettings settings = new ConfigFactorySettings();
+        assertTrue(new ConfigFactoryInstanceContext(settings).getStringPool().isActive());
+        settings.setBoolean(ConfigFeature.STRING_DEDUPLICATION, false);
+        ConfigFactoryInstanceContext ctx = new ConfigFactoryInstanceContext(settings);
+        assertSame(StringPool.NONE, ctx.getStringPool());
+        }
+}
@@ -0,0 +1,11 @@
+import org.metabit.platform.support.config.impl.format.snapshot.BinarySnapshotFormat;
+
+module metabit.mconfig.format.snapshot
+    {
+    requires transitive metabit.mconfig.core;
+
+    exports org.metabit.platform.support.config.impl.format.snapshot;
+
+    provides org.metabit.platform.support.config.interfaces.ConfigFormatInterface
+            with BinarySnapshotFormat;
+    }
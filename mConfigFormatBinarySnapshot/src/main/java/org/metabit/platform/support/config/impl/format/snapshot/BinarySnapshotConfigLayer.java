@@ -0,0 +1,316 @@
+package org.metabit.platform.support.config.impl.format.snapshot;
+
+import org.metabit.platform.support.config.*;
+import org.metabit.platform.support.config.impl.ConfigLocationImpl;
+import org.metabit.platform.support.config.impl.entry.AbstractConfigEntry;
+import org.metabit.platform.support.config.impl.entry.ConfigEntryMetadata;
+import org.metabit.platform.support.config.impl.entry.GenericConfigEntryLeaf;
+import org.metabit.platform.support.config.interfaces.ConfigEntrySpecification;
+import org.metabit.platform.support.config.interfaces.ConfigLayerInterface;
+import org.metabit.platform.support.config.schema.NullConfigEntrySpecification;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * read-only configuration layer on a binary snapshot.
+ * <p>
+ * Nothing is parsed up front; lookups are binary searches on the sorted key table,
+ * reading the buffer (usually a memory-mapped file) directly. Entries are created on first access.
+ */
+final class BinarySnapshotConfigLayer implements ConfigLayerInterface
+{
+    private final ConfigLocation           location;
+    private final ConfigSource             source;
+    private final ConfigEntryMetadata      sharedMeta;
+    private final ByteBuffer               buffer;
+    private final int                      count;
+    private final int                      pool;
+    private final Map<String, ConfigEntry> entries;
+    private final Map<String, ConfigEntry> specifiedEntries; // created for a specification, with it
+
+    private BinarySnapshotConfigLayer(ConfigLocation configLocation, BinarySnapshotFormat format, Object storageInstanceHandle, ByteBuffer buffer)
+        {
+        this.location = configLocation;
+        this.source = new ConfigLocationImpl(location, this, format, storageInstanceHandle);
+        this.sharedMeta = ConfigEntryMetadata.shared(source);
+        this.buffer = buffer;
+        this.count = buffer.getInt(SnapshotLayout.OFFSET_COUNT);
+        this.pool = buffer.getInt(SnapshotLayout.OFFSET_POOL);
+        this.entries = new ConcurrentHashMap<>();
+        this.specifiedEntries = new ConcurrentHashMap<>();
+        }
+
+    /**
+     * open a snapshot. Header and checksums are verified; the contents are not parsed.
+     *
+     * @param buffer                snapshot, from position 0 to limit; not modified
+     * @param configLocation        location
+     * @param format                format to report as source format
+     * @param storageInstanceHandle handle for the source
+     * @return the layer
+     * @throws IOException if the buffer does not hold a valid snapshot
+     */
+    static BinarySnapshotConfigLayer open(ByteBuffer buffer, ConfigLocation configLocation, BinarySnapshotFormat format, Object storageInstanceHandle)
+            throws IOException
+        {
+        ByteBuffer data = buffer.slice().order(ByteOrder.BIG_ENDIAN);
+        int size = data.limit();
+        if ((size < SnapshotLayout.HEADER_SIZE) || (data.getInt(0) != SnapshotLayout.MAGIC))
+            {
+            throw new IOException("not a binary configuration snapshot");
+            }
+        if (data.getShort(SnapshotLayout.OFFSET_VERSION) != SnapshotLayout.VERSION)
+            {
+            throw new IOException("unsupported snapshot version "+data.getShort(SnapshotLayout.OFFSET_VERSION));
+            }
+        if (crc(data, 0, SnapshotLayout.OFFSET_HEADER_CRC) != data.getInt(SnapshotLayout.OFFSET_HEADER_CRC))
+            {
+            throw new IOException("snapshot header checksum mismatch");
+            }
+        long count = data.getInt(SnapshotLayout.OFFSET_COUNT);
+        long poolOffset = data.getInt(SnapshotLayout.OFFSET_POOL);
+        long poolLength = data.getInt(SnapshotLayout.OFFSET_POOL_LENGTH);
+        if ((count < 0) || (poolOffset != SnapshotLayout.HEADER_SIZE+count * SnapshotLayout.RECORD_SIZE) || (poolLength < 0) || (poolOffset+poolLength != size))
+            {
+            throw new IOException("snapshot size does not match its header");
+            }
+        if (crc(data, SnapshotLayout.HEADER_SIZE, size-SnapshotLayout.HEADER_SIZE) != data.getInt(SnapshotLayout.OFFSET_CONTENT_CRC))
+            {
+            throw new IOException("snapshot content checksum mismatch");
+            }
+        return new BinarySnapshotConfigLayer(configLocation, format, storageInstanceHandle, data.asReadOnlyBuffer());
+        }
+
+    private static int crc(ByteBuffer data, int offset, int length)
+        {
+        ByteBuffer range = data.duplicate();
+        range.position(offset).limit(offset+length);
+        CRC32 crc = new CRC32();
+        crc.update(range);
+        return (int) crc.getValue();
+        }
+
+    // binary search on the key table; returns the record index, or -1.
+    private int find(byte[] key)
+        {
+        int low = 0;
+        int high = count-1;
+        while (low <= high)
+            {
+            int mid = (low+high) >>> 1;
+            int cmp = compareKey(mid, key);
+            if (cmp < 0)
+                {
+                low = mid+1;
+                }
+            else if (cmp > 0)
+                {
+                high = mid-1;
+                }
+            else
+                {
+                return mid;
+                }
+            }
+        return -1;
+        }
+
+    // compares the key of a record with the given one, as unsigned bytes; no copying.
+    private int compareKey(int record, byte[] key)
+        {
+        int ref = pool+buffer.getInt(SnapshotLayout.HEADER_SIZE+record * SnapshotLayout.RECORD_SIZE);
+        int length = buffer.getInt(ref);
+        int common = Math.min(length, key.length);
+        for (int i = 0; i < common; i++)
+            {
+            int diff = (buffer.get(ref+4+i) & 0xFF)-(key[i] & 0xFF);
+            if (diff != 0)
+                {
+                return diff;
+                }
+            }
+        return length-key.length;
+        }
+
+    private byte[] bytesAt(int poolRef)
+        {
+        int at = pool+poolRef;
+        byte[] bytes = new byte[buffer.getInt(at)];
+        ByteBuffer view = buffer.duplicate();
+        view.position(at+4);
+        view.get(bytes);
+        return bytes;
+        }
+
+    private String stringAt(int poolRef)
+        {
+        return new String(bytesAt(poolRef), StandardCharsets.UTF_8);
+        }
+
+    private ConfigEntry toConfigEntry(int record, String key, ConfigEntryMetadata meta)
+        {
+        int at = SnapshotLayout.HEADER_SIZE+record * SnapshotLayout.RECORD_SIZE;
+        int valueRef = buffer.getInt(at+4);
+        ConfigEntryType type = SnapshotLayout.typeOf(buffer.get(at+8));
+        if (type == null)
+            {
+            type = ConfigEntryType.STRING; // written by a newer version; the text is the best we have.
+            }
+        Object value;
+        switch (type)
+            {
+            case BOOLEAN:
+                value = (valueRef != 0);
+                break;
+            case BYTES:
+                value = bytesAt(valueRef);
+                break;
+            case MULTIPLE_STRINGS:
+            case ENUM_SET:
+                int n = buffer.getInt(pool+valueRef);
+                List<String> list = new ArrayList<>(n);
+                for (int i = 0; i < n; i++)
+                    {
+                    list.add(stringAt(buffer.getInt(pool+valueRef+4+4 * i)));
+                    }
+                value = Collections.unmodifiableList(list);
+                break;
+            case NUMBER:
+                value = toNumber(stringAt(valueRef));
+                break;
+            default:
+                value = stringAt(valueRef);
+                break;
+            }
+        return new GenericConfigEntryLeaf(key, value, type, meta);
+        }
+
+    private static Object toNumber(String text)
+        {
+        try
+            {
+            return Long.valueOf(text);
+            }
+        catch (NumberFormatException ex)
+            {
+            try
+                {
+                return new BigDecimal(text);
+                }
+            catch (NumberFormatException ex2)
+                {
+                return text; // left to the converters, as other formats do
+                }
+            }
+        }
+
+    @Override
+    public boolean isEmpty()
+        { return count == 0; }
+
+    @Override
+    public ConfigScope getScope()
+        { return location.getScope(); }
+
+    @Override
+    public ConfigSource getSource()
+        { return source; }
+
+    @Override
+    public boolean isWriteable()
+        { return false; }
+
+    @Override
+    public void writeEntry(ConfigEntry configEntry)
+            throws ConfigCheckedException
+        {
+        throw new ConfigCheckedException(ConfigCheckedException.ConfigExceptionReason.INVALID_USE);
+        }
+
+    @Override
+    public int flush()
+            throws ConfigCheckedException
+        {
+        return 0; // nothing to write, ever.
+        }
+
+    @Override
+    public int compareTo(ConfigLayerInterface configLayerInterface)
+        {
+        return 0;
+        }
+
+    @Override
+    public Iterator<String> tryToGetKeyIterator()
+        {
+        return new Iterator<String>()
+            {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext()
+                { return next < count; }
+
+            @Override
+            public String next()
+                {
+                if (next >= count)
+                    {
+                    throw new NoSuchElementException();
+                    }
+                return stringAt(buffer.getInt(SnapshotLayout.HEADER_SIZE+(next++) * SnapshotLayout.RECORD_SIZE));
+                }
+            };
+        }
+
+    @Override
+    public ConfigEntry getEntry(final String hierarchicalKeyPath)
+        {
+        ConfigEntry entry = entries.get(hierarchicalKeyPath);
+        if (entry != null)
+            {
+            return entry;
+            }
+        int record = find(hierarchicalKeyPath.getBytes(StandardCharsets.UTF_8));
+        if (record < 0)
+            {
+            return null;
+            }
+        entry = toConfigEntry(record, hierarchicalKeyPath, sharedMeta);
+        entries.putIfAbsent(hierarchicalKeyPath, entry);
+        return entry;
+        }
+
+    @Override
+    public ConfigEntry getEntry(String hierarchicalKeyPath, ConfigEntrySpecification specification)
+        {
+        if ((specification == null) || (specification instanceof NullConfigEntrySpecification))
+            {
+            return getEntry(hierarchicalKeyPath);
+            }
+        ConfigEntry entry = specifiedEntries.get(hierarchicalKeyPath);
+        if (AbstractConfigEntry.isSpecifiedAs(entry, specification))
+            {
+            return entry;
+            }
+        int record = find(hierarchicalKeyPath.getBytes(StandardCharsets.UTF_8));
+        if (record < 0)
+            {
+            return null;
+            }
+        entry = toConfigEntry(record, hierarchicalKeyPath, sharedMeta.withSpecification(specification));
+        if (entry != null)
+            {
+            specifiedEntries.put(hierarchicalKeyPath, entry);
+            }
+        return entry;
+        }
+}
+//___EOF___
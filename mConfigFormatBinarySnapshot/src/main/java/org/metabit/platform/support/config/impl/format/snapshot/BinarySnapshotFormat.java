@@ -0,0 +1,125 @@
+package org.metabit.platform.support.config.impl.format.snapshot;
+
+import org.metabit.platform.support.config.ConfigCheckedException;
+import org.metabit.platform.support.config.ConfigLocation;
+import org.metabit.platform.support.config.impl.ConfigFactorySettings;
+import org.metabit.platform.support.config.interfaces.ConfigFileFormatInterface;
+import org.metabit.platform.support.config.interfaces.ConfigLayerInterface;
+import org.metabit.platform.support.config.interfaces.ConfigLoggingInterface;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * read precompiled binary configuration snapshots.
+ * <p>
+ * Snapshot files are memory-mapped, and looked up by binary search without parsing.
+ * They are read-only; they are produced from other formats by the mconfig tool's compile command,
+ * or by {@link BinarySnapshotWriter}.
+ */
+public class BinarySnapshotFormat implements ConfigFileFormatInterface
+{
+    protected ConfigLoggingInterface logger;
+
+    @Override
+    public String getFormatID()
+        {
+        return "BinarySnapshot";
+        }
+
+    @Override
+    public List<String> getFilenameExtensions()
+        {
+        return List.of(".mcsnap");
+        }
+
+    @Override
+    public boolean testComponent(ConfigFactorySettings configFactorySettings, ConfigLoggingInterface configLoggingInterface)
+        {
+        this.logger = configLoggingInterface;
+        return true;
+        }
+
+    @Override
+    public ConfigLayerInterface readFile(File file, ConfigLocation location)
+        {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+            {
+            // the mapping stays valid after the channel is closed.
+            ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return open(mapped, location, file.toPath());
+            }
+        catch (IOException ex)
+            {
+            logger.warn("could not read binary configuration snapshot "+file.getAbsolutePath()+": "+ex.getMessage());
+            return null;
+            }
+        }
+
+    @Override
+    public ConfigLayerInterface readStream(InputStream inputStream, ConfigLocation location)
+        {
+        try
+            {
+            return open(ByteBuffer.wrap(inputStream.readAllBytes()), location, inputStream);
+            }
+        catch (IOException ex)
+            {
+            logger.warn("could not read binary configuration snapshot from stream: "+ex.getMessage());
+            return null;
+            }
+        }
+
+    @Override
+    public boolean readsBuffers()
+        {
+        return true;
+        }
+
+    @Override
+    public ConfigLayerInterface readBuffer(ByteBuffer buffer, ConfigLocation location)
+        {
+        return readBuffer(buffer, location, null);
+        }
+
+    @Override
+    public ConfigLayerInterface readBuffer(ByteBuffer buffer, ConfigLocation location, Path sourceFile)
+        {
+        try
+            {
+            return open(buffer, location, (sourceFile != null) ? sourceFile : buffer);
+            }
+        catch (IOException ex)
+            {
+            logger.warn("could not read binary configuration snapshot "+((sourceFile != null) ? sourceFile : "from buffer")+": "+ex.getMessage());
+            return null;
+            }
+        }
+
+    private ConfigLayerInterface open(ByteBuffer buffer, ConfigLocation location, Object handle)
+            throws IOException
+        {
+        return BinarySnapshotConfigLayer.open(buffer, location, this, handle);
+        }
+
+    @Override
+    public ConfigLayerInterface createFile(Path fileWithFullPath, ConfigLocation location)
+        {
+        logger.debug("binary snapshots are compiled, not created; skipping "+fileWithFullPath);
+        return null;
+        }
+
+    @Override
+    public void writeFile(ConfigLayerInterface layer)
+            throws ConfigCheckedException
+        {
+        throw new ConfigCheckedException(ConfigCheckedException.ConfigExceptionReason.INVALID_USE);
+        }
+}
+//___EOF___
@@ -0,0 +1,249 @@
+package org.metabit.platform.support.config.impl.format.snapshot;
+
+import org.metabit.platform.support.config.ConfigCheckedException;
+import org.metabit.platform.support.config.ConfigEntry;
+import org.metabit.platform.support.config.ConfigEntryType;
+import org.metabit.platform.support.config.interfaces.ConfigLayerInterface;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * compiles configuration entries into a binary snapshot file.
+ * <p>
+ * Entries are collected first, later ones replacing earlier ones with the same key;
+ * the file is produced in one go. See {@link SnapshotLayout} for the layout.
+ */
+public final class BinarySnapshotWriter
+{
+    private final Map<String, Value> values = new HashMap<>();
+
+    private static final class Value
+    {
+        final ConfigEntryType type;
+        final Object          content; // Boolean, byte[], List<String>, or String
+
+        Value(ConfigEntryType type, Object content)
+            {
+            this.type = type;
+            this.content = content;
+            }
+    }
+
+    /**
+     * add an entry. Entries without a value are skipped.
+     *
+     * @param entry entry to add
+     * @throws ConfigCheckedException if the entry value can't be converted to its own type
+     */
+    public void put(final ConfigEntry entry)
+            throws ConfigCheckedException
+        {
+        ConfigEntryType type = entry.getType();
+        if (type == null)
+            {
+            type = ConfigEntryType.STRING;
+            }
+        Object content;
+        if (type == ConfigEntryType.BOOLEAN)
+            {
+            content = entry.getValueAsBoolean();
+            }
+        else if (type == ConfigEntryType.BYTES)
+            {
+            content = entry.getValueAsBytes();
+            }
+        else if (SnapshotLayout.isList(type))
+            {
+            content = entry.getValueAsStringList();
+            }
+        else
+            {
+            content = entry.getValueAsString();
+            }
+        if (content == null)
+            {
+            return;
+            }
+        values.put(entry.getKey(), new Value(type, content));
+        return;
+        }
+
+    /**
+     * add all entries a layer can list.
+     *
+     * @param layer layer to add
+     * @return number of entries added
+     * @throws ConfigCheckedException if an entry value can't be converted
+     */
+    public int putAll(final ConfigLayerInterface layer)
+            throws ConfigCheckedException
+        {
+        int count = 0;
+        Iterator<String> keys = layer.tryToGetKeyIterator();
+        if (keys == null)
+            {
+            return 0;
+            }
+        while (keys.hasNext())
+            {
+            ConfigEntry entry = layer.getEntry(keys.next());
+            if (entry != null)
+                {
+                put(entry);
+                count++;
+                }
+            }
+        return count;
+        }
+
+    /** @return number of entries collected */
+    public int size()
+        { return values.size(); }
+
+    /**
+     * produce the snapshot.
+     *
+     * @return file contents
+     */
+    public byte[] toByteArray()
+        {
+        List<byte[]> keys = new ArrayList<>(values.size());
+        Map<byte[], Value> byKey = new IdentityHashMap<>();
+        for (Map.Entry<String, Value> e : values.entrySet())
+            {
+            byte[] key = e.getKey().getBytes(StandardCharsets.UTF_8);
+            keys.add(key);
+            byKey.put(key, e.getValue());
+            }
+        keys.sort(Arrays::compareUnsigned);
+
+        Pool pool = new Pool();
+        ByteBuffer table = ByteBuffer.allocate(keys.size() * SnapshotLayout.RECORD_SIZE);
+        for (byte[] key : keys)
+            {
+            Value value = byKey.get(key);
+            table.putInt(pool.bytes(key));
+            table.putInt(pool.value(value));
+            table.put(SnapshotLayout.typeCode(value.type));
+            table.put((byte) 0).put((byte) 0).put((byte) 0);
+            }
+        byte[] poolBytes = pool.toByteArray();
+
+        ByteBuffer file = ByteBuffer.allocate(SnapshotLayout.HEADER_SIZE+table.capacity()+poolBytes.length);
+        file.position(SnapshotLayout.HEADER_SIZE);
+        file.put(table.array());
+        file.put(poolBytes);
+        CRC32 contentCrc = new CRC32();
+        contentCrc.update(file.array(), SnapshotLayout.HEADER_SIZE, file.capacity()-SnapshotLayout.HEADER_SIZE);
+
+        file.putInt(0, SnapshotLayout.MAGIC);
+        file.putShort(SnapshotLayout.OFFSET_VERSION, SnapshotLayout.VERSION);
+        file.putInt(SnapshotLayout.OFFSET_COUNT, keys.size());
+        file.putInt(SnapshotLayout.OFFSET_POOL, SnapshotLayout.HEADER_SIZE+table.capacity());
+        file.putInt(SnapshotLayout.OFFSET_POOL_LENGTH, poolBytes.length);
+        file.putInt(SnapshotLayout.OFFSET_CONTENT_CRC, (int) contentCrc.getValue());
+        CRC32 headerCrc = new CRC32();
+        headerCrc.update(file.array(), 0, SnapshotLayout.OFFSET_HEADER_CRC);
+        file.putInt(SnapshotLayout.OFFSET_HEADER_CRC, (int) headerCrc.getValue());
+        return file.array();
+        }
+
+    /**
+     * write the snapshot to a file.
+     * The file is replaced atomically, so processes which have the previous version mapped keep a consistent view.
+     *
+     * @param target file to write
+     * @throws IOException on failure
+     */
+    public void write(final Path target)
+            throws IOException
+        {
+        Path absolute = target.toAbsolutePath();
+        Path temp = absolute.resolveSibling("."+absolute.getFileName()+"."+Long.toHexString(System.nanoTime())+".mconfig.tmp");
+        try
+            {
+            Files.write(temp, toByteArray());
+            Files.move(temp, absolute, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            }
+        finally
+            {
+            Files.deleteIfExists(temp);
+            }
+        return;
+        }
+
+    // the string pool. equal strings are stored once.
+    private static final class Pool
+    {
+        private final ByteArrayOutputStream out     = new ByteArrayOutputStream();
+        private final Map<String, Integer>  strings = new HashMap<>();
+
+        int value(Value value)
+            {
+            if (value.content instanceof Boolean)
+                {
+                return ((Boolean) value.content) ? 1 : 0;
+                }
+            if (value.content instanceof byte[])
+                {
+                return bytes((byte[]) value.content);
+                }
+            if (value.content instanceof List)
+                {
+                List<?> list = (List<?>) value.content;
+                int[] refs = new int[list.size()];
+                for (int i = 0; i < refs.length; i++)
+                    {
+                    refs[i] = string(String.valueOf(list.get(i)));
+                    }
+                int offset = out.size();
+                writeInt(refs.length);
+                for (int ref : refs)
+                    {
+                    writeInt(ref);
+                    }
+                return offset;
+                }
+            return string((String) value.content);
+            }
+
+        int string(String s)
+            {
+            Integer known = strings.get(s);
+            if (known == null)
+                {
+                known = bytes(s.getBytes(StandardCharsets.UTF_8));
+                strings.put(s, known);
+                }
+            return known;
+            }
+
+        int bytes(byte[] data)
+            {
+            int offset = out.size();
+            writeInt(data.length);
+            out.write(data, 0, data.length);
+            return offset;
+            }
+
+        private void writeInt(int v)
+            {
+            out.write(v >>> 24);
+            out.write(v >>> 16);
+            out.write(v >>> 8);
+            out.write(v);
+            }
+
+        byte[] toByteArray()
+            { return out.toByteArray(); }
+    }
+}
+//___EOF___
@@ -0,0 +1,85 @@
+package org.metabit.platform.support.config.impl.format.snapshot;
+
+import org.metabit.platform.support.config.ConfigEntryType;
+
+/**
+ * binary snapshot file layout, version 1. All numbers are big-endian.
+ * <pre>
+ * header, 32 bytes:
+ *   0  int    magic "MCSN"
+ *   4  short  version
+ *   6  short  flags, 0
+ *   8  int    number of entries
+ *  12  int    offset of the pool, from file start
+ *  16  int    length of the pool
+ *  20  int    CRC32 of everything after the header
+ *  24  int    CRC32 of header bytes 0..23
+ *  28  int    reserved, 0
+ * key table, at 32: one record per entry, sorted by the unsigned UTF-8 bytes of the key
+ *   0  int    key: pool offset of a length-prefixed UTF-8 string
+ *   4  int    value: pool offset, or the value itself for booleans
+ *   8  byte   type code
+ *   9  3 bytes padding
+ * pool: length-prefixed (int) byte sequences; strings in UTF-8, deduplicated.
+ *   lists are an int count followed by that many pool offsets of strings.
+ * </pre>
+ */
+final class SnapshotLayout
+{
+    static final int   MAGIC          = 0x4D43534E; // "MCSN"
+    static final short VERSION        = 1;
+    static final int   HEADER_SIZE    = 32;
+    static final int   RECORD_SIZE    = 12;
+
+    static final int   OFFSET_VERSION     = 4;
+    static final int   OFFSET_COUNT       = 8;
+    static final int   OFFSET_POOL        = 12;
+    static final int   OFFSET_POOL_LENGTH = 16;
+    static final int   OFFSET_CONTENT_CRC = 20;
+    static final int   OFFSET_HEADER_CRC  = 24;
+
+    // type codes are part of the file format; never re-number them.
+    private static final ConfigEntryType[] TYPES =
+        {
+        null,
+        ConfigEntryType.STRING,
+        ConfigEntryType.NUMBER,
+        ConfigEntryType.BOOLEAN,
+        ConfigEntryType.BYTES,
+        ConfigEntryType.MULTIPLE_STRINGS,
+        ConfigEntryType.ENUM,
+        ConfigEntryType.ENUM_SET,
+        ConfigEntryType.URI,
+        ConfigEntryType.FILEPATH,
+        ConfigEntryType.DATE,
+        ConfigEntryType.TIME,
+        ConfigEntryType.DATETIME,
+        ConfigEntryType.DURATION
+        };
+
+    private SnapshotLayout() { }
+
+    static byte typeCode(ConfigEntryType type)
+        {
+        for (int i = 1; i < TYPES.length; i++)
+            {
+            if (TYPES[i] == type)
+                {
+                return (byte) i;
+                }
+            }
+        return 1; // anything new is kept as string.
+        }
+
+    /** @return the type for a code, or null if unknown. */
+    static ConfigEntryType typeOf(int code)
+        {
+        return ((code > 0) && (code < TYPES.length)) ? TYPES[code] : null;
+        }
+
+    static boolean isList(ConfigEntryType type)
+        {
+        return (type == ConfigEntryType.MULTIPLE_STRINGS) || (type == ConfigEntryType.ENUM_SET);
+        }
+}
+//___EOF___
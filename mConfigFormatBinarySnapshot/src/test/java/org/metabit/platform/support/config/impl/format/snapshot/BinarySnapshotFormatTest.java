@@ -0,0 +1,150 @@
+package org.metabit.platform.support.config.impl.format.snapshot;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.metabit.platform.support.config.*;
+import org.metabit.platform.support.config.impl.ConfigFactorySettings;
+import org.metabit.platform.support.config.impl.ConfigLocationImpl;
+import org.metabit.platform.support.config.impl.entry.ConfigEntryMetadata;
+import org.metabit.platform.support.config.impl.entry.GenericConfigEntryLeaf;
+import org.metabit.platform.support.config.impl.logging.NullLogging;
+import org.metabit.platform.support.config.interfaces.ConfigLayerInterface;
+import org.metabit.platform.support.config.source.core.InMemoryLayerSource;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BinarySnapshotFormatTest
+{
+    private BinarySnapshotFormat format;
+    private ConfigLocation       location;
+
+    @BeforeEach
+    void setUp()
+        {
+        format = new BinarySnapshotFormat();
+        format.testComponent(new ConfigFactorySettings(), NullLogging.getSingletonInstance());
+        location = new ConfigLocationImpl(ConfigScope.APPLICATION, new InMemoryLayerSource(ConfigScope.APPLICATION), format, null);
+        }
+
+    private ConfigEntry entry(String key, Object value, ConfigEntryType type)
+        {
+        return new GenericConfigEntryLeaf(key, value, type, new ConfigEntryMetadata(null));
+        }
+
+    private byte[] sample() throws Exception
+        {
+        BinarySnapshotWriter writer = new BinarySnapshotWriter();
+        writer.put(entry("name", "demo", ConfigEntryType.STRING));
+        writer.put(entry("server/port", 8080L, ConfigEntryType.NUMBER));
+        writer.put(entry("server/ratio", "0.75", ConfigEntryType.NUMBER));
+        writer.put(entry("server/enabled", true, ConfigEntryType.BOOLEAN));
+        writer.put(entry("server/key", new byte[]{0, 1, (byte) 0xFF}, ConfigEntryType.BYTES));
+        writer.put(entry("server/hosts", List.of("a", "b", "demo"), ConfigEntryType.MULTIPLE_STRINGS));
+        writer.put(entry("server/timeout", "PT30S", ConfigEntryType.DURATION));
+        writer.put(entry("ümlaut", "wert", ConfigEntryType.STRING));
+        writer.put(entry("name", "replaced", ConfigEntryType.STRING)); // later wins
+        return writer.toByteArray();
+        }
+
+    @Test
+    public void testRoundTrip() throws Exception
+        {
+        ConfigLayerInterface layer = format.readBuffer(ByteBuffer.wrap(sample()), location);
+        assertNotNull(layer);
+        assertFalse(layer.isEmpty());
+        assertEquals("replaced", layer.getEntry("name").getValueAsString());
+        assertEquals(8080, layer.getEntry("server/port").getValueAsInteger());
+        assertEquals(ConfigEntryType.NUMBER, layer.getEntry("server/port").getType());
+        assertEquals(0.75, layer.getEntry("server/ratio").getValueAsDouble());
+        assertTrue(layer.getEntry("server/enabled").getValueAsBoolean());
+        assertArrayEquals(new byte[]{0, 1, (byte) 0xFF}, layer.getEntry("server/key").getValueAsBytes());
+        assertEquals(List.of("a", "b", "demo"), layer.getEntry("server/hosts").getValueAsStringList());
+        assertEquals(java.time.Duration.ofSeconds(30), layer.getEntry("server/timeout").getValueAsDuration());
+        assertEquals(ConfigEntryType.DURATION, layer.getEntry("server/timeout").getType());
+        assertEquals("wert", layer.getEntry("ümlaut").getValueAsString());
+        assertSame(layer.getEntry("name"), layer.getEntry("name"));
+        }
+
+    @Test
+    public void testMissesAndKeyOrder() throws Exception
+        {
+        ConfigLayerInterface layer = format.readBuffer(ByteBuffer.wrap(sample()), location);
+        assertNull(layer.getEntry(""));
+        assertNull(layer.getEntry("server"));
+        assertNull(layer.getEntry("server/portx"));
+        assertNull(layer.getEntry("zzz"));
+        assertNull(layer.getEntry("aaa"));
+
+        List<String> keys = new ArrayList<>();
+        Iterator<String> it = layer.tryToGetKeyIterator();
+        it.forEachRemaining(keys::add);
+        assertEquals(8, keys.size());
+        assertEquals("name", keys.get(0));
+        assertEquals("ümlaut", keys.get(7)); // unsigned UTF-8 order
+        }
+
+    @Test
+    public void testReadOnly() throws Exception
+        {
+        ConfigLayerInterface layer = format.readBuffer(ByteBuffer.wrap(sample()), location);
+        assertFalse(layer.isWriteable());
+        assertThrows(ConfigCheckedException.class, ()->layer.writeEntry(entry("name", "x", ConfigEntryType.STRING)));
+        assertThrows(ConfigCheckedException.class, ()->format.writeFile(layer));
+        }
+
+    @Test
+    public void testCorruptionIsDetected() throws Exception
+        {
+        byte[] data = sample();
+        data[data.length-1] ^= 1;
+        assertNull(format.readBuffer(ByteBuffer.wrap(data), location));
+
+        data = sample();
+        data[SnapshotLayout.OFFSET_COUNT+3] ^= 1;
+        assertNull(format.readBuffer(ByteBuffer.wrap(data), location));
+
+        assertNull(format.readStream(new ByteArrayInputStream("key = value\n".getBytes()), location));
+        }
+
+    @Test
+    public void testEmptySnapshot()
+        {
+        ConfigLayerInterface layer = format.readBuffer(ByteBuffer.wrap(new BinarySnapshotWriter().toByteArray()), location);
+        assertNotNull(layer);
+        assertTrue(layer.isEmpty());
+        assertNull(layer.getEntry("anything"));
+        assertFalse(layer.tryToGetKeyIterator().hasNext());
+        }
+
+    @Test
+    public void testMappedFile(@TempDir Path dir) throws Exception
+        {
+        BinarySnapshotWriter writer = new BinarySnapshotWriter();
+        for (int i = 0; i < 1000; i++)
+            {
+            writer.put(entry("section"+(i % 10)+"/key"+i, "value"+i, ConfigEntryType.STRING));
+            }
+        Path file = dir.resolve("app.mcsnap");
+        writer.write(file);
+        try (var listing = Files.list(dir))
+            {
+            assertEquals(1, listing.count()); // no temporary file left behind
+            }
+        ConfigLayerInterface layer = format.readFile(file.toFile(), location);
+        assertNotNull(layer);
+        for (int i = 0; i < 1000; i += 37)
+            {
+            assertEquals("value"+i, layer.getEntry("section"+(i % 10)+"/key"+i).getValueAsString());
+            }
+        assertNull(layer.getEntry("section1/key2"));
+        }
+}
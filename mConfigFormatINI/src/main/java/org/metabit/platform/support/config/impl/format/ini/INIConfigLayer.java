@@ -5,6 +5,9 @@ import org.metabit.platform.support.config.impl.ConfigFactorySettings;
 import org.metabit.platform.support.config.impl.ConfigLocationImpl;
 import org.metabit.platform.support.config.impl.entry.ConfigEntryMetadata;
 import org.metabit.platform.support.config.impl.entry.GenericConfigEntryLeaf;
+import org.metabit.platform.support.config.impl.util.SourceComments;
+import org.metabit.platform.support.config.impl.util.SourcePatch;
+import org.metabit.platform.support.config.impl.util.StringPool;
 import org.metabit.platform.support.config.interfaces.ConfigLayerInterface;
 
 import java.io.BufferedReader;
@@ -16,57 +19,123 @@ public class INIConfigLayer implements ConfigLayerInterface
 {
     private final INIFileFormat                  ourFormat;
     private final Map<String, Map<String, String>> data;
+    // comments as read are kept as offsets into the text; strings are created when accessed.
     private final Map<String, List<String>>       sectionLeadingComments;
-    private final List<String>                    globalHeaderComments;
-    private final Map<String, String>             sectionInlineComments;
+    private       List<String>                    globalHeaderComments;
+    private final Map<String, CharSequence>       sectionInlineComments;
     private final Map<String, Map<String, List<String>>> keyLeadingComments;
-    private final Map<String, Map<String, String>> keyInlineComments;
+    private final Map<String, Map<String, CharSequence>> keyInlineComments;
     private final ConfigSource                   source;
+    private final ConfigEntryMetadata            sharedMeta; // for the entries of a read-only layer
+    private final StringPool                     strings;
     private final boolean                        trimValueStringsFlag;
     private final boolean                        writeableFlag;
     private final boolean                        writeCacheFlag;
     private final boolean                        readCommentsFlag;
     private final boolean                        writeCommentsFlag;
+    private final boolean                        writePatchFlag;
     private       int                            writeChanges;
+    // with FILE_WRITE_PATCH: text as read, value spans, insert positions per section,
+    // and keys changed since the last write. null: rewrite as a whole.
+    private       SourcePatch                    sourcePatch;
+    private final Map<String, SourcePatch.Span>  valueSpans;
+    private final Map<String, SourcePatch.Span>  sectionInsertPositions;
+    private       SourcePatch.Span               endPosition;
+    private final Set<String>                    changedKeys;
 
     public INIConfigLayer(ConfigFactorySettings settings, ConfigLocation location, INIFileFormat format, Path path)
         {
         this.source = new ConfigLocationImpl(location, this, format, path);
+        this.sharedMeta = ConfigEntryMetadata.shared(source);
         this.ourFormat = format;
+        this.strings = format.getStringPool();
         this.writeableFlag = location.isWriteable();
         this.trimValueStringsFlag = settings.getBoolean(ConfigFeature.TRIM_TEXTVALUE_SPACES);
         this.writeCacheFlag = !settings.getBoolean(ConfigFeature.WRITE_SYNC);
         this.readCommentsFlag = settings.getBoolean(ConfigFeature.COMMENTS_READING);
         this.writeCommentsFlag = settings.getBoolean(ConfigFeature.COMMENTS_WRITING);
+        this.writePatchFlag = writeableFlag && (path != null) && settings.getBoolean(ConfigFeature.FILE_WRITE_PATCH);
         this.data = new LinkedHashMap<>();
         this.sectionLeadingComments = new LinkedHashMap<>();
         this.globalHeaderComments = new ArrayList<>();
         this.sectionInlineComments = new LinkedHashMap<>();
         this.keyLeadingComments = new LinkedHashMap<>();
         this.keyInlineComments = new LinkedHashMap<>();
+        this.valueSpans = new HashMap<>();
+        this.sectionInsertPositions = new HashMap<>();
+        this.changedKeys = new LinkedHashSet<>();
         this.writeChanges = 0;
+        if (writePatchFlag)
+            {
+            sourcePatch = new SourcePatch(""); // freshly created file; replaced on load
+            endPosition = sourcePatch.track(0, 0);
+            sectionInsertPositions.put("", endPosition);
+            }
         }
 
     public void load(BufferedReader reader) throws IOException
         {
-        String line;
+        StringBuilder sb = new StringBuilder();
+        char[] buffer = new char[8192];
+        int count;
+        while ((count = reader.read(buffer)) >= 0)
+            {
+            sb.append(buffer, 0, count);
+            }
+        load(sb.toString());
+        }
+
+    /**
+     * parse INI text. With FILE_WRITE_PATCH, the spans of the values are recorded for writing back.
+     *
+     * @param text the file content
+     */
+    public void load(String text)
+        {
+        SourcePatch patch = writePatchFlag ? new SourcePatch(text) : null;
+        Map<String, Integer> insertOffsets = new HashMap<>(); // per section, behind its header or last entry
+        // kept as offsets into the text where it is kept anyway, or comments are read; else created now, dropping the text.
+        SourceComments comments = new SourceComments(text, SourceComments.commentLines(";#", true), readCommentsFlag || (patch != null));
+        boolean sectionsFound = false;
         String currentSection = "";
-        List<String> pendingComments = new ArrayList<>();
-        while ((line = reader.readLine()) != null)
+        int pendingStart = -1; // block of comment lines not assigned yet
+        int pendingEnd = -1;
+        int position = 0;
+        while (position < text.length())
             {
+            int lineStart = position;
+            int lineEnd = lineStart;
+            while ((lineEnd < text.length()) && (text.charAt(lineEnd) != '\n') && (text.charAt(lineEnd) != '\r'))
+                {
+                lineEnd++;
+                }
+            position = lineEnd;
+            if ((position < text.length()) && (text.charAt(position) == '\r'))
+                {
+                position++;
+                }
+            if ((position < text.length()) && (text.charAt(position) == '\n'))
+                {
+                position++;
+                }
+            String line = text.substring(lineStart, lineEnd);
             String trimmed = line.trim();
             if (trimmed.isEmpty())
                 {
-                if (!pendingComments.isEmpty())
+                if (pendingStart >= 0)
                     {
-                    globalHeaderComments.addAll(pendingComments);
-                    pendingComments.clear();
+                    globalHeaderComments = SourceComments.join(globalHeaderComments, comments.lines(SourceComments.range(pendingStart, pendingEnd)));
                     }
+                pendingStart = -1;
                 continue;
                 }
             if (trimmed.startsWith(";") || trimmed.startsWith("#"))
                 {
-                pendingComments.add(trimmed);
+                if (pendingStart < 0)
+                    {
+                    pendingStart = lineStart;
+                    }
+                pendingEnd = lineEnd;
                 continue;
                 }
             if (trimmed.startsWith("["))
@@ -77,17 +146,19 @@ public class INIConfigLayer implements ConfigLayerInterface
                     continue;
                     }
                 currentSection = trimmed.substring(1, close).trim();
-                if (!pendingComments.isEmpty())
+                sectionsFound = true;
+                insertOffsets.put(currentSection, position);
+                if (pendingStart >= 0)
                     {
-                    sectionLeadingComments.put(currentSection, new ArrayList<>(pendingComments));
-                    pendingComments.clear();
+                    sectionLeadingComments.put(currentSection, comments.lines(SourceComments.range(pendingStart, pendingEnd)));
                     }
-                String remainder = trimmed.substring(close + 1).trim();
-                String inlineComment = parseInlineComment(remainder);
-                if (inlineComment != null)
+                int remainderStart = line.indexOf(']') + 1;
+                int commentIndex = splitInlineComment(line.substring(remainderStart)).commentIndex;
+                if (commentIndex >= 0)
                     {
-                    sectionInlineComments.put(currentSection, inlineComment);
+                    sectionInlineComments.put(currentSection, comments.text(lineStart + remainderStart + commentIndex, lineEnd));
                     }
+                pendingStart = -1;
                 }
             else
                 {
@@ -106,26 +177,60 @@ public class INIConfigLayer implements ConfigLayerInterface
                 // Hierarchical normalization: combine section and key, then re-split by last slash
                 String fullKey = currentSection.isEmpty() ? key : currentSection + "/" + key;
                 int lastSlash = fullKey.lastIndexOf('/');
-                String normalizedSection = lastSlash >= 0 ? fullKey.substring(0, lastSlash) : "";
-                String normalizedKey = lastSlash >= 0 ? fullKey.substring(lastSlash + 1) : fullKey;
+                String normalizedSection = strings.intern(lastSlash >= 0 ? fullKey.substring(0, lastSlash) : "");
+                String normalizedKey = strings.intern(lastSlash >= 0 ? fullKey.substring(lastSlash + 1) : fullKey);
+                value = strings.intern(value);
 
                 data.computeIfAbsent(normalizedSection, k -> new LinkedHashMap<>()).put(normalizedKey, value);
-                if (!pendingComments.isEmpty())
+                if (pendingStart >= 0)
                     {
                     keyLeadingComments
                             .computeIfAbsent(normalizedSection, k -> new LinkedHashMap<>())
-                            .put(normalizedKey, new ArrayList<>(pendingComments));
-                    pendingComments.clear();
+                            .put(normalizedKey, comments.lines(SourceComments.range(pendingStart, pendingEnd)));
                     }
-                if (split.inlineComment != null)
+                pendingStart = -1;
+                if (split.commentIndex >= 0)
                     {
                     keyInlineComments
                             .computeIfAbsent(normalizedSection, k -> new LinkedHashMap<>())
-                            .put(normalizedKey, split.inlineComment);
+                            .put(normalizedKey, comments.text(lineStart + index + 1 + split.commentIndex, lineEnd));
+                    }
+                if (patch != null)
+                    {
+                    int valueStart = lineStart + index + 1;
+                    int valueEnd = valueStart + split.value.length();
+                    if (trimValueStringsFlag)
+                        {
+                        // keep the spacing around the value as it is
+                        while ((valueStart < valueEnd) && Character.isWhitespace(text.charAt(valueStart)))
+                            {
+                            valueStart++;
+                            }
+                        while ((valueEnd > valueStart) && Character.isWhitespace(text.charAt(valueEnd - 1)))
+                            {
+                            valueEnd--;
+                            }
+                        }
+                    valueSpans.put(fullKey, patch.track(valueStart, valueEnd));
+                    insertOffsets.put(currentSection, position);
                     }
                 }
                 }
             }
+        sourcePatch = patch;
+        sectionInsertPositions.clear();
+        if (patch != null)
+            {
+            for (Map.Entry<String, Integer> offset : insertOffsets.entrySet())
+                {
+                sectionInsertPositions.put(offset.getKey(), patch.track(offset.getValue(), offset.getValue()));
+                }
+            endPosition = patch.track(text.length(), text.length());
+            if (!sectionsFound)
+                {
+                sectionInsertPositions.putIfAbsent("", endPosition);
+                }
+            }
         }
 
     @Override
@@ -151,21 +256,26 @@ public class INIConfigLayer implements ConfigLayerInterface
             String value = sectionData.get(key);
             if (value != null)
                 {
-                ConfigEntryMetadata meta = new ConfigEntryMetadata(source);
+                String comment = null;
                 if (readCommentsFlag)
                     {
                     List<String> leading = getKeyLeadingComments(section, key);
                     String inline = getKeyInlineComment(section, key);
                     if (leading != null && !leading.isEmpty())
                         {
-                        meta.setComment(String.join("\n", leading));
+                        comment = String.join("\n", leading);
                         }
                     if (inline != null)
                         {
-                        String current = meta.getComment();
-                        meta.setComment(current == null ? inline : current + " " + inline);
+                        comment = (comment == null) ? inline : comment + " " + inline;
                         }
                     }
+                // entries of a read-only layer share its metadata; those of a writeable one may be changed, and get their own.
+                ConfigEntryMetadata meta = (comment != null) ? sharedMeta.withComment(comment) : sharedMeta;
+                if (writeableFlag)
+                    {
+                    meta = meta.copy();
+                    }
                 return new GenericConfigEntryLeaf(hierarchicalKey, value, ConfigEntryType.STRING, meta);
                 }
             }
@@ -233,6 +343,7 @@ public class INIConfigLayer implements ConfigLayerInterface
             key = hierarchicalKey;
             }
         data.computeIfAbsent(section, k -> new LinkedHashMap<>()).put(key, entryToWrite.getValueAsString());
+        changedKeys.add(hierarchicalKey);
 
         if (writeCommentsFlag && entryToWrite.getComment() != null)
             {
@@ -262,6 +373,10 @@ public class INIConfigLayer implements ConfigLayerInterface
                     commentLines.add(formattedLine);
                     }
                 }
+            if (!commentLines.equals(getKeyLeadingComments(section, key)))
+                {
+                sourcePatch = null; // comments are not patched; rewrite as a whole from now on.
+                }
             keyLeadingComments.computeIfAbsent(section, k -> new LinkedHashMap<>()).put(key, commentLines);
             }
 
@@ -286,6 +401,12 @@ public class INIConfigLayer implements ConfigLayerInterface
         return 0;
         }
 
+    @Override
+    public int getPendingWriteCount()
+        {
+        return writeChanges;
+        }
+
     @Override
     public ConfigSource getSource()
         {
@@ -297,6 +418,48 @@ public class INIConfigLayer implements ConfigLayerInterface
         return data;
         }
 
+    /**
+     * @return the text as read and written so far, with value spans; null if the file is to be rewritten as a whole.
+     */
+    SourcePatch getSourcePatch()
+        {
+        return sourcePatch;
+        }
+
+    /** @return value spans, by full key. */
+    Map<String, SourcePatch.Span> getValueSpans()
+        {
+        return valueSpans;
+        }
+
+    /** @return insert positions for new entries, by section name as in the file. */
+    Map<String, SourcePatch.Span> getSectionInsertPositions()
+        {
+        return sectionInsertPositions;
+        }
+
+    /** @return insert position at the end of the text, for new sections. */
+    SourcePatch.Span getEndPosition()
+        {
+        return endPosition;
+        }
+
+    /** @return keys written since the previous call. */
+    List<String> takeChangedKeys()
+        {
+        List<String> keys = new ArrayList<>(changedKeys);
+        changedKeys.clear();
+        return keys;
+        }
+
+    /** rewrite as a whole from now on, e.g. after a structural change, or a failed patch write. */
+    void dropSourcePatch()
+        {
+        sourcePatch = null;
+        valueSpans.clear();
+        sectionInsertPositions.clear();
+        }
+
     List<String> getSectionLeadingComments(String section)
         {
         return sectionLeadingComments.get(section);
@@ -304,9 +467,10 @@ public class INIConfigLayer implements ConfigLayerInterface
 
     String getSectionInlineComment(String section)
         {
-        return sectionInlineComments.get(section);
+        return formatInlineComment(sectionInlineComments.get(section));
         }
 
+    /** @return comments not attached to a section or entry, as read; not to be modified. */
     public List<String> getGlobalHeaderComments()
         {
         return globalHeaderComments;
@@ -324,32 +488,32 @@ public class INIConfigLayer implements ConfigLayerInterface
 
     String getKeyInlineComment(String section, String key)
         {
-        Map<String, String> sectionMap = keyInlineComments.get(section);
+        Map<String, CharSequence> sectionMap = keyInlineComments.get(section);
         if (sectionMap == null)
             {
             return null;
             }
-        return sectionMap.get(key);
+        return formatInlineComment(sectionMap.get(key));
         }
 
-    private String parseInlineComment(String value)
+    // comment as read, from the delimiter on; normalized to delimiter, space, text.
+    private static String formatInlineComment(CharSequence raw)
         {
-        if (value == null || value.isEmpty())
+        if (raw == null)
             {
             return null;
             }
-        InlineCommentSplit split = splitInlineComment(value);
-        return split.inlineComment;
+        String commentBody = raw.subSequence(1, raw.length()).toString().trim();
+        return raw.charAt(0) + (commentBody.isEmpty() ? "" : " " + commentBody);
         }
 
     private InlineCommentSplit splitInlineComment(String valuePart)
         {
         if (valuePart == null)
             {
-            return new InlineCommentSplit("", null);
+            return new InlineCommentSplit("", -1);
             }
         int idx = -1;
-        char delimiter = 0;
         boolean seenNonSpace = false;
         for (int i = 0; i < valuePart.length(); i++)
             {
@@ -359,13 +523,11 @@ public class INIConfigLayer implements ConfigLayerInterface
                 if (!seenNonSpace)
                     {
                     idx = i;
-                    delimiter = ch;
                     break;
                     }
                 if (i > 0 && Character.isWhitespace(valuePart.charAt(i - 1)))
                     {
                     idx = i;
-                    delimiter = ch;
                     break;
                     }
                 }
@@ -376,23 +538,20 @@ public class INIConfigLayer implements ConfigLayerInterface
             }
         if (idx < 0)
             {
-            return new InlineCommentSplit(valuePart, null);
+            return new InlineCommentSplit(valuePart, -1);
             }
-        String value = valuePart.substring(0, idx);
-        String commentBody = valuePart.substring(idx + 1).trim();
-        String inline = delimiter + (commentBody.isEmpty() ? "" : " " + commentBody);
-        return new InlineCommentSplit(value, inline);
+        return new InlineCommentSplit(valuePart.substring(0, idx), idx);
         }
 
     private static final class InlineCommentSplit
     {
         private final String value;
-        private final String inlineComment;
+        private final int    commentIndex; // offset of the comment delimiter in the value part; -1 if none
 
-        InlineCommentSplit(String value, String inlineComment)
+        InlineCommentSplit(String value, int commentIndex)
             {
             this.value = value;
-            this.inlineComment = inlineComment;
+            this.commentIndex = commentIndex;
             }
     }
 }
@@ -2,14 +2,24 @@ package org.metabit.platform.support.config.impl.format.ini;
 
 import org.metabit.platform.support.config.ConfigCheckedException;
 import org.metabit.platform.support.config.ConfigLocation;
+import org.metabit.platform.support.config.impl.ConfigFactoryInstanceContext;
 import org.metabit.platform.support.config.impl.ConfigFactorySettings;
+import org.metabit.platform.support.config.impl.util.AtomicFileWriter;
+import org.metabit.platform.support.config.impl.util.ConfigIOUtil;
+import org.metabit.platform.support.config.impl.util.SourcePatch;
+import org.metabit.platform.support.config.impl.util.StringPool;
 import org.metabit.platform.support.config.interfaces.ConfigFileFormatInterface;
 import org.metabit.platform.support.config.interfaces.ConfigLayerInterface;
 import org.metabit.platform.support.config.interfaces.ConfigLoggingInterface;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -18,8 +28,11 @@ import java.util.Map;
  */
 public class INIFileFormat implements ConfigFileFormatInterface
 {
+    private static final Charset CHARSET = StandardCharsets.UTF_8;
+
     private ConfigLoggingInterface logger;
     private ConfigFactorySettings  settings;
+    private StringPool             strings = StringPool.NONE;
 
     @Override
     public String getFormatID()
@@ -35,6 +48,15 @@ public class INIFileFormat implements ConfigFileFormatInterface
         return true;
         }
 
+    @Override
+    public void initialize(ConfigFactoryInstanceContext ctx)
+        {
+        this.strings = ctx.getStringPool();
+        }
+
+    StringPool getStringPool()
+        { return strings; }
+
     @Override
     public List<String> getFilenameExtensions()
         {
@@ -45,9 +67,10 @@ public class INIFileFormat implements ConfigFileFormatInterface
     public ConfigLayerInterface readFile(File file, ConfigLocation location)
         {
         INIConfigLayer instance = new INIConfigLayer(settings, location, this, file.toPath());
-        try (BufferedReader reader = new BufferedReader(new FileReader(file)))
+        try
             {
-            instance.load(reader);
+            // as text, so value spans can be recorded for patching.
+            instance.load(new String(Files.readAllBytes(file.toPath()), CHARSET));
             }
         catch (IOException ex)
             {
@@ -61,7 +84,7 @@ public class INIFileFormat implements ConfigFileFormatInterface
     public ConfigLayerInterface readStream(InputStream inputStream, ConfigLocation location)
         {
         INIConfigLayer instance = new INIConfigLayer(settings, location, this, null);
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream)))
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, CHARSET)))
             {
             instance.load(reader);
             }
@@ -73,6 +96,34 @@ public class INIFileFormat implements ConfigFileFormatInterface
         return instance;
         }
 
+    @Override
+    public boolean readsBuffers()
+        {
+        return true;
+        }
+
+    @Override
+    public ConfigLayerInterface readBuffer(ByteBuffer buffer, ConfigLocation location)
+        {
+        return readBuffer(buffer, location, null);
+        }
+
+    @Override
+    public ConfigLayerInterface readBuffer(ByteBuffer buffer, ConfigLocation location, Path sourceFile)
+        {
+        INIConfigLayer instance = new INIConfigLayer(settings, location, this, sourceFile);
+        try
+            {
+            instance.load(ConfigIOUtil.decode(buffer, CHARSET).toString());
+            }
+        catch (IOException ex)
+            {
+            logger.warn("IOException when reading INI buffer" + ((sourceFile != null) ? ": " + sourceFile.toAbsolutePath() : ""));
+            return null;
+            }
+        return instance;
+        }
+
     @Override
     public ConfigLayerInterface createFile(Path fileWithPath, ConfigLocation location)
         {
@@ -94,6 +145,7 @@ public class INIFileFormat implements ConfigFileFormatInterface
         if (layer instanceof INIConfigLayer)
             {
             INIConfigLayer iniLayer = (INIConfigLayer) layer;
+            iniLayer.dropSourcePatch(); // written as a whole; flushes of the layer itself patch.
             writeINI(iniLayer);
             }
         else
@@ -106,105 +158,209 @@ public class INIFileFormat implements ConfigFileFormatInterface
         {
         Path path = (Path) layer.getSource().getStorageInstanceHandle();
         Map<String, Map<String, String>> data = layer.getData();
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(path.toFile())))
+        List<String> changedKeys = layer.takeChangedKeys();
+        if ((layer.getSourcePatch() != null) && writePatch(layer, path, changedKeys))
+            {
+            return;
+            }
+        try
+            {
+            // platform default charset, matching the FileReader in readFile().
+            new AtomicFileWriter(settings).write(path, CHARSET, writer->writeINI(layer, data, writer));
+            }
+        catch (IOException ex)
             {
-            // Global header comments
-            for (String comment : layer.getGlobalHeaderComments())
+            throw new ConfigCheckedException(ex);
+            }
+        }
+
+    /**
+     * replace the values of changed entries in the text read; add new entries behind the last one of their section,
+     * and new sections at the end.
+     *
+     * @return false if the changes can't be written as patch: a new top-level entry in a file which has only sections,
+     * or a value with line breaks.
+     */
+    private boolean writePatch(INIConfigLayer layer, Path path, List<String> changedKeys) throws ConfigCheckedException
+        {
+        SourcePatch patch = layer.getSourcePatch();
+        Map<String, SourcePatch.Span> valueSpans = layer.getValueSpans();
+        Map<String, List<String>> newKeysBySection = new LinkedHashMap<>();
+        for (String fullKey : changedKeys)
+            {
+            int slash = fullKey.lastIndexOf('/');
+            String section = (slash >= 0) ? fullKey.substring(0, slash) : "";
+            String value = valueOf(layer, fullKey);
+            if ((value.indexOf('\n') >= 0) || (value.indexOf('\r') >= 0))
                 {
-                writer.write(comment);
-                writer.newLine();
+                layer.dropSourcePatch();
+                return false;
                 }
-            if (!layer.getGlobalHeaderComments().isEmpty())
+            if (!valueSpans.containsKey(fullKey))
                 {
-                writer.newLine();
+                if (section.isEmpty() && !layer.getSectionInsertPositions().containsKey(""))
+                    {
+                    layer.dropSourcePatch();
+                    return false;
+                    }
+                newKeysBySection.computeIfAbsent(section, k -> new ArrayList<>()).add(fullKey);
+                }
+            }
+        String sep = patch.getLineSeparator();
+        for (String fullKey : changedKeys)
+            {
+            SourcePatch.Span span = valueSpans.get(fullKey);
+            if (span == null)
+                {
+                continue;
+                }
+            String value = valueOf(layer, fullKey);
+            String text = patch.getText();
+            if ((span.getEnd() < text.length()) && ((text.charAt(span.getEnd()) == ';') || (text.charAt(span.getEnd()) == '#')))
+                {
+                value = value + " "; // keep the inline comment apart from the value
+                }
+            patch.replace(span, value);
+            }
+        List<String> newSections = new ArrayList<>();
+        for (Map.Entry<String, List<String>> section : newKeysBySection.entrySet())
+            {
+            SourcePatch.Span position = layer.getSectionInsertPositions().get(section.getKey());
+            String header = "";
+            if (position == null)
+                {
+                position = layer.getEndPosition();
+                header = (patch.getText().isEmpty() ? "" : sep) + "[" + section.getKey() + "]" + sep;
+                newSections.add(section.getKey());
+                }
+            for (String fullKey : section.getValue())
+                {
+                String key = fullKey.substring(fullKey.lastIndexOf('/') + 1);
+                valueSpans.put(fullKey, patch.insertLine(position, header + key + "=", valueOf(layer, fullKey), ""));
+                header = "";
                 }
+            }
+        String previous = patch.getText();
+        try
+            {
+            String content = patch.apply();
+            for (String section : newSections)
+                {
+                // behind the last entry added to the new section
+                List<String> keys = newKeysBySection.get(section);
+                int end = valueSpans.get(keys.get(keys.size() - 1)).getEnd() + sep.length();
+                layer.getSectionInsertPositions().put(section, patch.track(end, end));
+                }
+            new AtomicFileWriter(settings).writeChanged(path, CHARSET, previous, content);
+            }
+        catch (IOException ex)
+            {
+            layer.dropSourcePatch();
+            throw new ConfigCheckedException(ex);
+            }
+        return true;
+        }
+
+    private static String valueOf(INIConfigLayer layer, String fullKey)
+        {
+        int slash = fullKey.lastIndexOf('/');
+        return layer.getData().get((slash >= 0) ? fullKey.substring(0, slash) : "").get(fullKey.substring(slash + 1));
+        }
+
+    private void writeINI(INIConfigLayer layer, Map<String, Map<String, String>> data, BufferedWriter writer) throws IOException
+        {
+        // Global header comments
+        for (String comment : layer.getGlobalHeaderComments())
+            {
+            writer.write(comment);
+            writer.newLine();
+            }
+        if (!layer.getGlobalHeaderComments().isEmpty())
+            {
+            writer.newLine();
+            }
 
-            // First pass: write top-level (empty section) keys, if present
-            Map<String, String> rootSection = data.get("");
-            if (rootSection != null)
+        // First pass: write top-level (empty section) keys, if present
+        Map<String, String> rootSection = data.get("");
+        if (rootSection != null)
+            {
+            List<String> rootLeading = layer.getSectionLeadingComments("");
+            if (rootLeading != null)
+                {
+                for (String c : rootLeading)
+                    {
+                    writer.write(c);
+                    writer.newLine();
+                    }
+                }
+            // No header for empty section
+            for (Map.Entry<String, String> entry : rootSection.entrySet())
                 {
-                List<String> rootLeading = layer.getSectionLeadingComments("");
-                if (rootLeading != null)
+                List<String> keyLeading = layer.getKeyLeadingComments("", entry.getKey());
+                if (keyLeading != null)
                     {
-                    for (String c : rootLeading)
+                    for (String c : keyLeading)
                         {
                         writer.write(c);
                         writer.newLine();
                         }
                     }
-                // No header for empty section
-                for (Map.Entry<String, String> entry : rootSection.entrySet())
+                writer.write(entry.getKey() + "=" + entry.getValue());
+                String inlineComment = layer.getKeyInlineComment("", entry.getKey());
+                if (inlineComment != null)
                     {
-                    List<String> keyLeading = layer.getKeyLeadingComments("", entry.getKey());
-                    if (keyLeading != null)
-                        {
-                        for (String c : keyLeading)
-                            {
-                            writer.write(c);
-                            writer.newLine();
-                            }
-                        }
-                    writer.write(entry.getKey() + "=" + entry.getValue());
-                    String inlineComment = layer.getKeyInlineComment("", entry.getKey());
-                    if (inlineComment != null)
-                        {
-                        writer.write(" " + inlineComment);
-                        }
-                    writer.newLine();
+                    writer.write(" " + inlineComment);
                     }
                 writer.newLine();
                 }
+            writer.newLine();
+            }
 
-            // Second pass: write all named sections in insertion order
-            for (Map.Entry<String, Map<String, String>> sectionEntry : data.entrySet())
+        // Second pass: write all named sections in insertion order
+        for (Map.Entry<String, Map<String, String>> sectionEntry : data.entrySet())
+            {
+            String sectionName = sectionEntry.getKey();
+            if (sectionName.isEmpty())
                 {
-                String sectionName = sectionEntry.getKey();
-                if (sectionName.isEmpty())
+                continue; // already emitted
+                }
+            List<String> sectionLeading = layer.getSectionLeadingComments(sectionName);
+            if (sectionLeading != null)
+                {
+                for (String comment : sectionLeading)
                     {
-                    continue; // already emitted
+                    writer.write(comment);
+                    writer.newLine();
                     }
-                List<String> sectionLeading = layer.getSectionLeadingComments(sectionName);
-                if (sectionLeading != null)
+                }
+            writer.write("[" + sectionName + "]");
+            String sectionInline = layer.getSectionInlineComment(sectionName);
+            if (sectionInline != null)
+                {
+                writer.write(" " + sectionInline);
+                }
+            writer.newLine();
+
+            for (Map.Entry<String, String> entry : sectionEntry.getValue().entrySet())
+                {
+                List<String> keyLeading = layer.getKeyLeadingComments(sectionName, entry.getKey());
+                if (keyLeading != null)
                     {
-                    for (String comment : sectionLeading)
+                    for (String comment : keyLeading)
                         {
                         writer.write(comment);
                         writer.newLine();
                         }
                     }
-                writer.write("[" + sectionName + "]");
-                String sectionInline = layer.getSectionInlineComment(sectionName);
-                if (sectionInline != null)
+                writer.write(entry.getKey() + "=" + entry.getValue());
+                String inlineComment = layer.getKeyInlineComment(sectionName, entry.getKey());
+                if (inlineComment != null)
                     {
-                    writer.write(" " + sectionInline);
-                    }
-                writer.newLine();
-
-                for (Map.Entry<String, String> entry : sectionEntry.getValue().entrySet())
-                    {
-                    List<String> keyLeading = layer.getKeyLeadingComments(sectionName, entry.getKey());
-                    if (keyLeading != null)
-                        {
-                        for (String comment : keyLeading)
-                            {
-                            writer.write(comment);
-                            writer.newLine();
-                            }
-                        }
-                    writer.write(entry.getKey() + "=" + entry.getValue());
-                    String inlineComment = layer.getKeyInlineComment(sectionName, entry.getKey());
-                    if (inlineComment != null)
-                        {
-                        writer.write(" " + inlineComment);
-                        }
-                    writer.newLine();
+                    writer.write(" " + inlineComment);
                     }
                 writer.newLine();
                 }
-            }
-        catch (IOException ex)
-            {
-            throw new ConfigCheckedException(ex);
+            writer.newLine();
             }
         }
 
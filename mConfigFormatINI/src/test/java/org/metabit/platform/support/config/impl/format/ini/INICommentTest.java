@@ -144,14 +144,46 @@ public class INICommentTest
             }
         }
 
+    @Test
+    public void testCommentsKeptWithReadingOff() throws Exception
+        {
+        String ini = ""
+                + "; about the section\n"
+                + "[s] ; inline section\n"
+                + "  ;  about key  \n"
+                + "key=value ;inline key\n";
+        ConfigLocation readOnly = new ConfigLocationImpl(ConfigScope.SESSION, new TestStorage(false), null, null);
+
+        INIConfigLayer plain = new INIConfigLayer(new ConfigFactorySettings(), readOnly, new INIFileFormat(), null);
+        plain.load(ini);
+        assertEquals("value", plain.getEntry("s/key").getValueAsString());
+        assertNull(plain.getEntry("s/key").getComment(), "no comments in entries without COMMENTS_READING");
+        assertEquals(List.of("; about the section"), plain.getSectionLeadingComments("s"), "kept for writing back");
+        assertEquals("; inline section", plain.getSectionInlineComment("s"));
+        assertEquals(List.of(";  about key"), plain.getKeyLeadingComments("s", "key"));
+
+        ConfigFactorySettings settings = new ConfigFactorySettings();
+        settings.setBoolean(ConfigFeature.COMMENTS_READING, true);
+        INIConfigLayer reading = new INIConfigLayer(settings, readOnly, new INIFileFormat(), null);
+        reading.load(ini);
+        assertEquals(List.of("; about the section"), reading.getSectionLeadingComments("s"));
+        assertEquals("; inline section", reading.getSectionInlineComment("s"));
+        assertEquals(";  about key ; inline key", reading.getEntry("s/key").getComment());
+        }
+
     private static final class TestStorage implements ConfigStorageInterface
         {
+        private final boolean writeable;
+
+        TestStorage() { this(true); }
+        TestStorage(boolean writeable) { this.writeable = writeable; }
+
         @Override public String getStorageName() { return "test"; }
         @Override public String getStorageID() { return "test"; }
         @Override public boolean test(ConfigFactorySettings settings, org.metabit.platform.support.config.interfaces.ConfigLoggingInterface logger) { return true; }
         @Override public boolean init(org.metabit.platform.support.config.impl.ConfigFactoryInstanceContext ctx) { return true; }
         @Override public void exit() { }
-        @Override public boolean isGenerallyWriteable() { return true; }
+        @Override public boolean isGenerallyWriteable() { return writeable; }
         @Override public URI getURIforConfigLocation(ConfigLocation configLocation, String key, String optionalFragment) { return URI.create("test://ini"); }
         @Override public void updateConfigurationLayers(String sanitizedConfigName, ConfigLocation possibleSource, org.metabit.platform.support.config.interfaces.LayeredConfigurationInterface layeredCfg) { }
         @Override public org.metabit.platform.support.config.interfaces.ConfigLayerInterface createConfigurationLayer(String configName, ConfigLocation location, ConfigSchema configScheme, org.metabit.platform.support.config.impl.LayeredConfiguration layeredConfiguration) { return null; }
@@ -156,6 +156,96 @@ public class INIConfigLayerTest
             }
         }
 
+    @Test
+    public void testFlushPatchesChangedValuesOnly() throws Exception
+        {
+        ConfigFactorySettings settings = new ConfigFactorySettings();
+        settings.setBoolean(ConfigFeature.TRIM_TEXTVALUE_SPACES, true);
+        ConfigLocation location = new ConfigLocationImpl(ConfigScope.SESSION, new TestStorage(), null, null);
+        INIFileFormat format = new INIFileFormat();
+        format.testComponent(settings, org.metabit.platform.support.config.impl.logging.NullLogging.getSingletonInstance());
+
+        java.nio.file.Path tempFile = java.nio.file.Files.createTempFile("mConfigPatch", ".ini");
+        try
+            {
+            String ini = ""
+                    + "; maintained by hand, see ticket history\n"
+                    + "root = 1\n"
+                    + "\n"
+                    + "[server]   ; the server\n"
+                    + "   host   =   example.org   ; old host\n"
+                    + "port=\n"
+                    + "\n"
+                    + "; unrelated trailer\n"
+                    + "[client]\n"
+                    + "retries = 3";
+            java.nio.file.Files.writeString(tempFile, ini, java.nio.charset.StandardCharsets.UTF_8);
+            INIConfigLayer layer = (INIConfigLayer) format.readFile(tempFile.toFile(), location);
+            assertNotNull(layer);
+            layer.writeEntry(new GenericConfigEntryLeaf("server/host", "example.com", ConfigEntryType.STRING, null));
+            layer.writeEntry(new GenericConfigEntryLeaf("server/port", "8080", ConfigEntryType.STRING, null));
+            layer.writeEntry(new GenericConfigEntryLeaf("server/timeout", "30", ConfigEntryType.STRING, null));
+            layer.writeEntry(new GenericConfigEntryLeaf("client/retries", "5", ConfigEntryType.STRING, null));
+            layer.writeEntry(new GenericConfigEntryLeaf("logging/level", "fine", ConfigEntryType.STRING, null));
+            layer.writeEntry(new GenericConfigEntryLeaf("top", "x", ConfigEntryType.STRING, null));
+            assertEquals(6, layer.flush());
+
+            assertEquals(""
+                    + "; maintained by hand, see ticket history\n"
+                    + "root = 1\n"
+                    + "top=x\n"
+                    + "\n"
+                    + "[server]   ; the server\n"
+                    + "   host   =   example.com   ; old host\n"
+                    + "port=8080\n"
+                    + "timeout=30\n"
+                    + "\n"
+                    + "; unrelated trailer\n"
+                    + "[client]\n"
+                    + "retries = 5\n"
+                    + "\n"
+                    + "[logging]\n"
+                    + "level=fine\n", java.nio.file.Files.readString(tempFile, java.nio.charset.StandardCharsets.UTF_8));
+
+            layer.writeEntry(new GenericConfigEntryLeaf("logging/file", "app.log", ConfigEntryType.STRING, null));
+            layer.flush();
+            INIConfigLayer reread = (INIConfigLayer) format.readFile(tempFile.toFile(), location);
+            assertEquals("example.com", reread.getEntry("server/host").getValueAsString());
+            assertEquals("fine", reread.getEntry("logging/level").getValueAsString());
+            assertEquals("app.log", reread.getEntry("logging/file").getValueAsString());
+            assertTrue(java.nio.file.Files.readString(tempFile, java.nio.charset.StandardCharsets.UTF_8).endsWith("[logging]\nlevel=fine\nfile=app.log\n"));
+            }
+        finally
+            {
+            java.nio.file.Files.deleteIfExists(tempFile);
+            }
+        }
+
+    @Test
+    public void testFileAndBufferReadAsUtf8() throws Exception
+        {
+        ConfigFactorySettings settings = new ConfigFactorySettings();
+        ConfigLocation location = new ConfigLocationImpl(ConfigScope.SESSION, new TestStorage(), null, null);
+        INIFileFormat format = new INIFileFormat();
+        format.testComponent(settings, org.metabit.platform.support.config.impl.logging.NullLogging.getSingletonInstance());
+        assertTrue(format.readsBuffers());
+
+        byte[] content = "[caf\u00e9]\nname=Gr\u00fc\u00dfe \u20ac\n".getBytes(java.nio.charset.StandardCharsets.UTF_8);
+        java.nio.file.Path tempFile = java.nio.file.Files.createTempFile("mConfigUtf8", ".ini");
+        try
+            {
+            java.nio.file.Files.write(tempFile, content);
+            ConfigLayerInterface fromFile = format.readFile(tempFile.toFile(), location);
+            ConfigLayerInterface fromBuffer = format.readBuffer(java.nio.ByteBuffer.wrap(content), location, tempFile);
+            assertEquals("Gr\u00fc\u00dfe \u20ac", fromFile.getEntry("caf\u00e9/name").getValueAsString());
+            assertEquals("Gr\u00fc\u00dfe \u20ac", fromBuffer.getEntry("caf\u00e9/name").getValueAsString());
+            }
+        finally
+            {
+            java.nio.file.Files.deleteIfExists(tempFile);
+            }
+        }
+
     private static final class TestStorage implements ConfigStorageInterface
         {
         @Override
@@ -0,0 +1,12 @@
+import org.metabit.platform.support.config.impl.format.json.JSONFileFormat;
+
+module metabit.mconfig.format.json
+    {
+    requires transitive metabit.mconfig.core;
+    requires metabit.mconfig.schema;
+
+    exports org.metabit.platform.support.config.impl.format.json;
+
+    provides org.metabit.platform.support.config.interfaces.ConfigFormatInterface
+            with JSONFileFormat;
+    }
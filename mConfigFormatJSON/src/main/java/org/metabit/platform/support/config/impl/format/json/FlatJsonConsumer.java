@@ -0,0 +1,164 @@
+package org.metabit.platform.support.config.impl.format.json;
+
+import org.metabit.library.format.json.JsonStreamParser.JsonParsingException;
+import org.metabit.library.format.json.JsonStreamParser.JsonStreamConsumer;
+import org.metabit.platform.support.config.impl.util.StringPool;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.*;
+
+/**
+ * collects the events of the JSON stream parser into a flat map from full key to value.
+ * <p>
+ * Nested objects become key paths ("server/port"). Leaf values are String, Integer, Long, Double,
+ * BigInteger, BigDecimal, Boolean or null. Arrays are kept as List, with objects inside arrays as Map;
+ * they are no flat keys of their own. An empty object is kept as an empty Map, so it is written back.
+ */
+final class FlatJsonConsumer implements JsonStreamConsumer
+{
+    private final Map<String, Object> leaves = new LinkedHashMap<>();
+    private final Deque<Frame>        frames = new ArrayDeque<>();
+    private final StringPool          strings;
+    private       String              key; // pending entry: full key in flat objects, plain name inside arrays
+
+    /** an open object or array. */
+    private static final class Frame
+    {
+        final String prefix;    // flat object: full key of the object; null inside arrays
+        final Object structure; // inside arrays: the List or Map being built; null for flat objects
+        boolean      hasEntries;
+
+        Frame(String prefix, Object structure)
+            {
+            this.prefix = prefix;
+            this.structure = structure;
+            }
+    }
+
+    FlatJsonConsumer(StringPool strings)
+        {
+        this.strings = strings;
+        }
+
+    /** @return the leaves read, in document order. */
+    Map<String, Object> getLeaves()
+        { return leaves; }
+
+    @Override
+    public void consumeObjectStart(int line, int column, int level)
+        {
+        Frame top = frames.peek();
+        if (top == null)
+            {
+            frames.push(new Frame("", null)); // the root
+            }
+        else if (top.structure == null)
+            {
+            frames.push(new Frame(key, null));
+            }
+        else
+            {
+            Map<String, Object> map = new LinkedHashMap<>();
+            add(line, column, map);
+            frames.push(new Frame(null, map));
+            }
+        }
+
+    @Override
+    public void consumeObjectEnd(int line, int column, int level)
+        {
+        Frame done = frames.pop();
+        if ((done.structure == null) && !done.hasEntries && !frames.isEmpty())
+            {
+            leaves.put(done.prefix, Collections.emptyMap());
+            }
+        }
+
+    @Override
+    public void consumeArrayStart(int line, int column, int level)
+        {
+        List<Object> list = new ArrayList<>();
+        add(line, column, list);
+        frames.push(new Frame(null, list));
+        }
+
+    @Override
+    public void consumeArrayEnd(int line, int column, int level)
+        {
+        frames.pop();
+        }
+
+    @Override
+    public void consumeObjectEntryStart(int line, int column, int level, String name)
+        {
+        Frame top = frames.peek();
+        top.hasEntries = true;
+        if (top.structure == null)
+            {
+            key = strings.intern(top.prefix.isEmpty() ? name : top.prefix+"/"+name);
+            }
+        else
+            {
+            key = strings.intern(name);
+            }
+        }
+
+    @Override
+    public void consumeNull(int line, int column, int level)
+        { add(line, column, null); }
+
+    @Override
+    public void consumeFalse(int line, int column, int level)
+        { add(line, column, Boolean.FALSE); }
+
+    @Override
+    public void consumeTrue(int line, int column, int level)
+        { add(line, column, Boolean.TRUE); }
+
+    @Override
+    public void consumeString(int line, int column, int level, String string)
+        { add(line, column, strings.intern(string)); }
+
+    @Override
+    public void consumeNumberInteger(int line, int column, int level, int i)
+        { add(line, column, i); }
+
+    @Override
+    public void consumeNumberLong(int line, int column, int level, long l)
+        { add(line, column, l); }
+
+    @Override
+    public void consumeNumberDouble(int line, int column, int level, double v)
+        { add(line, column, v); }
+
+    @Override
+    public void consumeNumberBigInteger(int line, int column, int level, BigInteger bigInteger)
+        { add(line, column, bigInteger); }
+
+    @Override
+    public void consumeNumberBigDecimal(int line, int column, int level, BigDecimal bigDecimal)
+        { add(line, column, bigDecimal); }
+
+    @SuppressWarnings("unchecked")
+    private void add(int line, int column, Object value)
+        {
+        Frame top = frames.peek();
+        if (top == null)
+            {
+            throw new JsonParsingException(line, column, "a configuration must be a JSON object at top level, at ");
+            }
+        if (top.structure == null)
+            {
+            leaves.put(key, value);
+            }
+        else if (top.structure instanceof List)
+            {
+            ((List<Object>) top.structure).add(value);
+            }
+        else
+            {
+            ((Map<String, Object>) top.structure).put(key, value);
+            }
+        }
+}
@@ -0,0 +1,250 @@
+package org.metabit.platform.support.config.impl.format.json;
+
+import org.metabit.platform.support.config.*;
+import org.metabit.platform.support.config.impl.ConfigLocationImpl;
+import org.metabit.platform.support.config.impl.entry.AbstractConfigEntry;
+import org.metabit.platform.support.config.impl.entry.ConfigEntryMetadata;
+import org.metabit.platform.support.config.impl.entry.GenericConfigEntryLeaf;
+import org.metabit.platform.support.config.interfaces.ConfigEntrySpecification;
+import org.metabit.platform.support.config.interfaces.ConfigLayerInterface;
+import org.metabit.platform.support.config.schema.NullConfigEntrySpecification;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * JSON configuration layer, kept as a flat map from full key to value.
+ * <p>
+ * No document tree is kept; on writing, the nesting is rebuilt from the key paths.
+ * Arrays of plain values are provided as MULTIPLE_STRINGS entries; arrays containing objects or arrays
+ * provide no entries, but are kept for writing.
+ * Entries are created on first access. Writes replace the map as a whole; they are rare.
+ */
+public class JSONConfigLayer implements ConfigLayerInterface
+{
+    private final ConfigLocation                location;
+    private final ConfigSource                  source;
+    private final ConfigEntryMetadata           sharedMeta;
+    private volatile Map<String, Object>        leaves;
+    private volatile Map<String, ConfigEntry>   entries;
+    private volatile Map<String, ConfigEntry>   specifiedEntries; // entries created for a specification, with it
+
+    JSONConfigLayer(ConfigLocation configLocation, JSONFileFormat format, Object storageInstanceHandle, Map<String, Object> leaves)
+        {
+        this.location = configLocation;
+        this.source = new ConfigLocationImpl(location, this, format, storageInstanceHandle);
+        this.sharedMeta = ConfigEntryMetadata.shared(source);
+        this.leaves = leaves;
+        this.entries = new ConcurrentHashMap<>();
+        this.specifiedEntries = new ConcurrentHashMap<>();
+        }
+
+    /** @return the current leaves, in document order; not to be modified. */
+    Map<String, Object> getLeaves()
+        { return leaves; }
+
+    @Override
+    public boolean isEmpty()
+        { return leaves.isEmpty(); }
+
+    @Override
+    public ConfigScope getScope()
+        { return location.getScope(); }
+
+    @Override
+    public ConfigSource getSource()
+        { return source; }
+
+    @Override
+    public boolean isWriteable()
+        { return source.getStorageInstanceHandle() instanceof java.nio.file.Path; }
+
+    @Override
+    public synchronized void writeEntry(ConfigEntry configEntry)
+            throws ConfigCheckedException
+        {
+        if (!isWriteable())
+            {
+            throw new ConfigCheckedException(ConfigCheckedException.ConfigExceptionReason.INVALID_USE);
+            }
+        String fullKey = configEntry.getKey();
+        Map<String, Object> updated = new LinkedHashMap<>(leaves);
+        // a leaf becomes a branch, or a branch becomes a leaf: the old one goes.
+        for (int i = fullKey.indexOf('/'); i > 0; i = fullKey.indexOf('/', i+1))
+            {
+            updated.remove(fullKey.substring(0, i));
+            }
+        String branch = fullKey+"/";
+        updated.keySet().removeIf(k->k.startsWith(branch));
+        updated.put(fullKey, toValue(configEntry));
+        leaves = updated;
+        entries = new ConcurrentHashMap<>();
+        specifiedEntries = new ConcurrentHashMap<>();
+        }
+
+    // same choices as the Jackson layer: numbers as BigDecimal, bytes as they are (written as Base64).
+    private static Object toValue(ConfigEntry entry)
+            throws ConfigCheckedException
+        {
+        switch (entry.getType())
+            {
+            case BOOLEAN:
+                return entry.getValueAsBoolean();
+            case NUMBER:
+                try
+                    {
+                    return entry.getValueAsBigDecimal();
+                    }
+                catch (Exception e)
+                    {
+                    return entry.getValueAsString();
+                    }
+            case BYTES:
+                return entry.getValueAsBytes();
+            case MULTIPLE_STRINGS:
+                try
+                    {
+                    return new ArrayList<Object>(entry.getValueAsStringList());
+                    }
+                catch (Exception e)
+                    {
+                    return entry.getValueAsString();
+                    }
+            case STRING:
+            default:
+                return entry.getValueAsString();
+            }
+        }
+
+    @Override
+    public int flush()
+            throws ConfigCheckedException
+        {
+        ((JSONFileFormat) source.getStorageFormat()).writeFile(this);
+        return 1;
+        }
+
+    @Override
+    public int compareTo(ConfigLayerInterface configLayerInterface)
+        {
+        return 0;
+        }
+
+    @Override
+    public Iterator<String> tryToGetKeyIterator()
+        {
+        return Collections.unmodifiableSet(leaves.keySet()).iterator();
+        }
+
+    // entries of a read-only location are memoized, and read-only; a writeable one gets new entries, which may be changed.
+    @Override
+    public ConfigEntry getEntry(final String hierarchicalKeyPath)
+        {
+        if (location.isWriteable())
+            {
+            return getEntryForWriting(hierarchicalKeyPath);
+            }
+        final Map<String, ConfigEntry> memo = entries;
+        ConfigEntry entry = memo.get(hierarchicalKeyPath);
+        if (entry != null)
+            {
+            return entry;
+            }
+        Object value = leaves.get(hierarchicalKeyPath);
+        if (value == null)
+            {
+            return null;
+            }
+        entry = toConfigEntry(hierarchicalKeyPath, value, sharedMeta);
+        if (entry != null)
+            {
+            memo.putIfAbsent(hierarchicalKeyPath, entry);
+            }
+        return entry;
+        }
+
+    @Override
+    public ConfigEntry getEntryForWriting(final String hierarchicalKeyPath)
+        {
+        Object value = leaves.get(hierarchicalKeyPath);
+        return (value == null) ? null : toConfigEntry(hierarchicalKeyPath, value, new ConfigEntryMetadata(source));
+        }
+
+    @Override
+    public ConfigEntry getEntry(String hierarchicalKeyPath, ConfigEntrySpecification specification)
+        {
+        if ((specification == null) || (specification instanceof NullConfigEntrySpecification))
+            {
+            return getEntry(hierarchicalKeyPath);
+            }
+        if (location.isWriteable())
+            {
+            Object value = leaves.get(hierarchicalKeyPath);
+            return (value == null) ? null : toConfigEntry(hierarchicalKeyPath, value, sharedMeta.withSpecification(specification).copy());
+            }
+        // entries with a specification depend on it (BYTES decoding); memoized with the specification they were made for.
+        final Map<String, ConfigEntry> memo = specifiedEntries;
+        ConfigEntry entry = memo.get(hierarchicalKeyPath);
+        if (AbstractConfigEntry.isSpecifiedAs(entry, specification))
+            {
+            return entry;
+            }
+        Object value = leaves.get(hierarchicalKeyPath);
+        if (value == null)
+            {
+            return null;
+            }
+        entry = toConfigEntry(hierarchicalKeyPath, value, sharedMeta.withSpecification(specification));
+        if (entry != null)
+            {
+            memo.put(hierarchicalKeyPath, entry);
+            }
+        return entry;
+        }
+
+    private static ConfigEntry toConfigEntry(final String key, final Object value, ConfigEntryMetadata meta)
+        {
+        if (value instanceof String)
+            {
+            if (meta.getSpecification() != null && meta.getSpecification().getType() == ConfigEntryType.BYTES)
+                {
+                try
+                    {
+                    byte[] decoded = Base64.getDecoder().decode((String) value);
+                    return new GenericConfigEntryLeaf(key, decoded, ConfigEntryType.BYTES, meta);
+                    }
+                catch (IllegalArgumentException e)
+                    {
+                    // fall back to string if not valid base64
+                    }
+                }
+            return new GenericConfigEntryLeaf(key, value, ConfigEntryType.STRING, meta);
+            }
+        if (value instanceof Boolean)
+            {
+            return new GenericConfigEntryLeaf(key, value, ConfigEntryType.BOOLEAN, meta);
+            }
+        if (value instanceof Number)
+            {
+            return new GenericConfigEntryLeaf(key, value, ConfigEntryType.NUMBER, meta);
+            }
+        if (value instanceof byte[])
+            {
+            return new GenericConfigEntryLeaf(key, value, ConfigEntryType.BYTES, meta);
+            }
+        if (value instanceof List)
+            {
+            List<String> strings = new ArrayList<>(((List<?>) value).size());
+            for (Object element : (List<?>) value)
+                {
+                if ((element == null) || (element instanceof List) || (element instanceof Map))
+                    {
+                    return null; // structured arrays are no config entries
+                    }
+                strings.add(String.valueOf(element));
+                }
+            return new GenericConfigEntryLeaf(key, strings, ConfigEntryType.MULTIPLE_STRINGS, meta);
+            }
+        return null; // empty objects
+        }
+}
@@ -0,0 +1,234 @@
+package org.metabit.platform.support.config.impl.format.json;
+
+import org.metabit.library.format.json.JsonStreamParser;
+import org.metabit.library.format.json.JsonStreamParser.JsonParsingException;
+import org.metabit.platform.support.config.ConfigCheckedException;
+import org.metabit.platform.support.config.ConfigEvent;
+import org.metabit.platform.support.config.ConfigFeature;
+import org.metabit.platform.support.config.ConfigLocation;
+import org.metabit.platform.support.config.impl.ConfigEventImpl;
+import org.metabit.platform.support.config.impl.ConfigFactoryInstanceContext;
+import org.metabit.platform.support.config.impl.ConfigFactorySettings;
+import org.metabit.platform.support.config.impl.EventRecorder;
+import org.metabit.platform.support.config.impl.util.AtomicFileWriter;
+import org.metabit.platform.support.config.impl.util.ConfigIOUtil;
+import org.metabit.platform.support.config.impl.util.StringPool;
+import org.metabit.platform.support.config.interfaces.ConfigFileFormatInterface;
+import org.metabit.platform.support.config.interfaces.ConfigLayerInterface;
+import org.metabit.platform.support.config.interfaces.ConfigLoggingInterface;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * read and write JSON configuration files, without external libraries.
+ * Uses the streaming parser of mConfigSchema; no document tree is built.
+ */
+public class JSONFileFormat implements ConfigFileFormatInterface
+{
+    private ConfigLoggingInterface       logger;
+    private ConfigFactorySettings        settings;
+    private ConfigFactoryInstanceContext ctx;
+    private StringPool                   strings = StringPool.NONE;
+
+    @Override
+    public String getFormatID()
+        {
+        return "JSON";
+        }
+
+    @Override
+    public boolean testComponent(ConfigFactorySettings configFactorySettings, ConfigLoggingInterface logger)
+        {
+        this.logger = logger;
+        this.settings = configFactorySettings;
+        return true;
+        }
+
+    @Override
+    public void initialize(ConfigFactoryInstanceContext ctx)
+        {
+        this.ctx = ctx;
+        this.strings = ctx.getStringPool();
+        }
+
+    @Override
+    public List<String> getFilenameExtensions()
+        {
+        return List.of(".json");
+        }
+
+    @Override
+    public ConfigLayerInterface readFile(File file, ConfigLocation location)
+        {
+        try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8))
+            {
+            return new JSONConfigLayer(location, this, file.toPath(), parse(reader));
+            }
+        catch (JsonParsingException e)
+            {
+            reportParseFailure(e, location, file.getAbsolutePath());
+            }
+        catch (IOException e)
+            {
+            logger.warn("IOException when reading JSON file: "+file.getAbsolutePath());
+            }
+        catch (Exception e)
+            {
+            logger.error(e.getMessage(), e);
+            }
+        return null;
+        }
+
+    @Override
+    public ConfigLayerInterface readStream(InputStream inputStream, ConfigLocation location)
+        {
+        try
+            {
+            Reader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+            return new JSONConfigLayer(location, this, inputStream, parse(reader));
+            }
+        catch (JsonParsingException e)
+            {
+            reportParseFailure(e, location, null);
+            }
+        catch (Exception e)
+            {
+            logger.error(e.getMessage(), e);
+            }
+        return null;
+        }
+
+    @Override
+    public boolean readsBuffers()
+        {
+        return true;
+        }
+
+    @Override
+    public ConfigLayerInterface readBuffer(ByteBuffer buffer, ConfigLocation location)
+        {
+        return readBuffer(buffer, location, null);
+        }
+
+    /**
+     * parse directly from the decoded buffer content; no intermediate String of the whole file is created.
+     */
+    @Override
+    public ConfigLayerInterface readBuffer(ByteBuffer buffer, ConfigLocation location, Path sourceFile)
+        {
+        try
+            {
+            Reader reader = ConfigIOUtil.newReader(ConfigIOUtil.decode(buffer, StandardCharsets.UTF_8));
+            return new JSONConfigLayer(location, this, sourceFile, parse(reader));
+            }
+        catch (JsonParsingException e)
+            {
+            reportParseFailure(e, location, (sourceFile != null) ? sourceFile.toAbsolutePath().toString() : null);
+            }
+        catch (IOException e)
+            {
+            logger.warn("IOException when decoding JSON buffer");
+            }
+        catch (Exception e)
+            {
+            logger.error(e.getMessage(), e);
+            }
+        return null;
+        }
+
+    private Map<String, Object> parse(Reader reader)
+        {
+        FlatJsonConsumer consumer = new FlatJsonConsumer(strings);
+        new JsonStreamParser().parse(reader, consumer);
+        return consumer.getLeaves();
+        }
+
+    private void reportParseFailure(JsonParsingException ex, ConfigLocation location, String filePath)
+        {
+        logger.warn("not a valid JSON file: "+((filePath != null) ? filePath : "(stream)")+" because of "+ex.getMessage());
+        if (ctx == null)
+            {
+            return;
+            }
+        Map<String, String> attrs = new HashMap<>();
+        attrs.put("line", String.valueOf(ex.getLine()+1)); // the parser counts lines from 0
+        attrs.put("column", String.valueOf(ex.getColumn()));
+        if (filePath != null)
+            {
+            attrs.put("filePath", filePath);
+            }
+        attrs.put("extension", ".json");
+        ConfigEventImpl event = ConfigEventImpl.builder()
+                .severity(ConfigEvent.Severity.WARNING)
+                .domain(ConfigEvent.Domain.PARSE)
+                .kind(ConfigEvent.Kind.FAILED_GENERIC)
+                .detailCode("JSON_PARSE_FAILED")
+                .message("JSON parse failed")
+                .formatId(getFormatID())
+                .location(location)
+                .scope(location != null ? location.getScope() : null)
+                .attributes(attrs)
+                .cause(ex)
+                .remediation(ConfigEvent.Remediation.FIX_SYNTAX)
+                .remediationMessage("Fix invalid JSON syntax.")
+                .build();
+        EventRecorder.record(event, ctx);
+        }
+
+    @Override
+    public ConfigLayerInterface createFile(Path fileWithPath, ConfigLocation location)
+        {
+        try
+            {
+            if (Files.notExists(fileWithPath))
+                {
+                if (fileWithPath.getParent() != null)
+                    {
+                    Files.createDirectories(fileWithPath.getParent());
+                    }
+                Files.createFile(fileWithPath);
+                }
+            JSONConfigLayer layer = new JSONConfigLayer(location, this, fileWithPath, new LinkedHashMap<>());
+            writeFile(layer); // an empty file would not be valid JSON
+            return layer;
+            }
+        catch (IOException|ConfigCheckedException e)
+            {
+            logger.error("config creation failed at filesystem level: "+fileWithPath, e);
+            return null;
+            }
+        }
+
+    @Override
+    public void writeFile(ConfigLayerInterface layer)
+            throws ConfigCheckedException
+        {
+        if (!(layer instanceof JSONConfigLayer))
+            {
+            throw new ConfigCheckedException(ConfigCheckedException.ConfigExceptionReason.INVALID_USE);
+            }
+        JSONConfigLayer jsonLayer = (JSONConfigLayer) layer;
+        Object handle = jsonLayer.getSource().getStorageInstanceHandle();
+        if (!(handle instanceof Path))
+            {
+            throw new ConfigCheckedException(ConfigCheckedException.ConfigExceptionReason.INVALID_USE);
+            }
+        try
+            {
+            String content = new JSONWriter(settings.getBoolean(ConfigFeature.WRITE_CONDENSED_FORMAT)).write(jsonLayer.getLeaves());
+            new AtomicFileWriter(settings).write((Path) handle, StandardCharsets.UTF_8, out->out.write(content));
+            }
+        catch (IOException e)
+            {
+            throw new ConfigCheckedException(e);
+            }
+        }
+}
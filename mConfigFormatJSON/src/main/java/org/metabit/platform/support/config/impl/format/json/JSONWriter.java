@@ -0,0 +1,197 @@
+package org.metabit.platform.support.config.impl.format.json;
+
+import java.util.*;
+
+/**
+ * writes the flat leaves of a {@link JSONConfigLayer} as nested JSON objects.
+ */
+final class JSONWriter
+{
+    private static final String INDENT = "  ";
+
+    private final boolean       condensed;
+    private final StringBuilder sb = new StringBuilder();
+
+    /**
+     * @param condensed true for output without whitespace; false for one entry per line, indented.
+     */
+    JSONWriter(boolean condensed)
+        {
+        this.condensed = condensed;
+        }
+
+    /**
+     * @param leaves full key to value, as kept by the layer
+     * @return JSON document, ending with a line break
+     */
+    String write(Map<String, Object> leaves)
+        {
+        sb.setLength(0);
+        writeValue(nest(leaves), 0);
+        sb.append('\n');
+        return sb.toString();
+        }
+
+    // rebuild the object nesting from the key paths; first occurrence decides the position.
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> nest(Map<String, Object> leaves)
+        {
+        Map<String, Object> root = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> leaf : leaves.entrySet())
+            {
+            String[] path = leaf.getKey().split("/");
+            Map<String, Object> current = root;
+            for (int i = 0; i < path.length-1; i++)
+                {
+                Object next = current.get(path[i]);
+                if (!(next instanceof Map) || (next == Collections.emptyMap()))
+                    {
+                    next = new LinkedHashMap<String, Object>();
+                    current.put(path[i], next);
+                    }
+                current = (Map<String, Object>) next;
+                }
+            current.put(path[path.length-1], leaf.getValue());
+            }
+        return root;
+        }
+
+    private void writeValue(Object value, int depth)
+        {
+        if (value == null)
+            {
+            sb.append("null");
+            }
+        else if (value instanceof String)
+            {
+            writeString((String) value);
+            }
+        else if (value instanceof Boolean)
+            {
+            sb.append(value);
+            }
+        else if ((value instanceof Double) || (value instanceof Float))
+            {
+            double d = ((Number) value).doubleValue();
+            if (Double.isNaN(d) || Double.isInfinite(d))
+                {
+                writeString(value.toString()); // no JSON number for these
+                }
+            else
+                {
+                sb.append(value);
+                }
+            }
+        else if (value instanceof Number)
+            {
+            sb.append(value);
+            }
+        else if (value instanceof byte[])
+            {
+            writeString(Base64.getEncoder().encodeToString((byte[]) value));
+            }
+        else if (value instanceof Map)
+            {
+            writeObject((Map<?, ?>) value, depth);
+            }
+        else if (value instanceof List)
+            {
+            writeArray((List<?>) value, depth);
+            }
+        else
+            {
+            writeString(value.toString());
+            }
+        }
+
+    private void writeObject(Map<?, ?> map, int depth)
+        {
+        if (map.isEmpty())
+            {
+            sb.append("{}");
+            return;
+            }
+        sb.append('{');
+        boolean first = true;
+        for (Map.Entry<?, ?> entry : map.entrySet())
+            {
+            if (!first)
+                {
+                sb.append(',');
+                }
+            first = false;
+            newLine(depth+1);
+            writeString(entry.getKey().toString());
+            sb.append(condensed ? ":" : ": ");
+            writeValue(entry.getValue(), depth+1);
+            }
+        newLine(depth);
+        sb.append('}');
+        }
+
+    private void writeArray(List<?> list, int depth)
+        {
+        if (list.isEmpty())
+            {
+            sb.append("[]");
+            return;
+            }
+        sb.append('[');
+        boolean first = true;
+        for (Object element : list)
+            {
+            if (!first)
+                {
+                sb.append(',');
+                }
+            first = false;
+            newLine(depth+1);
+            writeValue(element, depth+1);
+            }
+        newLine(depth);
+        sb.append(']');
+        }
+
+    private void newLine(int depth)
+        {
+        if (condensed)
+            {
+            return;
+            }
+        sb.append('\n');
+        for (int i = 0; i < depth; i++)
+            {
+            sb.append(INDENT);
+            }
+        }
+
+    // RFC 8259 escaping; unlike JsonStreamWriter, '/' is left as it is, for readable paths and URLs.
+    private void writeString(String s)
+        {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++)
+            {
+            char c = s.charAt(i);
+            switch (c)
+                {
+                case '"':  sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\b': sb.append("\\b"); break;
+                case '\t': sb.append("\\t"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\f': sb.append("\\f"); break;
+                case '\r': sb.append("\\r"); break;
+                default:
+                    if (c < 0x20)
+                        {
+                        sb.append(String.format("\\u%04x", (int) c));
+                        }
+                    else
+                        {
+                        sb.append(c);
+                        }
+                }
+            }
+        sb.append('"');
+        }
+}
@@ -0,0 +1,167 @@
+package org.metabit.platform.support.config.impl.format.json;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.metabit.platform.support.config.ConfigEntry;
+import org.metabit.platform.support.config.ConfigEntryType;
+import org.metabit.platform.support.config.ConfigFeature;
+import org.metabit.platform.support.config.ConfigLocation;
+import org.metabit.platform.support.config.impl.ConfigFactorySettings;
+import org.metabit.platform.support.config.impl.entry.ConfigEntryMetadata;
+import org.metabit.platform.support.config.impl.entry.GenericConfigEntryLeaf;
+import org.metabit.platform.support.config.impl.logging.NullLogging;
+import org.metabit.platform.support.config.interfaces.ConfigLayerInterface;
+import org.metabit.platform.support.config.schema.ConfigSchemaEntry;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class JSONFileFormatTest
+{
+    private static final String SAMPLE = "{ \"server\": { \"host\": \"localhost\", \"port\": 8080, \"ratio\": 0.5, \"big\": 12345678901234567890 },\n"
+            +"  \"tags\": [\"a\", \"b\", 3], \"routes\": [{\"path\": \"/api\"}], \"none\": null, \"debug\": true, \"empty\": {} }\n";
+
+    @TempDir
+    Path tempDir;
+
+    private ConfigFactorySettings settings;
+    private JSONFileFormat        format;
+
+    @BeforeEach
+    void setUp()
+        {
+        settings = new ConfigFactorySettings();
+        format = new JSONFileFormat();
+        format.testComponent(settings, NullLogging.getSingletonInstance());
+        }
+
+    private ConfigEntry entry(ConfigLayerInterface layer, String key, Object value, ConfigEntryType type)
+        {
+        return new GenericConfigEntryLeaf(key, value, type, new ConfigEntryMetadata(layer.getSource()));
+        }
+
+    @Test
+    void formatIdAndExtensions()
+        {
+        assertEquals("JSON", format.getFormatID());
+        assertEquals(List.of(".json"), format.getFilenameExtensions());
+        }
+
+    @Test
+    void readsNestedObjectsAsFlatKeys() throws Exception
+        {
+        ConfigLayerInterface layer = format.readStream(new ByteArrayInputStream(SAMPLE.getBytes(StandardCharsets.UTF_8)), mock(ConfigLocation.class));
+        assertNotNull(layer);
+
+        List<String> keys = new ArrayList<>();
+        layer.tryToGetKeyIterator().forEachRemaining(keys::add);
+        assertEquals(List.of("server/host", "server/port", "server/ratio", "server/big", "tags", "routes", "none", "debug", "empty"), keys);
+
+        ConfigEntry host = layer.getEntry("server/host");
+        assertEquals("localhost", host.getValueAsString());
+        assertSame(host, layer.getEntry("server/host"), "entries are memoized");
+        assertEquals(8080, layer.getEntry("server/port").getValueAsInteger());
+        assertEquals(0.5, layer.getEntry("server/ratio").getValueAsDouble());
+        assertEquals(new BigInteger("12345678901234567890"), layer.getEntry("server/big").getValueAsBigInteger());
+        assertTrue(layer.getEntry("debug").getValueAsBoolean());
+        assertEquals(ConfigEntryType.MULTIPLE_STRINGS, layer.getEntry("tags").getType());
+        assertEquals(List.of("a", "b", "3"), layer.getEntry("tags").getValueAsStringList());
+        assertNull(layer.getEntry("routes"), "arrays of objects are no entries");
+        assertNull(layer.getEntry("none"));
+        assertNull(layer.getEntry("empty"));
+        assertNull(layer.getEntry("server"), "branches are no entries");
+        assertFalse(layer.isWriteable(), "streams can't be written back");
+        }
+
+    @Test
+    void specifiedEntriesAreMemoizedWithTheirSpecification() throws Exception
+        {
+        ConfigLayerInterface layer = format.readStream(new ByteArrayInputStream(SAMPLE.getBytes(StandardCharsets.UTF_8)), mock(ConfigLocation.class));
+        ConfigSchemaEntry spec = new ConfigSchemaEntry("server/host", ConfigEntryType.STRING);
+        ConfigEntry host = layer.getEntry("server/host", spec);
+        assertSame(spec, host.getSpecification());
+        assertSame(host, layer.getEntry("server/host", spec), "no new entry per read");
+        ConfigSchemaEntry other = new ConfigSchemaEntry("server/host", ConfigEntryType.STRING);
+        assertSame(other, layer.getEntry("server/host", other).getSpecification());
+
+        // cached entries share their layer's read-only metadata; entries for writing have their own
+        ConfigEntry port = layer.getEntry("server/port");
+        assertThrows(UnsupportedOperationException.class, ()->port.setComment("the port"), "cached entries are never changed");
+        assertThrows(UnsupportedOperationException.class, ()->port.putString("80"));
+        assertEquals(8080, port.getValueAsInteger());
+        ConfigEntry writing = layer.getEntryForWriting("server/port");
+        assertNotSame(port, writing);
+        writing.setComment("the port");
+        assertEquals("the port", writing.getComment());
+        assertNull(layer.getEntry("server/port").getComment());
+        assertNull(layer.getEntry("server/ratio").getComment());
+        }
+
+    @Test
+    void writeAndReadBack() throws Exception
+        {
+        Path file = tempDir.resolve("app.json");
+        Files.writeString(file, SAMPLE);
+        ConfigLayerInterface layer = format.readFile(file.toFile(), mock(ConfigLocation.class));
+        assertNotNull(layer);
+        assertTrue(layer.isWriteable());
+
+        ConfigEntry host = layer.getEntry("server/host");
+        layer.writeEntry(entry(layer, "server/port", 9090, ConfigEntryType.NUMBER));
+        layer.writeEntry(entry(layer, "debug/level", "fine \"quoted\" / ä", ConfigEntryType.STRING)); // leaf becomes branch
+        layer.writeEntry(entry(layer, "server/key", new byte[]{1, 2, 3}, ConfigEntryType.BYTES));
+        assertNull(layer.getEntry("debug"));
+        assertNotSame(host, layer.getEntry("server/host"));
+        layer.flush();
+
+        String written = Files.readString(file);
+        assertTrue(written.contains("\"path\": \"/api\""), written);
+        ConfigLayerInterface reread = format.readFile(file.toFile(), mock(ConfigLocation.class));
+        assertNotNull(reread, written);
+        assertEquals(9090, reread.getEntry("server/port").getValueAsInteger());
+        assertEquals("fine \"quoted\" / ä", reread.getEntry("debug/level").getValueAsString());
+        assertEquals("localhost", reread.getEntry("server/host").getValueAsString());
+        assertEquals(List.of("a", "b", "3"), reread.getEntry("tags").getValueAsStringList());
+        assertEquals("AQID", reread.getEntry("server/key").getValueAsString());
+
+        List<String> keys = new ArrayList<>();
+        reread.tryToGetKeyIterator().forEachRemaining(keys::add);
+        assertEquals(List.of("server/host", "server/port", "server/ratio", "server/big", "server/key", "tags", "routes", "none", "empty", "debug/level"), keys);
+        }
+
+    @Test
+    void condensedOutput() throws Exception
+        {
+        settings.setBoolean(ConfigFeature.WRITE_CONDENSED_FORMAT, true);
+        Path file = tempDir.resolve("sub/new.json");
+        ConfigLayerInterface layer = format.createFile(file, mock(ConfigLocation.class));
+        assertNotNull(layer);
+        assertEquals("{}\n", Files.readString(file));
+        layer.writeEntry(entry(layer, "a/b", "c", ConfigEntryType.STRING));
+        layer.writeEntry(entry(layer, "a/d", true, ConfigEntryType.BOOLEAN));
+        layer.flush();
+        assertEquals("{\"a\":{\"b\":\"c\",\"d\":true}}\n", Files.readString(file));
+        }
+
+    @Test
+    void invalidInputIsRejected() throws Exception
+        {
+        ConfigLocation location = mock(ConfigLocation.class);
+        assertNull(format.readBuffer(ByteBuffer.wrap("{ \"a\": 1, // comment\n }".getBytes(StandardCharsets.UTF_8)), location));
+        assertNull(format.readBuffer(ByteBuffer.wrap("{ \"a\": [1, 2 }".getBytes(StandardCharsets.UTF_8)), location));
+        assertNull(format.readBuffer(ByteBuffer.wrap("[1, 2]".getBytes(StandardCharsets.UTF_8)), location), "top level must be an object");
+        ConfigLayerInterface layer = format.readBuffer(ByteBuffer.wrap("{\"a\":[1,2],\"b\":-0.25e2}".getBytes(StandardCharsets.UTF_8)), location);
+        assertNotNull(layer);
+        assertEquals(-25.0, layer.getEntry("b").getValueAsDouble());
+        }
+}
@@ -0,0 +1,130 @@
+package org.metabit.platform.support.config.impl.format.json;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.metabit.platform.support.config.ConfigEntry;
+import org.metabit.platform.support.config.ConfigEntryType;
+import org.metabit.platform.support.config.ConfigLocation;
+import org.metabit.platform.support.config.impl.ConfigFactorySettings;
+import org.metabit.platform.support.config.impl.ConfigLocationImpl;
+import org.metabit.platform.support.config.impl.entry.ConfigEntryMetadata;
+import org.metabit.platform.support.config.impl.entry.GenericConfigEntryLeaf;
+import org.metabit.platform.support.config.impl.format.json.jackson.JSONwithJacksonFormat;
+import org.metabit.platform.support.config.impl.logging.NullLogging;
+import org.metabit.platform.support.config.interfaces.ConfigFileFormatInterface;
+import org.metabit.platform.support.config.interfaces.ConfigLayerInterface;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * compares this format with the Jackson-based one, for identical entries,
+ * for startup (first file read by a fresh format instance) and for parse throughput on a large service catalog.
+ * The timing is a benchmark, not run by default; see the "benchmark" profile.
+ */
+class JSONFormatBenchmarkTest
+{
+    private static final int SERVICES = 2000;
+    private static final int ROUNDS   = 20;
+
+    @TempDir
+    Path tempDir;
+
+    private static String serviceCatalog()
+        {
+        StringBuilder sb = new StringBuilder(SERVICES * 300);
+        sb.append("{\n  \"title\": \"catalog\",\n  \"services\": {\n");
+        for (int i = 0; i < SERVICES; i++)
+            {
+            sb.append("    \"service-").append(i).append("\": {\n");
+            sb.append("      \"description\": \"handles \\\"requests\\\" for tenant ").append(i % 17).append("\",\n");
+            sb.append("      \"host\": \"host-").append(i).append(".example.com\",\n");
+            sb.append("      \"port\": ").append(8000 + i).append(",\n");
+            sb.append("      \"offset\": -").append(i).append(",\n");
+            sb.append("      \"weight\": ").append(i).append(".25,\n");
+            sb.append("      \"enabled\": ").append(i % 2 == 0).append(",\n");
+            sb.append("      \"limits\": { \"cpu\": 2, \"memory\": \"512M\" }\n");
+            sb.append("    }").append(i < SERVICES-1 ? "," : "").append('\n');
+            }
+        sb.append("  }\n}\n");
+        return sb.toString();
+        }
+
+    private static ConfigFileFormatInterface freshFormat(boolean jackson)
+        {
+        ConfigFileFormatInterface format = jackson ? new JSONwithJacksonFormat() : new JSONFileFormat();
+        format.testComponent(new ConfigFactorySettings(), NullLogging.getSingletonInstance());
+        return format;
+        }
+
+    @Test
+    void sameEntriesAsJackson() throws Exception
+        {
+        Path file = tempDir.resolve("catalog.json");
+        Files.writeString(file, serviceCatalog());
+        ConfigLayerInterface expected = freshFormat(true).readFile(file.toFile(), mock(ConfigLocation.class));
+        ConfigLayerInterface actual = freshFormat(false).readFile(file.toFile(), mock(ConfigLocation.class));
+        int count = 0;
+        for (var it = expected.tryToGetKeyIterator(); it.hasNext(); count++)
+            {
+            String key = it.next();
+            ConfigEntry entry = expected.getEntry(key);
+            assertEquals(entry.getType(), actual.getEntry(key).getType(), key);
+            assertEquals(entry.getValueAsString(), actual.getEntry(key).getValueAsString(), key);
+            }
+        assertEquals(1+SERVICES * 8, count);
+        }
+
+    @Test
+    @Tag("benchmark")
+    void startupAndThroughput() throws Exception
+        {
+        Path small = tempDir.resolve("small.json");
+        Files.writeString(small, "{ \"server\": { \"host\": \"localhost\", \"port\": 8080 } }");
+        Path large = tempDir.resolve("catalog.json");
+        Files.writeString(large, serviceCatalog());
+        ConfigLocation location = mock(ConfigLocation.class);
+        // core classes both formats use are loaded up front, so neither pays for them.
+        new ConfigLocationImpl(location, null, null, small);
+        new GenericConfigEntryLeaf("key", "value", ConfigEntryType.STRING, new ConfigEntryMetadata(null)).getValueAsString();
+        Files.readString(small);
+
+        // startup: first use of each format class in this JVM, including parser and mapper setup.
+        long start = System.nanoTime();
+        assertNotNull(freshFormat(false).readFile(small.toFile(), location));
+        long ownStartup = System.nanoTime()-start;
+        start = System.nanoTime();
+        assertNotNull(freshFormat(true).readFile(small.toFile(), location));
+        long jacksonStartup = System.nanoTime()-start;
+
+        ConfigFileFormatInterface own = freshFormat(false);
+        ConfigFileFormatInterface jackson = freshFormat(true);
+        File file = large.toFile();
+        // warm-up, so both are measured compiled
+        for (int i = 0; i < ROUNDS; i++)
+            {
+            own.readFile(file, location);
+            jackson.readFile(file, location);
+            }
+        long ownTotal = 0;
+        long jacksonTotal = 0;
+        for (int i = 0; i < ROUNDS; i++)
+            {
+            start = System.nanoTime();
+            own.readFile(file, location);
+            ownTotal += System.nanoTime()-start;
+            start = System.nanoTime();
+            jackson.readFile(file, location);
+            jacksonTotal += System.nanoTime()-start;
+            }
+        double megabytes = (double) file.length() * ROUNDS / (1024 * 1024);
+        System.out.printf("JSON startup: streaming parser %.1f ms, Jackson %.1f ms%n", ownStartup / 1e6, jacksonStartup / 1e6);
+        System.out.printf("JSON parse throughput, %d bytes x %d: streaming parser %.1f MB/s, Jackson %.1f MB/s (%.2fx)%n",
+                file.length(), ROUNDS, megabytes / (ownTotal / 1e9), megabytes / (jacksonTotal / 1e9), (double) jacksonTotal / ownTotal);
+        }
+}
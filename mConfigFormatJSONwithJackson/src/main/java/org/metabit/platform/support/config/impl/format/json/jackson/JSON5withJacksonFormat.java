@@ -29,7 +29,7 @@ public class JSON5withJacksonFormat extends JSONwithJacksonFormat
      */
     protected ObjectMapper createObjectMapper()
         {
-        JsonMapper.Builder builder = JsonMapper.builder();
+        JsonMapper.Builder builder = JsonMapper.builder().nodeFactory(createNodeFactory());
         builder.enable(tools.jackson.core.json.JsonReadFeature.ALLOW_JAVA_COMMENTS);
         builder.enable(tools.jackson.core.json.JsonReadFeature.ALLOW_YAML_COMMENTS);
         builder.enable(tools.jackson.core.json.JsonReadFeature.ALLOW_TRAILING_COMMA);
@@ -9,11 +9,14 @@ import org.metabit.platform.support.config.impl.ConfigFactorySettings;
 import org.metabit.platform.support.config.impl.ConfigLocationImpl;
 import org.metabit.platform.support.config.impl.entry.ConfigEntryMetadata;
 import org.metabit.platform.support.config.impl.entry.GenericConfigEntryLeaf;
+import org.metabit.platform.support.config.impl.util.StringPool;
+import org.metabit.platform.support.config.impl.util.TreeKeyIndex;
 import org.metabit.platform.support.config.interfaces.ConfigEntrySpecification;
 import org.metabit.platform.support.config.interfaces.ConfigLayerInterface;
 import org.metabit.platform.support.config.interfaces.ConfigLoggingInterface;
+import org.metabit.platform.support.config.schema.NullConfigEntrySpecification;
 
-import java.util.Iterator;
+import java.util.*;
 
 /**
  * rephrase:
@@ -31,6 +34,9 @@ public class JSONJacksonConfigLayer implements ConfigLayerInterface
     private final JsonNodeType           treeRootType;
     private final ConfigLocation         location;
     private final ConfigSource           source;
+    private final ConfigEntryMetadata    sharedMeta;
+    private final StringPool             strings;
+    private final TreeKeyIndex<JsonNode> keyIndex; // its monitor guards the tree, too
 
     public JSONJacksonConfigLayer(ConfigFactorySettings settings, ConfigLoggingInterface logger, ConfigLocation configLocation, JSONwithJacksonFormat format, JsonNode rootNode, Object storageInstanceHandle)
         {
@@ -38,8 +44,11 @@ public class JSONJacksonConfigLayer implements ConfigLayerInterface
         this.logger = logger;
         this.location = configLocation;
         this.source = new ConfigLocationImpl(location, this, format, storageInstanceHandle);
+        this.sharedMeta = ConfigEntryMetadata.shared(source);
+        this.strings = format.getStringPool();
         this.jsonTreeRoot = rootNode;
         this.treeRootType = rootNode.getNodeType();
+        this.keyIndex = new TreeKeyIndex<>(rootNode, JsonNode::properties, JsonNode::isObject, strings);
         }
 
 
@@ -79,21 +88,33 @@ public class JSONJacksonConfigLayer implements ConfigLayerInterface
         ObjectNode root = (ObjectNode) jsonTreeRoot;
         String fullKey = configEntry.getKey();
         String[] nodes = fullKey.split("/");
-        
-        ObjectNode current = root;
-        for (int i = 0; i < nodes.length - 1; i++)
+
+        synchronized (keyIndex)
             {
-            String node = nodes[i];
-            JsonNode next = current.get(node);
-            if (next == null || !next.isObject())
+            ObjectNode current = root;
+            String path = "";
+            for (int i = 0; i < nodes.length - 1; i++)
                 {
-                next = current.putObject(node);
+                String node = nodes[i];
+                path = path.isEmpty() ? node : path+"/"+node;
+                JsonNode next = current.get(node);
+                if (next == null || !next.isObject())
+                    {
+                    keyIndex.removeSubtree(path, next); // a leaf turning into a branch
+                    next = current.putObject(node);
+                    }
+                current = (ObjectNode) next;
                 }
-            current = (ObjectNode) next;
+
+            String leafKey = nodes[nodes.length - 1];
+            JsonNode previous = current.get(leafKey);
+            if ((previous != null) && previous.isObject())
+                {
+                keyIndex.removeSubtree(fullKey, previous); // a branch turning into a leaf
+                }
+            writeTypedValue(current, leafKey, configEntry);
+            keyIndex.putLeaf(fullKey, current.get(leafKey));
             }
-        
-        String leafKey = nodes[nodes.length - 1];
-        writeTypedValue(current, leafKey, configEntry);
         }
 
     private void writeTypedValue(ObjectNode node, String key, ConfigEntry entry) throws ConfigCheckedException
@@ -169,7 +190,10 @@ public class JSONJacksonConfigLayer implements ConfigLayerInterface
     public int flush()
             throws ConfigCheckedException
         {
-        ((JSONwithJacksonFormat)source.getStorageFormat()).writeFile(this);
+        synchronized (keyIndex)
+            {
+            ((JSONwithJacksonFormat)source.getStorageFormat()).writeFile(this);
+            }
         return 1;
         }
 
@@ -185,87 +209,45 @@ public class JSONJacksonConfigLayer implements ConfigLayerInterface
         {
         if (jsonTreeRoot.isObject())
             {
-            java.util.List<String> keys = new java.util.ArrayList<>();
-            collectKeys(jsonTreeRoot, "", keys);
-            return keys.iterator();
+            return keyIndex.keyIterator();
             }
         return null;
         }
 
-    private void collectKeys(JsonNode node, String prefix, java.util.List<String> keys)
-        {
-        if (node.isObject())
-            {
-            Iterator<java.util.Map.Entry<String, JsonNode>> fields = node.properties().iterator();
-            while (fields.hasNext())
-                {
-                java.util.Map.Entry<String, JsonNode> entry = fields.next();
-                String key = entry.getKey();
-                String fullKey = prefix.isEmpty() ? key : prefix + "/" + key;
-                JsonNode value = entry.getValue();
-                if (value.isObject())
-                    {
-                    collectKeys(value, fullKey, keys);
-                    }
-                else
-                    {
-                    keys.add(fullKey);
-                    }
-                }
-            }
-        }
-
+    // entries of a read-only location are memoized, and read-only; a writeable one gets new entries, which may be changed.
     @Override
     public ConfigEntry getEntry(final String hierarchicalKeyPath)
         {
-        JsonNode current = navigateToJsonNode(hierarchicalKeyPath);
-        if (current == null)
+        if (location.isWriteable())
             {
-            return null;
+            return getEntryForWriting(hierarchicalKeyPath);
             }
-
-        ConfigEntryMetadata meta = new ConfigEntryMetadata(this.source);
-        return jacksonJsonNodeToConfigEntry(hierarchicalKeyPath, current, meta);
+        return keyIndex.getEntry(hierarchicalKeyPath, (key, leaf)->jacksonJsonNodeToConfigEntry(key, leaf, sharedMeta));
         }
 
     @Override
-    public ConfigEntry getEntry(String hierarchicalKeyPath, ConfigEntrySpecification specification)
+    public ConfigEntry getEntryForWriting(final String hierarchicalKeyPath)
         {
-        JsonNode current = navigateToJsonNode(hierarchicalKeyPath);
-        if (current == null)
-            {
-            return null;
-            }
-
-        ConfigEntryMetadata meta = new ConfigEntryMetadata(this.source);
-        if (specification != null)
-            {
-            meta.setSpecification(specification);
-            }
-        return jacksonJsonNodeToConfigEntry(hierarchicalKeyPath, current, meta);
+        JsonNode leaf = keyIndex.getLeaf(hierarchicalKeyPath);
+        return (leaf == null) ? null : jacksonJsonNodeToConfigEntry(hierarchicalKeyPath, leaf, new ConfigEntryMetadata(source));
         }
 
-    private JsonNode navigateToJsonNode(String hierarchicalKeyPath)
+    @Override
+    public ConfigEntry getEntry(String hierarchicalKeyPath, ConfigEntrySpecification specification)
         {
-        String[] nodes = hierarchicalKeyPath.split("/");
-        JsonNode current = jsonTreeRoot;
-        for (String node : nodes)
+        if ((specification == null) || (specification instanceof NullConfigEntrySpecification))
             {
-            current = current.get(node);
-            if (current == null)
-                {
-                return null;
-                }
+            return getEntry(hierarchicalKeyPath);
             }
-
-        if (current.isMissingNode() || current.isNull())
+        if (location.isWriteable())
             {
-            return null;
+            JsonNode leaf = keyIndex.getLeaf(hierarchicalKeyPath);
+            return (leaf == null) ? null : jacksonJsonNodeToConfigEntry(hierarchicalKeyPath, leaf, sharedMeta.withSpecification(specification).copy());
             }
-        return current;
+        // entries with a specification depend on it (BYTES decoding); memoized with the specification they were made for.
+        return keyIndex.getEntry(hierarchicalKeyPath, specification, (key, leaf)->jacksonJsonNodeToConfigEntry(key, leaf, sharedMeta.withSpecification(specification)));
         }
 
-
     //! how to get "source" from "location"?
     // write down for dev notes.
     //! don't we need the scheme, in case?
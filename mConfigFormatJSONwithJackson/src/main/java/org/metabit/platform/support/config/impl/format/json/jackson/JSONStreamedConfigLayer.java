@@ -0,0 +1,225 @@
+package org.metabit.platform.support.config.impl.format.json.jackson;
+
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.JsonToken;
+import org.metabit.platform.support.config.*;
+import org.metabit.platform.support.config.impl.ConfigLocationImpl;
+import org.metabit.platform.support.config.impl.entry.AbstractConfigEntry;
+import org.metabit.platform.support.config.impl.entry.ConfigEntryMetadata;
+import org.metabit.platform.support.config.impl.entry.GenericConfigEntryLeaf;
+import org.metabit.platform.support.config.impl.util.StringPool;
+import org.metabit.platform.support.config.interfaces.ConfigEntrySpecification;
+import org.metabit.platform.support.config.interfaces.ConfigLayerInterface;
+import org.metabit.platform.support.config.schema.NullConfigEntrySpecification;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * read-only JSON configuration layer, filled from a streaming parser.
+ * <p>
+ * No JsonNode tree is built or kept; the leaves go straight into a flat map from full key to value
+ * (String, Number, Boolean, byte[]; null for null values and arrays, which provide no entries, as in the tree-backed layer).
+ * Entries are created on first access.
+ * For writeable layers, see {@link JSONJacksonConfigLayer}.
+ */
+class JSONStreamedConfigLayer implements ConfigLayerInterface
+{
+    private final ConfigLocation           location;
+    private final ConfigSource             source;
+    private final ConfigEntryMetadata      sharedMeta;
+    private final Map<String, Object>      leaves;
+    private final Map<String, ConfigEntry> entries;
+    private final Map<String, ConfigEntry> specifiedEntries; // created for a specification, with it
+    private final boolean                  empty;
+
+    private JSONStreamedConfigLayer(ConfigLocation configLocation, JSONwithJacksonFormat format, Object storageInstanceHandle, Map<String, Object> leaves, boolean empty)
+        {
+        this.location = configLocation;
+        this.source = new ConfigLocationImpl(location, this, format, storageInstanceHandle);
+        this.sharedMeta = ConfigEntryMetadata.shared(source);
+        this.leaves = leaves;
+        this.entries = new ConcurrentHashMap<>();
+        this.specifiedEntries = new ConcurrentHashMap<>();
+        this.empty = empty;
+        }
+
+    /**
+     * read a layer from a parser positioned before the first token.
+     *
+     * @param parser                parser to read from
+     * @param configLocation        location
+     * @param format                format to report as source format
+     * @param storageInstanceHandle handle for the source
+     * @return the layer, or null if the top level is not an object; the caller may then use a tree.
+     */
+    static JSONStreamedConfigLayer read(JsonParser parser, ConfigLocation configLocation, JSONwithJacksonFormat format, Object storageInstanceHandle)
+        {
+        if (parser.nextToken() != JsonToken.START_OBJECT)
+            {
+            return null;
+            }
+        Map<String, Object> leaves = new LinkedHashMap<>();
+        boolean empty = !readObject(parser, "", leaves, format.getStringPool());
+        return new JSONStreamedConfigLayer(configLocation, format, storageInstanceHandle, leaves, empty);
+        }
+
+    // reads the properties of the current object into the map. returns whether the object had any.
+    private static boolean readObject(JsonParser parser, String prefix, Map<String, Object> leaves, StringPool strings)
+        {
+        boolean any = false;
+        while (parser.nextToken() == JsonToken.PROPERTY_NAME)
+            {
+            any = true;
+            String name = parser.currentName();
+            String fullKey = strings.intern(prefix.isEmpty() ? name : prefix+"/"+name);
+            JsonToken token = parser.nextToken();
+            switch (token)
+                {
+                case START_OBJECT:
+                    readObject(parser, fullKey, leaves, strings);
+                    break;
+                case START_ARRAY:
+                    parser.skipChildren();
+                    leaves.put(fullKey, null);
+                    break;
+                case VALUE_STRING:
+                    leaves.put(fullKey, strings.intern(parser.getString()));
+                    break;
+                case VALUE_NUMBER_INT:
+                    leaves.put(fullKey, parser.getNumberValue()); // Integer, Long or BigInteger, as the tree would have it
+                    break;
+                case VALUE_NUMBER_FLOAT:
+                    leaves.put(fullKey, parser.getDoubleValue());
+                    break;
+                case VALUE_TRUE:
+                case VALUE_FALSE:
+                    leaves.put(fullKey, token == JsonToken.VALUE_TRUE);
+                    break;
+                case VALUE_EMBEDDED_OBJECT:
+                    Object embedded = parser.getEmbeddedObject();
+                    leaves.put(fullKey, (embedded instanceof byte[]) ? embedded : null);
+                    break;
+                default: // VALUE_NULL
+                    leaves.put(fullKey, null);
+                    break;
+                }
+            }
+        return any;
+        }
+
+    @Override
+    public boolean isEmpty()
+        { return empty; }
+
+    @Override
+    public ConfigScope getScope()
+        { return location.getScope(); }
+
+    @Override
+    public ConfigSource getSource()
+        { return source; }
+
+    @Override
+    public boolean isWriteable()
+        { return false; }
+
+    @Override
+    public void writeEntry(ConfigEntry configEntry)
+            throws ConfigCheckedException
+        {
+        throw new ConfigCheckedException(ConfigCheckedException.ConfigExceptionReason.INVALID_USE);
+        }
+
+    @Override
+    public int flush()
+            throws ConfigCheckedException
+        {
+        return 0; // nothing to write, ever.
+        }
+
+    @Override
+    public int compareTo(ConfigLayerInterface configLayerInterface)
+        {
+        return 0;
+        }
+
+    @Override
+    public Iterator<String> tryToGetKeyIterator()
+        {
+        return Collections.unmodifiableSet(leaves.keySet()).iterator();
+        }
+
+    @Override
+    public ConfigEntry getEntry(final String hierarchicalKeyPath)
+        {
+        ConfigEntry entry = entries.get(hierarchicalKeyPath);
+        if (entry != null)
+            {
+            return entry;
+            }
+        Object value = leaves.get(hierarchicalKeyPath);
+        if (value == null)
+            {
+            return null;
+            }
+        entry = toConfigEntry(hierarchicalKeyPath, value, sharedMeta);
+        entries.putIfAbsent(hierarchicalKeyPath, entry);
+        return entry;
+        }
+
+    @Override
+    public ConfigEntry getEntry(String hierarchicalKeyPath, ConfigEntrySpecification specification)
+        {
+        if ((specification == null) || (specification instanceof NullConfigEntrySpecification))
+            {
+            return getEntry(hierarchicalKeyPath);
+            }
+        ConfigEntry entry = specifiedEntries.get(hierarchicalKeyPath);
+        if (AbstractConfigEntry.isSpecifiedAs(entry, specification))
+            {
+            return entry;
+            }
+        Object value = leaves.get(hierarchicalKeyPath);
+        if (value == null)
+            {
+            return null;
+            }
+        entry = toConfigEntry(hierarchicalKeyPath, value, sharedMeta.withSpecification(specification));
+        if (entry != null)
+            {
+            specifiedEntries.put(hierarchicalKeyPath, entry);
+            }
+        return entry;
+        }
+
+    // same mapping as JSONJacksonConfigLayer.jacksonJsonNodeToConfigEntry
+    private static ConfigEntry toConfigEntry(final String key, final Object value, ConfigEntryMetadata meta)
+        {
+        if (value instanceof String)
+            {
+            if (meta.getSpecification() != null && meta.getSpecification().getType() == ConfigEntryType.BYTES)
+                {
+                try
+                    {
+                    byte[] decoded = Base64.getDecoder().decode((String) value);
+                    return new GenericConfigEntryLeaf(key, decoded, ConfigEntryType.BYTES, meta);
+                    }
+                catch (IllegalArgumentException e)
+                    {
+                    // fall back to string if not valid base64
+                    }
+                }
+            return new GenericConfigEntryLeaf(key, value, ConfigEntryType.STRING, meta);
+            }
+        if (value instanceof Boolean)
+            {
+            return new GenericConfigEntryLeaf(key, value, ConfigEntryType.BOOLEAN, meta);
+            }
+        if (value instanceof byte[])
+            {
+            return new GenericConfigEntryLeaf(key, value, ConfigEntryType.BYTES, meta);
+            }
+        return new GenericConfigEntryLeaf(key, value, ConfigEntryType.NUMBER, meta);
+        }
+}
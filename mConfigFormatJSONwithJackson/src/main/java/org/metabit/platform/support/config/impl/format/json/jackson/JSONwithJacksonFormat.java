@@ -1,14 +1,18 @@
 package org.metabit.platform.support.config.impl.format.json.jackson;
 
 import tools.jackson.core.JacksonException;
+import tools.jackson.core.JsonParser;
 import tools.jackson.databind.JsonNode;
 import tools.jackson.databind.ObjectMapper;
 import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.databind.node.JsonNodeFactory;
+import tools.jackson.databind.node.StringNode;
 import org.metabit.platform.support.config.*;
 import org.metabit.platform.support.config.impl.ConfigFactoryInstanceContext;
 import org.metabit.platform.support.config.impl.ConfigFactorySettings;
 import org.metabit.platform.support.config.impl.EventRecorder;
 import org.metabit.platform.support.config.impl.ConfigEventImpl;
+import org.metabit.platform.support.config.impl.util.StringPool;
 import org.metabit.platform.support.config.interfaces.ConfigFileFormatInterface;
 import org.metabit.platform.support.config.interfaces.ConfigLayerInterface;
 import org.metabit.platform.support.config.interfaces.ConfigLoggingInterface;
@@ -33,6 +37,7 @@ public class JSONwithJacksonFormat implements ConfigFileFormatInterface
     protected ConfigFactorySettings       settings;
     protected ConfigFactoryInstanceContext ctx;
     protected ObjectMapper                mapper;
+    protected volatile StringPool         strings = StringPool.NONE;
 
     @Override
     public String getFormatID()
@@ -59,11 +64,33 @@ public class JSONwithJacksonFormat implements ConfigFileFormatInterface
     public void initialize(ConfigFactoryInstanceContext ctx)
         {
         this.ctx = ctx;
+        this.strings = ctx.getStringPool();
         }
 
+    StringPool getStringPool()
+        { return strings; }
+
     protected ObjectMapper createObjectMapper()
         {
-        return JsonMapper.builder().build();
+        return JsonMapper.builder().nodeFactory(createNodeFactory()).build();
+        }
+
+    /**
+     * node factory passing string values through the factory's string pool.
+     * The mapper is created before the pool is known, so the pool is looked up on each use.
+     *
+     * @return node factory for tree reading
+     */
+    protected JsonNodeFactory createNodeFactory()
+        {
+        return new JsonNodeFactory()
+            {
+            @Override
+            public StringNode stringNode(String text)
+                {
+                return super.stringNode(strings.intern(text));
+                }
+            };
         }
 
     @Override
@@ -71,6 +98,17 @@ public class JSONwithJacksonFormat implements ConfigFileFormatInterface
         {
         try
             {
+            if (isToBeReadOnly(file))
+                {
+                try (JsonParser parser = mapper.createParser(file))
+                    {
+                    ConfigLayerInterface layer = JSONStreamedConfigLayer.read(parser, configLocation, this, file.toPath());
+                    if (layer != null)
+                        {
+                        return layer;
+                        }
+                    } // not an object at top level; that's for the tree to handle.
+                }
             JsonNode rootNode = mapper.readTree(file); // parse to tree
             if (rootNode == null)
                 {
@@ -136,6 +174,17 @@ public class JSONwithJacksonFormat implements ConfigFileFormatInterface
         }
 
 
+    // read-only loading, without a tree: for files we can't write anyway, and for large ones if so configured.
+    private boolean isToBeReadOnly(File file)
+        {
+        if (!file.canWrite())
+            {
+            return true;
+            }
+        Integer threshold = settings.getInteger(ConfigFeature.FILE_READ_ONLY_STREAMING_THRESHOLD);
+        return (threshold != null) && (threshold > 0) && (file.length() >= threshold);
+        }
+
     @Override
     public ConfigLayerInterface readStream(InputStream inputStream, ConfigLocation configLocation)
         {
@@ -1,10 +1,26 @@
 package org.metabit.platform.support.config.impl.format.json.jackson;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.metabit.platform.support.config.ConfigFeature;
+import org.metabit.platform.support.config.ConfigEntry;
+import org.metabit.platform.support.config.ConfigEntryType;
+import org.metabit.platform.support.config.ConfigLocation;
+import org.metabit.platform.support.config.impl.ConfigFactorySettings;
+import org.metabit.platform.support.config.impl.entry.ConfigEntryMetadata;
+import org.metabit.platform.support.config.impl.entry.GenericConfigEntryLeaf;
+import org.metabit.platform.support.config.impl.logging.NullLogging;
+import org.metabit.platform.support.config.interfaces.ConfigLayerInterface;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
 
 class JSONwithJacksonFormatTest
 {
@@ -23,4 +39,82 @@ class JSONwithJacksonFormatTest
         assertEquals(List.of(".json"), format.getFilenameExtensions(), "getFilenameExtensions should return '.json'");
         }
 
-}
\ No newline at end of file
+    @Test
+    void flatKeyIndex() throws Exception
+        {
+        JSONwithJacksonFormat format = new JSONwithJacksonFormat();
+        format.testComponent(new ConfigFactorySettings(), NullLogging.getSingletonInstance());
+        String json = "{ \"server\": { \"host\": \"localhost\", \"port\": 8080 }, \"tags\": [\"a\"], \"debug\": true }";
+        ConfigLayerInterface layer = format.readStream(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), mock(ConfigLocation.class));
+        assertNotNull(layer);
+
+        List<String> keys = new ArrayList<>();
+        layer.tryToGetKeyIterator().forEachRemaining(keys::add);
+        assertEquals(List.of("server/host", "server/port", "tags", "debug"), keys);
+
+        ConfigEntry host = layer.getEntry("server/host");
+        assertEquals("localhost", host.getValueAsString());
+        assertSame(host, layer.getEntry("server/host"), "entries are memoized");
+        assertEquals(8080, layer.getEntry("server/port").getValueAsInteger());
+        assertNull(layer.getEntry("server"), "branches are no entries");
+        assertNull(layer.getEntry("server/missing"));
+
+        // writing replaces a leaf with a branch; the index follows.
+        layer.writeEntry(new GenericConfigEntryLeaf("debug/level", "fine", ConfigEntryType.STRING, new ConfigEntryMetadata(layer.getSource())));
+        assertNull(layer.getEntry("debug"));
+        assertEquals("fine", layer.getEntry("debug/level").getValueAsString());
+        assertSame(host, layer.getEntry("server/host"), "entries of keys not written are kept");
+        // ... and a branch with a leaf.
+        layer.writeEntry(new GenericConfigEntryLeaf("server", "off", ConfigEntryType.STRING, new ConfigEntryMetadata(layer.getSource())));
+        assertNull(layer.getEntry("server/host"));
+        assertEquals("off", layer.getEntry("server").getValueAsString());
+        ConfigEntry tags = layer.getEntry("tags");
+        layer.writeEntry(new GenericConfigEntryLeaf("tags", "b", ConfigEntryType.STRING, new ConfigEntryMetadata(layer.getSource())));
+        assertNotSame(tags, layer.getEntry("tags"));
+        assertEquals("b", layer.getEntry("tags").getValueAsString());
+        keys.clear();
+        layer.tryToGetKeyIterator().forEachRemaining(keys::add);
+        assertEquals(List.of("tags", "debug/level", "server"), keys);
+        }
+
+    @Test
+    void largeFilesAreStreamedReadOnly(@TempDir Path tempDir) throws Exception
+        {
+        Path file = tempDir.resolve("generated.json");
+        Files.writeString(file, "{ \"server\": { \"host\": \"localhost\", \"port\": 8080, \"ratio\": 0.5, \"big\": 12345678901234567890 },"
+                +" \"tags\": [\"a\", {\"b\": 1}], \"none\": null, \"debug\": true, \"empty\": {} }");
+        ConfigFactorySettings settings = new ConfigFactorySettings();
+        JSONwithJacksonFormat format = new JSONwithJacksonFormat();
+        format.testComponent(settings, NullLogging.getSingletonInstance());
+
+        ConfigLayerInterface treeLayer = format.readFile(file.toFile(), mock(ConfigLocation.class));
+        assertTrue(treeLayer instanceof JSONJacksonConfigLayer);
+        assertTrue(treeLayer.isWriteable());
+
+        settings.setInteger(ConfigFeature.FILE_READ_ONLY_STREAMING_THRESHOLD, 16);
+        ConfigLayerInterface streamedLayer = format.readFile(file.toFile(), mock(ConfigLocation.class));
+        assertTrue(streamedLayer instanceof JSONStreamedConfigLayer);
+        assertFalse(streamedLayer.isWriteable());
+
+        // same keys, same entries
+        List<String> treeKeys = new ArrayList<>();
+        treeLayer.tryToGetKeyIterator().forEachRemaining(treeKeys::add);
+        List<String> streamedKeys = new ArrayList<>();
+        streamedLayer.tryToGetKeyIterator().forEachRemaining(streamedKeys::add);
+        assertEquals(treeKeys, streamedKeys);
+        for (String key : treeKeys)
+            {
+            ConfigEntry expected = treeLayer.getEntry(key);
+            ConfigEntry actual = streamedLayer.getEntry(key);
+            if (expected == null)
+                {
+                assertNull(actual, key);
+                continue;
+                }
+            assertEquals(expected.getType(), actual.getType(), key);
+            assertEquals(expected.getValueAsString(), actual.getValueAsString(), key);
+            }
+        assertEquals(8080, streamedLayer.getEntry("server/port").getValueAsInteger());
+        assertNull(streamedLayer.getEntry("server"));
+        }
+}
@@ -2,20 +2,30 @@ package org.metabit.platform.support.config.impl.format.javaproperties;
 
 import org.metabit.platform.support.config.ConfigCheckedException;
 import org.metabit.platform.support.config.ConfigLocation;
+import org.metabit.platform.support.config.impl.ConfigFactoryInstanceContext;
 import org.metabit.platform.support.config.impl.ConfigFactorySettings;
+import org.metabit.platform.support.config.impl.util.AtomicFileWriter;
+import org.metabit.platform.support.config.impl.util.ConfigIOUtil;
+import org.metabit.platform.support.config.impl.util.SourcePatch;
+import org.metabit.platform.support.config.impl.util.StringPool;
 import org.metabit.platform.support.config.interfaces.ConfigFileFormatInterface;
 import org.metabit.platform.support.config.interfaces.ConfigLayerInterface;
 import org.metabit.platform.support.config.interfaces.ConfigLoggingInterface;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.Map;
 
 public class FileJavaPropertiesFormat implements ConfigFileFormatInterface
 {
     private ConfigLoggingInterface logger;
     private ConfigFactorySettings  settings;
+    private StringPool             strings = StringPool.NONE;
 
     @Override
     public String getFormatID()
@@ -31,6 +41,15 @@ public class FileJavaPropertiesFormat implements ConfigFileFormatInterface
         return true;
         }
 
+    @Override
+    public void initialize(ConfigFactoryInstanceContext ctx)
+        {
+        this.strings = ctx.getStringPool();
+        }
+
+    StringPool getStringPool()
+        { return strings; }
+
     @Override
     public List<String> getFilenameExtensions()
         {
@@ -43,9 +62,10 @@ public class FileJavaPropertiesFormat implements ConfigFileFormatInterface
         JavaPropertiesConfigLayer instance = new JavaPropertiesConfigLayer(settings, location, this, file.toPath());
         try
             {
-            instance.load(new BufferedReader(new InputStreamReader(new FileInputStream(file), java.nio.charset.StandardCharsets.UTF_8)));
+            // as text, so value spans can be recorded for patching. Malformed input is replaced, as by a reader.
+            instance.load(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
             }
-        catch (FileNotFoundException ex)
+        catch (NoSuchFileException ex)
             {
             logger.error("previously existing Java properties file denied its existence when reading"); //
             return null;
@@ -84,6 +104,40 @@ public class FileJavaPropertiesFormat implements ConfigFileFormatInterface
         return instance;
         }
 
+    @Override
+    public boolean readsBuffers()
+        {
+        return true;
+        }
+
+    @Override
+    public ConfigLayerInterface readBuffer(ByteBuffer buffer, ConfigLocation location)
+        {
+        return readBuffer(buffer, location, null);
+        }
+
+    /**
+     * @param buffer the file content, e.g. memory-mapped; decoded in one pass, lines are read from the decoded chars.
+     * @param location the location of the configuration
+     * @param sourceFile the file the content belongs to, or null
+     * @return the configuration layer instance
+     */
+    @Override
+    public ConfigLayerInterface readBuffer(ByteBuffer buffer, ConfigLocation location, Path sourceFile)
+        {
+        JavaPropertiesConfigLayer instance = new JavaPropertiesConfigLayer(settings, location, this, sourceFile);
+        try
+            {
+            instance.load(ConfigIOUtil.decode(buffer, StandardCharsets.UTF_8).toString());
+            }
+        catch (IOException ex)
+            {
+            logger.warn("IOException when reading Java Properties");
+            return null;
+            }
+        return instance;
+        }
+
     /**
      * @param fileWithPath the path to the file to create
      * @param location the location of the configuration
@@ -117,6 +171,7 @@ public class FileJavaPropertiesFormat implements ConfigFileFormatInterface
         if (layer instanceof JavaPropertiesConfigLayer)
             {
             JavaPropertiesConfigLayer propsLayer = (JavaPropertiesConfigLayer) layer;
+            propsLayer.internalDropSourcePatch(); // written as a whole; flushes of the layer itself patch.
             writeProperties(propsLayer);
             }
         else
@@ -127,10 +182,17 @@ public class FileJavaPropertiesFormat implements ConfigFileFormatInterface
 
     public void writeProperties(JavaPropertiesConfigLayer layer) throws ConfigCheckedException
         {
+        Path path = (Path) layer.getSource().getStorageInstanceHandle();
+        List<String> changedKeys = layer.internalTakeChangedKeys();
+        SourcePatch patch = layer.internalGetSourcePatch();
+        if (patch != null)
+            {
+            writePatch(layer, path, patch, changedKeys);
+            return;
+            }
         try
             {
-            Path path = (Path) layer.getSource().getStorageInstanceHandle();
-            try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(path.toFile()), java.nio.charset.StandardCharsets.UTF_8)))
+            new AtomicFileWriter(settings).write(path, StandardCharsets.UTF_8, writer->
                 {
                 for (String comment : layer.internalGetGlobalHeaderComments())
                     {
@@ -163,10 +225,39 @@ public class FileJavaPropertiesFormat implements ConfigFileFormatInterface
                     writer.write(comment);
                     writer.newLine();
                     }
+                });
+            }
+        catch (IOException ex)
+            {
+            throw new ConfigCheckedException(ex);
+            }
+        }
+
+    // replace the values of changed entries in the text read, append added entries behind the last one.
+    private void writePatch(JavaPropertiesConfigLayer layer, Path path, SourcePatch patch, List<String> changedKeys) throws ConfigCheckedException
+        {
+        Map<String, SourcePatch.Span> valueSpans = layer.internalGetValueSpans();
+        for (String key : changedKeys)
+            {
+            String value = escapeValue(layer.internalGetOrdered().get(key));
+            SourcePatch.Span span = valueSpans.get(key);
+            if (span != null)
+                {
+                patch.replace(span, value);
+                }
+            else
+                {
+                valueSpans.put(key, patch.insertLine(layer.internalGetInsertPosition(), escapeKey(key)+"=", value, ""));
                 }
             }
+        String previous = patch.getText();
+        try
+            {
+            new AtomicFileWriter(settings).writeChanged(path, StandardCharsets.UTF_8, previous, patch.apply());
+            }
         catch (IOException ex)
             {
+            layer.internalDropSourcePatch();
             throw new ConfigCheckedException(ex);
             }
         }
@@ -3,6 +3,9 @@ package org.metabit.platform.support.config.impl.format.javaproperties;
 import org.metabit.platform.support.config.*;
 import org.metabit.platform.support.config.impl.ConfigFactorySettings;
 import org.metabit.platform.support.config.impl.ConfigLocationImpl;
+import org.metabit.platform.support.config.impl.util.SourceComments;
+import org.metabit.platform.support.config.impl.util.SourcePatch;
+import org.metabit.platform.support.config.impl.util.StringPool;
 import org.metabit.platform.support.config.interfaces.ConfigLayerInterface;
 import org.metabit.platform.support.config.impl.entry.ConfigEntryMetadata;
 import org.metabit.platform.support.config.impl.entry.GenericConfigEntryLeaf;
@@ -11,10 +14,14 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 
 /*
  possible improvements: for each entry, identify and keep the line it is in,
@@ -30,16 +37,25 @@ public class JavaPropertiesConfigLayer implements ConfigLayerInterface
     private final FileJavaPropertiesFormat ourFormat;
     private final Properties               props;
     private final LinkedHashMap<String, String> ordered;
+    // comments as read are kept as offsets into the text; strings are created when accessed.
     private final LinkedHashMap<String, List<String>> leadingComments;
-    private final List<String> globalHeaderComments;
-    private final List<String> trailingComments;
+    private       List<String> globalHeaderComments;
+    private       List<String> trailingComments;
     private final ConfigSource             source;
+    private final ConfigEntryMetadata      sharedMeta; // for the entries of a read-only layer
+    private final StringPool               strings;
     private final boolean                  trimValueStringsFlag;
     private final boolean                  writeableFlag;
     private final boolean                  writeCacheFlag;
     private final boolean                  readCommentsFlag;
     private final boolean                  writeCommentsFlag;
+    private final boolean                  writePatchFlag;
     private       int                      writeChanges;
+    // with FILE_WRITE_PATCH: text as read, value spans, and keys changed since the last write. null: rewrite as a whole.
+    private       SourcePatch              sourcePatch;
+    private final Map<String, SourcePatch.Span> valueSpans;
+    private       SourcePatch.Span         insertPosition;
+    private final Set<String>              changedKeys;
 
     /**
      * @param settings settings to use
@@ -50,7 +66,9 @@ public class JavaPropertiesConfigLayer implements ConfigLayerInterface
     public JavaPropertiesConfigLayer(ConfigFactorySettings settings, ConfigLocation location, FileJavaPropertiesFormat format, Path path)
         {
         source = new ConfigLocationImpl(location, this, format, path);
+        sharedMeta = ConfigEntryMetadata.shared(source);
         ourFormat = format;
+        strings = format.getStringPool();
         if (path != null)
             { writeableFlag = path.toFile().canWrite(); }
         else
@@ -59,52 +77,88 @@ public class JavaPropertiesConfigLayer implements ConfigLayerInterface
         writeCacheFlag = !settings.getBoolean(ConfigFeature.WRITE_SYNC);
         readCommentsFlag = settings.getBoolean(ConfigFeature.COMMENTS_READING);
         writeCommentsFlag = settings.getBoolean(ConfigFeature.COMMENTS_WRITING);
+        writePatchFlag = writeableFlag && settings.getBoolean(ConfigFeature.FILE_WRITE_PATCH);
         props = new Properties();
         ordered = new LinkedHashMap<>();
         leadingComments = new LinkedHashMap<>();
         globalHeaderComments = new ArrayList<>();
         trailingComments = new ArrayList<>();
+        valueSpans = new HashMap<>();
+        changedKeys = new LinkedHashSet<>();
         writeChanges = 0;
+        if (writePatchFlag)
+            {
+            sourcePatch = new SourcePatch(""); // freshly created file; replaced on load
+            insertPosition = sourcePatch.track(0, 0);
+            }
         }
 
     public void load(BufferedReader reader) throws IOException
         {
-        String line;
-        List<String> pendingComments = new ArrayList<>();
-        boolean firstKeyFound = false;
-        while ((line = reader.readLine()) != null)
+        StringBuilder sb = new StringBuilder();
+        char[] buffer = new char[8192];
+        int count;
+        while ((count = reader.read(buffer)) >= 0)
+            {
+            sb.append(buffer, 0, count);
+            }
+        load(sb.toString());
+        }
+
+    /**
+     * parse properties text. With FILE_WRITE_PATCH, the spans of the values are recorded for writing back.
+     *
+     * @param text the file content
+     */
+    public void load(String text)
+        {
+        SourcePatch patch = writePatchFlag ? new SourcePatch(text) : null;
+        int insertOffset = text.length(); // behind the last entry; end of text if there is none.
+        // kept as offsets into the text where it is kept anyway, or comments are read; else created now, dropping the text.
+        SourceComments comments = new SourceComments(text, this::readCommentLines, readCommentsFlag || (patch != null));
+        int pendingStart = -1; // block of comment lines not assigned yet
+        int pendingEnd = -1;
+        int position = 0;
+        while (position < text.length())
             {
-            String logical = readLogicalLine(line, reader);
-            if (logical == null)
+            int lineStart = position;
+            int lineEnd = lineEnd(text, lineStart);
+            position = nextLine(text, lineEnd);
+            String logical = text.substring(lineStart, lineEnd);
+            int firstLineLength = logical.length();
+            while (isContinuation(logical))
                 {
-                break;
+                if (position >= text.length())
+                    {
+                    logical = logical.substring(0, logical.length() - 1);
+                    break;
+                    }
+                int nextEnd = lineEnd(text, position);
+                logical = logical.substring(0, logical.length() - 1) + trimLeading(text.substring(position, nextEnd));
+                lineEnd = nextEnd;
+                position = nextLine(text, nextEnd);
                 }
             String trimmed = trimLeading(logical);
             if (trimmed.isEmpty())
                 {
-                if (!pendingComments.isEmpty())
+                if (pendingStart >= 0)
                     {
-                    if (!firstKeyFound)
-                        {
-                        globalHeaderComments.addAll(pendingComments);
-                        }
-                    else
-                        {
-                        // Orphaned comments between keys - keep them as trailing for the previous key or general?
-                        // For simplicity, add to trailing of previous key if we can, or just keep as global.
-                        // Guidelines say "file comment headers will be treated as orphaned/dangling".
-                        globalHeaderComments.addAll(pendingComments);
-                        }
-                    pendingComments.clear();
+                    // orphaned comments, before or between keys.
+                    // Guidelines say "file comment headers will be treated as orphaned/dangling".
+                    globalHeaderComments = SourceComments.join(globalHeaderComments, comments.lines(SourceComments.range(pendingStart, pendingEnd)));
                     }
+                pendingStart = -1;
                 continue;
                 }
             if (trimmed.startsWith("#") || trimmed.startsWith("!"))
                 {
-                pendingComments.add(trimmed);
+                if (pendingStart < 0)
+                    {
+                    pendingStart = lineStart;
+                    }
+                pendingEnd = lineEnd;
                 continue;
                 }
-            firstKeyFound = true;
             KeyValue kv = parseKeyValue(trimmed);
             String key = unescape(kv.key);
             String value = unescape(kv.value);
@@ -112,18 +166,92 @@ public class JavaPropertiesConfigLayer implements ConfigLayerInterface
                 {
                 value = value.trim();
                 }
+            key = strings.intern(key);
+            value = strings.intern(value);
             props.put(key, value);
             ordered.put(key, value);
-            if (!pendingComments.isEmpty())
+            if (pendingStart >= 0)
+                {
+                leadingComments.put(key, comments.lines(SourceComments.range(pendingStart, pendingEnd)));
+                }
+            pendingStart = -1;
+            if (patch != null)
+                {
+                // the value runs from its start to the end of the logical line; it has to start on the first line.
+                int valueIndex = (logical.length() - trimmed.length()) + kv.valueStart;
+                if (valueIndex < firstLineLength)
+                    {
+                    valueSpans.put(key, patch.track(lineStart + valueIndex, lineEnd));
+                    insertOffset = position;
+                    }
+                else
+                    {
+                    patch = null; // a key continued on the next line; this file is rewritten as a whole.
+                    }
+                }
+            }
+        if (pendingStart >= 0)
+            {
+            trailingComments = SourceComments.join(trailingComments, comments.lines(SourceComments.range(pendingStart, pendingEnd)));
+            }
+        sourcePatch = patch;
+        insertPosition = (patch != null) ? patch.track(insertOffset, insertOffset) : null;
+        if (patch == null)
+            {
+            valueSpans.clear();
+            }
+        }
+
+    // the comment lines of a block, as load() reads them: logical lines, without leading whitespace.
+    private void readCommentLines(String text, int start, int end, List<String> lines)
+        {
+        int position = start;
+        while (position < end)
+            {
+            int lineEnd = lineEnd(text, position);
+            int next = nextLine(text, lineEnd);
+            String logical = text.substring(position, lineEnd);
+            while (isContinuation(logical))
+                {
+                if (next >= end)
+                    {
+                    logical = logical.substring(0, logical.length() - 1);
+                    break;
+                    }
+                int nextEnd = lineEnd(text, next);
+                logical = logical.substring(0, logical.length() - 1) + trimLeading(text.substring(next, nextEnd));
+                next = nextLine(text, nextEnd);
+                }
+            String trimmed = trimLeading(logical);
+            if (trimmed.startsWith("#") || trimmed.startsWith("!"))
                 {
-                leadingComments.put(key, new ArrayList<>(pendingComments));
-                pendingComments.clear();
+                lines.add(trimmed);
                 }
+            position = next;
             }
-        if (!pendingComments.isEmpty())
+        }
+
+    private static int lineEnd(String text, int from)
+        {
+        int i = from;
+        while ((i < text.length()) && (text.charAt(i) != '\n') && (text.charAt(i) != '\r'))
             {
-            trailingComments.addAll(pendingComments);
+            i++;
             }
+        return i;
+        }
+
+    private static int nextLine(String text, int lineEnd)
+        {
+        if ((lineEnd < text.length()) && (text.charAt(lineEnd) == '\r'))
+            {
+            lineEnd++;
+            }
+        if ((lineEnd < text.length()) && (text.charAt(lineEnd) == '\n'))
+            {
+            lineEnd++;
+            }
+        return lineEnd;
         }
 
     @Override
@@ -139,15 +267,21 @@ public class JavaPropertiesConfigLayer implements ConfigLayerInterface
         if (trimValueStringsFlag)
             propsValue = propsValue.trim(); //.strip() would require JDK11
 
-        ConfigEntryMetadata meta = new ConfigEntryMetadata(source);
+        String comment = null;
         if (readCommentsFlag)
             {
             List<String> comments = leadingComments.get(key);
             if (comments != null && !comments.isEmpty())
                 {
-                meta.setComment(String.join("\n", comments));
+                comment = String.join("\n", comments);
                 }
             }
+        // entries of a read-only layer share its metadata; those of a writeable one may be changed, and get their own.
+        ConfigEntryMetadata meta = (comment != null) ? sharedMeta.withComment(comment) : sharedMeta;
+        if (writeableFlag)
+            {
+            meta = meta.copy();
+            }
         ConfigEntry ce = new GenericConfigEntryLeaf(key, propsValue, ConfigEntryType.STRING, meta);
         return ce;
         }
@@ -204,6 +338,39 @@ public class JavaPropertiesConfigLayer implements ConfigLayerInterface
         return trailingComments;
         }
 
+    /**
+     * @return the text as read and written so far, with value spans; null if the file is to be rewritten as a whole.
+     */
+    SourcePatch internalGetSourcePatch()
+        {
+        return sourcePatch;
+        }
+
+    Map<String, SourcePatch.Span> internalGetValueSpans()
+        {
+        return valueSpans;
+        }
+
+    SourcePatch.Span internalGetInsertPosition()
+        {
+        return insertPosition;
+        }
+
+    /** @return keys written since the previous call. */
+    List<String> internalTakeChangedKeys()
+        {
+        List<String> keys = new ArrayList<>(changedKeys);
+        changedKeys.clear();
+        return keys;
+        }
+
+    /** after a failed patch write, text and file may differ; write as a whole from then on. */
+    void internalDropSourcePatch()
+        {
+        sourcePatch = null;
+        valueSpans.clear();
+        }
+
 
     public ConfigSource getSource()
         {
@@ -220,6 +387,7 @@ public class JavaPropertiesConfigLayer implements ConfigLayerInterface
         String value = entryToWrite.getValueAsString();
         props.put(key, value);
         ordered.put(key, value);
+        changedKeys.add(key);
         if (writeCommentsFlag && entryToWrite.getComment() != null)
             {
             String comment = entryToWrite.getComment();
@@ -248,6 +416,10 @@ public class JavaPropertiesConfigLayer implements ConfigLayerInterface
                     commentLines.add(formattedLine);
                     }
                 }
+            if (!commentLines.equals(leadingComments.get(key)))
+                {
+                sourcePatch = null; // comments are not patched; rewrite as a whole from now on.
+                }
             leadingComments.put(key, commentLines);
             }
         //@TODO cacheing to be performed here - by the layer itself
@@ -278,20 +450,10 @@ public class JavaPropertiesConfigLayer implements ConfigLayerInterface
         return tmp;
         }
 
-    private String readLogicalLine(String first, BufferedReader reader) throws IOException
+    @Override
+    public int getPendingWriteCount()
         {
-        String line = first;
-        while (line != null && isContinuation(line))
-            {
-            String next = reader.readLine();
-            if (next == null)
-                {
-                line = line.substring(0, line.length() - 1);
-                break;
-                }
-            line = line.substring(0, line.length() - 1) + trimLeading(next);
-            }
-        return line;
+        return writeChanges;
         }
 
     private boolean isContinuation(String line)
@@ -357,7 +519,7 @@ public class JavaPropertiesConfigLayer implements ConfigLayerInterface
             }
         String key = line.substring(0, keyEnd);
         String value = valueStart < len ? line.substring(valueStart) : "";
-        return new KeyValue(key, value);
+        return new KeyValue(key, value, valueStart);
         }
 
     private boolean isWhitespace(char ch)
@@ -436,11 +598,13 @@ public class JavaPropertiesConfigLayer implements ConfigLayerInterface
     {
         private final String key;
         private final String value;
+        private final int    valueStart; // offset of the value in the line
 
-        private KeyValue(String key, String value)
+        private KeyValue(String key, String value, int valueStart)
             {
             this.key = key;
             this.value = value;
+            this.valueStart = valueStart;
             }
     }
 
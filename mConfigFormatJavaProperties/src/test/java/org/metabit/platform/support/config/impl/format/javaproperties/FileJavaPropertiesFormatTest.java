@@ -1,10 +1,13 @@
 package org.metabit.platform.support.config.impl.format.javaproperties;
 
 import org.junit.jupiter.api.Test;
+import org.metabit.platform.support.config.ConfigEntryType;
 import org.metabit.platform.support.config.ConfigLocation;
 import org.metabit.platform.support.config.ConfigScope;
+import org.metabit.platform.support.config.impl.ConfigFactoryInstanceContext;
 import org.metabit.platform.support.config.impl.ConfigFactorySettings;
 import org.metabit.platform.support.config.impl.ConfigLocationImpl;
+import org.metabit.platform.support.config.impl.entry.GenericConfigEntryLeaf;
 import org.metabit.platform.support.config.impl.logging.NullLogging;
 import org.metabit.platform.support.config.interfaces.ConfigLayerInterface;
 import org.metabit.platform.support.config.interfaces.ConfigStorageInterface;
@@ -56,6 +59,45 @@ public class FileJavaPropertiesFormatTest
         assertEquals("value", layer.getEntry("nested/key").getValueAsString());
         }
 
+    @Test
+    public void testReadBuffer() throws Exception
+        {
+        FileJavaPropertiesFormat format = new FileJavaPropertiesFormat();
+        format.testComponent(new ConfigFactorySettings(), NullLogging.getSingletonInstance());
+
+        String properties = "foo=bar\n" +
+                           "multi=one \\\n" +
+                           "  two\n";
+        java.nio.ByteBuffer buffer = java.nio.ByteBuffer.wrap(properties.getBytes(StandardCharsets.UTF_8));
+        ConfigLocation location = new ConfigLocationImpl(ConfigScope.SESSION, new TestStorage(), format, null);
+
+        ConfigLayerInterface layer = format.readBuffer(buffer, location);
+
+        assertNotNull(layer);
+        assertEquals("bar", layer.getEntry("foo").getValueAsString());
+        assertEquals("one two", layer.getEntry("multi").getValueAsString());
+        assertEquals(0, buffer.position());
+        }
+
+    @Test
+    public void testStringsAreSharedAcrossLayers() throws Exception
+        {
+        FileJavaPropertiesFormat format = new FileJavaPropertiesFormat();
+        ConfigFactorySettings settings = new ConfigFactorySettings();
+        format.testComponent(settings, NullLogging.getSingletonInstance());
+        ConfigFactoryInstanceContext ctx = new ConfigFactoryInstanceContext(settings);
+        format.initialize(ctx);
+        ConfigLocation location = new ConfigLocationImpl(ConfigScope.SESSION, new TestStorage(), format, null);
+
+        ConfigLayerInterface first = format.readStream(new ByteArrayInputStream("server/enabled=true\n".getBytes(StandardCharsets.UTF_8)), location);
+        ConfigLayerInterface second = format.readStream(new ByteArrayInputStream("server/enabled=true\n".getBytes(StandardCharsets.UTF_8)), location);
+
+        assertSame(first.tryToGetKeyIterator().next(), second.tryToGetKeyIterator().next());
+        assertSame(first.getEntry("server/enabled").getValueAsString(), second.getEntry("server/enabled").getValueAsString());
+        assertEquals(2, ctx.getStringPool().getHits());
+        assertTrue(ctx.getStringPool().getSavedBytes() > 0);
+        }
+
     @Test
     public void testCommentsRoundTrip() throws Exception
         {
@@ -91,6 +133,60 @@ public class FileJavaPropertiesFormatTest
             }
         }
 
+    @Test
+    public void testFlushPatchesChangedValuesOnly() throws Exception
+        {
+        FileJavaPropertiesFormat format = new FileJavaPropertiesFormat();
+        ConfigFactorySettings settings = new ConfigFactorySettings();
+        format.testComponent(settings, NullLogging.getSingletonInstance());
+
+        String properties = ""
+                + "# history: set by ops, 2019\n"
+                + "host   :  example.org\n"
+                + "\n"
+                + "   # orphaned note\n"
+                + "\n"
+                + "multi = one \\\n"
+                + "        two\n"
+                + "port=80\n"
+                + "# trailing comment\n";
+        Path tempFile = Files.createTempFile("mConfigPropsPatch", ".properties");
+        try
+            {
+            Files.writeString(tempFile, properties, StandardCharsets.UTF_8);
+            ConfigLocation location = new ConfigLocationImpl(ConfigScope.SESSION, new TestStorage(), format, tempFile);
+            ConfigLayerInterface layer = format.readFile(tempFile.toFile(), location);
+            assertNotNull(layer);
+            layer.writeEntry(new GenericConfigEntryLeaf("port", "8080", ConfigEntryType.STRING, null));
+            layer.writeEntry(new GenericConfigEntryLeaf("multi", " three", ConfigEntryType.STRING, null));
+            layer.writeEntry(new GenericConfigEntryLeaf("new key", "a=b", ConfigEntryType.STRING, null));
+            assertEquals(3, layer.flush());
+
+            assertEquals(""
+                    + "# history: set by ops, 2019\n"
+                    + "host   :  example.org\n"
+                    + "\n"
+                    + "   # orphaned note\n"
+                    + "\n"
+                    + "multi = \\ three\n"
+                    + "port=8080\n"
+                    + "new\\ key=a=b\n"
+                    + "# trailing comment\n", Files.readString(tempFile, StandardCharsets.UTF_8));
+
+            layer.writeEntry(new GenericConfigEntryLeaf("new key", "c", ConfigEntryType.STRING, null));
+            layer.flush();
+            assertTrue(Files.readString(tempFile, StandardCharsets.UTF_8).contains("\nnew\\ key=c\n# trailing comment\n"));
+            ConfigLayerInterface reread = format.readFile(tempFile.toFile(), location);
+            assertEquals("three", reread.getEntry("multi").getValueAsString()); // TRIM_TEXTVALUE_SPACES
+            assertEquals("c", reread.getEntry("new key").getValueAsString());
+            assertEquals("example.org", reread.getEntry("host").getValueAsString());
+            }
+        finally
+            {
+            Files.deleteIfExists(tempFile);
+            }
+        }
+
     private static final class TestStorage implements ConfigStorageInterface
         {
         @Override
@@ -5,6 +5,8 @@ import tools.jackson.databind.ObjectMapper;
 import tools.jackson.databind.node.ObjectNode;
 import com.networknt.schema.JsonSchema;
 import com.networknt.schema.JsonSchemaFactory;
+import com.networknt.schema.PathType;
+import com.networknt.schema.SchemaValidatorsConfig;
 import com.networknt.schema.SpecVersion;
 import com.networknt.schema.ValidationMessage;
 import org.metabit.platform.support.config.ConfigEntry.ConfigEntryFlags;
@@ -12,6 +14,7 @@ import org.metabit.platform.support.config.*;
 import org.metabit.platform.support.config.impl.ConfigFactoryInstanceContext;
 import org.metabit.platform.support.config.impl.entry.ConfigEntryMetadata;
 import org.metabit.platform.support.config.impl.entry.GenericConfigEntryLeaf;
+import org.metabit.platform.support.config.impl.util.ConfigTypeConverter;
 import org.metabit.platform.support.config.interfaces.ConfigEntrySpecification;
 import org.metabit.platform.support.config.schema.ConfigSchema;
 import org.metabit.platform.support.config.schema.ConfigSchemaEntry;
@@ -28,6 +31,7 @@ public class JsonSchemaConfigSchema implements ConfigSchema
     public static final String MCONFIG_SCHEMA_FILENAME_EXTENSION = ".mconfig-schema.json";
     private final        JsonSchema                     jsonSchema;
     private final        Map<String, ConfigSchemaEntry> inferredEntries = new HashMap<>();
+    private final        Map<String, JsonSchema>        keySchemas      = new HashMap<>(); // sub-schema of each key, resolved once
     private              String                         company;
     private              String                         application;
     private              String                         configName;
@@ -37,12 +41,14 @@ public class JsonSchemaConfigSchema implements ConfigSchema
     public JsonSchemaConfigSchema(String schemaJson)
         {
         JsonSchemaFactory factory = JsonSchemaFactory.getInstance(SpecVersion.VersionFlag.V7);
-        this.jsonSchema = factory.getSchema(schemaJson);
+        SchemaValidatorsConfig config = new SchemaValidatorsConfig();
+        config.setPathType(PathType.JSON_POINTER); // error paths map to config keys directly
+        this.jsonSchema = factory.getSchema(schemaJson, config);
         parseMetadata(schemaJson);
         try
             {
             com.fasterxml.jackson.databind.JsonNode node2 = mapper2.readTree(schemaJson);
-            inferMConfigEntries2(node2, "");
+            inferMConfigEntries2(node2, "", "#");
             }
         catch (Exception e)
             {
@@ -50,7 +56,7 @@ public class JsonSchemaConfigSchema implements ConfigSchema
             }
         }
 
-    private void inferMConfigEntries2(com.fasterxml.jackson.databind.JsonNode node, String prefix)
+    private void inferMConfigEntries2(com.fasterxml.jackson.databind.JsonNode node, String prefix, String schemaPath)
         {
         if (node == null || !node.isObject()) return;
 
@@ -63,20 +69,37 @@ public class JsonSchemaConfigSchema implements ConfigSchema
                 Map.Entry<String, com.fasterxml.jackson.databind.JsonNode> field = it.next();
                 String key = prefix.isEmpty() ? field.getKey() : prefix+"/"+field.getKey();
                 com.fasterxml.jackson.databind.JsonNode child = field.getValue();
+                String childPath = schemaPath+"/properties/"+field.getKey().replace("~", "~0").replace("/", "~1");
 
                 if (child.has("properties"))
                     {
-                    inferMConfigEntries2(child, key);
+                    inferMConfigEntries2(child, key, childPath);
                     }
                 else
                     {
                     ConfigSchemaEntry entry = mapNodeToEntry2(key, child);
                     inferredEntries.put(key, entry);
+                    resolveKeySchema(key, childPath, child);
                     }
                 }
             }
         }
 
+    // leaf values are checked against their own part of the schema, not the whole document.
+    private void resolveKeySchema(String key, String schemaPath, com.fasterxml.jackson.databind.JsonNode node)
+        {
+        try
+            {
+            JsonSchema keySchema = jsonSchema.createChildSchema(schemaPath, node);
+            keySchema.initializeValidators();
+            keySchemas.put(key, keySchema);
+            }
+        catch (Exception e)
+            {
+            // key is checked against the whole schema, then
+            }
+        }
+
     private ConfigSchemaEntry mapNodeToEntry2(String key, com.fasterxml.jackson.databind.JsonNode node)
         {
         ConfigEntryType type = inferType2(node);
@@ -236,16 +259,20 @@ public class JsonSchemaConfigSchema implements ConfigSchema
         {
         try
             {
+            JsonSchema keySchema = keySchemas.get(fullKey);
+            if (keySchema != null)
+                {
+                return keySchema.validate(convertToNode2(entry)).isEmpty();
+                }
+            // keys outside the schema's properties: whatever the schema says about additional properties.
+            // A single entry cannot tell whether others are missing, so "required" does not apply here.
             com.fasterxml.jackson.databind.node.ObjectNode root = mapper2.createObjectNode();
-            com.fasterxml.jackson.databind.node.ObjectNode current = root;
-            String[] parts = fullKey.split("/");
-            for (int i = 0; i < parts.length-1; i++)
+            putValue(root, fullKey, convertToNode2(entry));
+            for (ValidationMessage error : jsonSchema.validate(root))
                 {
-                current = current.putObject(parts[i]);
+                if (!"required".equals(error.getType())) return false;
                 }
-            current.set(parts[parts.length-1], convertToNode2(entry));
-            Set<ValidationMessage> errors = jsonSchema.validate(root);
-            return errors.isEmpty();
+            return true;
             }
         catch (Exception e)
             {
@@ -253,20 +280,96 @@ public class JsonSchemaConfigSchema implements ConfigSchema
             }
         }
 
+    /**
+     * check all entries as one document, in a single pass over the whole schema.
+     * Besides invalid entries, this reports missing required ones, by their key.
+     *
+     * @param entries config entries, by full key
+     * @return full keys of invalid or missing entries.
+     */
+    @Override
+    public Set<String> checkConfigEntries(Map<String, ConfigEntry> entries)
+        {
+        Set<String> invalid = new LinkedHashSet<>();
+        com.fasterxml.jackson.databind.node.ObjectNode root = mapper2.createObjectNode();
+        for (Map.Entry<String, ConfigEntry> entry : entries.entrySet())
+            {
+            try
+                {
+                putValue(root, entry.getKey(), convertToNode2(entry.getValue()));
+                }
+            catch (Exception e)
+                {
+                invalid.add(entry.getKey());
+                }
+            }
+        for (ValidationMessage message : jsonSchema.validate(root))
+            {
+            String key = toKey(message.getPath(), entries.keySet());
+            if ("required".equals(message.getType()) && (message.getArguments() != null) && (message.getArguments().length > 0))
+                {
+                key = key.isEmpty() ? message.getArguments()[0] : key+"/"+message.getArguments()[0];
+                }
+            invalid.add(key);
+            }
+        return invalid;
+        }
+
+    private static void putValue(com.fasterxml.jackson.databind.node.ObjectNode root, String fullKey, com.fasterxml.jackson.databind.JsonNode value)
+        {
+        com.fasterxml.jackson.databind.node.ObjectNode current = root;
+        String[] parts = fullKey.split("/");
+        for (int i = 0; i < parts.length-1; i++)
+            {
+            com.fasterxml.jackson.databind.JsonNode child = current.get(parts[i]);
+            current = (child instanceof com.fasterxml.jackson.databind.node.ObjectNode) ? (com.fasterxml.jackson.databind.node.ObjectNode) child : current.putObject(parts[i]);
+            }
+        current.set(parts[parts.length-1], value);
+        }
+
+    // JSON pointer of an error to the config key; pointers into list values are cut to the key of the list.
+    private static String toKey(String pointer, Set<String> keys)
+        {
+        StringBuilder key = new StringBuilder();
+        for (String part : pointer.split("/"))
+            {
+            if (part.isEmpty() || part.equals("$")) continue;
+            if (key.length() > 0) key.append('/');
+            key.append(part.replace("~1", "/").replace("~0", "~"));
+            }
+        String result = key.toString();
+        while (!keys.contains(result) && (result.lastIndexOf('/') > 0) && keys.contains(result.substring(0, result.lastIndexOf('/'))))
+            {
+            result = result.substring(0, result.lastIndexOf('/'));
+            }
+        return result;
+        }
+
     private com.fasterxml.jackson.databind.JsonNode convertToNode2(ConfigEntry entry)
             throws Exception
         {
+        com.fasterxml.jackson.databind.node.JsonNodeFactory nodes = mapper2.getNodeFactory();
         switch (entry.getType())
             {
             case BOOLEAN:
-                return mapper2.valueToTree(entry.getValueAsBoolean());
+                Boolean flag = entry.getValueAsBoolean();
+                return (flag == null) ? nodes.nullNode() : nodes.booleanNode(flag);
             case NUMBER:
-                return mapper2.valueToTree(entry.getValueAsBigDecimal());
+                java.math.BigDecimal number = entry.getValueAsBigDecimal();
+                return (number == null) ? nodes.nullNode() : nodes.numberNode(number);
             case MULTIPLE_STRINGS:
             case ENUM_SET:
-                return mapper2.valueToTree(entry.getValueAsStringList());
+                List<String> list = entry.getValueAsStringList();
+                if (list == null) return nodes.nullNode();
+                com.fasterxml.jackson.databind.node.ArrayNode array = nodes.arrayNode(list.size());
+                for (String element : list)
+                    {
+                    array.add(element);
+                    }
+                return array;
             default:
-                return mapper2.valueToTree(entry.getValueAsString());
+                String text = entry.getValueAsString();
+                return (text == null) ? nodes.nullNode() : nodes.textNode(text);
             }
         }
 
@@ -290,16 +393,18 @@ public class JsonSchemaConfigSchema implements ConfigSchema
     public void transferDefaults(DefaultLayer defaultLayer)
         {
         // Create a dummy source for defaults
-        ConfigSource source = defaultLayer.getSource();
+        ConfigEntryMetadata sharedMeta = ConfigEntryMetadata.shared(defaultLayer.getSource());
+        Map<String, ConfigEntry> defaults = new HashMap<>();
         for (Map.Entry<String, ConfigSchemaEntry> entry : inferredEntries.entrySet())
             {
-            if (entry.getValue().getDefault() != null)
+            ConfigSchemaEntry cse = entry.getValue();
+            if (cse.getDefault() != null)
                 {
-                ConfigEntryMetadata meta = new ConfigEntryMetadata(source);
-                meta.setSpecification(entry.getValue());
-                defaultLayer.putEntry(entry.getKey(), new GenericConfigEntryLeaf(entry.getKey(), entry.getValue().getDefault(), ConfigEntryType.STRING, meta));
+                Object value = ConfigTypeConverter.toTypedValue(cse.getDefault(), cse.getType());
+                defaults.put(entry.getKey(), new GenericConfigEntryLeaf(entry.getKey(), value, cse.getType(), sharedMeta.withSpecification(cse)));
                 }
             }
+        defaultLayer.putEntries(defaults);
         }
 
     @Override
@@ -0,0 +1,76 @@
+package org.metabit.platform.support.config.impl.format.jsonschema;
+
+import org.junit.jupiter.api.Test;
+import org.metabit.platform.support.config.ConfigEntry;
+import org.metabit.platform.support.config.ConfigEntryType;
+import org.metabit.platform.support.config.impl.entry.GenericConfigEntryLeaf;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JsonSchemaConfigSchemaTest
+{
+    private static final String SCHEMA = "{"
+            + "\"$schema\": \"http://json-schema.org/draft-07/schema#\","
+            + "\"definitions\": {\"port\": {\"type\": \"integer\", \"minimum\": 1, \"maximum\": 65535}},"
+            + "\"type\": \"object\","
+            + "\"required\": [\"name\"],"
+            + "\"properties\": {"
+            + "  \"name\": {\"type\": \"string\", \"minLength\": 2},"
+            + "  \"server\": {\"type\": \"object\", \"required\": [\"port\"], \"properties\": {"
+            + "    \"port\": {\"$ref\": \"#/definitions/port\"},"
+            + "    \"tags\": {\"type\": \"array\", \"items\": {\"type\": \"string\", \"maxLength\": 3}}"
+            + "  }}"
+            + "}}";
+
+    @Test
+    public void testEntriesCheckedAgainstTheirSubSchema()
+        {
+        JsonSchemaConfigSchema schema = new JsonSchemaConfigSchema(SCHEMA);
+        // the root requires "name"; a single entry is checked against its own part of the schema only.
+        assertTrue(schema.checkConfigEntryValidity("server/port", number("server/port", 8080)));
+        assertFalse(schema.checkConfigEntryValidity("server/port", number("server/port", 70000)));
+        assertFalse(schema.checkConfigEntryValidity("server/port", number("server/port", 80.5)));
+        assertTrue(schema.checkConfigEntryValidity("name", text("name", "web")));
+        assertFalse(schema.checkConfigEntryValidity("name", text("name", "w")));
+        assertTrue(schema.checkConfigEntryValidity("server/tags", list("server/tags", List.of("a", "bcd"))));
+        assertFalse(schema.checkConfigEntryValidity("server/tags", list("server/tags", List.of("a", "bcde"))));
+        assertTrue(schema.checkConfigEntryValidity("other", text("other", "x")), "additional properties are allowed here");
+        }
+
+    @Test
+    public void testWholeDocumentInOnePass()
+        {
+        JsonSchemaConfigSchema schema = new JsonSchemaConfigSchema(SCHEMA);
+        Map<String, ConfigEntry> entries = new LinkedHashMap<>();
+        entries.put("name", text("name", "web"));
+        entries.put("server/port", number("server/port", 8080));
+        entries.put("server/tags", list("server/tags", List.of("a", "b")));
+        assertTrue(schema.checkConfigEntries(entries).isEmpty());
+
+        entries.put("server/port", number("server/port", 0));
+        entries.put("server/tags", list("server/tags", List.of("a", "toolong")));
+        entries.remove("name");
+        Set<String> invalid = schema.checkConfigEntries(entries);
+        assertEquals(Set.of("name", "server/port", "server/tags"), invalid);
+        }
+
+    private static ConfigEntry number(String key, Number value)
+        {
+        return new GenericConfigEntryLeaf(key, value, ConfigEntryType.NUMBER, null);
+        }
+
+    private static ConfigEntry text(String key, String value)
+        {
+        return new GenericConfigEntryLeaf(key, value, ConfigEntryType.STRING, null);
+        }
+
+    private static ConfigEntry list(String key, List<String> value)
+        {
+        return new GenericConfigEntryLeaf(key, value, ConfigEntryType.MULTIPLE_STRINGS, null);
+        }
+}
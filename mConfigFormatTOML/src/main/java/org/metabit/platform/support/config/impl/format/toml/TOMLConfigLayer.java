@@ -11,6 +11,7 @@ import org.metabit.platform.support.config.impl.ConfigFactorySettings;
 import org.metabit.platform.support.config.impl.ConfigLocationImpl;
 import org.metabit.platform.support.config.impl.entry.ConfigEntryMetadata;
 import org.metabit.platform.support.config.impl.entry.GenericConfigEntryLeaf;
+import org.metabit.platform.support.config.impl.util.SourcePatch;
 import org.metabit.platform.support.config.interfaces.ConfigLayerInterface;
 import org.metabit.platform.support.config.impl.format.toml.TomlModel.TomlArray;
 import org.metabit.platform.support.config.impl.format.toml.TomlModel.TomlArrayTable;
@@ -29,42 +30,106 @@ import java.time.LocalTime;
 import java.time.OffsetDateTime;
 import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 final class TOMLConfigLayer implements ConfigLayerInterface
 {
     private final TOMLFileFormat format;
     private final TomlTable      root;
     private final ConfigSource   source;
-    private final List<String>   globalHeaderComments;
+    private final ConfigEntryMetadata sharedMeta; // for all entries without comments
     private final boolean        writeable;
     private final boolean        writeCache;
     private final boolean        readCommentsFlag;
     private final boolean        writeCommentsFlag;
     private       int            writeChanges;
+    // guards the table tree, the pending changes, and the creation of entries.
+    private final Object         lock = new Object();
+    // leaf entries of a read-only layer, created on first access; read without locking. read-only.
+    private final Map<String, ConfigEntry> entries;
+    // with FILE_WRITE_PATCH: text as read, spans recorded in the tables. null: rewrite as a whole.
+    private       SourcePatch              sourcePatch;
+    // keys written since the last write, with the table holding them
+    private final Map<String, TomlTable>   changedKeys;
 
     TOMLConfigLayer(ConfigFactorySettings settings, ConfigLocation location, TOMLFileFormat format, TomlTable root, Path path)
+        {
+        this(settings, location, format, root, path, null);
+        }
+
+    /**
+     * @param sourcePatch text the root was parsed from, with value spans recorded; null if the file is to be rewritten as a whole.
+     */
+    TOMLConfigLayer(ConfigFactorySettings settings, ConfigLocation location, TOMLFileFormat format, TomlTable root, Path path, SourcePatch sourcePatch)
         {
         this.format = format;
         this.root = root;
         this.source = new ConfigLocationImpl(location, this, format, path);
-        this.globalHeaderComments = new ArrayList<>();
+        this.sharedMeta = ConfigEntryMetadata.shared(source);
         this.writeable = location.isWriteable();
         this.writeCache = !settings.getBoolean(ConfigFeature.WRITE_SYNC);
         this.readCommentsFlag = settings.getBoolean(ConfigFeature.COMMENTS_READING);
         this.writeCommentsFlag = settings.getBoolean(ConfigFeature.COMMENTS_WRITING);
         this.writeChanges = 0;
+        this.entries = new ConcurrentHashMap<>();
+        this.sourcePatch = sourcePatch;
+        this.changedKeys = new LinkedHashMap<>();
         }
 
+    /** @return comments not attached to an entry, as read; their strings are created on first access. not to be modified. */
     public List<String> getGlobalHeaderComments()
         {
-        return globalHeaderComments;
+        List<String> comments = root.getHeaderComments();
+        return (comments != null) ? comments : Collections.emptyList();
         }
 
+    /**
+     * entries of a read-only layer are cached, and read-only themselves.
+     * a writeable layer returns a new entry on each call, which may be changed and written back.
+     */
     @Override
     public ConfigEntry getEntry(String hierarchicalKey)
+        {
+        if (writeable)
+            {
+            return getEntryForWriting(hierarchicalKey);
+            }
+        ConfigEntry entry = entries.get(hierarchicalKey);
+        if (entry != null)
+            {
+            return entry;
+            }
+        synchronized (lock)
+            {
+            entry = entries.get(hierarchicalKey);
+            if (entry == null)
+                {
+                entry = materializeEntry(hierarchicalKey, false);
+                if (entry != null)
+                    {
+                    entries.put(hierarchicalKey, entry);
+                    }
+                }
+            return entry;
+            }
+        }
+
+    @Override
+    public ConfigEntry getEntryForWriting(String hierarchicalKey)
+        {
+        synchronized (lock)
+            {
+            return materializeEntry(hierarchicalKey, true);
+            }
+        }
+
+    // own: with metadata of its own, for an entry not to be cached. else read-only metadata.
+    private ConfigEntry materializeEntry(String hierarchicalKey, boolean own)
         {
         TomlValue value = resolveValue(hierarchicalKey);
         if (value == null)
@@ -72,10 +137,11 @@ final class TOMLConfigLayer implements ConfigLayerInterface
             return null;
             }
 
-        ConfigEntryMetadata meta = new ConfigEntryMetadata(source);
-        if (readCommentsFlag)
+        String comment = readCommentsFlag ? findComments(hierarchicalKey, value) : null;
+        ConfigEntryMetadata meta = (comment != null) ? sharedMeta.withComment(comment) : sharedMeta;
+        if (own)
             {
-            attachComments(hierarchicalKey, value, meta);
+            meta = meta.copy();
             }
 
         if (value instanceof TomlArray)
@@ -85,7 +151,7 @@ final class TOMLConfigLayer implements ConfigLayerInterface
                 {
                 return null;
                 }
-            return new GenericConfigEntryLeaf(hierarchicalKey, list, ConfigEntryType.MULTIPLE_STRINGS, meta);
+            return new GenericConfigEntryLeaf(hierarchicalKey, Collections.unmodifiableList(list), ConfigEntryType.MULTIPLE_STRINGS, meta);
             }
         if (value instanceof TomlScalar)
             {
@@ -94,7 +160,7 @@ final class TOMLConfigLayer implements ConfigLayerInterface
         return null;
         }
 
-    private void attachComments(String hierarchicalKey, TomlValue tomlValue, ConfigEntryMetadata meta)
+    private String findComments(String hierarchicalKey, TomlValue tomlValue)
         {
         String lastSegment;
         TomlTable table;
@@ -102,7 +168,7 @@ final class TOMLConfigLayer implements ConfigLayerInterface
             {
             // Root blob? Doesn't really apply to TOML structured keys, 
             // but just in case we are looking for root comments.
-            return;
+            return null;
             }
         
         int lastSlash = hierarchicalKey.lastIndexOf('/');
@@ -122,7 +188,7 @@ final class TOMLConfigLayer implements ConfigLayerInterface
                 }
             else
                 {
-                return;
+                return null;
                 }
             }
 
@@ -142,10 +208,7 @@ final class TOMLConfigLayer implements ConfigLayerInterface
                 }
             sb.append(inline);
             }
-        if (sb.length() > 0)
-            {
-            meta.setComment(sb.toString());
-            }
+        return (sb.length() > 0) ? sb.toString() : null;
         }
 
     @Override
@@ -173,79 +236,109 @@ final class TOMLConfigLayer implements ConfigLayerInterface
             {
             throw new ConfigCheckedException(ConfigCheckedException.ConfigExceptionReason.NOT_WRITEABLE);
             }
-        String[] segments = entryToWrite.getKey().split("/");
-        TomlTable table = root;
-        for (int i = 0; i < segments.length - 1; i++)
+        synchronized (lock)
             {
-            String segment = segments[i];
-            TomlValue existing = table.getValues().get(segment);
-            if (existing == null)
-                {
-                TomlTable next = new TomlTable(false);
-                table.getValues().put(segment, next);
-                table = next;
-                continue;
-                }
-            if (existing instanceof TomlTable && !((TomlTable) existing).isInline())
+            String[] segments = entryToWrite.getKey().split("/");
+            TomlTable table = root;
+            for (int i = 0; i < segments.length - 1; i++)
                 {
-                table = (TomlTable) existing;
-                continue;
+                String segment = segments[i];
+                TomlValue existing = table.getValues().get(segment);
+                if (existing == null)
+                    {
+                    TomlTable next = new TomlTable(false);
+                    table.getValues().put(segment, next);
+                    table = next;
+                    dropSourcePatch(); // new tables are not patched; rewrite as a whole from now on.
+                    continue;
+                    }
+                if (existing instanceof TomlTable && !((TomlTable) existing).isInline())
+                    {
+                    table = (TomlTable) existing;
+                    continue;
+                    }
+                throw new ConfigCheckedException(ConfigCheckedException.ConfigExceptionReason.INVALID_USE);
                 }
-            throw new ConfigCheckedException(ConfigCheckedException.ConfigExceptionReason.INVALID_USE);
-            }
-        String key = segments[segments.length - 1];
-        table.getValues().put(key, configEntryToTomlValue(entryToWrite));
-
-        if (writeCommentsFlag && entryToWrite.getComment() != null)
-            {
-            String comment = entryToWrite.getComment();
-            List<String> commentLines = new ArrayList<>();
-            // Merge logic: Existing comments first, then programmatic
-            List<String> existing = table.getLeadingComments(key);
-            if (existing != null && !readCommentsFlag)
+            String key = segments[segments.length - 1];
+            TomlValue previous = table.getValues().put(key, configEntryToTomlValue(entryToWrite));
+            if ((sourcePatch != null) && !changedKeys.containsKey(entryToWrite.getKey()))
                 {
-                commentLines.addAll(existing);
+                // a value in the text gets replaced, a new one needs a place to go to.
+                boolean patchable = (previous != null) ? (table.getValueSpan(key) != null) : (table.getInsertPosition() != null);
+                if (patchable)
+                    {
+                    changedKeys.put(entryToWrite.getKey(), table);
+                    }
+                else
+                    {
+                    dropSourcePatch();
+                    }
                 }
 
-            for (String line : comment.split("\n"))
+            if (writeCommentsFlag && entryToWrite.getComment() != null)
                 {
-                String formattedLine;
-                if (!line.startsWith("#"))
+                String comment = entryToWrite.getComment();
+                List<String> commentLines = new ArrayList<>();
+                // Merge logic: Existing comments first, then programmatic
+                List<String> existing = table.getLeadingComments(key);
+                if (existing != null && !readCommentsFlag)
                     {
-                    formattedLine = "# " + line;
+                    commentLines.addAll(existing);
                     }
-                else
+
+                for (String line : comment.split("\n"))
                     {
-                    formattedLine = line;
+                    String formattedLine;
+                    if (!line.startsWith("#"))
+                        {
+                        formattedLine = "# " + line;
+                        }
+                    else
+                        {
+                        formattedLine = line;
+                        }
+
+                    if (!commentLines.contains(formattedLine))
+                        {
+                        commentLines.add(formattedLine);
+                        }
                     }
-
-                if (!commentLines.contains(formattedLine))
+                if (!commentLines.equals(table.getLeadingComments(key)))
                     {
-                    commentLines.add(formattedLine);
+                    dropSourcePatch(); // comments are not patched; rewrite as a whole from now on.
                     }
+                table.setLeadingComments(key, commentLines);
                 }
-            table.setLeadingComments(key, commentLines);
-            }
 
-        writeChanges++;
-        if (!writeCache)
-            {
-            format.writeFile(this);
-            writeChanges = 0;
+            writeChanges++;
+            if (!writeCache)
+                {
+                format.writeChanges(this);
+                writeChanges = 0;
+                }
             }
         }
 
     @Override
     public int flush() throws ConfigCheckedException
         {
-        if (writeChanges > 0)
+        synchronized (lock)
             {
-            format.writeFile(this);
-            int tmp = writeChanges;
-            writeChanges = 0;
-            return tmp;
+            if (writeChanges > 0)
+                {
+                format.writeChanges(this);
+                int tmp = writeChanges;
+                writeChanges = 0;
+                return tmp;
+                }
+            return 0;
             }
-        return 0;
+        }
+
+    @Override
+    public int getPendingWriteCount()
+        {
+        return writeChanges;
         }
 
     @Override
@@ -264,7 +357,10 @@ final class TOMLConfigLayer implements ConfigLayerInterface
     public Iterator<String> tryToGetKeyIterator()
         {
         List<String> keys = new ArrayList<>();
-        collectKeys(root, "", keys);
+        synchronized (lock)
+            {
+            collectKeys(root, "", keys);
+            }
         return keys.iterator();
         }
 
@@ -273,6 +369,27 @@ final class TOMLConfigLayer implements ConfigLayerInterface
         return root;
         }
 
+    /** @return the text as read and written so far; null if the file is to be rewritten as a whole. */
+    SourcePatch getSourcePatch()
+        {
+        return sourcePatch;
+        }
+
+    /** @return keys written since the previous call, with the tables holding them. */
+    Map<String, TomlTable> takeChangedKeys()
+        {
+        Map<String, TomlTable> keys = new LinkedHashMap<>(changedKeys);
+        changedKeys.clear();
+        return keys;
+        }
+
+    /** rewrite as a whole from now on, e.g. after a failed patch write. */
+    void dropSourcePatch()
+        {
+        sourcePatch = null;
+        changedKeys.clear();
+        }
+
     private TomlValue resolveValue(String keyPath)
         {
         String[] segments = keyPath.split("/");
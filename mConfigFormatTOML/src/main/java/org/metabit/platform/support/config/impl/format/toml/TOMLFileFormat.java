@@ -1,9 +1,15 @@
 package org.metabit.platform.support.config.impl.format.toml;
 
 import org.metabit.platform.support.config.ConfigCheckedException;
+import org.metabit.platform.support.config.ConfigFeature;
 import org.metabit.platform.support.config.ConfigLocation;
+import org.metabit.platform.support.config.impl.ConfigFactoryInstanceContext;
 import org.metabit.platform.support.config.impl.ConfigFactorySettings;
 import org.metabit.platform.support.config.impl.format.toml.TomlParser.TomlParseException;
+import org.metabit.platform.support.config.impl.util.AtomicFileWriter;
+import org.metabit.platform.support.config.impl.util.ConfigIOUtil;
+import org.metabit.platform.support.config.impl.util.SourcePatch;
+import org.metabit.platform.support.config.impl.util.StringPool;
 import org.metabit.platform.support.config.interfaces.ConfigFileFormatInterface;
 import org.metabit.platform.support.config.interfaces.ConfigLayerInterface;
 import org.metabit.platform.support.config.interfaces.ConfigLoggingInterface;
@@ -11,15 +17,18 @@ import org.metabit.platform.support.config.interfaces.ConfigLoggingInterface;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.Map;
 
 public class TOMLFileFormat implements ConfigFileFormatInterface
 {
     private ConfigLoggingInterface logger;
     private ConfigFactorySettings settings;
+    private StringPool strings = StringPool.NONE;
 
     @Override
     public String getFormatID()
@@ -35,6 +44,12 @@ public class TOMLFileFormat implements ConfigFileFormatInterface
         return true;
         }
 
+    @Override
+    public void initialize(ConfigFactoryInstanceContext ctx)
+        {
+        this.strings = ctx.getStringPool();
+        }
+
     @Override
     public List<String> getFilenameExtensions()
         {
@@ -47,15 +62,11 @@ public class TOMLFileFormat implements ConfigFileFormatInterface
         try
             {
             String content = Files.readString(file.toPath(), StandardCharsets.UTF_8);
-            TomlParser parser = new TomlParser(content);
+            SourcePatch patch = isPatchable(location) ? new SourcePatch(content) : null;
+            TomlParser parser = new TomlParser(content, strings, patch, readsComments());
             TomlModel.TomlTable root = parser.parse();
-            
-            TOMLConfigLayer layer = new TOMLConfigLayer(settings, location, this, root, file.toPath());
-            if (root.getHeaderComments() != null)
-                {
-                layer.getGlobalHeaderComments().addAll(root.getHeaderComments());
-                }
-            return layer;
+
+            return new TOMLConfigLayer(settings, location, this, root, file.toPath(), patch);
             }
         catch (TomlParseException e)
             {
@@ -78,14 +89,9 @@ public class TOMLFileFormat implements ConfigFileFormatInterface
         try
             {
             byte[] data = inputStream.readAllBytes();
-            TomlParser parser = new TomlParser(new String(data, StandardCharsets.UTF_8));
+            TomlParser parser = new TomlParser(ConfigIOUtil.decode(ByteBuffer.wrap(data), StandardCharsets.UTF_8), strings, null, readsComments());
             TomlModel.TomlTable root = parser.parse();
-            TOMLConfigLayer layer = new TOMLConfigLayer(settings, location, this, root, null);
-            if (root.getHeaderComments() != null)
-                {
-                layer.getGlobalHeaderComments().addAll(root.getHeaderComments());
-                }
-            return layer;
+            return new TOMLConfigLayer(settings, location, this, root, null);
             }
         catch (TomlParseException e)
             {
@@ -102,6 +108,48 @@ public class TOMLFileFormat implements ConfigFileFormatInterface
         return null;
         }
 
+    @Override
+    public boolean readsBuffers()
+        {
+        return true;
+        }
+
+    @Override
+    public ConfigLayerInterface readBuffer(ByteBuffer buffer, ConfigLocation location)
+        {
+        return readBuffer(buffer, location, null);
+        }
+
+    /**
+     * parse directly from the decoded buffer content; no intermediate String of the whole file is created.
+     */
+    @Override
+    public ConfigLayerInterface readBuffer(ByteBuffer buffer, ConfigLocation location, Path sourceFile)
+        {
+        try
+            {
+            CharSequence content = ConfigIOUtil.decode(buffer, StandardCharsets.UTF_8);
+            // patching needs the text as read; only then it's turned into a String.
+            SourcePatch patch = ((sourceFile != null) && isPatchable(location)) ? new SourcePatch(content.toString()) : null;
+            TomlParser parser = new TomlParser(content, strings, patch, readsComments());
+            TomlModel.TomlTable root = parser.parse();
+            return new TOMLConfigLayer(settings, location, this, root, sourceFile, patch);
+            }
+        catch (TomlParseException e)
+            {
+            logger.warn("TOML parsing failed"+((sourceFile != null) ? " at "+sourceFile.toAbsolutePath() : "")+": "+e.getMessage());
+            }
+        catch (IOException e)
+            {
+            logger.warn("IOException when decoding TOML buffer");
+            }
+        catch (Exception e)
+            {
+            logger.error(e.getMessage(), e);
+            }
+        return null;
+        }
+
     @Override
     public ConfigLayerInterface createFile(Path fileWithPath, ConfigLocation location)
         {
@@ -124,6 +172,63 @@ public class TOMLFileFormat implements ConfigFileFormatInterface
             }
         }
 
+    private boolean isPatchable(ConfigLocation location)
+        {
+        return (settings != null) && settings.getBoolean(ConfigFeature.FILE_WRITE_PATCH) && location.isWriteable();
+        }
+
+    private boolean readsComments()
+        {
+        return (settings != null) && settings.getBoolean(ConfigFeature.COMMENTS_READING);
+        }
+
+    /**
+     * write changes of a layer read from file. Values are patched into the text as read, keeping
+     * its layout; if that is not possible, the file is rewritten as a whole.
+     */
+    void writeChanges(TOMLConfigLayer layer) throws ConfigCheckedException
+        {
+        Map<String, TomlModel.TomlTable> changed = layer.takeChangedKeys();
+        SourcePatch patch = layer.getSourcePatch();
+        Object handle = layer.getSource().getStorageInstanceHandle();
+        if ((patch == null) || !(handle instanceof Path))
+            {
+            writeFile(layer);
+            return;
+            }
+        TomlWriter writer = new TomlWriter();
+        for (Map.Entry<String, TomlModel.TomlTable> entry : changed.entrySet())
+            {
+            String fullKey = entry.getKey();
+            String key = fullKey.substring(fullKey.lastIndexOf('/')+1);
+            TomlModel.TomlTable table = entry.getValue();
+            String value = writer.formatValue(table.getValues().get(key));
+            SourcePatch.Span span = table.getValueSpan(key);
+            if (span != null)
+                {
+                patch.replace(span, value);
+                }
+            else
+                {
+                table.setValueSpan(key, patch.insertLine(table.getInsertPosition(), writer.formatKey(key)+" = ", value, ""));
+                }
+            }
+        String previous = patch.getText();
+        String content = patch.apply();
+        try
+            {
+            new AtomicFileWriter(settings).writeChanged((Path) handle, StandardCharsets.UTF_8, previous, content);
+            }
+        catch (IOException e)
+            {
+            layer.dropSourcePatch(); // text and file may differ now
+            throw new ConfigCheckedException(e);
+            }
+        }
+
+    /**
+     * write the layer as a whole, in canonical layout.
+     */
     @Override
     public void writeFile(ConfigLayerInterface layer) throws ConfigCheckedException
         {
@@ -132,6 +237,7 @@ public class TOMLFileFormat implements ConfigFileFormatInterface
             throw new ConfigCheckedException(ConfigCheckedException.ConfigExceptionReason.INVALID_USE);
             }
         TOMLConfigLayer tomlLayer = (TOMLConfigLayer) layer;
+        tomlLayer.dropSourcePatch();
         Object handle = tomlLayer.getSource().getStorageInstanceHandle();
         if (!(handle instanceof Path))
             {
@@ -142,7 +248,7 @@ public class TOMLFileFormat implements ConfigFileFormatInterface
             {
             TomlWriter writer = new TomlWriter();
             String content = writer.write(tomlLayer.getRoot());
-            Files.writeString(path, content, StandardCharsets.UTF_8);
+            new AtomicFileWriter(settings).write(path, StandardCharsets.UTF_8, out->out.write(content));
             }
         catch (IOException e)
             {
@@ -1,6 +1,9 @@
 package org.metabit.platform.support.config.impl.format.toml;
 
+import org.metabit.platform.support.config.impl.util.SourcePatch;
+
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -112,9 +115,9 @@ final class TomlModel
     {
         private final TomlValue value;
         private final List<String> leadingComments;
-        private final String inlineComment;
+        private final CharSequence inlineComment;
 
-        TomlArrayItem(TomlValue value, List<String> leadingComments, String inlineComment)
+        TomlArrayItem(TomlValue value, List<String> leadingComments, CharSequence inlineComment)
             {
             this.value = value;
             this.leadingComments = leadingComments;
@@ -133,7 +136,7 @@ final class TomlModel
 
         String getInlineComment()
             {
-            return inlineComment;
+            return (inlineComment == null) ? null : inlineComment.toString();
             }
 
         boolean hasComments()
@@ -162,11 +165,15 @@ final class TomlModel
     {
         private final Map<String, TomlValue> values = new LinkedHashMap<>();
         private final Map<String, List<String>> leadingComments = new LinkedHashMap<>();
-        private final Map<String, String> inlineComments = new LinkedHashMap<>();
+        // comments may be kept as offsets into the source text; strings are created on access.
+        private final Map<String, CharSequence> inlineComments = new LinkedHashMap<>();
         private List<String> headerComments = new ArrayList<>();
-        private String headerInlineComment;
+        private CharSequence headerInlineComment;
         private boolean explicit;
         private final boolean inline;
+        // source positions, only recorded for files which may be written back as patch
+        private Map<String, SourcePatch.Span> valueSpans;
+        private SourcePatch.Span insertPosition;
 
         TomlTable(boolean inline)
             {
@@ -214,10 +221,11 @@ final class TomlModel
 
         String getInlineComment(String key)
             {
-            return inlineComments.get(key);
+            CharSequence comment = inlineComments.get(key);
+            return (comment == null) ? null : comment.toString();
             }
 
-        void setInlineComment(String key, String comment)
+        void setInlineComment(String key, CharSequence comment)
             {
             if (comment != null)
                 {
@@ -240,12 +248,37 @@ final class TomlModel
 
         String getHeaderInlineComment()
             {
-            return headerInlineComment;
+            return (headerInlineComment == null) ? null : headerInlineComment.toString();
             }
 
-        void setHeaderInlineComment(String comment)
+        void setHeaderInlineComment(CharSequence comment)
             {
             this.headerInlineComment = comment;
             }
+
+        SourcePatch.Span getValueSpan(String key)
+            {
+            return (valueSpans == null) ? null : valueSpans.get(key);
+            }
+
+        void setValueSpan(String key, SourcePatch.Span span)
+            {
+            if (valueSpans == null)
+                {
+                valueSpans = new HashMap<>();
+                }
+            valueSpans.put(key, span);
+            }
+
+        /** @return where to insert lines for new keys of this table; null if not known, e.g. for tables defined by dotted keys. */
+        SourcePatch.Span getInsertPosition()
+            {
+            return insertPosition;
+            }
+
+        void setInsertPosition(SourcePatch.Span position)
+            {
+            this.insertPosition = position;
+            }
     }
 }
@@ -7,25 +7,59 @@ import org.metabit.platform.support.config.impl.format.toml.TomlModel.TomlScalar
 import org.metabit.platform.support.config.impl.format.toml.TomlModel.TomlTable;
 import org.metabit.platform.support.config.impl.format.toml.TomlModel.TomlType;
 import org.metabit.platform.support.config.impl.format.toml.TomlModel.TomlValue;
+import org.metabit.platform.support.config.impl.util.SourceComments;
+import org.metabit.platform.support.config.impl.util.SourcePatch;
+import org.metabit.platform.support.config.impl.util.StringPool;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.CharBuffer;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.OffsetDateTime;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 
 final class TomlParser
 {
     private final TomlCharStream stream;
+    private final StringPool     strings;
+    private final SourcePatch    patch; // records value spans and insert positions if set
+    private final SourceComments comments; // kept as offsets into the content
 
-    TomlParser(String content)
+    TomlParser(CharSequence content)
         {
-        this.stream = new TomlCharStream(content);
+        this(content, StringPool.NONE);
+        }
+
+    /**
+     * @param content TOML text
+     * @param strings pool for keys and short string values, shared beyond this parse
+     */
+    TomlParser(CharSequence content, StringPool strings)
+        {
+        this(content, strings, null, false);
+        }
+
+    /**
+     * @param content      TOML text
+     * @param strings      pool for keys and short string values, shared beyond this parse
+     * @param patch        source text of the content, to record the value spans in, for writing changes back as patch; may be null.
+     * @param readComments true if comments are read; they are then created from the text when asked for.
+     *                     Otherwise they are created while parsing, and the text is not kept for them, unless the patch holds it anyway.
+     */
+    TomlParser(CharSequence content, StringPool strings, SourcePatch patch, boolean readComments)
+        {
+        this.stream = new TomlCharStream(content, strings);
+        this.strings = strings;
+        this.patch = patch;
+        String text = (patch != null) ? patch.getText() : content.toString();
+        this.comments = new SourceComments(text, SourceComments.commentLines("#", false), readComments || (patch != null));
         }
 
     TomlTable parse()
@@ -34,6 +68,9 @@ final class TomlParser
         TomlTable root = new TomlTable(false);
         TomlTable currentTable = root;
         boolean firstKeyFound = false;
+        boolean headersFound = false;
+        // per table with header (and root): behind the header, or behind its last key/value line
+        Map<TomlTable, Integer> insertOffsets = new IdentityHashMap<>();
 
         while (true)
             {
@@ -73,6 +110,8 @@ final class TomlParser
                 {
                 currentTable = parseTableHeader(root, leadingComments);
                 firstKeyFound = true;
+                headersFound = true;
+                insertOffsets.put(currentTable, stream.offset());
                 continue;
                 }
 
@@ -80,31 +119,44 @@ final class TomlParser
             stream.skipWhitespace();
             stream.expect('=');
             stream.skipWhitespace();
+            int valueStart = stream.offset();
             TomlValue value = parseValue();
+            int valueEnd = stream.offset();
             stream.skipWhitespace();
-            String inlineComment = null;
+            CharSequence inlineComment = null;
             if (stream.peek() == '#')
                 {
-                inlineComment = stream.readCommentText();
+                inlineComment = readInlineComment();
                 }
             stream.skipLineEnd();
 
             firstKeyFound = true;
-            assignValue(currentTable, keyPath, value, leadingComments, inlineComment);
+            TomlTable table = assignValue(currentTable, keyPath, value, leadingComments, inlineComment);
+            if (patch != null)
+                {
+                table.setValueSpan(keyPath.get(keyPath.size() - 1), patch.track(valueStart, valueEnd));
+                insertOffsets.put(currentTable, stream.offset());
+                }
             }
 
+        if (patch != null)
+            {
+            for (Map.Entry<TomlTable, Integer> offset : insertOffsets.entrySet())
+                {
+                offset.getKey().setInsertPosition(patch.track(offset.getValue(), offset.getValue()));
+                }
+            if (!headersFound && (root.getInsertPosition() == null))
+                {
+                int end = patch.getText().length();
+                root.setInsertPosition(patch.track(end, end)); // only comments, or empty
+                }
+            }
         return root;
         }
 
     private List<String> mergeComments(List<String> existing, List<String> additional)
         {
-        if (additional == null || additional.isEmpty())
-            {
-            return existing;
-            }
-        List<String> result = (existing == null) ? new ArrayList<>() : new ArrayList<>(existing);
-        result.addAll(additional);
-        return result;
+        return SourceComments.join(existing, additional);
         }
 
     private TomlTable parseTableHeader(TomlTable root, List<String> leadingComments)
@@ -133,10 +185,10 @@ final class TomlParser
             }
 
         stream.skipWhitespace();
-        String inlineComment = null;
+        CharSequence inlineComment = null;
         if (stream.peek() == '#')
             {
-            inlineComment = stream.readCommentText();
+            inlineComment = readInlineComment();
             }
         stream.skipLineEnd();
 
@@ -234,23 +286,12 @@ final class TomlParser
     private String parseBareKey()
             throws TomlParseException
         {
-        StringBuilder sb = new StringBuilder();
-        while (!stream.eof())
-            {
-            char ch = stream.peek();
-            if (Character.isLetterOrDigit(ch) || ch == '_' || ch == '-')
-                {
-                sb.append(ch);
-                stream.next();
-                continue;
-                }
-            break;
-            }
-        if (sb.length() == 0)
+        String key = stream.scanBareKey();
+        if (key.isEmpty())
             {
             throw stream.error("invalid key", stream.getLine(), stream.getColumn());
             }
-        return sb.toString();
+        return key;
         }
 
     private TomlValue parseValue()
@@ -259,7 +300,7 @@ final class TomlParser
         char ch = stream.peek();
         if (ch == '"' || ch == '\'')
             {
-            String value = parseString();
+            String value = strings.intern(parseString());
             return new TomlScalar(TomlType.STRING, value);
             }
         if (ch == '[')
@@ -345,11 +386,11 @@ final class TomlParser
                 throw stream.error("array elements must be of the same type", stream.getLine(), stream.getColumn());
                 }
             stream.skipWhitespace();
-            String inlineComment = null;
+            CharSequence inlineComment = null;
             char ch = stream.peek();
             if (ch == '#')
                 {
-                inlineComment = stream.readCommentText();
+                inlineComment = readInlineComment();
                 stream.skipLineEnd();
                 }
             items.add(new TomlArrayItem(value, copyComments(leadingComments), inlineComment));
@@ -435,7 +476,16 @@ final class TomlParser
             throw stream.error("unterminated multiline basic string", stream.getLine(), stream.getColumn());
             }
 
-        StringBuilder sb = new StringBuilder();
+        // most strings have no escapes; those are sliced from the buffer in one go.
+        int start = stream.position();
+        int stop = stream.scanPlain('"', true);
+        if (stream.peek() == '"')
+            {
+            stream.next();
+            return stream.slice(start, stop);
+            }
+        StringBuilder sb = new StringBuilder(stop - start + 16);
+        stream.appendTo(sb, start, stop);
         while (!stream.eof())
             {
             char ch = stream.next();
@@ -580,38 +630,24 @@ final class TomlParser
             throw stream.error("unterminated multiline literal string", stream.getLine(), stream.getColumn());
             }
 
-        StringBuilder sb = new StringBuilder();
-        while (!stream.eof())
+        int start = stream.position();
+        int stop = stream.scanPlain('\'', false);
+        if (stream.peek() == '\'')
             {
-            char ch = stream.next();
-            if (ch == '\'')
-                {
-                return sb.toString();
-                }
-            if (ch == '\n' || ch == '\r')
-                {
-                throw stream.error("newline in literal string", stream.getLine(), stream.getColumn());
-                }
-            sb.append(ch);
+            stream.next();
+            return stream.slice(start, stop);
+            }
+        if (!stream.eof())
+            {
+            stream.next();
+            throw stream.error("newline in literal string", stream.getLine(), stream.getColumn());
             }
         throw stream.error("unterminated literal string", stream.getLine(), stream.getColumn());
         }
 
     private String parseToken()
-            throws TomlParseException
         {
-        StringBuilder sb = new StringBuilder();
-        while (!stream.eof())
-            {
-            char ch = stream.peek();
-            if (ch == ' ' || ch == '\t' || ch == '\n' || ch == '\r' || ch == ',' || ch == ']' || ch == '}' || ch == '#')
-                {
-                break;
-                }
-            sb.append(ch);
-            stream.next();
-            }
-        return sb.toString();
+        return stream.scanToken();
         }
 
     private TomlValue parseTokenValue(String token)
@@ -626,6 +662,12 @@ final class TomlParser
             return new TomlScalar(TomlType.BOOLEAN, Boolean.FALSE);
             }
 
+        TomlValue plainInteger = tryParsePlainInteger(token);
+        if (plainInteger != null)
+            {
+            return plainInteger;
+            }
+
         TomlValue dateTimeValue = tryParseDateTime(token);
         if (dateTimeValue != null)
             {
@@ -641,6 +683,33 @@ final class TomlParser
         throw stream.error("invalid value: " + token, stream.getLine(), stream.getColumn());
         }
 
+    // the common case: short decimal integers without underscores. Skips the date attempts and regular expressions.
+    private static TomlValue tryParsePlainInteger(String token)
+        {
+        int length = token.length();
+        int start = (length > 0 && (token.charAt(0) == '-' || token.charAt(0) == '+')) ? 1 : 0;
+        int digits = length - start;
+        if (digits < 1 || digits > 18 || (digits > 1 && token.charAt(start) == '0'))
+            {
+            return null;
+            }
+        long value = 0;
+        for (int i = start; i < length; i++)
+            {
+            char ch = token.charAt(i);
+            if (ch < '0' || ch > '9')
+                {
+                return null;
+                }
+            value = value * 10 + (ch - '0');
+            }
+        if (token.charAt(0) == '-')
+            {
+            value = -value;
+            }
+        return new TomlScalar(TomlType.INTEGER, BigInteger.valueOf(value));
+        }
+
     private TomlValue tryParseDateTime(String token)
         {
         String value = token;
@@ -785,8 +854,9 @@ final class TomlParser
         return null;
         }
 
-    private void assignValue(TomlTable currentTable, List<String> keyPath, TomlValue value,
-            List<String> leadingComments, String inlineComment)
+    // returns the table the value was put into
+    private TomlTable assignValue(TomlTable currentTable, List<String> keyPath, TomlValue value,
+            List<String> leadingComments, CharSequence inlineComment)
             throws TomlParseException
         {
         TomlTable table = currentTable;
@@ -803,6 +873,7 @@ final class TomlParser
         table.getValues().put(last, value);
         table.setLeadingComments(last, copyComments(leadingComments));
         table.setInlineComment(last, inlineComment);
+        return table;
         }
 
     private void assignInlineValue(TomlTable inlineTable, List<String> keyPath, TomlValue value)
@@ -918,34 +989,59 @@ final class TomlParser
     private List<String> readLeadingComments()
             throws TomlParseException
         {
-        List<String> comments = new ArrayList<>();
+        int start = -1;
+        int end = -1;
         while (!stream.eof())
             {
             stream.skipWhitespace();
             if (stream.peek() == '#')
                 {
-                comments.add(stream.readCommentText());
+                if (start < 0)
+                    {
+                    start = stream.offset();
+                    }
+                stream.skipCommentText();
+                end = stream.offset();
                 stream.skipLineEnd();
                 continue;
                 }
             break;
             }
-        return comments;
+        return commentBlock(start, end);
+        }
+
+    // the comment lines in [start, end), created when accessed; empty if none.
+    private List<String> commentBlock(int start, int end)
+        {
+        if (start < 0)
+            {
+            return Collections.emptyList();
+            }
+        return comments.lines(SourceComments.range(start, end));
+        }
+
+    private CharSequence readInlineComment()
+        {
+        int start = stream.offset();
+        stream.skipCommentText();
+        return comments.text(start, stream.offset());
         }
 
+    // comment lists are not modified after parsing; no copy needed.
     private List<String> copyComments(List<String> comments)
         {
         if (comments == null || comments.isEmpty())
             {
             return null;
             }
-        return new ArrayList<>(comments);
+        return comments;
         }
 
     private List<String> readArrayItemLeadingComments()
             throws TomlParseException
         {
-        List<String> comments = new ArrayList<>();
+        int start = -1;
+        int end = -1;
         boolean progress = true;
         while (progress && !stream.eof())
             {
@@ -953,7 +1049,12 @@ final class TomlParser
             stream.skipWhitespace();
             if (stream.peek() == '#')
                 {
-                comments.add(stream.readCommentText());
+                if (start < 0)
+                    {
+                    start = stream.offset();
+                    }
+                stream.skipCommentText();
+                end = stream.offset();
                 stream.skipLineEnd();
                 progress = true;
                 continue;
@@ -965,7 +1066,7 @@ final class TomlParser
                 continue;
                 }
             }
-        return comments;
+        return commentBlock(start, end);
         }
 
     static final class TomlParseException extends Exception
@@ -991,62 +1092,84 @@ final class TomlParser
             }
     }
 
+    /**
+     * index-based scanner over a char array.
+     * <p>
+     * Line and column are not tracked while scanning; they are computed from the position when needed, i.e. for errors.
+     * Strings are only created for complete tokens, as slices of the buffer; bare keys are interned per parse,
+     * so keys repeated across tables share one String; new ones go through the factory's string pool.
+     */
     static final class TomlCharStream
     {
-        private final String content;
-        private int index;
-        private int line;
-        private int column;
+        private static final int INITIAL_KEY_SLOTS = 64;
+
+        private final char[]   buffer;
+        private final int      begin;
+        private final int      end;
+        private int            index;
+        private String[]       keys;
+        private int            keyCount;
+        private final StringPool strings;
 
-        TomlCharStream(String content)
+        TomlCharStream(CharSequence content)
             {
-            this.content = content == null ? "" : content;
-            this.index = 0;
-            this.line = 1;
-            this.column = 1;
+            this(content, StringPool.NONE);
+            }
+
+        TomlCharStream(CharSequence content, StringPool strings)
+            {
+            this.strings = strings;
+            if (content == null)
+                {
+                content = "";
+                }
+            if (content instanceof CharBuffer && ((CharBuffer) content).hasArray())
+                {
+                CharBuffer chars = (CharBuffer) content; // decoded file contents; scan the backing array in place
+                this.buffer = chars.array();
+                this.begin = chars.arrayOffset()+chars.position();
+                this.end = chars.arrayOffset()+chars.limit();
+                }
+            else
+                {
+                this.buffer = content.toString().toCharArray();
+                this.begin = 0;
+                this.end = buffer.length;
+                }
+            this.index = begin;
+            this.keys = new String[INITIAL_KEY_SLOTS];
+            }
+
+        /** @return offset of the current position in the content; unlike position(), not in the buffer. */
+        int offset()
+            {
+            return index - begin;
             }
 
         boolean eof()
             {
-            return index >= content.length();
+            return index >= end;
             }
 
         char peek()
             {
-            if (eof())
-                {
-                return '\0';
-                }
-            return content.charAt(index);
+            return (index < end) ? buffer[index] : '\0';
             }
 
         char peek(int offset)
             {
             int pos = index + offset;
-            if (pos >= content.length())
-                {
-                return '\0';
-                }
-            return content.charAt(pos);
+            return (pos < end) ? buffer[pos] : '\0';
             }
 
         char next()
             {
-            if (eof())
-                {
-                return '\0';
-                }
-            char ch = content.charAt(index++);
-            if (ch == '\n')
-                {
-                line++;
-                column = 1;
-                }
-            else
-                {
-                column++;
-                }
-            return ch;
+            return (index < end) ? buffer[index++] : '\0';
+            }
+
+        int position()
+            {
+            return index;
             }
 
         void expect(char expected)
@@ -1055,21 +1178,20 @@ final class TomlParser
             char ch = next();
             if (ch != expected)
                 {
-                throw error("expected '" + expected + "', got '" + ch + "'", line, column);
+                throw error("expected '" + expected + "', got '" + ch + "'", getLine(), getColumn());
                 }
             }
 
         void skipWhitespace()
             {
-            while (!eof())
+            while (index < end)
                 {
-                char ch = peek();
-                if (ch == ' ' || ch == '\t')
+                char ch = buffer[index];
+                if (ch != ' ' && ch != '\t')
                     {
-                    next();
-                    continue;
+                    break;
                     }
-                break;
+                index++;
                 }
             }
 
@@ -1079,12 +1201,12 @@ final class TomlParser
             while (progress)
                 {
                 progress = false;
-                while (!eof())
+                while (index < end)
                     {
-                    char ch = peek();
+                    char ch = buffer[index];
                     if (ch == ' ' || ch == '\t' || ch == '\n' || ch == '\r')
                         {
-                        next();
+                        index++;
                         progress = true;
                         continue;
                         }
@@ -1100,56 +1222,208 @@ final class TomlParser
 
         void skipComment()
             {
-            while (!eof())
+            while (index < end)
                 {
-                char ch = next();
-                if (ch == '\n')
+                if (buffer[index++] == '\n')
                     {
                     break;
                     }
                 }
             }
 
-        String readCommentText()
+        // to the end of the line; the comment text itself is taken from the source if needed.
+        void skipCommentText()
             {
-            StringBuilder sb = new StringBuilder();
-            while (!eof())
+            while (index < end)
                 {
-                char ch = peek();
+                char ch = buffer[index];
                 if (ch == '\n' || ch == '\r')
                     {
                     break;
                     }
-                sb.append(next());
+                index++;
                 }
-            return sb.toString();
             }
 
         void skipLineEnd()
             {
             if (peek() == '\r')
                 {
-                next();
+                index++;
                 if (peek() == '\n')
                     {
-                    next();
+                    index++;
                     }
                 return;
                 }
             if (peek() == '\n')
                 {
-                next();
+                index++;
+                }
+            }
+
+        /**
+         * scan a bare key.
+         *
+         * @return the key, interned; empty if there is no bare key at the current position.
+         */
+        String scanBareKey()
+            {
+            int start = index;
+            while (index < end)
+                {
+                char ch = buffer[index];
+                if ((ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z') || (ch >= '0' && ch <= '9') || ch == '_' || ch == '-'
+                        || (ch > 0x7F && Character.isLetterOrDigit(ch)))
+                    {
+                    index++;
+                    continue;
+                    }
+                break;
+                }
+            return intern(start, index);
+            }
+
+        /**
+         * scan an unquoted value token, up to the next delimiter.
+         *
+         * @return the token; empty if there is none.
+         */
+        String scanToken()
+            {
+            int start = index;
+            while (index < end)
+                {
+                char ch = buffer[index];
+                if (ch == ' ' || ch == '\t' || ch == '\n' || ch == '\r' || ch == ',' || ch == ']' || ch == '}' || ch == '#')
+                    {
+                    break;
+                    }
+                index++;
+                }
+            return new String(buffer, start, index - start);
+            }
+
+        /**
+         * skip characters which need no processing inside a single-line string.
+         * Stops at the closing quote, at a backslash (if escapes apply), at a line break, or at the end.
+         *
+         * @param quote   the closing quote
+         * @param escapes whether backslashes start escape sequences
+         * @return the position reached
+         */
+        int scanPlain(char quote, boolean escapes)
+            {
+            while (index < end)
+                {
+                char ch = buffer[index];
+                if (ch == quote || ch == '\n' || ch == '\r' || (escapes && ch == '\\'))
+                    {
+                    break;
+                    }
+                index++;
+                }
+            return index;
+            }
+
+        String slice(int from, int to)
+            {
+            return new String(buffer, from, to - from);
+            }
+
+        void appendTo(StringBuilder sb, int from, int to)
+            {
+            sb.append(buffer, from, to - from);
+            }
+
+        /**
+         * get a String for a buffer range, re-using one created before for the same characters.
+         */
+        String intern(int from, int to)
+            {
+            int length = to - from;
+            if (length == 0)
+                {
+                return "";
+                }
+            int hash = 0;
+            for (int i = from; i < to; i++)
+                {
+                hash = 31 * hash + buffer[i];
+                }
+            int mask = keys.length - 1;
+            int slot = (hash ^ (hash >>> 16)) & mask;
+            String key;
+            while ((key = keys[slot]) != null)
+                {
+                if (key.hashCode() == hash && key.length() == length && matches(key, from))
+                    {
+                    return key;
+                    }
+                slot = (slot + 1) & mask;
+                }
+            key = strings.intern(new String(buffer, from, length));
+            keys[slot] = key;
+            if (++keyCount * 2 > keys.length)
+                {
+                rehashKeys();
+                }
+            return key;
+            }
+
+        private boolean matches(String key, int from)
+            {
+            for (int i = 0; i < key.length(); i++)
+                {
+                if (key.charAt(i) != buffer[from + i])
+                    {
+                    return false;
+                    }
+                }
+            return true;
+            }
+
+        private void rehashKeys()
+            {
+            String[] old = keys;
+            keys = new String[old.length * 2];
+            int mask = keys.length - 1;
+            for (String key : old)
+                {
+                if (key != null)
+                    {
+                    int hash = key.hashCode();
+                    int slot = (hash ^ (hash >>> 16)) & mask;
+                    while (keys[slot] != null)
+                        {
+                        slot = (slot + 1) & mask;
+                        }
+                    keys[slot] = key;
+                    }
                 }
             }
 
         int getLine()
             {
+            int line = 1;
+            for (int i = begin; i < index; i++)
+                {
+                if (buffer[i] == '\n')
+                    {
+                    line++;
+                    }
+                }
             return line;
             }
 
         int getColumn()
             {
-            return column;
+            int i = index;
+            while (i > begin && buffer[i - 1] != '\n')
+                {
+                i--;
+                }
+            return index - i + 1;
             }
 
         TomlParseException error(String message, int line, int column)
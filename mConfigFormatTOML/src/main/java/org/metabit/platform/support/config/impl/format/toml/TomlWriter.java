@@ -144,7 +144,7 @@ final class TomlWriter
         out.append('\n');
         }
 
-    private String formatKey(String key)
+    String formatKey(String key)
         {
         if (key.matches("[A-Za-z0-9_-]+"))
             {
@@ -153,7 +153,7 @@ final class TomlWriter
         return "\"" + escapeString(key) + "\"";
         }
 
-    private String formatValue(TomlValue value)
+    String formatValue(TomlValue value)
         {
         if (value instanceof TomlScalar)
             {
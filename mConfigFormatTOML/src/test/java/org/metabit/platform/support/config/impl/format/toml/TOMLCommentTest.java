@@ -69,6 +69,72 @@ public class TOMLCommentTest
         assertTrue(content.contains("key = \"value\""));
         }
 
+    @Test
+    public void testEntriesOfReadOnlyLayersAreMemoized() throws Exception
+        {
+        ConfigFactorySettings settings = new ConfigFactorySettings();
+        settings.setBoolean(ConfigFeature.COMMENTS_READING, true);
+        ConfigLocation location = new ConfigLocationImpl(ConfigScope.SESSION, new TestStorage(false), null, null);
+        TOMLFileFormat format = new TOMLFileFormat();
+        format.testComponent(settings, NullLogging.getSingletonInstance());
+
+        Path tempFile = tempDir.resolve("memo.toml");
+        Files.writeString(tempFile, "# about key\nkey = \"value\"\nports = [1, 2]\n");
+        TOMLConfigLayer layer = (TOMLConfigLayer) format.readFile(tempFile.toFile(), location);
+
+        ConfigEntry first = layer.getEntry("key");
+        assertSame(first, layer.getEntry("key"));
+        assertEquals("# about key", first.getComment());
+        assertSame(layer.getEntry("ports"), layer.getEntry("ports"));
+        assertThrows(UnsupportedOperationException.class, ()->layer.getEntry("ports").getValueAsStringList().add("3"));
+        }
+
+    @Test
+    public void testMemoizedEntriesAreReadOnly() throws Exception
+        {
+        ConfigFactorySettings settings = new ConfigFactorySettings();
+        settings.setBoolean(ConfigFeature.COMMENTS_READING, true);
+        ConfigLocation location = new ConfigLocationImpl(ConfigScope.SESSION, new TestStorage(false), null, null);
+        TOMLFileFormat format = new TOMLFileFormat();
+        format.testComponent(settings, NullLogging.getSingletonInstance());
+
+        String toml = "# about key\nkey = \"value\"\n";
+        TOMLConfigLayer layer = (TOMLConfigLayer) format.readStream(new ByteArrayInputStream(toml.getBytes(StandardCharsets.UTF_8)), location);
+
+        ConfigEntry cached = layer.getEntry("key");
+        assertThrows(UnsupportedOperationException.class, ()->cached.putString("changed"));
+        assertThrows(UnsupportedOperationException.class, ()->cached.putValue("changed", ConfigEntryType.STRING));
+        assertThrows(UnsupportedOperationException.class, ()->cached.setComment("changed"));
+        assertSame(cached, layer.getEntry("key"));
+        assertEquals("value", cached.getValueAsString());
+        assertEquals("# about key", cached.getComment());
+        }
+
+    @Test
+    public void testEntriesOfWriteableLayersAreTheirOwn() throws Exception
+        {
+        ConfigFactorySettings settings = new ConfigFactorySettings();
+        settings.setBoolean(ConfigFeature.COMMENTS_READING, true);
+        settings.setBoolean(ConfigFeature.WRITE_SYNC, true);
+        ConfigLocation location = new ConfigLocationImpl(ConfigScope.SESSION, new TestStorage(), null, null);
+        TOMLFileFormat format = new TOMLFileFormat();
+        format.testComponent(settings, NullLogging.getSingletonInstance());
+
+        Path tempFile = tempDir.resolve("own.toml");
+        Files.writeString(tempFile, "# about key\nkey = \"value\"\n");
+        TOMLConfigLayer layer = (TOMLConfigLayer) format.readFile(tempFile.toFile(), location);
+
+        ConfigEntry first = layer.getEntry("key");
+        assertNotSame(first, layer.getEntry("key"));
+        first.setComment("changed here");
+        assertEquals("# about key", layer.getEntry("key").getComment(), "not seen by others until written");
+
+        layer.writeEntry(new GenericConfigEntryLeaf("key", "changed", ConfigEntryType.STRING, new ConfigEntryMetadata(layer.getSource())));
+        ConfigEntry second = layer.getEntry("key");
+        assertEquals("changed", second.getValueAsString());
+        assertEquals("# about key", second.getComment());
+        }
+
     @Test
     public void testMultiLineComments() throws Exception
         {
@@ -136,12 +202,17 @@ public class TOMLCommentTest
 
     private static final class TestStorage implements ConfigStorageInterface
         {
+        private final boolean writeable;
+
+        TestStorage() { this(true); }
+        TestStorage(boolean writeable) { this.writeable = writeable; }
+
         @Override public String getStorageName() { return "test"; }
         @Override public String getStorageID() { return "test"; }
         @Override public boolean test(ConfigFactorySettings settings, org.metabit.platform.support.config.interfaces.ConfigLoggingInterface logger) { return true; }
         @Override public boolean init(org.metabit.platform.support.config.impl.ConfigFactoryInstanceContext ctx) { return true; }
         @Override public void exit() { }
-        @Override public boolean isGenerallyWriteable() { return true; }
+        @Override public boolean isGenerallyWriteable() { return writeable; }
         @Override public URI getURIforConfigLocation(ConfigLocation configLocation, String key, String optionalFragment) { return URI.create("test://toml"); }
         @Override public void updateConfigurationLayers(String sanitizedConfigName, ConfigLocation possibleSource, org.metabit.platform.support.config.interfaces.LayeredConfigurationInterface layeredCfg) { }
         @Override public org.metabit.platform.support.config.interfaces.ConfigLayerInterface createConfigurationLayer(String configName, ConfigLocation location, ConfigSchema configScheme, org.metabit.platform.support.config.impl.LayeredConfiguration layeredConfiguration) { return null; }
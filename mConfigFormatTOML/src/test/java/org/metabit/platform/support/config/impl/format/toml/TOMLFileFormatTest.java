@@ -381,6 +381,38 @@ class TOMLFileFormatTest
         assertTrue(out.contains("nums = ["));
         }
 
+    @Test
+    void readMappedBuffer() throws Exception
+        {
+        String toml = ""
+                + "# header\n\n"
+                + "name = \"caf\u00E9\"\n"
+                + "[owner]\n"
+                + "ports = [8000, 8001]\n";
+        Path file = java.nio.file.Files.createTempFile("mapped", ".toml");
+        try
+            {
+            java.nio.file.Files.write(file, toml.getBytes(StandardCharsets.UTF_8));
+            java.nio.MappedByteBuffer buffer;
+            try (java.nio.channels.FileChannel channel = java.nio.channels.FileChannel.open(file))
+                {
+                buffer = channel.map(java.nio.channels.FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                }
+            TOMLFileFormat format = new TOMLFileFormat();
+            format.testComponent(new ConfigFactorySettings(), NullLogging.getSingletonInstance());
+            ConfigLayerInterface layer = format.readBuffer(buffer, new TestConfigLocation(), file);
+            assertNotNull(layer);
+            assertEquals("caf\u00E9", layer.getEntry("name").getValueAsString());
+            assertEquals(List.of("8000", "8001"), layer.getEntry("owner/ports").getValueAsStringList());
+            assertEquals(List.of("# header"), ((TOMLConfigLayer) layer).getGlobalHeaderComments());
+            assertEquals(0, buffer.position(), "buffer position must not change");
+            }
+        finally
+            {
+            java.nio.file.Files.deleteIfExists(file);
+            }
+        }
+
     private ConfigLayerInterface parseToml(String toml)
         {
         TOMLFileFormat format = new TOMLFileFormat();
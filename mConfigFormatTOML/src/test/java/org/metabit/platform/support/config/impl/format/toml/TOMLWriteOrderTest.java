@@ -13,8 +13,10 @@ import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -51,6 +53,62 @@ class TOMLWriteOrderTest
         assertTrue(newKeyIndex < sectionIndex, "New top-level key should be written before any sections, but was:\n" + output);
         }
 
+    @Test
+    void testFlushPatchesChangedValuesOnly() throws Exception
+        {
+        TOMLFileFormat format = new TOMLFileFormat();
+        format.testComponent(new ConfigFactorySettings(), NullLogging.getSingletonInstance());
+
+        String toml = "# deployment settings\n" +
+                "name    = 'demo'   # aligned by hand\n" +
+                "\n" +
+                "[server]\n" +
+                "host = \"example.org\"\n" +
+                "ports = [ 80,\n" +
+                "          443 ]\n" +
+                "\n" +
+                "# client side\n" +
+                "[client]\n" +
+                "retries = 3";
+        Path tempFile = Files.createTempFile("mConfigPatch", ".toml");
+        try
+            {
+            Files.writeString(tempFile, toml, StandardCharsets.UTF_8);
+            TOMLConfigLayer layer = (TOMLConfigLayer) format.readFile(tempFile.toFile(), new TestConfigLocation());
+            assertNotNull(layer);
+            layer.writeEntry(new GenericConfigEntryLeaf("server/host", "example.com", org.metabit.platform.support.config.ConfigEntryType.STRING, null));
+            layer.writeEntry(new GenericConfigEntryLeaf("server/timeout", "30", org.metabit.platform.support.config.ConfigEntryType.NUMBER, null));
+            layer.writeEntry(new GenericConfigEntryLeaf("client/retries", "5", org.metabit.platform.support.config.ConfigEntryType.NUMBER, null));
+            layer.writeEntry(new GenericConfigEntryLeaf("name", "prod", org.metabit.platform.support.config.ConfigEntryType.STRING, null));
+            layer.flush();
+
+            assertEquals("# deployment settings\n" +
+                    "name    = \"prod\"   # aligned by hand\n" +
+                    "\n" +
+                    "[server]\n" +
+                    "host = \"example.com\"\n" +
+                    "ports = [ 80,\n" +
+                    "          443 ]\n" +
+                    "timeout = 30\n" +
+                    "\n" +
+                    "# client side\n" +
+                    "[client]\n" +
+                    "retries = 5", Files.readString(tempFile, StandardCharsets.UTF_8));
+
+            // a new table can't be patched in; the file is rewritten, and still reads the same.
+            layer.writeEntry(new GenericConfigEntryLeaf("logging/level", "fine", org.metabit.platform.support.config.ConfigEntryType.STRING, null));
+            layer.flush();
+            TOMLConfigLayer reread = (TOMLConfigLayer) format.readFile(tempFile.toFile(), new TestConfigLocation());
+            assertEquals("example.com", reread.getEntry("server/host").getValueAsString());
+            assertEquals("fine", reread.getEntry("logging/level").getValueAsString());
+            assertEquals("30", reread.getEntry("server/timeout").getValueAsString());
+            }
+        finally
+            {
+            Files.deleteIfExists(tempFile);
+            }
+        }
+
     private static final class TestConfigLocation implements ConfigLocation
         {
         @Override
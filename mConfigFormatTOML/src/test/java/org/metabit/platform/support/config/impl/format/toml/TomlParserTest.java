@@ -0,0 +1,54 @@
+package org.metabit.platform.support.config.impl.format.toml;
+
+import org.junit.jupiter.api.Test;
+import org.metabit.platform.support.config.impl.format.toml.TomlModel.TomlArrayTable;
+import org.metabit.platform.support.config.impl.format.toml.TomlModel.TomlTable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * parser results compared with output recorded from the previous, character-at-a-time parser.
+ */
+class TomlParserTest
+{
+    private static String resource(String name) throws IOException
+        {
+        try (InputStream in = TomlParserTest.class.getResourceAsStream("/tomlparser/"+name))
+            {
+            assertNotNull(in, name);
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+        }
+
+    @Test
+    void sameResultAsBefore() throws Exception
+        {
+        String catalog = resource("catalog.toml");
+        String expected = resource("catalog.expected.toml");
+        assertEquals(expected, new TomlWriter().write(new TomlParser(catalog).parse()));
+        assertEquals(expected, new TomlWriter().write(new TomlParser(CharBuffer.wrap(catalog.toCharArray())).parse()));
+        }
+
+    @Test
+    void repeatedKeysAreShared() throws Exception
+        {
+        TomlTable root = new TomlParser("[[services]]\nname = \"a\"\n[[services]]\nname = \"b\"\n").parse();
+        TomlArrayTable services = (TomlArrayTable) root.getValues().get("services");
+        String first = services.getTables().get(0).getValues().keySet().iterator().next();
+        String second = services.getTables().get(1).getValues().keySet().iterator().next();
+        assertSame(first, second);
+        }
+
+    @Test
+    void errorPositionsAreUnchanged()
+        {
+        String broken = "a = 1\n[table]\nb = \"unterminated\n";
+        Exception actual = assertThrows(TomlParser.TomlParseException.class, ()->new TomlParser(broken).parse());
+        assertEquals("newline in basic string at line 4, column 1", actual.getMessage());
+        }
+}
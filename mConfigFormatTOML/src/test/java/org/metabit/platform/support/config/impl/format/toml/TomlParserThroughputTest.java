@@ -0,0 +1,77 @@
+package org.metabit.platform.support.config.impl.format.toml;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.nio.CharBuffer;
+
+/**
+ * parse throughput on a large service catalog, against the previous, character-at-a-time parser.
+ * A benchmark, not run by default; see the "benchmark" profile.
+ */
+@Tag("benchmark")
+class TomlParserThroughputTest
+{
+    private static final int SERVICES = 2000;
+    private static final int ROUNDS   = 20;
+
+    private static String serviceCatalog()
+        {
+        StringBuilder sb = new StringBuilder(SERVICES * 400);
+        sb.append("# service catalog\n");
+        sb.append("title = \"catalog\"\n");
+        sb.append("generated = 1979-05-27T07:32:00Z\n\n");
+        for (int i = 0; i < SERVICES; i++)
+            {
+            sb.append("# service ").append(i).append('\n');
+            sb.append("[[services]]\n");
+            sb.append("name = \"service-").append(i).append("\"\n");
+            sb.append("description = \"handles \\\"requests\\\" for tenant ").append(i % 17).append("\"\n");
+            sb.append("path = 'C:\\srv\\").append(i).append("'\n");
+            sb.append("port = ").append(8000 + i).append(" # listening port\n");
+            sb.append("offset = -").append(i).append('\n');
+            sb.append("weight = ").append(i).append(".25\n");
+            sb.append("enabled = ").append(i % 2 == 0).append('\n');
+            sb.append("tags = [\"a\", \"b\", \"c\"]\n");
+            sb.append("limits = { cpu = 2, memory = \"512M\" }\n");
+            sb.append("[endpoints.service-").append(i).append("]\n");
+            sb.append("host = \"host-").append(i).append(".example.com\"\n");
+            sb.append("timeout = 30\n\n");
+            }
+        return sb.toString();
+        }
+
+    @Test
+    void parseThroughput() throws Exception
+        {
+        String catalog = serviceCatalog();
+        char[] chars = catalog.toCharArray();
+        // warm-up, so all are measured compiled
+        for (int i = 0; i < ROUNDS; i++)
+            {
+            new CharwiseTomlParser(catalog).parse();
+            new TomlParser(catalog).parse();
+            new TomlParser(CharBuffer.wrap(chars)).parse();
+            }
+        long charwise = 0;
+        long fromString = 0;
+        long fromBuffer = 0;
+        for (int i = 0; i < ROUNDS; i++)
+            {
+            long start = System.nanoTime();
+            new CharwiseTomlParser(catalog).parse();
+            charwise += System.nanoTime()-start;
+            start = System.nanoTime();
+            new TomlParser(catalog).parse();
+            fromString += System.nanoTime()-start;
+            start = System.nanoTime();
+            new TomlParser(CharBuffer.wrap(chars)).parse();
+            fromBuffer += System.nanoTime()-start;
+            }
+        double megabytes = (double) catalog.length() * ROUNDS / (1024 * 1024);
+        System.out.printf("TOML parse throughput, %d chars x %d: charwise %.1f MB/s, String %.1f MB/s (%.2fx), CharBuffer %.1f MB/s (%.2fx)%n",
+                catalog.length(), ROUNDS, megabytes / (charwise / 1e9),
+                megabytes / (fromString / 1e9), (double) charwise / fromString,
+                megabytes / (fromBuffer / 1e9), (double) charwise / fromBuffer);
+        }
+}
@@ -9,10 +9,12 @@ import org.metabit.platform.support.config.impl.ConfigFactorySettings;
 import org.metabit.platform.support.config.impl.ConfigLocationImpl;
 import org.metabit.platform.support.config.impl.entry.ConfigEntryMetadata;
 import org.metabit.platform.support.config.impl.entry.GenericConfigEntryLeaf;
+import org.metabit.platform.support.config.impl.util.StringPool;
+import org.metabit.platform.support.config.impl.util.TreeKeyIndex;
 import org.metabit.platform.support.config.interfaces.ConfigLayerInterface;
 import org.metabit.platform.support.config.interfaces.ConfigLoggingInterface;
 
-import java.util.Iterator;
+import java.util.*;
 
 /**
  * YAMLJacksonConfigLayer represents a configuration layer backed by YAML data
@@ -29,6 +31,9 @@ public class YAMLJacksonConfigLayer implements ConfigLayerInterface
     private final JsonNodeType           treeRootType;
     private final ConfigLocation         location;
     private final ConfigSource           source;
+    private final ConfigEntryMetadata    sharedMeta;
+    private final StringPool             strings;
+    private final TreeKeyIndex<JsonNode> keyIndex; // its monitor guards the tree, too
 
     public YAMLJacksonConfigLayer(ConfigFactorySettings settings, ConfigLoggingInterface logger, ConfigLocation configLocation, YAMLwithJacksonFormat format, JsonNode rootNode, Object storageInstanceHandle)
         {
@@ -36,8 +41,11 @@ public class YAMLJacksonConfigLayer implements ConfigLayerInterface
         this.logger = logger;
         this.location = configLocation;
         this.source = new ConfigLocationImpl(location, this, format, storageInstanceHandle);
+        this.sharedMeta = ConfigEntryMetadata.shared(source);
+        this.strings = format.getStringPool();
         this.yamlTreeRoot = rootNode;
         this.treeRootType = rootNode.getNodeType();
+        this.keyIndex = new TreeKeyIndex<>(rootNode, JsonNode::properties, JsonNode::isObject, strings);
         }
 
 
@@ -77,21 +85,33 @@ public class YAMLJacksonConfigLayer implements ConfigLayerInterface
         ObjectNode root = (ObjectNode) yamlTreeRoot;
         String fullKey = configEntry.getKey();
         String[] nodes = fullKey.split("/");
-        
-        ObjectNode current = root;
-        for (int i = 0; i < nodes.length - 1; i++)
+
+        synchronized (keyIndex)
             {
-            String node = nodes[i];
-            JsonNode next = current.get(node);
-            if (next == null || !next.isObject())
+            ObjectNode current = root;
+            String path = "";
+            for (int i = 0; i < nodes.length - 1; i++)
                 {
-                next = current.putObject(node);
+                String node = nodes[i];
+                path = path.isEmpty() ? node : path+"/"+node;
+                JsonNode next = current.get(node);
+                if (next == null || !next.isObject())
+                    {
+                    keyIndex.removeSubtree(path, next); // a leaf turning into a branch
+                    next = current.putObject(node);
+                    }
+                current = (ObjectNode) next;
                 }
-            current = (ObjectNode) next;
+
+            String leafKey = nodes[nodes.length - 1];
+            JsonNode previous = current.get(leafKey);
+            if ((previous != null) && previous.isObject())
+                {
+                keyIndex.removeSubtree(fullKey, previous); // a branch turning into a leaf
+                }
+            writeTypedValue(current, leafKey, configEntry);
+            keyIndex.putLeaf(fullKey, current.get(leafKey));
             }
-        
-        String leafKey = nodes[nodes.length - 1];
-        writeTypedValue(current, leafKey, configEntry);
         }
 
     private void writeTypedValue(ObjectNode node, String key, ConfigEntry entry) throws ConfigCheckedException
@@ -167,7 +187,10 @@ public class YAMLJacksonConfigLayer implements ConfigLayerInterface
     public int flush()
             throws ConfigCheckedException
         {
-        ((YAMLwithJacksonFormat)source.getStorageFormat()).writeFile(this);
+        synchronized (keyIndex)
+            {
+            ((YAMLwithJacksonFormat)source.getStorageFormat()).writeFile(this);
+            }
         return 1;
         }
 
@@ -183,61 +206,31 @@ public class YAMLJacksonConfigLayer implements ConfigLayerInterface
         {
         if (yamlTreeRoot.isObject())
             {
-            java.util.List<String> keys = new java.util.ArrayList<>();
-            collectKeys(yamlTreeRoot, "", keys);
-            return keys.iterator();
+            return keyIndex.keyIterator();
             }
         return null;
         }
 
-    private void collectKeys(JsonNode node, String prefix, java.util.List<String> keys)
+    // entries of a read-only location are memoized, and read-only; a writeable one gets new entries, which may be changed.
+    @Override
+    public ConfigEntry getEntry(final String hierarchicalKeyPath)
         {
-        if (node.isObject())
+        if (location.isWriteable())
             {
-            Iterator<java.util.Map.Entry<String, JsonNode>> fields = node.properties().iterator();
-            while (fields.hasNext())
-                {
-                java.util.Map.Entry<String, JsonNode> entry = fields.next();
-                String key = entry.getKey();
-                String fullKey = prefix.isEmpty() ? key : prefix + "/" + key;
-                JsonNode value = entry.getValue();
-                if (value.isObject())
-                    {
-                    collectKeys(value, fullKey, keys);
-                    }
-                else
-                    {
-                    keys.add(fullKey);
-                    }
-                }
+            return getEntryForWriting(hierarchicalKeyPath);
             }
+        return keyIndex.getEntry(hierarchicalKeyPath, (key, leaf)->jacksonJsonNodeToConfigEntry(key, leaf, sharedMeta));
         }
 
     @Override
-    public ConfigEntry getEntry(final String hierarchicalKeyPath)
+    public ConfigEntry getEntryForWriting(final String hierarchicalKeyPath)
         {
-        String[] nodes = hierarchicalKeyPath.split("/");
-        JsonNode current = yamlTreeRoot;
-        for (String node : nodes)
-            {
-            current = current.get(node);
-            if (current == null)
-                {
-                return null;
-                }
-            }
-
-        if (current.isMissingNode() || current.isNull())
-            {
-            return null;
-            }
-
-        return jacksonJsonNodeToConfigEntry(hierarchicalKeyPath, current);
+        JsonNode leaf = keyIndex.getLeaf(hierarchicalKeyPath);
+        return (leaf == null) ? null : jacksonJsonNodeToConfigEntry(hierarchicalKeyPath, leaf, new ConfigEntryMetadata(source));
         }
 
-    ConfigEntry jacksonJsonNodeToConfigEntry(final String leafKey, final JsonNode jsonNode)
+    ConfigEntry jacksonJsonNodeToConfigEntry(final String leafKey, final JsonNode jsonNode, ConfigEntryMetadata meta)
         {
-        ConfigEntryMetadata meta = new ConfigEntryMetadata(this.source);
         switch (jsonNode.getNodeType())
             {
             case STRING:
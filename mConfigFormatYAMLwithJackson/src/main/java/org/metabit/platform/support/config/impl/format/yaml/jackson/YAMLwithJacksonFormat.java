@@ -4,10 +4,15 @@ import tools.jackson.core.JacksonException;
 import tools.jackson.databind.JsonNode;
 import tools.jackson.databind.ObjectMapper;
 import tools.jackson.databind.ObjectWriter;
+import tools.jackson.databind.node.JsonNodeFactory;
+import tools.jackson.databind.node.StringNode;
 import tools.jackson.dataformat.yaml.YAMLFactory;
+import tools.jackson.dataformat.yaml.YAMLMapper;
 import org.metabit.platform.support.config.ConfigFeature;
 import org.metabit.platform.support.config.ConfigLocation;
+import org.metabit.platform.support.config.impl.ConfigFactoryInstanceContext;
 import org.metabit.platform.support.config.impl.ConfigFactorySettings;
+import org.metabit.platform.support.config.impl.util.StringPool;
 import org.metabit.platform.support.config.interfaces.ConfigFileFormatInterface;
 import org.metabit.platform.support.config.interfaces.ConfigLayerInterface;
 import org.metabit.platform.support.config.interfaces.ConfigLoggingInterface;
@@ -28,6 +33,7 @@ public class YAMLwithJacksonFormat implements ConfigFileFormatInterface
 {
     private ConfigLoggingInterface logger;
     private ConfigFactorySettings  settings;
+    private StringPool             strings = StringPool.NONE;
 
     @Override
     public String getFormatID()
@@ -49,12 +55,35 @@ public class YAMLwithJacksonFormat implements ConfigFileFormatInterface
         return true;
         }
 
+    @Override
+    public void initialize(ConfigFactoryInstanceContext ctx)
+        {
+        this.strings = ctx.getStringPool();
+        }
+
+    StringPool getStringPool()
+        { return strings; }
+
+    // mapper for reading trees; string values go through the factory's string pool.
+    private ObjectMapper createReadingMapper()
+        {
+        final StringPool pool = strings;
+        return YAMLMapper.builder().nodeFactory(new JsonNodeFactory()
+            {
+            @Override
+            public StringNode stringNode(String text)
+                {
+                return super.stringNode(pool.intern(text));
+                }
+            }).build();
+        }
+
     @Override
     public ConfigLayerInterface readFile(File file, ConfigLocation configLocation)
         {
         try
             {
-            ObjectMapper mapper = new ObjectMapper(new YAMLFactory());
+            ObjectMapper mapper = createReadingMapper();
             JsonNode rootNode = mapper.readTree(file);
             if (rootNode == null)
                 {
@@ -85,7 +114,7 @@ public class YAMLwithJacksonFormat implements ConfigFileFormatInterface
         {
         try
             {
-            ObjectMapper mapper = new ObjectMapper(new YAMLFactory());
+            ObjectMapper mapper = createReadingMapper();
             JsonNode rootNode = mapper.readTree(inputStream);
             return getYamlJacksonConfigLayer(configLocation, rootNode, inputStream);
             }
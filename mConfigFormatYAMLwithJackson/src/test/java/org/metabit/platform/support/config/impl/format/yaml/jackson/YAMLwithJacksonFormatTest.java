@@ -81,6 +81,32 @@ public class YAMLwithJacksonFormatTest
         assertEquals("true", layer.getEntry("bool").getValueAsString());
         }
 
+    @Test
+    public void testFlatKeyIndex() throws Exception
+        {
+        YAMLwithJacksonFormat format = new YAMLwithJacksonFormat();
+        format.testComponent(new ConfigFactorySettings(), new ConsoleLogging("YAMLFormatTest"));
+        String yaml = "server:\n" +
+                      "  host: localhost\n" +
+                      "  port: 8080\n" +
+                      "empty:\n" +
+                      "debug: true";
+        ConfigStorageInterface mockStorage = Mockito.mock(ConfigStorageInterface.class);
+        ConfigLocation location = new ConfigLocationImpl(ConfigScope.SESSION, mockStorage, format, null);
+        ConfigLayerInterface layer = format.readStream(new ByteArrayInputStream(yaml.getBytes(StandardCharsets.UTF_8)), location);
+        assertNotNull(layer);
+
+        java.util.List<String> keys = new java.util.ArrayList<>();
+        layer.tryToGetKeyIterator().forEachRemaining(keys::add);
+        assertEquals(java.util.List.of("server/host", "server/port", "empty", "debug"), keys);
+
+        ConfigEntry port = layer.getEntry("server/port");
+        assertEquals(8080, port.getValueAsInteger());
+        assertSame(port, layer.getEntry("server/port"), "entries are memoized");
+        assertNull(layer.getEntry("empty"));
+        assertNull(layer.getEntry("server"));
+        }
+
     @Test
     public void testGetFilenameExtensions()
         {
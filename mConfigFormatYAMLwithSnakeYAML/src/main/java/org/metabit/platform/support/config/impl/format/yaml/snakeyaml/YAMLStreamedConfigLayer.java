@@ -0,0 +1,431 @@
+package org.metabit.platform.support.config.impl.format.yaml.snakeyaml;
+
+import org.metabit.platform.support.config.*;
+import org.metabit.platform.support.config.impl.ConfigLocationImpl;
+import org.metabit.platform.support.config.impl.entry.ConfigEntryMetadata;
+import org.metabit.platform.support.config.impl.entry.GenericConfigEntryLeaf;
+import org.metabit.platform.support.config.impl.util.StringPool;
+import org.metabit.platform.support.config.interfaces.ConfigLayerInterface;
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.events.*;
+import org.yaml.snakeyaml.nodes.NodeId;
+import org.yaml.snakeyaml.nodes.Tag;
+import org.yaml.snakeyaml.resolver.Resolver;
+
+import java.io.Reader;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * read-only YAML configuration layer, filled from SnakeYAML parse events.
+ * <p>
+ * No node graph is built or kept; scalar leaves go straight into a flat map from full key to value
+ * (String, Boolean, or the text of numbers and binaries; null for sequences, which provide no entries, as in the node-backed layer).
+ * An alias of a mapping is stored as a link to the path of its anchor, so shared subtrees are not duplicated;
+ * lookups below the alias are redirected. Entries are created on first access.
+ * For writeable layers, see {@link YAMLSnakeYAMLConfigLayer}.
+ */
+class YAMLStreamedConfigLayer implements ConfigLayerInterface
+{
+    private static final int MAX_ALIAS_DEPTH = 64;
+
+    private final ConfigLocation           location;
+    private final ConfigSource             source;
+    private final ConfigEntryMetadata      sharedMeta;
+    private final Map<String, Object>      leaves;
+    private final Map<String, String>      links;
+    private final Map<String, ConfigEntry> entries;
+    private final boolean                  empty;
+
+    // numbers and binaries keep their text, as in the node-backed layer.
+    private static final class TypedText
+    {
+        final ConfigEntryType type;
+        final String          text;
+
+        TypedText(ConfigEntryType type, String text)
+            {
+            this.type = type;
+            this.text = text;
+            }
+    }
+
+    // the event structure is not what this layer can represent; the caller falls back to the node graph.
+    private static final class UnsupportedStructure extends RuntimeException
+    {
+        UnsupportedStructure()
+            {
+            super(null, null, false, false);
+            }
+    }
+
+    private YAMLStreamedConfigLayer(ConfigLocation configLocation, YAMLwithSnakeYAMLFormat format, Object storageInstanceHandle, Map<String, Object> leaves, Map<String, String> links, boolean empty)
+        {
+        this.location = configLocation;
+        this.source = new ConfigLocationImpl(location, this, format, storageInstanceHandle);
+        this.sharedMeta = ConfigEntryMetadata.shared(source);
+        this.leaves = leaves;
+        this.links = links;
+        this.entries = new ConcurrentHashMap<>();
+        this.empty = empty;
+        }
+
+    /**
+     * read a layer from a reader.
+     *
+     * @param reader                reader to parse
+     * @param configLocation        location
+     * @param format                format to report as source format
+     * @param storageInstanceHandle handle for the source
+     * @return the layer, or null if the content is not a single document with a mapping at top level,
+     * or uses aliases this layer can't link to (anchors inside sequences, alias keys); the caller may then use the node graph.
+     */
+    static YAMLStreamedConfigLayer read(Reader reader, ConfigLocation configLocation, YAMLwithSnakeYAMLFormat format, Object storageInstanceHandle)
+        {
+        Iterator<Event> events = new Yaml(new LoaderOptions()).parse(reader).iterator();
+        Loader loader = new Loader(events, format.getStringPool());
+        try
+            {
+            loader.expect(Event.ID.StreamStart);
+            Event event = events.next();
+            if (event.is(Event.ID.StreamEnd))
+                {
+                return new YAMLStreamedConfigLayer(configLocation, format, storageInstanceHandle, loader.leaves, loader.links, true);
+                }
+            if (!event.is(Event.ID.DocumentStart))
+                {
+                return null;
+                }
+            event = events.next();
+            if (!event.is(Event.ID.MappingStart))
+                {
+                return null;
+                }
+            boolean empty = !loader.readMapping("", ((MappingStartEvent) event).getAnchor());
+            loader.expect(Event.ID.DocumentEnd);
+            loader.expect(Event.ID.StreamEnd); // more than one document is for the node graph to complain about
+            return new YAMLStreamedConfigLayer(configLocation, format, storageInstanceHandle, loader.leaves, loader.links, empty);
+            }
+        catch (UnsupportedStructure ex)
+            {
+            return null;
+            }
+        }
+
+    private static final class Loader
+    {
+        final Iterator<Event>     events;
+        final Map<String, Object> leaves       = new LinkedHashMap<>();
+        final Map<String, String> links        = new LinkedHashMap<>();
+        final Map<String, String> anchorPaths  = new HashMap<>(); // anchors of mappings
+        final Map<String, Object> anchorValues = new HashMap<>(); // anchors of scalars and sequences
+        final Resolver            resolver     = new Resolver();
+        final StringPool          strings;
+
+        Loader(Iterator<Event> events, StringPool strings)
+            {
+            this.events = events;
+            this.strings = strings;
+            }
+
+        void expect(Event.ID id)
+            {
+            if (!events.hasNext() || !events.next().is(id))
+                {
+                throw new UnsupportedStructure();
+                }
+            }
+
+        // reads the entries of the current mapping. returns whether it had any.
+        boolean readMapping(String prefix, String anchor)
+            {
+            if (anchor != null)
+                {
+                anchorValues.remove(anchor);
+                anchorPaths.put(anchor, prefix);
+                }
+            boolean any = false;
+            while (true)
+                {
+                Event keyEvent = events.next();
+                if (keyEvent.is(Event.ID.MappingEnd))
+                    {
+                    return any;
+                    }
+                any = true;
+                if (!keyEvent.is(Event.ID.Scalar))
+                    {
+                    if (keyEvent.is(Event.ID.Alias))
+                        {
+                        throw new UnsupportedStructure();
+                        }
+                    skipCollection(); // complex keys are ignored, as in the node-backed layer
+                    skipNode(events.next());
+                    continue;
+                    }
+                ScalarEvent key = (ScalarEvent) keyEvent;
+                if (key.getAnchor() != null)
+                    {
+                    anchored(key.getAnchor(), toValue(key));
+                    }
+                String fullKey = strings.intern(prefix.isEmpty() ? key.getValue() : prefix+"/"+key.getValue());
+                readValue(fullKey, events.next());
+                }
+            }
+
+        void readValue(String fullKey, Event event)
+            {
+            switch (event.getEventId())
+                {
+                case Scalar:
+                    {
+                    Object value = toValue((ScalarEvent) event);
+                    leaves.put(fullKey, value);
+                    anchored(((ScalarEvent) event).getAnchor(), value);
+                    break;
+                    }
+                case MappingStart:
+                    readMapping(fullKey, ((MappingStartEvent) event).getAnchor());
+                    break;
+                case SequenceStart:
+                    skipCollection();
+                    leaves.put(fullKey, null);
+                    anchored(((SequenceStartEvent) event).getAnchor(), null);
+                    break;
+                case Alias:
+                    {
+                    String anchor = ((AliasEvent) event).getAnchor();
+                    String target = anchorPaths.get(anchor);
+                    if (target != null)
+                        {
+                        links.put(fullKey, target);
+                        }
+                    else if (anchorValues.containsKey(anchor))
+                        {
+                        leaves.put(fullKey, anchorValues.get(anchor));
+                        }
+                    else
+                        {
+                        throw new UnsupportedStructure(); // anchored somewhere we skipped
+                        }
+                    break;
+                    }
+                default:
+                    throw new UnsupportedStructure();
+                }
+            }
+
+        private void anchored(String anchor, Object value)
+            {
+            if (anchor != null)
+                {
+                anchorPaths.remove(anchor);
+                anchorValues.put(anchor, value);
+                }
+            }
+
+        private void skipNode(Event event)
+            {
+            if (event.is(Event.ID.MappingStart) || event.is(Event.ID.SequenceStart))
+                {
+                skipCollection();
+                }
+            }
+
+        // skips to the end of the collection just started.
+        private void skipCollection()
+            {
+            int depth = 1;
+            while (depth > 0)
+                {
+                Event event = events.next();
+                if (event.is(Event.ID.MappingStart) || event.is(Event.ID.SequenceStart))
+                    {
+                    depth++;
+                    }
+                else if (event.is(Event.ID.MappingEnd) || event.is(Event.ID.SequenceEnd))
+                    {
+                    depth--;
+                    }
+                }
+            }
+
+        // same tag resolution as the SnakeYAML composer, and the same mapping as YAMLSnakeYAMLConfigLayer.snakeYamlNodeToConfigEntry
+        private Object toValue(ScalarEvent scalar)
+            {
+            String explicitTag = scalar.getTag();
+            Tag tag = ((explicitTag == null) || explicitTag.equals("!"))
+                    ? resolver.resolve(NodeId.scalar, scalar.getValue(), scalar.getImplicit().canOmitTagInPlainScalar())
+                    : new Tag(explicitTag);
+            if (Tag.BOOL.equals(tag))
+                {
+                return Boolean.valueOf(scalar.getValue());
+                }
+            if (Tag.INT.equals(tag) || Tag.FLOAT.equals(tag))
+                {
+                return new TypedText(ConfigEntryType.NUMBER, scalar.getValue());
+                }
+            if (Tag.BINARY.equals(tag))
+                {
+                return new TypedText(ConfigEntryType.BYTES, scalar.getValue());
+                }
+            return strings.intern(scalar.getValue());
+            }
+    }
+
+    @Override
+    public boolean isEmpty()
+        { return empty; }
+
+    @Override
+    public ConfigScope getScope()
+        { return location.getScope(); }
+
+    @Override
+    public ConfigSource getSource()
+        { return source; }
+
+    @Override
+    public boolean isWriteable()
+        { return false; }
+
+    @Override
+    public void writeEntry(ConfigEntry configEntry)
+            throws ConfigCheckedException
+        {
+        throw new ConfigCheckedException(ConfigCheckedException.ConfigExceptionReason.INVALID_USE);
+        }
+
+    @Override
+    public int flush()
+            throws ConfigCheckedException
+        {
+        return 0; // nothing to write, ever.
+        }
+
+    @Override
+    public int compareTo(ConfigLayerInterface configLayerInterface)
+        {
+        return 0;
+        }
+
+    @Override
+    public Iterator<String> tryToGetKeyIterator()
+        {
+        if (links.isEmpty())
+            {
+            return Collections.unmodifiableSet(leaves.keySet()).iterator();
+            }
+        List<String> keys = new ArrayList<>(leaves.keySet());
+        for (Map.Entry<String, String> link : links.entrySet())
+            {
+            collectLinkedKeys(link.getKey(), link.getValue(), keys, 1);
+            }
+        return keys.iterator();
+        }
+
+    // adds the keys below target, as seen below the alias path.
+    private void collectLinkedKeys(String aliasPath, String target, List<String> keys, int depth)
+        {
+        if ((depth > MAX_ALIAS_DEPTH) || isBelow(aliasPath, target))
+            {
+            return; // recursive structure; its keys are endless.
+            }
+        for (String key : leaves.keySet())
+            {
+            if (isBelow(key, target))
+                {
+                keys.add(rebase(key, target, aliasPath));
+                }
+            }
+        for (Map.Entry<String, String> link : links.entrySet())
+            {
+            if (isBelow(link.getKey(), target))
+                {
+                collectLinkedKeys(rebase(link.getKey(), target, aliasPath), link.getValue(), keys, depth+1);
+                }
+            }
+        }
+
+    // is path below ancestor? "" is the root, everything is below it.
+    private static boolean isBelow(String path, String ancestor)
+        {
+        if (ancestor.isEmpty())
+            {
+            return true;
+            }
+        return path.startsWith(ancestor) && (path.length() > ancestor.length()) && (path.charAt(ancestor.length()) == '/');
+        }
+
+    private static String rebase(String path, String from, String to)
+        {
+        String rest = from.isEmpty() ? path : path.substring(from.length()+1);
+        return to.isEmpty() ? rest : to+"/"+rest;
+        }
+
+    // find the value for a key, following links. Leaves with null values are not distinguished from missing ones.
+    private Object resolve(String key)
+        {
+        for (int depth = 0; depth <= MAX_ALIAS_DEPTH; depth++)
+            {
+            Object value = leaves.get(key);
+            if ((value != null) || links.isEmpty())
+                {
+                return value;
+                }
+            String redirected = null;
+            for (int slash = key.indexOf('/'); slash > 0; slash = key.indexOf('/', slash+1))
+                {
+                String target = links.get(key.substring(0, slash));
+                if (target != null)
+                    {
+                    redirected = target.isEmpty() ? key.substring(slash+1) : target+key.substring(slash);
+                    break;
+                    }
+                }
+            if (redirected == null)
+                {
+                return null;
+                }
+            key = redirected;
+            }
+        return null;
+        }
+
+    @Override
+    public ConfigEntry getEntry(final String hierarchicalKeyPath)
+        {
+        ConfigEntry entry = entries.get(hierarchicalKeyPath);
+        if (entry != null)
+            {
+            return entry;
+            }
+        Object value = resolve(hierarchicalKeyPath);
+        if (value == null)
+            {
+            return null;
+            }
+        entry = toConfigEntry(hierarchicalKeyPath, value, sharedMeta);
+        entries.putIfAbsent(hierarchicalKeyPath, entry);
+        return entry;
+        }
+
+    private static ConfigEntry toConfigEntry(final String key, final Object value, ConfigEntryMetadata meta)
+        {
+        if (value instanceof Boolean)
+            {
+            return new GenericConfigEntryLeaf(key, value, ConfigEntryType.BOOLEAN, meta);
+            }
+        if (value instanceof TypedText)
+            {
+            TypedText typed = (TypedText) value;
+            if (typed.type == ConfigEntryType.BYTES)
+                {
+                return new GenericConfigEntryLeaf(key, Base64.getDecoder().decode(typed.text), ConfigEntryType.BYTES, meta);
+                }
+            return new GenericConfigEntryLeaf(key, typed.text, typed.type, meta);
+            }
+        return new GenericConfigEntryLeaf(key, value, ConfigEntryType.STRING, meta);
+        }
+}
@@ -3,7 +3,10 @@ package org.metabit.platform.support.config.impl.format.yaml.snakeyaml;
 import org.metabit.platform.support.config.ConfigCheckedException;
 import org.metabit.platform.support.config.ConfigFeature;
 import org.metabit.platform.support.config.ConfigLocation;
+import org.metabit.platform.support.config.impl.ConfigFactoryInstanceContext;
 import org.metabit.platform.support.config.impl.ConfigFactorySettings;
+import org.metabit.platform.support.config.impl.util.AtomicFileWriter;
+import org.metabit.platform.support.config.impl.util.StringPool;
 import org.metabit.platform.support.config.interfaces.ConfigFileFormatInterface;
 import org.metabit.platform.support.config.interfaces.ConfigLayerInterface;
 import org.metabit.platform.support.config.interfaces.ConfigLoggingInterface;
@@ -18,6 +21,7 @@ import org.yaml.snakeyaml.resolver.Resolver;
 import org.yaml.snakeyaml.serializer.Serializer;
 
 import java.io.*;
+import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.LinkedHashMap;
@@ -33,6 +37,7 @@ public class YAMLwithSnakeYAMLFormat implements ConfigFileFormatInterface
 {
     private ConfigLoggingInterface logger;
     private ConfigFactorySettings  settings;
+    private StringPool             strings = StringPool.NONE;
 
     @Override
     public String getFormatID()
@@ -54,9 +59,39 @@ public class YAMLwithSnakeYAMLFormat implements ConfigFileFormatInterface
         return true;
         }
 
+    @Override
+    public void initialize(ConfigFactoryInstanceContext ctx)
+        {
+        this.strings = ctx.getStringPool();
+        }
+
+    StringPool getStringPool()
+        { return strings; }
+
     @Override
     public ConfigLayerInterface readFile(File file, ConfigLocation configLocation)
         {
+        if (isToBeReadOnly(file))
+            {
+            try (Reader reader = new InputStreamReader(new FileInputStream(file)))
+                {
+                ConfigLayerInterface layer = YAMLStreamedConfigLayer.read(reader, configLocation, this, file.toPath());
+                if (layer != null)
+                    {
+                    return layer;
+                    }
+                } // not a single mapping, or aliases we can't link; that's for the node graph to handle.
+            catch (FileNotFoundException e)
+                {
+                logger.error("File not found: " + file.getAbsolutePath());
+                return null;
+                }
+            catch (Exception e)
+                {
+                logger.warn("Error parsing YAML: " + e.getMessage());
+                return null;
+                }
+            }
         try (InputStream inputStream = new FileInputStream(file))
             {
             return readStream(inputStream, configLocation, file.toPath());
@@ -72,6 +107,17 @@ public class YAMLwithSnakeYAMLFormat implements ConfigFileFormatInterface
         return null;
         }
 
+    // read-only loading, without a node graph: for files we can't write anyway, and for large ones if so configured.
+    private boolean isToBeReadOnly(File file)
+        {
+        if (!file.canWrite())
+            {
+            return true;
+            }
+        Integer threshold = settings.getInteger(ConfigFeature.FILE_READ_ONLY_STREAMING_THRESHOLD);
+        return (threshold != null) && (threshold > 0) && (file.length() >= threshold);
+        }
+
     @Override
     public ConfigLayerInterface readStream(InputStream inputStream, ConfigLocation configLocation)
         {
@@ -165,7 +211,8 @@ public class YAMLwithSnakeYAMLFormat implements ConfigFileFormatInterface
             options.setPrettyFlow(true);
             }
         
-        try (Writer writer = new FileWriter(path.toFile()))
+        // platform default charset, matching the InputStreamReader used for reading.
+        new AtomicFileWriter(settings).write(path, Charset.defaultCharset(), writer->
             {
             if (data instanceof Node)
                 {
@@ -181,6 +228,6 @@ public class YAMLwithSnakeYAMLFormat implements ConfigFileFormatInterface
                 Yaml yaml = new Yaml(new Constructor(loaderOptions), new Representer(options), options, loaderOptions);
                 yaml.dump(data, writer);
                 }
-            }
+            });
         }
 }
@@ -1,6 +1,7 @@
 package org.metabit.platform.support.config.impl.format.yaml.snakeyaml;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.metabit.platform.support.config.*;
 import org.metabit.platform.support.config.impl.ConfigLocationImpl;
 import org.metabit.platform.support.config.interfaces.ConfigLayerInterface;
@@ -10,6 +11,9 @@ import org.mockito.Mockito;
 
 import java.io.ByteArrayInputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -81,6 +85,61 @@ public class YAMLwithSnakeYAMLFormatTest
         assertEquals("true", layer.getEntry("bool").getValueAsString());
         }
 
+    @Test
+    public void testLargeFilesAreStreamedReadOnly(@TempDir Path tempDir) throws Exception
+        {
+        YAMLwithSnakeYAMLFormat format = new YAMLwithSnakeYAMLFormat();
+        org.metabit.platform.support.config.impl.ConfigFactorySettings settings = new org.metabit.platform.support.config.impl.ConfigFactorySettings();
+        settings.setInteger(ConfigFeature.FILE_READ_ONLY_STREAMING_THRESHOLD, 16);
+        format.testComponent(settings, new ConsoleLogging("YAMLFormatTest"));
+        ConfigLocation location = new ConfigLocationImpl(ConfigScope.SESSION, Mockito.mock(ConfigStorageInterface.class), format, null);
+
+        String yaml = "defaults: &defaults\n" +
+                      "  image: nginx\n" +
+                      "  replicas: 3\n" +
+                      "  debug: false\n" +
+                      "  limits: &limits\n" +
+                      "    cpu: 0.5\n" +
+                      "tier: &tier backend\n" +
+                      "web: *defaults\n" +
+                      "api:\n" +
+                      "  base: *defaults\n" +
+                      "  tier: *tier\n" +
+                      "  quota: *limits\n" +
+                      "ports: [80, 443]\n";
+        Path file = tempDir.resolve("deployment.yaml");
+        Files.writeString(file, yaml);
+        ConfigLayerInterface streamed = format.readFile(file.toFile(), location);
+        assertInstanceOf(YAMLStreamedConfigLayer.class, streamed);
+        assertFalse(streamed.isWriteable());
+        ConfigLayerInterface tree = format.readStream(new ByteArrayInputStream(yaml.getBytes(StandardCharsets.UTF_8)), location);
+
+        List<String> keys = new ArrayList<>();
+        streamed.tryToGetKeyIterator().forEachRemaining(keys::add);
+        assertTrue(keys.containsAll(List.of("defaults/image", "web/image", "web/limits/cpu", "api/base/replicas", "api/tier", "api/quota/cpu", "ports")));
+        for (String key : keys)
+            {
+            ConfigEntry expected = tree.getEntry(key);
+            ConfigEntry actual = streamed.getEntry(key);
+            if (expected == null)
+                {
+                assertNull(actual, key);
+                continue;
+                }
+            assertEquals(expected.getType(), actual.getType(), key);
+            assertEquals(expected.getValueAsString(), actual.getValueAsString(), key);
+            }
+        assertEquals("nginx", streamed.getEntry("web/image").getValueAsString());
+        assertEquals(ConfigEntryType.NUMBER, streamed.getEntry("api/quota/cpu").getType());
+        assertSame(streamed.getEntry("web/image"), streamed.getEntry("web/image"));
+        assertNull(streamed.getEntry("web"));
+
+        // an anchor inside a sequence can't be linked to; the node graph handles that
+        Path sequenceAnchor = tempDir.resolve("sequence.yaml");
+        Files.writeString(sequenceAnchor, "list:\n  - &first {a: 1}\nref: *first\n");
+        assertInstanceOf(YAMLSnakeYAMLConfigLayer.class, format.readFile(sequenceAnchor.toFile(), location));
+        }
+
     @Test
     public void testGetFilenameExtensions()
         {
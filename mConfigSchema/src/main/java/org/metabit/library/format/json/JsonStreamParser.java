@@ -145,6 +145,7 @@ public class JsonStreamParser
         {
         sb = new StringBuilder();
         sb2 = new StringBuilder();
+        buffer = new char[8192];
         // default settings
         ignoreCR = !("\r".equals(System.lineSeparator())); // MacOS uses no '\n' - we adapt this to the local system by default.
         tabStep = 4; // count a tab as...
@@ -219,6 +220,8 @@ public class JsonStreamParser
         this.column = 0;
         this.level = 0;
         this.putback = false;
+        this.bufferPosition = 0;
+        this.bufferLimit = 0;
         if (oldStyle)
             {
             mustBeNext('{', "in strict mode, top-level must be an object");
@@ -487,6 +490,7 @@ public class JsonStreamParser
                         }
                     break;
 
+                case ',': // next array element or object entry
                 case ']': // array ends
                 case '}': // object ends
                     putback = true;
@@ -566,7 +570,7 @@ public class JsonStreamParser
     private String readStringStarted()
         {
         sb.setLength(0);
-        Character c;
+        char c;
         boolean loop = true;
         do
             {
@@ -731,7 +735,12 @@ public class JsonStreamParser
                 }
             else
                 {
-                currentChar = input.read();
+                if (bufferPosition == bufferLimit)
+                    {
+                    bufferLimit = Math.max(input.read(buffer, 0, buffer.length), 0);
+                    bufferPosition = 0;
+                    }
+                currentChar = (bufferPosition < bufferLimit) ? buffer[bufferPosition++] : -1;
                 }
 
             if (currentChar < 0)
@@ -784,6 +793,9 @@ public class JsonStreamParser
     private       int                level;
     private       int                currentChar;
     private       boolean            putback; // workaround for the lack of peek() in Reader
+    private final char[]             buffer; // read ahead, instead of a Reader call per character
+    private       int                bufferPosition;
+    private       int                bufferLimit;
     private final StringBuilder      sb; // reused local buffer.
     private final StringBuilder      sb2; // reused local buffer.
     // settings.
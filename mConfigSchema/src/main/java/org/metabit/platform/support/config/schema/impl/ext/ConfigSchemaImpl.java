@@ -12,8 +12,10 @@ import org.metabit.platform.support.config.interfaces.ConfigEntrySpecification;
 import org.metabit.platform.support.config.interfaces.ConfigLoggingInterface;
 import org.metabit.platform.support.config.impl.entry.ConfigEntryMetadata;
 import org.metabit.platform.support.config.impl.entry.GenericConfigEntryLeaf;
+import org.metabit.platform.support.config.impl.util.ConfigTypeConverter;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Current implementation uses, for code simplicity, the approach to check every value in its String representation.
@@ -24,7 +26,12 @@ import java.util.*;
  */
 public class ConfigSchemaImpl implements ConfigSchema
 {
-    private final Map<String, ConfigSchemaEntry> lut;
+    private static final int RESOLVED_CACHE_LIMIT = 16384; // concrete keys remembered for wildcard lookups
+
+    private final Map<String, ConfigSchemaEntry>           lut;
+    private final Set<String>                              exactKeys; // keys of lut without wildcards
+    private final SchemaKeyTrie                            wildcards;
+    private final Map<String, Optional<ConfigSchemaEntry>> resolved; // wildcard lookups by concrete key, misses included
 
     private boolean immutable = false;
 
@@ -37,6 +44,9 @@ public class ConfigSchemaImpl implements ConfigSchema
     public ConfigSchemaImpl()
         {
         this.lut = new HashMap<>();
+        this.exactKeys = new HashSet<>();
+        this.wildcards = new SchemaKeyTrie();
+        this.resolved = new ConcurrentHashMap<>();
         this.logger = NullLogging.getSingletonInstance();
         this.schemaDefaultConfigSource = new SchemaDefaultConfigStorage();
         }
@@ -52,6 +62,10 @@ public class ConfigSchemaImpl implements ConfigSchema
         this.logger = ctx.getLogger();
         this.refuseUndefinedEntries = ctx.getSettings().getBoolean(ConfigFeature.SCHEMA_STRICT_MODE);
         this.replaceDefaultLayer = ctx.getSettings().getBoolean(ConfigFeature.SCHEMA_RESETS_DEFAULTS);
+        for (ConfigSchemaEntry entry : lut.values())
+            {
+            entry.compileValidation();
+            }
         immutable = true;
         }
 
@@ -126,36 +140,89 @@ public class ConfigSchemaImpl implements ConfigSchema
     /** {@inheritDoc} */
     public void transferDefaults(DefaultLayer defaultLayer)
         {
-        if (this.replaceDefaultLayer)
-            defaultLayer.clear();
-
         ConfigSource defaultLayerSchemaLocation = new ConfigLocationImpl(ConfigScope.PRODUCT, schemaDefaultConfigSource, null, schemaDefaultConfigSource);
+        ConfigEntryMetadata sharedMeta = ConfigEntryMetadata.shared(defaultLayerSchemaLocation);
+        Map<String, ConfigEntry> defaults = new HashMap<>();
         for (Map.Entry<String, ConfigSchemaEntry> entry : lut.entrySet())
             {
             String key = entry.getKey();
+            if (SchemaKeyTrie.isWildcardKey(key)) continue; // no concrete key to put a default at
             ConfigSchemaEntry cse = entry.getValue();
             String stringDefault = cse.getDefault();
             if (stringDefault == null) continue;
 
-            ConfigEntryMetadata meta = new ConfigEntryMetadata(defaultLayerSchemaLocation);
-            meta.setSpecification(cse);
-            ConfigEntry ce = new GenericConfigEntryLeaf(key, stringDefault, ConfigEntryType.STRING, meta);
-            defaultLayer.putEntry(key, ce);
+            // converted once here, not on every read falling back to it
+            Object value = ConfigTypeConverter.toTypedValue(stringDefault, cse.getType());
+            defaults.put(key, new GenericConfigEntryLeaf(key, value, cse.getType(), sharedMeta.withSpecification(cse)));
             }
+        if (this.replaceDefaultLayer)
+            defaultLayer.replaceEntries(defaults); // in one step; readers never see the layer empty
+        else
+            defaultLayer.putEntries(defaults);
         return;
         }
 
-    /** {@inheritDoc} */
+    /**
+     * {@inheritDoc}
+     * Keys with wildcards are not included; they are patterns, not keys of entries. See {@link #getWildcardKeys()}.
+     */
     @Override
     public Set<String> getEntryKeys()
         {
-        return Collections.unmodifiableSet(lut.keySet());
+        return Collections.unmodifiableSet(exactKeys);
+        }
+
+    /**
+     * @return keys of schema entries containing wildcards, for copying or writing the schema as a whole.
+     */
+    public Set<String> getWildcardKeys()
+        {
+        Set<String> keys = new HashSet<>(lut.keySet());
+        keys.removeAll(exactKeys);
+        return Collections.unmodifiableSet(keys);
         }
 
     @Override
     public ConfigEntrySpecification getSpecification(String fullKey)
         {
-        return lut.get(fullKey);
+        return lookup(fullKey);
+        }
+
+    /**
+     * find the schema entry for a concrete key. Exact keys go first; wildcard keys are resolved
+     * once per concrete key, and the result is kept.
+     */
+    private ConfigSchemaEntry lookup(final String fullKey)
+        {
+        ConfigSchemaEntry entry = lut.get(fullKey);
+        if ((entry != null) || wildcards.isEmpty() || (fullKey == null))
+            {
+            return entry;
+            }
+        Optional<ConfigSchemaEntry> known = resolved.get(fullKey);
+        if (known == null)
+            {
+            known = Optional.ofNullable(wildcards.find(fullKey));
+            if (resolved.size() < RESOLVED_CACHE_LIMIT)
+                {
+                resolved.put(fullKey, known);
+                }
+            }
+        return known.orElse(null);
+        }
+
+    private void register(final String key, final ConfigSchemaEntry entry)
+        {
+        lut.put(key, entry);
+        if (SchemaKeyTrie.isWildcardKey(key))
+            {
+            wildcards.put(key, entry);
+            resolved.clear();
+            }
+        else
+            {
+            exactKeys.add(key);
+            }
         }
 
 
@@ -163,7 +230,7 @@ public class ConfigSchemaImpl implements ConfigSchema
     @Override
     public boolean checkConfigEntryValidity(final String fullKey, final ConfigEntry entry)
         {
-        ConfigSchemaEntry matchingSchemeEntry = lut.get(fullKey);
+        ConfigSchemaEntry matchingSchemeEntry = lookup(fullKey);
         if (matchingSchemeEntry != null)
             {
             boolean res = matchingSchemeEntry.validateEntry(entry);
@@ -284,7 +351,7 @@ public class ConfigSchemaImpl implements ConfigSchema
             tmp.setFlags(flags);
         if (scopes != null)
             tmp.setScopes(scopes);
-        lut.put(fullKey, tmp);
+        register(fullKey, tmp);
         return;
         }
 
@@ -299,7 +366,7 @@ public class ConfigSchemaImpl implements ConfigSchema
             {
             throw new ConfigException(ConfigException.ConfigExceptionReason.UNKNOWN_MANDATORY_FEATURE, entry.getKey());
             }
-        lut.put(entry.getKey(), entry);
+        register(entry.getKey(), entry);
         }
 
     @Override
@@ -41,6 +41,10 @@ public class JsonConfigSchemaParser
         sb.append("  \"ENTRIES\": [\n");
 
         List<String> keys = new ArrayList<>(schema.getEntryKeys());
+        if (schema instanceof ConfigSchemaImpl)
+            {
+            keys.addAll(((ConfigSchemaImpl) schema).getWildcardKeys());
+            }
         Collections.sort(keys);
 
         boolean first = true;
@@ -537,11 +541,15 @@ public class JsonConfigSchemaParser
             // Handle the case where entries were added to resultStorage with name "" but should have been here
             if (resultStorage.containsKey("") && name != null && !name.isEmpty())
                 {
-                ConfigSchema anonymous = resultStorage.get("");
+                ConfigSchemaImpl anonymous = (ConfigSchemaImpl) resultStorage.get("");
                 for (String key : anonymous.getEntryKeys())
                     {
                     schema.addSchemaEntry((ConfigSchemaEntry) anonymous.getSpecification(key));
                     }
+                for (String key : anonymous.getWildcardKeys())
+                    {
+                    schema.addSchemaEntry((ConfigSchemaEntry) anonymous.getSpecification(key));
+                    }
                 resultStorage.remove("");
                 }
             }
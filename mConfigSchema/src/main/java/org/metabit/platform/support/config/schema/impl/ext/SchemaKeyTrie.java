@@ -0,0 +1,158 @@
+package org.metabit.platform.support.config.schema.impl.ext;
+
+import org.metabit.platform.support.config.schema.ConfigSchemaEntry;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * schema entries with wildcard keys, stored by key segment.
+ * <p>
+ * A segment "*" matches any single segment, "**" one or more segments, and a segment with "*" inside,
+ * e.g. "node-*", the segments fitting that pattern. Where several entries match a key, segments are
+ * compared from the left: an exact segment goes before a pattern, a pattern before "*", "*" before "**".
+ * <p>
+ * Filled before the schema is initialized, read-only afterwards.
+ */
+final class SchemaKeyTrie
+{
+    private static final String ANY      = "*";
+    private static final String ANY_DEEP = "**";
+
+    private final Node root = new Node();
+    private       int  size;
+
+    /**
+     * @param key schema key
+     * @return true if the key holds wildcards, and belongs in here
+     */
+    static boolean isWildcardKey(final String key)
+        {
+        return (key != null) && (key.indexOf('*') >= 0);
+        }
+
+    void put(final String key, final ConfigSchemaEntry entry)
+        {
+        Node node = root;
+        for (String segment : key.split("/"))
+            {
+            node = node.child(segment);
+            }
+        if (node.entry == null)
+            {
+            size++;
+            }
+        node.entry = entry;
+        }
+
+    boolean isEmpty()
+        {
+        return size == 0;
+        }
+
+    /**
+     * @param fullKey concrete key
+     * @return the entry matching it with highest precedence; null if none does.
+     */
+    ConfigSchemaEntry find(final String fullKey)
+        {
+        return find(root, fullKey.split("/"), 0);
+        }
+
+    private static ConfigSchemaEntry find(final Node node, final String[] segments, final int index)
+        {
+        if (index == segments.length)
+            {
+            return node.entry;
+            }
+        String segment = segments[index];
+        ConfigSchemaEntry found;
+        if (node.exact != null)
+            {
+            Node next = node.exact.get(segment);
+            if ((next != null) && ((found = find(next, segments, index+1)) != null))
+                { return found; }
+            }
+        if (node.patterns != null)
+            {
+            for (PatternNode next : node.patterns)
+                {
+                if (next.pattern.matcher(segment).matches() && ((found = find(next.node, segments, index+1)) != null))
+                    { return found; }
+                }
+            }
+        if ((node.any != null) && ((found = find(node.any, segments, index+1)) != null))
+            { return found; }
+        if (node.anyDeep != null)
+            {
+            // "**" takes as few segments as possible, so the segments after it are compared as early as possible
+            for (int end = index+1; end <= segments.length; end++)
+                {
+                if ((found = find(node.anyDeep, segments, end)) != null)
+                    { return found; }
+                }
+            }
+        return null;
+        }
+
+    private static final class Node
+    {
+        Map<String, Node> exact;
+        List<PatternNode> patterns;
+        Node              any;
+        Node              anyDeep;
+        ConfigSchemaEntry entry;
+
+        Node child(final String segment)
+            {
+            if (ANY.equals(segment))
+                {
+                if (any == null) any = new Node();
+                return any;
+                }
+            if (ANY_DEEP.equals(segment))
+                {
+                if (anyDeep == null) anyDeep = new Node();
+                return anyDeep;
+                }
+            if (isWildcardKey(segment))
+                {
+                if (patterns == null) patterns = new ArrayList<>();
+                for (PatternNode existing : patterns)
+                    {
+                    if (existing.segment.equals(segment)) return existing.node;
+                    }
+                PatternNode created = new PatternNode(segment);
+                patterns.add(created);
+                return created.node;
+                }
+            if (exact == null) exact = new HashMap<>();
+            return exact.computeIfAbsent(segment, s->new Node());
+            }
+    }
+
+    private static final class PatternNode
+    {
+        final String  segment;
+        final Pattern pattern;
+        final Node    node = new Node();
+
+        PatternNode(final String segment)
+            {
+            this.segment = segment;
+            StringBuilder regex = new StringBuilder();
+            int start = 0;
+            for (int star = segment.indexOf('*'); star >= 0; star = segment.indexOf('*', start))
+                {
+                if (star > start) regex.append(Pattern.quote(segment.substring(start, star)));
+                regex.append(".*");
+                start = star+1;
+                }
+            if (start < segment.length()) regex.append(Pattern.quote(segment.substring(start)));
+            this.pattern = Pattern.compile(regex.toString());
+            }
+    }
+}
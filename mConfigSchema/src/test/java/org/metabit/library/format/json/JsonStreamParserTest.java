@@ -54,12 +54,15 @@ class JsonStreamParserTest
         String testObject2 = "{\"key\":\"value\"}";
         String testObject3 = "{\"key\":4711}";
         String testObject4 = " { \"key\" :  4711    }   ";
+        String testObject5 = "{\"a\":1,\"b\":0,\"c\":{\"d\":-2.5,\"e\":1e3},\"f\":true}"; // numbers directly followed by ,
+        String testArray = "[1,2.5,0,-3]";
 
         JsonStreamParser.parseJson(testObject1, consumer);
         JsonStreamParser.parseJson(testObject2, consumer);
         JsonStreamParser.parseJson(testObject3, consumer);
         JsonStreamParser.parseJson(testObject4, consumer);
-
+        JsonStreamParser.parseJson(testObject5, consumer);
+        JsonStreamParser.parseJson(testArray, consumer);
         }
 }
 //___EOF___
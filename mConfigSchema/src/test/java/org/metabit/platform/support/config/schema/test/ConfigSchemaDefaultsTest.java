@@ -0,0 +1,60 @@
+package org.metabit.platform.support.config.schema.test;
+
+import org.junit.jupiter.api.Test;
+import org.metabit.platform.support.config.ConfigCheckedException;
+import org.metabit.platform.support.config.ConfigEntry;
+import org.metabit.platform.support.config.ConfigEntryType;
+import org.metabit.platform.support.config.impl.ConfigFactoryInstanceContext;
+import org.metabit.platform.support.config.impl.ConfigFactorySettings;
+import org.metabit.platform.support.config.schema.ConfigSchema;
+import org.metabit.platform.support.config.schema.impl.ext.JsonConfigSchemaParser;
+import org.metabit.platform.support.config.source.core.DefaultLayer;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConfigSchemaDefaultsTest
+{
+    private static final String SCHEMA = "["
+            +"{\"KEY\": \"port\", \"TYPE\": \"NUMBER\", \"DEFAULT\": \"8080\", \"PATTERN\": \"uint16\"},"
+            +"{\"KEY\": \"ratio\", \"TYPE\": \"NUMBER\", \"DEFAULT\": \"0.75\"},"
+            +"{\"KEY\": \"scaled\", \"TYPE\": \"NUMBER\", \"DEFAULT\": \"1e3\"},"
+            +"{\"KEY\": \"debug\", \"TYPE\": \"BOOLEAN\", \"DEFAULT\": \"true\"},"
+            +"{\"KEY\": \"timeout\", \"TYPE\": \"DURATION\", \"DEFAULT\": \"PT30S\"},"
+            +"{\"KEY\": \"name\", \"TYPE\": \"STRING\", \"DEFAULT\": \"app\"},"
+            +"{\"KEY\": \"none\", \"TYPE\": \"STRING\"}"
+            +"]";
+
+    @Test
+    public void testDefaultsAreTypedOnTransfer() throws ConfigCheckedException
+        {
+        ConfigFactoryInstanceContext ctx = new ConfigFactoryInstanceContext(new ConfigFactorySettings());
+        Map<String, ConfigSchema> schemes = JsonConfigSchemaParser.parseJSON(SCHEMA, ctx);
+        ConfigSchema schema = schemes.get("");
+        schema.init(ctx);
+        DefaultLayer layer = new DefaultLayer(ctx);
+        schema.transferDefaults(layer);
+
+        ConfigEntry port = layer.getEntry("port");
+        assertEquals(ConfigEntryType.NUMBER, port.getType());
+        assertEquals(8080, port.getValueAsInteger());
+        assertEquals("8080", port.getValueAsString());
+        assertSame(schema.getSpecification("port"), port.getSpecification());
+        assertTrue(schema.checkConfigEntryValidity("port", port), "typed defaults pass the schema check");
+
+        assertEquals(0.75, layer.getEntry("ratio").getValueAsDouble());
+        assertEquals("1e3", layer.getEntry("scaled").getValueAsString(), "text kept where the typed value would print differently");
+        assertEquals(0, new BigDecimal(1000).compareTo(layer.getEntry("scaled").getValueAsBigDecimal()));
+        assertTrue(layer.getEntry("debug").getValueAsBoolean());
+        assertTrue(schema.checkConfigEntryValidity("debug", layer.getEntry("debug")));
+        assertEquals(Duration.ofSeconds(30), layer.getEntry("timeout").getValueAsDuration());
+        assertEquals("app", layer.getEntry("name").getValueAsString());
+        assertNull(layer.getEntry("none"));
+
+        assertThrows(UnsupportedOperationException.class, ()->layer.getEntry("name").setComment("given"), "defaults are read-only");
+        assertNull(layer.getEntry("name").getComment());
+        }
+}
@@ -77,6 +77,41 @@ public class ConfigSchemaEnhancementTest
         assertFalse(scheme.checkConfigEntryValidity("name", createStringEntry("name", "John123", ConfigEntryType.STRING)));
     }
 
+    @Test
+    public void testCompiledNumberChecks() throws ConfigCheckedException {
+        ConfigSchemaFactory factory = ConfigSchemaFactory.create();
+
+        ConfigSchemaEntry int32 = factory.createEntry("count", ConfigEntryType.NUMBER);
+        int32.setValidationPattern("int32");
+        assertTrue(int32.validateEntry(createNumberEntry("count", Integer.MIN_VALUE)));
+        assertTrue(int32.validateEntry(createStringEntry("count", "+2147483647", ConfigEntryType.NUMBER)));
+        assertFalse(int32.validateEntry(createNumberEntry("count", 2147483648L)));
+        assertTrue(int32.validateEntry(createStringEntry("count", "2.0", ConfigEntryType.NUMBER)));
+        assertFalse(int32.validateEntry(createStringEntry("count", "2.5", ConfigEntryType.NUMBER)));
+        assertFalse(int32.validateEntry(createStringEntry("count", "12 apples", ConfigEntryType.NUMBER)));
+
+        ConfigSchemaEntry uint64 = factory.createEntry("id", ConfigEntryType.NUMBER);
+        uint64.setValidationPattern("uint64");
+        assertTrue(uint64.validateEntry(createNumberEntry("id", Long.MAX_VALUE)));
+        assertTrue(uint64.validateEntry(createStringEntry("id", "18446744073709551615", ConfigEntryType.NUMBER)));
+        assertFalse(uint64.validateEntry(createStringEntry("id", "18446744073709551616", ConfigEntryType.NUMBER)));
+        assertFalse(uint64.validateEntry(createNumberEntry("id", -1)));
+
+        ConfigSchemaEntry open = factory.createEntry("ratio", ConfigEntryType.NUMBER);
+        open.setValidationPattern("(0.5, 2.5)");
+        assertFalse(open.validateEntry(createNumberEntry("ratio", 0)));
+        assertTrue(open.validateEntry(createNumberEntry("ratio", 1)));
+        assertTrue(open.validateEntry(createNumberEntry("ratio", 2)));
+        assertFalse(open.validateEntry(createNumberEntry("ratio", 3)));
+        assertTrue(open.validateEntry(createNumberEntry("ratio", 0.75)));
+
+        ConfigSchemaEntry plain = factory.createEntry("any", ConfigEntryType.NUMBER);
+        assertTrue(plain.validateEntry(createStringEntry("any", "1e3", ConfigEntryType.NUMBER)));
+        assertFalse(plain.validateEntry(createStringEntry("any", "one", ConfigEntryType.NUMBER)));
+        plain.setValidator(java.util.regex.Pattern.compile("[0-9]+"));
+        assertFalse(plain.validateEntry(createStringEntry("any", "1e3", ConfigEntryType.NUMBER)), "plan compiled anew for the changed pattern");
+    }
+
     private ConfigEntry createNumberEntry(String key, Number value) {
         return new GenericConfigEntryLeaf(key, value, ConfigEntryType.NUMBER, null);
     }
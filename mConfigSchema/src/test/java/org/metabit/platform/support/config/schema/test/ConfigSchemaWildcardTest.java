@@ -0,0 +1,88 @@
+package org.metabit.platform.support.config.schema.test;
+
+import org.junit.jupiter.api.Test;
+import org.metabit.platform.support.config.ConfigCheckedException;
+import org.metabit.platform.support.config.ConfigEntry;
+import org.metabit.platform.support.config.ConfigEntryType;
+import org.metabit.platform.support.config.impl.entry.GenericConfigEntryLeaf;
+import org.metabit.platform.support.config.schema.ConfigSchema;
+import org.metabit.platform.support.config.schema.ConfigSchemaEntry;
+import org.metabit.platform.support.config.schema.ConfigSchemaFactory;
+import org.metabit.platform.support.config.schema.impl.ext.JsonConfigSchemaParser;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConfigSchemaWildcardTest
+{
+    @Test
+    public void testWildcardKeys() throws ConfigCheckedException
+        {
+        ConfigSchemaFactory factory = ConfigSchemaFactory.create();
+        ConfigSchema schema = factory.createSchema();
+        schema.addSchemaEntry(number(factory, "servers/*/port", "uint16"));
+        schema.addSchemaEntry(number(factory, "servers/main/port", "[1000, 2000]"));
+        schema.addSchemaEntry(number(factory, "servers/node-*/port", "[8000, 9000]"));
+        schema.addSchemaEntry(number(factory, "limits/**/max", "[0, 10]"));
+
+        // exact key goes first
+        assertEquals("servers/main/port", schema.getSpecification("servers/main/port").getKey());
+        assertTrue(schema.checkConfigEntryValidity("servers/main/port", entry("servers/main/port", 1500)));
+        assertFalse(schema.checkConfigEntryValidity("servers/main/port", entry("servers/main/port", 80)));
+        // pattern segment goes before "*"
+        assertEquals("servers/node-*/port", schema.getSpecification("servers/node-7/port").getKey());
+        assertFalse(schema.checkConfigEntryValidity("servers/node-7/port", entry("servers/node-7/port", 80)));
+        // "*" matches a single segment
+        assertEquals("servers/*/port", schema.getSpecification("servers/backup/port").getKey());
+        assertTrue(schema.checkConfigEntryValidity("servers/backup/port", entry("servers/backup/port", 80)));
+        assertFalse(schema.checkConfigEntryValidity("servers/backup/port", entry("servers/backup/port", 70000)));
+        assertNull(schema.getSpecification("servers/a/b/port"));
+        // "**" matches one or more segments
+        assertNotNull(schema.getSpecification("limits/a/max"));
+        assertNotNull(schema.getSpecification("limits/a/b/c/max"));
+        assertNull(schema.getSpecification("limits/max"));
+        assertFalse(schema.checkConfigEntryValidity("limits/a/b/max", entry("limits/a/b/max", 11)));
+        // resolved again the same, from the cache
+        assertEquals("servers/node-*/port", schema.getSpecification("servers/node-7/port").getKey());
+        assertNull(schema.getSpecification("servers/a/b/port"));
+        }
+
+    @Test
+    public void testAddingClearsResolvedKeys() throws ConfigCheckedException
+        {
+        ConfigSchemaFactory factory = ConfigSchemaFactory.create();
+        ConfigSchema schema = factory.createSchema();
+        schema.addSchemaEntry(number(factory, "a/*", "uint8"));
+        assertNull(schema.getSpecification("b/x"));
+        assertEquals("a/*", schema.getSpecification("a/x").getKey());
+        schema.addSchemaEntry(number(factory, "*/x", "uint8"));
+        assertEquals("*/x", schema.getSpecification("b/x").getKey());
+        assertEquals("a/*", schema.getSpecification("a/x").getKey(), "first segment compared first");
+        }
+
+    @Test
+    public void testEntryKeysWithoutWildcards() throws ConfigCheckedException
+        {
+        ConfigSchemaFactory factory = ConfigSchemaFactory.create();
+        ConfigSchema schema = factory.createSchema();
+        schema.addSchemaEntry(number(factory, "servers/*/port", "uint16"));
+        schema.addSchemaEntry(number(factory, "servers/main/port", "[1000, 2000]"));
+        schema.addSchemaEntry(number(factory, "limits/**/max", "[0, 10]"));
+        assertEquals(Set.of("servers/main/port"), schema.getEntryKeys());
+        String json = JsonConfigSchemaParser.generateJson(schema, "test", false, false);
+        assertEquals(3, json.split("\"KEY\"", -1).length-1, "wildcard entries are written with the schema as a whole");
+        }
+
+    private static ConfigSchemaEntry number(ConfigSchemaFactory factory, String key, String range)
+        {
+        ConfigSchemaEntry entry = factory.createEntry(key, ConfigEntryType.NUMBER);
+        entry.setValidationPattern(range);
+        return entry;
+        }
+
+    private static ConfigEntry entry(String key, Number value)
+        {
+        return new GenericConfigEntryLeaf(key, value, ConfigEntryType.NUMBER, null);
+        }
+}
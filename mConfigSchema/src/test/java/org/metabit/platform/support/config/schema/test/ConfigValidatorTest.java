@@ -0,0 +1,81 @@
+package org.metabit.platform.support.config.schema.test;
+
+import org.junit.jupiter.api.Test;
+import org.metabit.platform.support.config.*;
+import org.metabit.platform.support.config.impl.ConfigFactoryInstanceContext;
+import org.metabit.platform.support.config.impl.ConfigFactorySettings;
+import org.metabit.platform.support.config.impl.ConfigLocationImpl;
+import org.metabit.platform.support.config.impl.entry.GenericConfigEntryLeaf;
+import org.metabit.platform.support.config.interfaces.ConfigLayerInterface;
+import org.metabit.platform.support.config.schema.*;
+import org.metabit.platform.support.config.source.core.DefaultLayerStorage;
+import org.metabit.platform.support.config.source.core.InMemoryLayer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConfigValidatorTest
+{
+    @Test
+    public void testEveryLayerIsReportedWithItsOrigin() throws ConfigCheckedException
+        {
+        ConfigFactoryInstanceContext ctx = new ConfigFactoryInstanceContext(new ConfigFactorySettings());
+        ConfigSchemaFactory factory = ConfigSchemaFactory.create();
+        ConfigSchema schema = factory.createSchema();
+        ConfigSchemaEntry port = factory.createEntry("server/port", ConfigEntryType.NUMBER);
+        port.setValidationPattern("port");
+        schema.addSchemaEntry(port);
+        ConfigSchemaEntry password = factory.createEntry("server/password", ConfigEntryType.STRING);
+        password.setValidationPattern("[a-z]+");
+        password.setSecret(true);
+        schema.addSchemaEntry(password);
+
+        InMemoryLayer user = new InMemoryLayer(ctx, new ConfigLocationImpl(ConfigScope.USER, new DefaultLayerStorage(), null, null), ConfigScope.USER);
+        InMemoryLayer host = new InMemoryLayer(ctx, new ConfigLocationImpl(ConfigScope.HOST, new DefaultLayerStorage(), null, null), ConfigScope.HOST);
+        user.writeEntry(new GenericConfigEntryLeaf("server/port", 8080, ConfigEntryType.NUMBER, null));
+        host.writeEntry(new GenericConfigEntryLeaf("server/port", 99999, ConfigEntryType.NUMBER, null)); // hidden by USER, still wrong
+        host.writeEntry(new GenericConfigEntryLeaf("server/password", "S3cret", ConfigEntryType.STRING, null));
+        for (int i = 0; i < 500; i++)
+            {
+            host.writeEntry(new GenericConfigEntryLeaf("limits/l"+i, i, ConfigEntryType.NUMBER, null));
+            }
+        List<ConfigLayerInterface> layers = List.of(user, host);
+
+        ConfigValidationReport report = ConfigValidator.sequential().validate("app", layers, schema);
+        assertFalse(report.isValid());
+        assertEquals(503, report.getCheckedEntryCount());
+        assertEquals(2, report.getLayers().size());
+        assertTrue(report.getLayers().get(0).getFindings().isEmpty());
+        List<ConfigValidationReport.Finding> hostFindings = report.getLayers().get(1).getFindings();
+        assertEquals(2, hostFindings.size());
+        for (ConfigValidationReport.Finding finding : hostFindings)
+            {
+            assertEquals(ConfigScope.HOST, finding.getScope());
+            assertEquals(host.getSource().toLocationString(), finding.getLocation());
+            }
+        ConfigValidationReport.Finding secret = hostFindings.stream().filter(f->f.getKey().equals("server/password")).findFirst().orElseThrow();
+        assertNotEquals("S3cret", secret.getValue(), "secrets are masked");
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try
+            {
+            ConfigValidationReport parallel = ConfigValidator.parallel(pool).validate("app", layers, schema);
+            assertEquals(keys(report), keys(parallel), "same findings, same order");
+            assertEquals(report.getCheckedEntryCount(), parallel.getCheckedEntryCount());
+            }
+        finally
+            {
+            pool.shutdown();
+            }
+        }
+
+    private static List<String> keys(ConfigValidationReport report)
+        {
+        List<String> keys = new ArrayList<>();
+        report.getFindings().forEach(f->keys.add(f.getScope()+":"+f.getKey()));
+        return keys;
+        }
+}
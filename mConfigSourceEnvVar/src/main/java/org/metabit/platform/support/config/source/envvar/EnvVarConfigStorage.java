@@ -2,18 +2,23 @@ package org.metabit.platform.support.config.source.envvar;
 
 import org.metabit.platform.support.config.*;
 import org.metabit.platform.support.config.impl.*;
-import org.metabit.platform.support.config.impl.entry.ConfigEntryFactory;
+import org.metabit.platform.support.config.impl.entry.AbstractConfigEntry;
+import org.metabit.platform.support.config.impl.entry.ConfigEntryMetadata;
+import org.metabit.platform.support.config.impl.entry.GenericConfigEntryLeaf;
+import org.metabit.platform.support.config.interfaces.ConfigEntrySpecification;
 import org.metabit.platform.support.config.interfaces.ConfigLayerInterface;
 import org.metabit.platform.support.config.interfaces.ConfigLoggingInterface;
 import org.metabit.platform.support.config.interfaces.ConfigStorageInterface;
 import org.metabit.platform.support.config.interfaces.LayeredConfigurationInterface;
 import org.metabit.platform.support.config.schema.ConfigSchema;
+import org.metabit.platform.support.config.schema.NullConfigEntrySpecification;
 
 import java.net.URI;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 /**
@@ -148,12 +153,17 @@ public class EnvVarConfigStorage implements ConfigStorageInterface
         private final ConfigSource                 source;
         private final String                       prefix;
         private final Map<String, String>          envOverride;
+        private final ConfigEntryMetadata          sharedMeta;
+        // entries by key, with the variable they were read from; valid as long as the variable has the same value.
+        private final Map<String, ReadEntry>       entries          = new ConcurrentHashMap<>();
+        private final Map<String, ReadEntry>       specifiedEntries = new ConcurrentHashMap<>();
 
         public EnvVarConfigLayer(ConfigFactoryInstanceContext context, ConfigLocation location, String configName, Map<String, String> envOverride)
             {
             this.context = context;
             this.envOverride = envOverride;
             this.source = new ConfigLocationImpl(location, this, null, null);
+            this.sharedMeta = ConfigEntryMetadata.shared(source);
             String appName = context.getSettings().getString(ConfigFeature.APPLICATION_NAME);
             this.prefix = (appName+"_"+configName+"_").toUpperCase();
             }
@@ -176,17 +186,46 @@ public class EnvVarConfigStorage implements ConfigStorageInterface
         @Override
         public ConfigEntry getEntry(String hierarchicalKey)
             {
-            String envVarName = (prefix + hierarchicalKey)
+            return getEntry(hierarchicalKey, entries, null);
+            }
+
+        @Override
+        public ConfigEntry getEntry(String hierarchicalKey, ConfigEntrySpecification specification)
+            {
+            if ((specification == null) || (specification instanceof NullConfigEntrySpecification))
+                {
+                return getEntry(hierarchicalKey, entries, null);
+                }
+            return getEntry(hierarchicalKey, specifiedEntries, specification);
+            }
+
+        private ConfigEntry getEntry(String hierarchicalKey, Map<String, ReadEntry> memo, ConfigEntrySpecification specification)
+            {
+            ReadEntry read = memo.get(hierarchicalKey);
+            String envVarName = (read != null) ? read.envVarName : toEnvVarName(hierarchicalKey);
+            String value = getEnv(envVarName);
+            if (value == null)
+                {
+                return null;
+                }
+            // the environment returns the same String instance for an unchanged variable
+            if ((read != null) && (read.value == value) && ((specification == null) || AbstractConfigEntry.isSpecifiedAs(read.entry, specification)))
+                {
+                return read.entry;
+                }
+            ConfigEntryMetadata meta = (specification == null) ? sharedMeta : sharedMeta.withSpecification(specification);
+            ConfigEntry entry = new GenericConfigEntryLeaf(hierarchicalKey, value, ConfigEntryType.STRING, meta);
+            memo.put(hierarchicalKey, new ReadEntry(envVarName, value, entry));
+            return entry;
+            }
+
+        private String toEnvVarName(String hierarchicalKey)
+            {
+            return (prefix + hierarchicalKey)
                     .replace("__", "_ESC_") // escape existing double underscores
                     .replace("/", "_")      // hierarchy slash converted to underscore
                     .replace("_ESC_", "__") // restore as double underscore
                     .toUpperCase();
-            String value = getEnv(envVarName);
-            if (value != null)
-                {
-                return ConfigEntryFactory.createEntry(hierarchicalKey, value, ConfigEntryType.STRING, null, source);
-                }
-            return null;
             }
 
         @Override
@@ -249,5 +288,19 @@ public class EnvVarConfigStorage implements ConfigStorageInterface
                     .map(k->k.substring(prefix.length()).toLowerCase().replace('_', '/'))
                     .collect(Collectors.toList()).iterator();
             }
+
+        private static final class ReadEntry
+        {
+            final String      envVarName;
+            final String      value;
+            final ConfigEntry entry;
+
+            ReadEntry(String envVarName, String value, ConfigEntry entry)
+                {
+                this.envVarName = envVarName;
+                this.value = value;
+                this.entry = entry;
+                }
+        }
     }
 }
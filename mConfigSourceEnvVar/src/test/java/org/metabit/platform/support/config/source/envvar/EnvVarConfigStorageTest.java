@@ -8,6 +8,7 @@ import org.metabit.platform.support.config.impl.ConfigFactorySettings;
 import org.metabit.platform.support.config.impl.ConfigLocationImpl;
 import org.metabit.platform.support.config.interfaces.ConfigLoggingInterface;
 import org.metabit.platform.support.config.interfaces.LayeredConfigurationInterface;
+import org.metabit.platform.support.config.schema.ConfigSchemaEntry;
 import org.mockito.ArgumentCaptor;
 
 import java.util.HashMap;
@@ -75,4 +76,32 @@ class EnvVarConfigStorageTest
         org.metabit.platform.support.config.interfaces.ConfigLayerInterface layer = layerCaptor.getValue();
         assertEquals("value", layer.getEntry("nested/key/here").getValueAsString());
     }
+
+    @Test
+    void testEntriesReusedWhileUnchanged() throws ConfigCheckedException
+    {
+        envVars.put("MYAPP_MYCONFIG_TIMEOUT", "PT30S");
+        LayeredConfigurationInterface layeredCfg = mock(LayeredConfigurationInterface.class);
+        ConfigLocation location = new ConfigLocationImpl(ConfigScope.SESSION, storage, null, null);
+
+        storage.updateConfigurationLayers("myconfig", location, layeredCfg);
+
+        ArgumentCaptor<org.metabit.platform.support.config.interfaces.ConfigLayerInterface> layerCaptor = ArgumentCaptor.forClass(org.metabit.platform.support.config.interfaces.ConfigLayerInterface.class);
+        verify(layeredCfg).add(layerCaptor.capture(), eq(location));
+
+        org.metabit.platform.support.config.interfaces.ConfigLayerInterface layer = layerCaptor.getValue();
+        ConfigEntry entry = layer.getEntry("timeout");
+        assertSame(entry, layer.getEntry("timeout"));
+
+        ConfigSchemaEntry spec = new ConfigSchemaEntry("timeout", ConfigEntryType.DURATION);
+        ConfigEntry specified = layer.getEntry("timeout", spec);
+        assertSame(spec, specified.getSpecification());
+        assertSame(specified, layer.getEntry("timeout", spec));
+
+        envVars.put("MYAPP_MYCONFIG_TIMEOUT", "PT10S");
+        assertEquals("PT10S", layer.getEntry("timeout").getValueAsString());
+        assertEquals("PT10S", layer.getEntry("timeout", spec).getValueAsString());
+        envVars.remove("MYAPP_MYCONFIG_TIMEOUT");
+        assertNull(layer.getEntry("timeout"));
+    }
 }
@@ -4,6 +4,7 @@ import org.metabit.platform.support.config.ConfigException;
 import org.metabit.platform.support.config.ConfigFeature;
 import org.metabit.platform.support.config.ConfigLocation;
 import org.metabit.platform.support.config.impl.ConfigFactoryInstanceContext;
+import org.metabit.platform.support.config.impl.util.AtomicFileWriter;
 import org.metabit.platform.support.config.interfaces.ConfigLoggingInterface;
 
 import java.io.IOException;
@@ -19,81 +20,95 @@ import java.util.*;
 /// It also records directories and files which do not exist yet,
 /// to report when they come into existence, and then watch them.
 /// detects atomic swaps using ENTRY_CREATE and ENTRY_DELETE
-public class FileChangeWatcher extends TimerTask
+///
+/// The WatchService and the thread delivering its events are shared process-wide, see SharedWatchRegistry;
+/// each watcher only holds its own registrations.
+public class FileChangeWatcher implements SharedWatchRegistry.Listener
 {
     private final ConfigLoggingInterface logger;
-    private final WatchService           watchService; // JDK1.7
+    private final SharedWatchRegistry    registry; // null if no WatchService is available
     private final boolean               watchServiceAvailable;
-    private final Map<Path, WatchKey>    directoryWatchMap;
+    private final Set<Path>              directoryWatchMap; // directories registered with the registry
     private final Map<Path, Path>        fileWatchMapForward; //  file to directory
     private final PathPathMultimap       fileWatchMapBackward; // directory to file
     private final Map<Path, Boolean>     fileChangedFlags;
-    private final Timer                  timer;
+    private final long                   checkIntervalMilliseconds;
     private final PathPathMultimap       cantWatchThis;
+    private final Set<Path>              invalidatedDirectories; // reported by the registry, handled on the next periodic check
     private final ConfigFactoryInstanceContext ctx;
     private final Map<Path, ConfigLocation> pathToLocationMap;
+    private boolean                      released;
 
     public FileChangeWatcher(ConfigFactoryInstanceContext ctx)
             throws IOException
         {
+        this(ctx, null);
+        }
+
+    /**
+     * @param ctx      context
+     * @param registry registry to use; null for the process-wide shared one. Retained here, released on cleanup().
+     */
+    FileChangeWatcher(ConfigFactoryInstanceContext ctx, SharedWatchRegistry registry)
+        {
         this.ctx = ctx;
         this.logger = ctx.getLogger();
-        WatchService createdWatchService = null;
-        boolean watchServiceOk = false;
-        try
+        if ((registry != null) && !registry.retain())
             {
-            createdWatchService = FileSystems.getDefault().newWatchService(); // may throw UnsupportedOperationException on some exotic filesystems, in theory.
-            watchServiceOk = true;
+            logger.warn("file watching disabled (watch registry closed)");
+            registry = null;
             }
-        catch (IOException ex)
+        else if (registry == null)
             {
-            logger.warn("file watching disabled (WatchService unavailable)", ex);
+            try
+                {
+                registry = SharedWatchRegistry.acquire(); // may throw UnsupportedOperationException on some exotic filesystems, in theory.
+                }
+            catch (IOException|UnsupportedOperationException ex)
+                {
+                logger.warn("file watching disabled (WatchService unavailable)", ex);
+                }
             }
-        this.watchService = createdWatchService;
-        this.watchServiceAvailable = watchServiceOk;
-        this.directoryWatchMap = new HashMap<>();
+        this.registry = registry;
+        this.watchServiceAvailable = (registry != null);
+        this.directoryWatchMap = new HashSet<>();
         this.fileWatchMapForward = new HashMap<>();
         this.fileWatchMapBackward = new PathPathMultimap();
         this.fileChangedFlags = new HashMap<>();
         this.cantWatchThis = new PathPathMultimap();
+        this.invalidatedDirectories = new HashSet<>();
         this.pathToLocationMap = new HashMap<>();
-        int checkIntervalMilliseconds = ctx.getSettings().getInteger(ConfigFeature.UPDATE_CHECK_FREQUENCY_MS);
+        Integer interval = ctx.getSettings().getInteger(ConfigFeature.UPDATE_CHECK_FREQUENCY_MS);
+        this.checkIntervalMilliseconds = (interval == null) ? 0 : interval;
         if (watchServiceAvailable && checkIntervalMilliseconds > 0)
             {
-            timer = new Timer(true); // daemon thread
-            timer.scheduleAtFixedRate(this, 0, checkIntervalMilliseconds);
+            this.registry.addPeriodicCheck(this);
             }
-        else
+        else if (watchServiceAvailable)
             {
-            timer = null;
-            if (watchServiceAvailable)
-                {
-                logger.info("file refresh timer turned off");
-                }
+            logger.info("file refresh timer turned off");
             }
         }
 
     public synchronized void cleanup()
             throws IOException
         {
-        if (timer != null)
-            { timer.cancel(); }
-        // this.watchMap.forEach((key,value) -> { value.cancel(); watchMap.remove(key); }); looks elegant but causes ConcurrentModificationException.
-        Iterator<Map.Entry<Path, WatchKey>> it = directoryWatchMap.entrySet().iterator();
-        while (it.hasNext())
-            {
-            Map.Entry<Path, WatchKey> entry = it.next();
-            entry.getValue().cancel();
-            it.remove(); // remove via iterator to avoid ConcurrentModificationException
-            }
-        if (watchService != null)
+        if (registry != null && !released)
             {
-            this.watchService.close();
+            registry.removePeriodicCheck(this);
+            for (Path directory : directoryWatchMap)
+                {
+                registry.unregister(directory, this);
+                }
+            registry.release();
+            released = true;
             }
+        directoryWatchMap.clear();
         fileChangedFlags.clear();
         fileWatchMapForward.clear();
         fileWatchMapBackward.clear();
         cantWatchThis.clear();
+        invalidatedDirectories.clear();
         return;
         }
 
@@ -127,7 +142,7 @@ public class FileChangeWatcher extends TimerTask
             addDirectory(parentDir); // on first watch on this directory, create entry.
             }
         fileWatchMapBackward.put(parentDir, file);
-        fileChangedFlags.put(file, false);
+        fileChangedFlags.putIfAbsent(file, false); // re-adding must not swallow a change not yet checked
         pathToLocationMap.put(file, location);
         return;
         }
@@ -190,22 +205,22 @@ public class FileChangeWatcher extends TimerTask
      */
     public synchronized void addDirectory(final Path dir)
         {
-        if (!watchServiceAvailable)
+        if (!watchServiceAvailable || released)
             {
             logger.debug("watch service unavailable; skipping directory watch for "+dir);
             return;
             }
         if (!dir.toFile().isDirectory())
             throw new IllegalArgumentException("parameter is not a directory");
-        if (directoryWatchMap.get(dir) != null)
+        if (directoryWatchMap.contains(dir))
             {
             logger.debug("directory "+dir+" already registered for watching; not adding twice.");
             return;
             }
         try
             {
-            WatchKey watchKey = dir.register(watchService, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE);
-            directoryWatchMap.put(dir, watchKey);
+            registry.register(dir, this);
+            directoryWatchMap.add(dir);
             }
         catch (Exception e)
             {
@@ -232,112 +247,119 @@ public class FileChangeWatcher extends TimerTask
         pathToLocationMap.put(dir, location);
         }
 
-    // remove directory watches, and watch keys.
+    // remove directory watches.
     protected void removeDirectory(final Path directory)
         {
-        if (!watchServiceAvailable)
+        synchronized(this)
             {
-            directoryWatchMap.remove(directory);
-            return;
+            if (!directoryWatchMap.remove(directory))
+                {
+                logger.warn("removal of non-existent watch failed: none registered for "+directory);
+                return;
+                }
             }
-        // this is where we remove watches and watch keys
-        WatchKey entry = directoryWatchMap.get(directory); // directory?
-        if (entry == null) // file then?
+        if (watchServiceAvailable)
             {
-            logger.warn("removal of non-existent watch failed: none registered for "+directory);
-            return;
+            registry.unregister(directory, this); // the registry cancels the watch once no-one uses it anymore
             }
-        WatchKey watch;
-        synchronized(this)
+        return;
+        }
+
+    @Override
+    public long checkIntervalMilliseconds() { return checkIntervalMilliseconds; }
+
+    @Override
+    public void periodicCheck() { run(); }
+
+    @Override
+    public ConfigLoggingInterface getLogger() { return logger; }
+
+    /**
+     * the watch on a directory became invalid.
+     * --- internal, called by the registry. Handled on the next periodic check, like the directories still missing.
+     */
+    @Override
+    public synchronized void directoryInvalid(final Path key)
+        {
+        // cause: directory has been deleted.
+        logger.debug("detected DELETION of \""+key+"\"");
+        invalidatedDirectories.add(key);
+        return;
+        }
+
+    // the registry has dropped these watches already; move their files to the to-be-watched map.
+    private synchronized void handleInvalidatedDirectories()
+        {
+        for (Path key : invalidatedDirectories)
             {
-            watch = directoryWatchMap.remove(directory); // remove from map first
+            directoryWatchMap.remove(key);
+            Set<Path> files = fileWatchMapBackward.removeAllValues(key);
+            for (Path file : files)
+                { cantWatchThis.put(key, file); }
             }
-        watch.cancel(); // unregister with watcher service
+        invalidatedDirectories.clear();
         return;
         }
 
     /**
-     * --- internal , but given public signature so we don't have to construct an entire inner class.
-     * TimerTask run.
+     * a change in a watched directory.
+     * --- internal, called by the registry.
      */
     @Override
-    public void run()
+    public void directoryEvent(final Path key, final WatchEvent.Kind<?> kind, final Path file)
         {
-        if (!watchServiceAvailable)
+        if (checkIntervalMilliseconds <= 0)
+            {
+            return; // automated checks turned off
+            }
+        // our own atomic writes: temp files coming and going, and the resulting replacement of the target.
+        if (AtomicFileWriter.isTemporaryFile(file) || ((kind != StandardWatchEventKinds.ENTRY_DELETE) && AtomicFileWriter.isOwnWrite(file)))
             {
+            logger.trace("ignoring change caused by own write: \""+file+"\"");
             return;
             }
-            // Snapshot the directoryWatchMap to avoid holding the lock while processing
-            final List<Map.Entry<Path, WatchKey>> snapshot;
+        if (kind == StandardWatchEventKinds.ENTRY_MODIFY) // existing file (or subdirectory) has been changed.
+            {
+            logger.debug("detected CHANGE in \""+file+"\"");
+            // check for subscribed file
             synchronized (this)
-                { snapshot = new ArrayList<>(directoryWatchMap.entrySet()); }
-
-            for (Map.Entry<Path, WatchKey> e : snapshot)
                 {
-                Path key = e.getKey();
-                WatchKey watchKey = e.getValue();
-                if (!watchKey.isValid())
+                if (!fileWatchMapForward.containsKey(file) && !pathToLocationMap.containsKey(key))
                     {
-                    // cause: directory has been deleted.
-                    logger.debug("detected DELETION of \""+key+"\"");
-                    // 1. remove the watch.
-                    watchKey.cancel(); // un-register this watchKey from watch service
-                    // 2. remove the respective entry from the directoryWatchMap
-                    synchronized (this)
-                        {
-                        directoryWatchMap.remove(key);
-                        // 3. re-add all files for this directory to the to-be-watched map.
-                        Set<Path> files = fileWatchMapBackward.removeAllValues(key);
-                        for (Path file : files)
-                            { cantWatchThis.put(key, file); }
-                    }
-                    continue; // nothing to be done any more for this watchKey.
-                    }
-                for (WatchEvent<?> event : watchKey.pollEvents())
-                    {
-                    // Path events is the only kind (not "kind") we have here.
-                    WatchEvent.Kind<?> kind = event.kind();
-                    Path file;
-                    try
-                        {
-                        // NB: each access to "event.context()" seams to clear or modify its contents.
-                        file = key.resolve((Path) event.context()); // The "resolve" is important.
-                        }
-                    catch (ClassCastException ex)
-                        {
-                        logger.error("invalid WatchEvent type (should never happen), stopping", ex);
-                        this.timer.cancel(); // big issue if this ever happens, reason to stop the timer.
-                        continue; // skip any subsequent event handling for this.
-                        }
-                    if (kind == StandardWatchEventKinds.ENTRY_MODIFY) // existing file (or subdirectory) has been changed.
-                        {
-                        logger.debug("detected CHANGE in \""+file+"\"");
-                        // check for subscribed file
-                        if (!fileWatchMapForward.containsKey(file) && !pathToLocationMap.containsKey(key))
-                            {
-                            logger.debug("file without watch changed: "+file);
-                            continue;
-                            }
-                        processFileChangeEvent(file); // modify implicit
-                        }
-                    else if (kind == StandardWatchEventKinds.ENTRY_DELETE) // existing file or directory deleted
-                        {
-                        logger.debug("detected directory entry deletion: \""+file+"\"");
-                        processFileChangeEvent(file); // deletion is a big change, too.
-                        }
-                    else if (kind == StandardWatchEventKinds.ENTRY_CREATE) // new file or directory
-                        {
-                        logger.debug("detected directory entry creation: \""+file+"\"");
-                        processFileChangeEvent(file);
-                        }
-                    else
-                        {
-                        logger.warn("unknown/invalid watch event kind "+kind);
-                        }
+                    logger.debug("file without watch changed: "+file);
+                    return;
                     }
-                // reset watchkey to continue receiving events for the watch. important.
-                watchKey.reset();
                 }
+            processFileChangeEvent(file); // modify implicit
+            }
+        else if (kind == StandardWatchEventKinds.ENTRY_DELETE) // existing file or directory deleted
+            {
+            logger.debug("detected directory entry deletion: \""+file+"\"");
+            processFileChangeEvent(file); // deletion is a big change, too.
+            }
+        else if (kind == StandardWatchEventKinds.ENTRY_CREATE) // new file or directory
+            {
+            logger.debug("detected directory entry creation: \""+file+"\"");
+            processFileChangeEvent(file);
+            }
+        else
+            {
+            logger.warn("unknown/invalid watch event kind "+kind);
+            }
+        return;
+        }
+
+    /**
+     * --- internal , but given public signature so we don't have to construct an entire inner class.
+     * periodic check, for directories which did not exist so far.
+     */
+    public void run()
+        {
+        if (!watchServiceAvailable)
+            {
+            return;
+            }
+        handleInvalidatedDirectories();
         // now check the "can't watch this" set whether the directories started to exist, and if so, add the respective watches.
 
         // iterate over a snapshot to avoid CME; remove using iterator under lock
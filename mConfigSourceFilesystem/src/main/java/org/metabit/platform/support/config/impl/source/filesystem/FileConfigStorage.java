@@ -10,11 +10,20 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URLEncoder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -51,7 +60,13 @@ public class FileConfigStorage implements ConfigStorageInterface
     private FileChangeWatcher                    fileChangeWatcher;
     private boolean                              createMissingPaths;
     private boolean                              testMode;
+    private long                                 memoryMapThreshold;
+    private boolean                              lazyLoading;
+    private ExecutorService                      prewarmExecutor; // only with FILE_LAZY_LAYER_PREWARM
     private Set<Path>                            additionalTestDirsList = new HashSet<>();
+    private FileDiscoveryIndex                   discoveryIndex; // null if not in use
+    // file state at the time each layer was read; layers do not implement equals(), so this is by identity.
+    private final Map<ConfigLayerInterface, FileStamp> layerStamps = Collections.synchronizedMap(new WeakHashMap<>());
 
     @Override
     public String getStorageName()
@@ -107,6 +122,17 @@ public class FileConfigStorage implements ConfigStorageInterface
         ConfigFactorySettings settings = ctx.getSettings();
         this.createMissingPaths = settings.getBoolean(ConfigFeature.CREATE_MISSING_PATHS);
         this.testMode = settings.getBoolean(ConfigFeature.TEST_MODE);
+        this.memoryMapThreshold = settings.getInteger(ConfigFeature.FILE_MEMORY_MAP_THRESHOLD);
+        this.lazyLoading = settings.getBoolean(ConfigFeature.FILE_LAZY_LAYER_LOADING);
+        if (lazyLoading && settings.getBoolean(ConfigFeature.FILE_LAZY_LAYER_PREWARM))
+            {
+            prewarmExecutor = Executors.newSingleThreadExecutor(runnable->
+                {
+                Thread t = new Thread(runnable, "mConfig-LayerPrewarm");
+                t.setDaemon(true);
+                return t;
+                });
+            }
 
         Map<String, ConfigFileFormatInterface> formatMap = new HashMap<>(); //@CHECK permanent field?
         // attach fileformats
@@ -178,11 +204,41 @@ public class FileConfigStorage implements ConfigStorageInterface
         writeFormatList = new ArrayList<ConfigFileFormatInterface>();
         initFormatPreferenceList(fileFormatWritePreferenceList, writeFormatList, formatMap, fallbackFlag);
 
+        initDiscoveryIndex(settings);
+
         // done.
         return (!searchList.isEmpty());
         }
 
 
+    private void initDiscoveryIndex(final ConfigFactorySettings settings)
+        {
+        String indexDirectory = settings.getString(ConfigFeature.FILE_DISCOVERY_INDEX_DIRECTORY);
+        if ((indexDirectory == null) || indexDirectory.isBlank())
+            {
+            return;
+            }
+        try
+            {
+            // one index per application and mode; different search lists must not share it.
+            String indexName = settings.getString(ConfigFeature.COMPANY_NAME)+"_"+settings.getString(ConfigFeature.APPLICATION_NAME)+(testMode ? "_test" : "")+".mconfig-index";
+            Path indexFile = Paths.get(indexDirectory).resolve(indexName.replaceAll("[^A-Za-z0-9._-]", "_"));
+            StringBuilder extensions = new StringBuilder();
+            for (ConfigFileFormatInterface format : readFormatList)
+                {
+                extensions.append(format.getFormatID()).append(format.getFilenameExtensions()).append(';');
+                }
+            discoveryIndex = new FileDiscoveryIndex(indexFile, extensions.toString(), logger);
+            discoveryIndex.load();
+            }
+        catch (InvalidPathException ex)
+            {
+            logger.warn("invalid discovery index directory \""+indexDirectory+"\", not using an index");
+            discoveryIndex = null;
+            }
+        return;
+        }
+
     private void initFormatPreferenceList(List<String> formatPreferenceList, List<ConfigFileFormatInterface> targetList, Map<String, ConfigFileFormatInterface> formatMap, boolean fallbacksActive)
         {
         // look up the entries in the preferred order, and store them
@@ -263,6 +319,61 @@ public class FileConfigStorage implements ConfigStorageInterface
      */
     @Override
     public void updateConfigurationLayers(String sanitizedConfigName, ConfigLocation location, LayeredConfigurationInterface layeredCfg)
+        {
+        readLocation(sanitizedConfigName, location, layeredCfg, Collections.emptyMap());
+        }
+
+    /**
+     * re-read a location after a change, parsing only the files which changed since their layer had been read.
+     * Unchanged layers are added back as they are; the order is the same as on a full read.
+     *
+     * @param sanitizedConfigName name of the configuration
+     * @param location            location reported as changed
+     * @param previousLayers      layers previously read from this location
+     * @param layeredCfg          layered config collection to collect this into.
+     */
+    @Override
+    public void refreshConfigurationLayers(String sanitizedConfigName, ConfigLocation location, List<ConfigLayerInterface> previousLayers, LayeredConfigurationInterface layeredCfg)
+        {
+        Map<Path, ConfigLayerInterface> unchangedLayers = new HashMap<>();
+        for (ConfigLayerInterface layer : previousLayers)
+            {
+            Object handle = layer.getSource().getStorageInstanceHandle();
+            FileStamp stamp = layerStamps.get(layer);
+            if ((handle instanceof Path) && (stamp != null) && stamp.isCurrent((Path) handle))
+                {
+                unchangedLayers.put((Path) handle, layer);
+                }
+            }
+        readLocation(sanitizedConfigName, location, layeredCfg, unchangedLayers);
+        }
+
+    /**
+     * layers are read from the location directory itself, and from the .d directory inside it.
+     */
+    @Override
+    public boolean isLayerFromLocation(ConfigLocation location, ConfigLayerInterface layer)
+        {
+        ConfigLocation source = layer.getSource();
+        if ((source == null) || (source.getStorage() != this) || !(location.getStorageInstanceHandle() instanceof Path) || !(source.getStorageInstanceHandle() instanceof Path))
+            {
+            return location.equals(source);
+            }
+        Path locationPath = (Path) location.getStorageInstanceHandle();
+        Path directory = ((Path) source.getStorageInstanceHandle()).getParent();
+        if (directory == null)
+            {
+            return false;
+            }
+        if (directory.equals(locationPath))
+            {
+            return true;
+            }
+        return directory.getFileName().toString().endsWith(".d") && locationPath.equals(directory.getParent());
+        }
+
+    // the actual reading. Files found in unchangedLayers are not parsed again, their layer is re-used.
+    private void readLocation(String sanitizedConfigName, ConfigLocation location, LayeredConfigurationInterface layeredCfg, Map<Path, ConfigLayerInterface> unchangedLayers)
         {
         // 1. test entry to match with this source.
         if (location.getStorage() != this)
@@ -280,6 +391,25 @@ public class FileConfigStorage implements ConfigStorageInterface
 
         // Watch the parent directory for ANY new files appearing
         fileChangeWatcher.addDirectory(locationPath, location);
+        Path dotDPath = locationPath.resolve(sanitizedConfigName + ".d");
+
+        // with a valid discovery index entry, we know which files exist, and need not probe for them.
+        FileDiscoveryIndex.Entry indexed = null;
+        long directoryStamp = 0;
+        long dotDStamp = 0;
+        List<String> foundMainFiles = null;
+        List<String> foundFragments = null;
+        if (discoveryIndex != null)
+            {
+            indexed = discoveryIndex.lookup(locationPath, sanitizedConfigName);
+            if (indexed == null)
+                {
+                directoryStamp = FileDiscoveryIndex.stamp(locationPath);
+                dotDStamp = FileDiscoveryIndex.stamp(dotDPath);
+                foundMainFiles = new ArrayList<>();
+                foundFragments = new ArrayList<>();
+                }
+            }
 
         // First: the Main File (lowest priority)
         for (ConfigFileFormatInterface fileFormat : readFormatList)
@@ -288,7 +418,15 @@ public class FileConfigStorage implements ConfigStorageInterface
             for (final String extension : extensions)
                 {
                 String filename = sanitizedConfigName+extension;
-                ConfigLayerInterface cfg = attemptToReadConfigOrReturnNull(locationPath, filename, location, fileFormat);
+                if ((indexed != null) && !indexed.mainFiles.contains(filename))
+                    {
+                    continue; // known not to exist. The directory watch reports it, should it turn up later.
+                    }
+                ConfigLayerInterface cfg = reuseOrRead(locationPath, filename, location, fileFormat, unchangedLayers);
+                if ((foundMainFiles != null) && ((cfg != null) || Files.isRegularFile(locationPath.resolve(filename))))
+                    {
+                    foundMainFiles.add(filename); // existing, even if unparseable; it may be fixed in place.
+                    }
                 if (cfg != null)
                     {
                     // layeredCfg does not store the location, it checks the scope only; so we don't need to derive the actual ConfigLocation here.
@@ -311,81 +449,104 @@ public class FileConfigStorage implements ConfigStorageInterface
             }
 
         // Second: the .d Fragments (higher priority)
-        Path dotDPath = locationPath.resolve(sanitizedConfigName + ".d");
-        File dotDDir = dotDPath.toFile();
-        if (dotDDir.exists() && dotDDir.isDirectory())
+        List<String> fragmentNames = Collections.emptyList();
+        if (indexed != null)
             {
-            if (!dotDDir.canRead())
-                {
-                logger.warn("unreadable .d directory found at "+dotDPath.toAbsolutePath());
-                ConfigEventImpl event = ConfigEventImpl.builder()
-                        .severity(ConfigEvent.Severity.WARNING)
-                        .domain(ConfigEvent.Domain.DISCOVERY)
-                        .kind(ConfigEvent.Kind.SKIPPED_PERMISSION_DENIED)
-                        .detailCode("FS_DISCOVERY_PERMISSION_DENIED")
-                        .message("unreadable .d directory skipped")
-                        .location(location)
-                        .scope(location.getScope())
-                        .remediation(ConfigEvent.Remediation.CHECK_PERMISSIONS)
-                        .remediationMessage("Check read permissions for " + dotDPath.toAbsolutePath())
-                        .build();
-                // How to get context here?
-                // Actually FileConfigStorage.init(ctx) was called.
-                // I should store ctx in a field.
-                if (this.ctx != null)
-                    {
-                    EventRecorder.record(event, this.ctx);
-                    }
-                return;
-                }
-            File[] files = dotDDir.listFiles(File::isFile);
-            if (files != null && files.length > 0)
+            fragmentNames = indexed.fragments;
+            }
+        else
+            {
+            File dotDDir = dotDPath.toFile();
+            if (dotDDir.exists() && dotDDir.isDirectory())
                 {
-                Arrays.sort(files, Comparator.comparing(File::getName));
-                for (File fragment : files)
+                if (!dotDDir.canRead())
                     {
-                    String fragmentName = fragment.getName();
-                    if (isGhostFile(fragmentName))
+                    logger.warn("unreadable .d directory found at "+dotDPath.toAbsolutePath());
+                    ConfigEventImpl event = ConfigEventImpl.builder()
+                            .severity(ConfigEvent.Severity.WARNING)
+                            .domain(ConfigEvent.Domain.DISCOVERY)
+                            .kind(ConfigEvent.Kind.SKIPPED_PERMISSION_DENIED)
+                            .detailCode("FS_DISCOVERY_PERMISSION_DENIED")
+                            .message("unreadable .d directory skipped")
+                            .location(location)
+                            .scope(location.getScope())
+                            .remediation(ConfigEvent.Remediation.CHECK_PERMISSIONS)
+                            .remediationMessage("Check read permissions for " + dotDPath.toAbsolutePath())
+                            .build();
+                    // How to get context here?
+                    // Actually FileConfigStorage.init(ctx) was called.
+                    // I should store ctx in a field.
+                    if (this.ctx != null)
                         {
-                        continue;
+                        EventRecorder.record(event, this.ctx);
                         }
-                    boolean foundFormat = false;
-                    // For fragments, we also respect the format priorities if multiple extensions match, 
-                    // but we need to check which format this specific file matches.
-                    for (ConfigFileFormatInterface fileFormat : readFormatList)
+                    return;
+                    }
+                File[] files = dotDDir.listFiles(File::isFile);
+                if (files != null && files.length > 0)
+                    {
+                    fragmentNames = new ArrayList<>(files.length);
+                    for (File fragment : files)
                         {
-                        for (String extension : fileFormat.getFilenameExtensions())
+                        if (!isGhostFile(fragment.getName()))
                             {
-                            if (fragmentName.endsWith(extension))
-                                {
-                                ConfigLayerInterface cfg = attemptToReadConfigOrReturnNull(dotDPath, fragmentName, location, fileFormat);
-                                if (cfg != null)
-                                    {
-                                    layeredCfg.add(cfg, location);
-                                    }
-                                foundFormat = true;
-                                break;
-                                }
+                            fragmentNames.add(fragment.getName());
                             }
-                        if (foundFormat)
+                        }
+                    Collections.sort(fragmentNames);
+                    }
+                }
+            }
+        for (String fragmentName : fragmentNames)
+            {
+            boolean foundFormat = false;
+            // For fragments, we also respect the format priorities if multiple extensions match, 
+            // but we need to check which format this specific file matches.
+            for (ConfigFileFormatInterface fileFormat : readFormatList)
+                {
+                for (String extension : fileFormat.getFilenameExtensions())
+                    {
+                    if (fragmentName.endsWith(extension))
+                        {
+                        ConfigLayerInterface cfg = reuseOrRead(dotDPath, fragmentName, location, fileFormat, unchangedLayers);
+                        if (cfg != null)
                             {
-                            break;
+                            layeredCfg.add(cfg, location);
                             }
+                        foundFormat = true;
+                        break;
+                        }
+                    }
+                if (foundFormat)
+                    {
+                    if (foundFragments != null)
+                        {
+                        foundFragments.add(fragmentName);
                         }
+                    break;
                     }
                 }
-            // Watch the .d directory for new fragments
-            fileChangeWatcher.addDirectory(dotDPath);
             }
-        else
+        if (foundMainFiles != null)
             {
-            // @TODO Watch for the .d directory to be created
-            // fileChangeWatcher.addFile(dotDPath, location); // cannot watch directory via addFile
+            discoveryIndex.record(locationPath, sanitizedConfigName, directoryStamp, dotDStamp, foundMainFiles, foundFragments);
             }
-
+        // Watch the .d directory for new and deleted fragments; if it does not exist yet, for it to be created.
+        fileChangeWatcher.addDirectory(dotDPath, location);
         return;
         }
 
+    private ConfigLayerInterface reuseOrRead(final Path directory, final String fileName, final ConfigLocation location, ConfigFileFormatInterface fileformat, Map<Path, ConfigLayerInterface> unchangedLayers)
+        {
+        ConfigLayerInterface layer = unchangedLayers.get(directory.resolve(fileName));
+        if (layer != null)
+            {
+            logger.trace("unchanged, not reading again: "+directory.resolve(fileName));
+            return layer;
+            }
+        return attemptToReadConfigOrReturnNull(directory, fileName, location, fileformat, lazyLoading);
+        }
+
     /**
      * @param configName   name of the configuration, also used as filename if applicable
      * @param location     location to create it in
@@ -595,7 +756,7 @@ public class FileConfigStorage implements ConfigStorageInterface
             if (file.exists())
                 {
                 logger.debug("Config file already exists at \""+fileWithPath+"\", returning existing content as layer");
-                return attemptToReadConfigOrReturnNull(fileLocation, fileName, location, fileformat);
+                return attemptToReadConfigOrReturnNull(fileLocation, fileName, location, fileformat, false);
                 }
             
             File parentDir = fileWithPath.getParent().toFile();
@@ -687,6 +848,14 @@ public class FileConfigStorage implements ConfigStorageInterface
 
     public void exit()
         {
+        if (prewarmExecutor != null)
+            {
+            prewarmExecutor.shutdownNow();
+            }
+        if (discoveryIndex != null)
+            {
+            discoveryIndex.save(ctx.getSettings());
+            }
         // clean up directory handles and file handles, insofar in use.
         if (fileChangeWatcher == null)
             {
@@ -703,7 +872,8 @@ public class FileConfigStorage implements ConfigStorageInterface
         }
 
 
-    private ConfigLayerInterface attemptToReadConfigOrReturnNull(final Path fileLocation, String fileName, final ConfigLocation location, ConfigFileFormatInterface fileformat)
+    // with deferParsing, an existing file is returned as lazy layer, parsed on first access.
+    private ConfigLayerInterface attemptToReadConfigOrReturnNull(final Path fileLocation, String fileName, final ConfigLocation location, ConfigFileFormatInterface fileformat, boolean deferParsing)
         {
         try
             {
@@ -726,10 +896,28 @@ public class FileConfigStorage implements ConfigStorageInterface
                 logger.warn("config file exists, but cannot be read :\""+filePath.toAbsolutePath()+"\"");
                 return null;
                 }
-            // OK, all ready - now let's try to read the file. Which is another thing, depending on the file format.
-            logger.trace("attempting to read config file "+file.getAbsolutePath());
-            ConfigLayerInterface contentLayer = fileformat.readFile(file, location);
-            return contentLayer;
+            if (deferParsing)
+                {
+                LazyFileConfigLayer lazyLayer = new LazyFileConfigLayer(location, fileformat, filePath, ()->readExistingFile(filePath, location, fileformat));
+                FileStamp stamp = FileStamp.of(filePath); // a change before the first access counts as change, too.
+                if (stamp != null)
+                    {
+                    layerStamps.put(lazyLayer, stamp);
+                    }
+                if (prewarmExecutor != null)
+                    {
+                    try
+                        {
+                        prewarmExecutor.execute(lazyLayer::load);
+                        }
+                    catch (RejectedExecutionException ex)
+                        {
+                        logger.debug("pre-warm not available anymore; "+filePath+" is parsed on first access");
+                        }
+                    }
+                return lazyLayer;
+                }
+            return readExistingFile(filePath, location, fileformat);
             }
         catch (InvalidPathException ex)
             {
@@ -743,6 +931,61 @@ public class FileConfigStorage implements ConfigStorageInterface
             }
         }
 
+    // parse a file known to exist.
+    private ConfigLayerInterface readExistingFile(final Path filePath, final ConfigLocation location, ConfigFileFormatInterface fileformat)
+        {
+        try
+            {
+            File file = filePath.toFile();
+            // OK, all ready - now let's try to read the file. Which is another thing, depending on the file format.
+            logger.trace("attempting to read config file "+file.getAbsolutePath());
+            FileStamp stamp = FileStamp.of(filePath); // taken before reading; a change during the read counts as change.
+            ConfigLayerInterface contentLayer = null;
+            if ((memoryMapThreshold > 0) && fileformat.readsBuffers() && (file.length() >= memoryMapThreshold))
+                {
+                MappedByteBuffer mapped = mapFile(filePath);
+                if (mapped != null)
+                    {
+                    contentLayer = fileformat.readBuffer(mapped, location, filePath);
+                    }
+                }
+            if (contentLayer == null)
+                {
+                contentLayer = fileformat.readFile(file, location);
+                }
+            if ((contentLayer != null) && (stamp != null))
+                {
+                layerStamps.put(contentLayer, stamp);
+                }
+            return contentLayer;
+            }
+        catch (SecurityException ex)
+            {
+            logger.debug("we're forbidden from accessing config file: \""+filePath+"\"");
+            return null;
+            }
+        }
+
+    /**
+     * map a (large) config file into memory, read-only.
+     * The mapping stays valid after the channel is closed; it is released when the buffer is garbage collected.
+     *
+     * @param filePath file to map
+     * @return mapped buffer, or null if mapping failed - callers fall back to regular reading then.
+     */
+    private MappedByteBuffer mapFile(final Path filePath)
+        {
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ))
+            {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+        catch (IOException|UnsupportedOperationException ex)
+            {
+            logger.debug("memory mapping failed for \""+filePath.toAbsolutePath()+"\", reading regularly: "+ex.getMessage());
+            return null;
+            }
+        }
+
     public boolean initTestModeFileSearchLocations(ConfigSearchList searchList, final String companyName, final String applicationName, String subDir, EnumMap<ConfigScope, List<String>> additionalTestDirs)
         {
         int successes = 0;
@@ -982,6 +1225,39 @@ public class FileConfigStorage implements ConfigStorageInterface
             }
         }
 
+    // modification time, size and file key (inode, where available) of a file, to tell whether it needs to be read again.
+    private static final class FileStamp
+    {
+        final FileTime lastModified;
+        final long     size;
+        final Object   fileKey;
+
+        private FileStamp(BasicFileAttributes attributes)
+            {
+            this.lastModified = attributes.lastModifiedTime();
+            this.size = attributes.size();
+            this.fileKey = attributes.fileKey();
+            }
+
+        static FileStamp of(final Path path)
+            {
+            try
+                {
+                return new FileStamp(Files.readAttributes(path, BasicFileAttributes.class));
+                }
+            catch (IOException ex)
+                {
+                return null; // no stamp, no re-use.
+                }
+            }
+
+        boolean isCurrent(final Path path)
+            {
+            FileStamp current = of(path);
+            return (current != null) && lastModified.equals(current.lastModified) && (size == current.size) && Objects.equals(fileKey, current.fileKey);
+            }
+    }
+
     public static boolean isGhostFile(String fileName)
         {
         if (fileName.endsWith("~") || fileName.endsWith(".bak") || fileName.endsWith(".swp") || fileName.endsWith(".tmp") || "Thumbs.db".equalsIgnoreCase(fileName))
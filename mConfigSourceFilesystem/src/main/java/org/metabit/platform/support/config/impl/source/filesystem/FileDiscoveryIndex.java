@@ -0,0 +1,279 @@
+package org.metabit.platform.support.config.impl.source.filesystem;
+
+import org.metabit.platform.support.config.impl.ConfigFactorySettings;
+import org.metabit.platform.support.config.impl.util.AtomicFileWriter;
+import org.metabit.platform.support.config.interfaces.ConfigLoggingInterface;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * persistent index of which config files were found where, to skip probing on the next start.
+ * <p>
+ * For each search directory and configuration name, the files found are recorded along with the
+ * modification time of the directory and its .d directory. Adding, removing or renaming files changes that
+ * modification time, so validating an entry takes one stat per directory instead of one per candidate file name.
+ * Changed file contents don't matter here; the files found are read anyway.
+ * <p>
+ * Directories modified shortly before recording are not recorded, since file system timestamps are too coarse
+ * to detect changes within the same tick ("racy" entries, as git calls them).
+ * The index is discarded as a whole if the set of file name extensions in use has changed.
+ */
+class FileDiscoveryIndex
+{
+    private static final String HEADER            = "mconfig-discovery-index 1";
+    private static final long   RACY_THRESHOLD_MS = 2000;
+    private static final long   MISSING           = -1L;
+
+    private final Path                    indexFile;
+    private final String                  extensionSignature;
+    private final ConfigLoggingInterface  logger;
+    private final Map<String, Entry>      entries;
+    private volatile boolean              dirty;
+
+    /** what was found for one configuration in one directory. */
+    static final class Entry
+    {
+        final long         directoryStamp;
+        final long         dotDStamp;
+        final List<String> mainFiles;
+        final List<String> fragments;
+
+        Entry(long directoryStamp, long dotDStamp, List<String> mainFiles, List<String> fragments)
+            {
+            this.directoryStamp = directoryStamp;
+            this.dotDStamp = dotDStamp;
+            this.mainFiles = mainFiles;
+            this.fragments = fragments;
+            }
+
+        boolean hasDotD() { return dotDStamp != MISSING; }
+    }
+
+    /**
+     * @param indexFile          file to load the index from, and save it to
+     * @param extensionSignature the file name extensions in use, in reading order
+     * @param logger             logger to use
+     */
+    FileDiscoveryIndex(final Path indexFile, final String extensionSignature, final ConfigLoggingInterface logger)
+        {
+        this.indexFile = indexFile;
+        this.extensionSignature = extensionSignature;
+        this.logger = logger;
+        this.entries = new ConcurrentHashMap<>();
+        }
+
+    /**
+     * get the stamp of a directory, for recording it later.
+     * Take it before probing the directory; a change during probing then invalidates the entry.
+     *
+     * @param directory directory
+     * @return modification time in milliseconds, or -1 if it does not exist.
+     */
+    static long stamp(final Path directory)
+        {
+        try
+            {
+            BasicFileAttributes attributes = Files.readAttributes(directory, BasicFileAttributes.class);
+            return attributes.isDirectory() ? attributes.lastModifiedTime().toMillis() : MISSING;
+            }
+        catch (IOException|SecurityException ex)
+            {
+            return MISSING;
+            }
+        }
+
+    /**
+     * look up an entry, and validate it against the file system.
+     *
+     * @param directory  search directory
+     * @param configName configuration name
+     * @return the entry if it is still valid, null otherwise.
+     */
+    Entry lookup(final Path directory, final String configName)
+        {
+        String key = key(directory, configName);
+        Entry entry = entries.get(key);
+        if (entry == null)
+            {
+            return null;
+            }
+        if (stamp(directory) != entry.directoryStamp)
+            {
+            entries.remove(key, entry);
+            dirty = true;
+            return null;
+            }
+        // a .d directory being created or deleted changes the parent directory; changes inside it don't.
+        if (entry.hasDotD() && (stamp(directory.resolve(configName+".d")) != entry.dotDStamp))
+            {
+            entries.remove(key, entry);
+            dirty = true;
+            return null;
+            }
+        return entry;
+        }
+
+    /**
+     * record the result of probing a directory.
+     *
+     * @param directory      search directory
+     * @param configName     configuration name
+     * @param directoryStamp stamp of the directory, taken before probing
+     * @param dotDStamp      stamp of the .d directory, taken before probing
+     * @param mainFiles      names of the main files found in the directory
+     * @param fragments      names of the fragments found in the .d directory, sorted
+     */
+    void record(final Path directory, final String configName, long directoryStamp, long dotDStamp, List<String> mainFiles, List<String> fragments)
+        {
+        String key = key(directory, configName);
+        long now = System.currentTimeMillis();
+        if (isRacy(directoryStamp, now) || isRacy(dotDStamp, now) || !isStorable(directory.toString(), configName, mainFiles, fragments))
+            {
+            if (entries.remove(key) != null)
+                {
+                dirty = true;
+                }
+            return;
+            }
+        Entry entry = new Entry(directoryStamp, dotDStamp, List.copyOf(mainFiles), List.copyOf(fragments));
+        Entry previous = entries.put(key, entry);
+        if ((previous == null) || (previous.directoryStamp != directoryStamp) || (previous.dotDStamp != dotDStamp)
+                || !previous.mainFiles.equals(entry.mainFiles) || !previous.fragments.equals(entry.fragments))
+            {
+            dirty = true;
+            }
+        return;
+        }
+
+    /**
+     * load the index file, if present and matching.
+     */
+    void load()
+        {
+        entries.clear();
+        try (BufferedReader reader = Files.newBufferedReader(indexFile, StandardCharsets.UTF_8))
+            {
+            if (!HEADER.equals(reader.readLine()) || !extensionSignature.equals(reader.readLine()))
+                {
+                logger.debug("discovery index "+indexFile+" outdated, ignoring it");
+                dirty = true;
+                return;
+                }
+            String line;
+            while ((line = reader.readLine()) != null)
+                {
+                String[] parts = line.split("\t", -1);
+                if (parts.length != 6)
+                    {
+                    continue;
+                    }
+                Path directory = Paths.get(parts[0]);
+                Entry entry = new Entry(Long.parseLong(parts[2]), Long.parseLong(parts[3]), split(parts[4]), split(parts[5]));
+                entries.put(key(directory, parts[1]), entry);
+                }
+            logger.debug("discovery index "+indexFile+" loaded, "+entries.size()+" entries");
+            }
+        catch (NoSuchFileException ex)
+            {
+            logger.trace("no discovery index at "+indexFile);
+            }
+        catch (IOException|RuntimeException ex)
+            {
+            logger.warn("discovery index "+indexFile+" unreadable, ignoring it: "+ex.getMessage());
+            entries.clear();
+            dirty = true;
+            }
+        return;
+        }
+
+    /**
+     * save the index, if anything changed.
+     *
+     * @param settings settings for writing the file
+     */
+    void save(final ConfigFactorySettings settings)
+        {
+        if (!dirty)
+            {
+            return;
+            }
+        final List<String> lines = new ArrayList<>(entries.size());
+        for (Map.Entry<String, Entry> mapEntry : new TreeMap<>(entries).entrySet())
+            {
+            Entry entry = mapEntry.getValue();
+            lines.add(mapEntry.getKey()+"\t"+entry.directoryStamp+"\t"+entry.dotDStamp+"\t"+String.join("/", entry.mainFiles)+"\t"+String.join("/", entry.fragments));
+            }
+        try
+            {
+            Files.createDirectories(indexFile.getParent());
+            new AtomicFileWriter(settings).write(indexFile, StandardCharsets.UTF_8, writer->
+                {
+                writer.write(HEADER);
+                writer.newLine();
+                writer.write(extensionSignature);
+                writer.newLine();
+                for (String line : lines)
+                    {
+                    writer.write(line);
+                    writer.newLine();
+                    }
+                });
+            dirty = false;
+            }
+        catch (IOException|SecurityException ex)
+            {
+            logger.warn("could not write discovery index "+indexFile+": "+ex.getMessage());
+            }
+        return;
+        }
+
+    int size() { return entries.size(); }
+
+    private static boolean isRacy(long stamp, long now)
+        {
+        return (stamp != MISSING) && (now-stamp < RACY_THRESHOLD_MS);
+        }
+
+    // tab, newline and the list separator can't be stored in this format. Rare enough to just not index those.
+    private static boolean isStorable(String directory, String configName, List<String> mainFiles, List<String> fragments)
+        {
+        if (hasSeparator(directory) || hasSeparator(configName) || configName.indexOf('/') >= 0)
+            {
+            return false;
+            }
+        for (String name : mainFiles)
+            {
+            if (hasSeparator(name) || name.indexOf('/') >= 0) return false;
+            }
+        for (String name : fragments)
+            {
+            if (hasSeparator(name) || name.indexOf('/') >= 0) return false;
+            }
+        return true;
+        }
+
+    private static boolean hasSeparator(String s)
+        {
+        return (s.indexOf('\t') >= 0) || (s.indexOf('\n') >= 0) || (s.indexOf('\r') >= 0);
+        }
+
+    private static List<String> split(String list)
+        {
+        return list.isEmpty() ? List.of() : List.of(list.split("/"));
+        }
+
+    private static String key(Path directory, String configName)
+        {
+        return directory.toAbsolutePath().normalize()+"\t"+configName;
+        }
+}
+//___EOF___
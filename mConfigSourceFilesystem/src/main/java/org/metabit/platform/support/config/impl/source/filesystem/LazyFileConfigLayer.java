@@ -0,0 +1,167 @@
+package org.metabit.platform.support.config.impl.source.filesystem;
+
+import org.metabit.platform.support.config.*;
+import org.metabit.platform.support.config.impl.ConfigLocationImpl;
+import org.metabit.platform.support.config.interfaces.ConfigEntrySpecification;
+import org.metabit.platform.support.config.interfaces.ConfigFileFormatInterface;
+import org.metabit.platform.support.config.interfaces.ConfigLayerInterface;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.function.Supplier;
+
+/**
+ * a config file found at discovery, parsed on first access to its entries.
+ * <p>
+ * Scope, source and writeability are known without parsing. The first entry lookup, key enumeration or write
+ * parses the file; from then on, all calls go to the parsed layer.
+ * A file which fails to parse acts as an empty, read-only layer.
+ * Used with FILE_LAZY_LAYER_LOADING.
+ */
+final class LazyFileConfigLayer implements ConfigLayerInterface
+{
+    private final ConfigLocation                 location;
+    private final ConfigSource                   source;
+    private final Path                           file;
+    private final Supplier<ConfigLayerInterface> parser;
+    private volatile boolean                     loaded;
+    private ConfigLayerInterface                 parsed; // written before loaded is set; null if parsing failed
+
+    /**
+     * @param location location the file was found in
+     * @param format   format to parse the file with
+     * @param file     the file
+     * @param parser   parses the file; returns null on failure.
+     */
+    LazyFileConfigLayer(ConfigLocation location, ConfigFileFormatInterface format, Path file, Supplier<ConfigLayerInterface> parser)
+        {
+        this.location = location;
+        this.source = new ConfigLocationImpl(location, this, format, file);
+        this.file = file;
+        this.parser = parser;
+        }
+
+    /**
+     * parse the file, unless done already.
+     *
+     * @return the parsed layer, or null if parsing failed.
+     */
+    ConfigLayerInterface load()
+        {
+        if (!loaded)
+            {
+            synchronized (this)
+                {
+                if (!loaded)
+                    {
+                    parsed = parser.get();
+                    loaded = true;
+                    }
+                }
+            }
+        return parsed;
+        }
+
+    /** @return whether the file has been parsed yet. */
+    boolean isLoaded()
+        { return loaded; }
+
+    @Override
+    public ConfigEntry getEntry(String hierarchicalKey)
+        {
+        ConfigLayerInterface layer = load();
+        return (layer != null) ? layer.getEntry(hierarchicalKey) : null;
+        }
+
+    @Override
+    public ConfigEntry getEntry(String hierarchicalKey, ConfigEntrySpecification specification)
+        {
+        ConfigLayerInterface layer = load();
+        return (layer != null) ? layer.getEntry(hierarchicalKey, specification) : null;
+        }
+
+    @Override
+    public ConfigEntry getEntryForWriting(String hierarchicalKey)
+        {
+        ConfigLayerInterface layer = load();
+        return (layer != null) ? layer.getEntryForWriting(hierarchicalKey) : null;
+        }
+
+    /**
+     * before parsing, answered from the location and the file's permissions; parsing is not needed for that.
+     */
+    @Override
+    public boolean isWriteable()
+        {
+        if (loaded)
+            {
+            return (parsed != null) && parsed.isWriteable();
+            }
+        return location.isWriteable() && Files.isWritable(file);
+        }
+
+    @Override
+    public boolean isEmpty()
+        {
+        ConfigLayerInterface layer = load();
+        return (layer == null) || layer.isEmpty();
+        }
+
+    @Override
+    public ConfigScope getScope()
+        { return location.getScope(); }
+
+    @Override
+    public void writeEntry(ConfigEntry entryToWrite)
+            throws ConfigCheckedException
+        {
+        ConfigLayerInterface layer = load();
+        if (layer == null)
+            {
+            throw new ConfigCheckedException(ConfigCheckedException.ConfigExceptionReason.INVALID_USE);
+            }
+        layer.writeEntry(entryToWrite);
+        }
+
+    @Override
+    public int flush()
+            throws ConfigCheckedException
+        {
+        if (!loaded || (parsed == null))
+            {
+            return 0; // never parsed, so never written to.
+            }
+        return parsed.flush();
+        }
+
+    @Override
+    public int getPendingWriteCount()
+        {
+        return (loaded && (parsed != null)) ? parsed.getPendingWriteCount() : 0;
+        }
+
+    @Override
+    public ConfigSource getSource()
+        { return source; }
+
+    @Override
+    public int compareTo(ConfigLayerInterface o)
+        {
+        return 0;
+        }
+
+    @Override
+    public Iterator<String> tryToGetKeyIterator()
+        {
+        ConfigLayerInterface layer = load();
+        return (layer != null) ? layer.tryToGetKeyIterator() : Collections.emptyIterator();
+        }
+
+    @Override
+    public String toString()
+        {
+        return "lazy layer "+source.getStorageInstanceHandle()+(loaded ? "" : " (not parsed yet)");
+        }
+}
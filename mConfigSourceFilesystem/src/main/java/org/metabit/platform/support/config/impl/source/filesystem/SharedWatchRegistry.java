@@ -0,0 +1,354 @@
+package org.metabit.platform.support.config.impl.source.filesystem;
+
+import org.metabit.platform.support.config.interfaces.ConfigLoggingInterface;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * process-wide directory watch registry.
+ * <p>
+ * One WatchService (on Linux: one inotify instance) and one dispatcher thread serve all file change watchers
+ * of all factories in the JVM. Directories watched by several watchers are registered once;
+ * the registration is cancelled when the last watcher lets go of it.
+ * The registry itself is reference-counted, and closed when its last user releases it.
+ * <p>
+ * Besides delivering events, the dispatcher thread calls each listener's periodic check,
+ * so watchers don't need threads (Timers) of their own. It waits for events at most {@value #MAX_POLL_MILLISECONDS} ms,
+ * so a newly added periodic check is run within that time; the thread is never interrupted,
+ * since listeners read files on it.
+ * <p>
+ * The registry outlives the factories using it, so it holds no logger of its own;
+ * failures are reported through the logger of the listener concerned.
+ */
+final class SharedWatchRegistry
+{
+    /** receives events for registered directories, on the dispatcher thread. */
+    interface Listener
+    {
+        /**
+         * @param directory directory as registered by this listener
+         * @param kind      event kind
+         * @param file      affected entry, resolved against directory
+         */
+        void directoryEvent(Path directory, WatchEvent.Kind<?> kind, Path file);
+
+        /**
+         * the watch for a directory became invalid, usually because the directory was deleted.
+         * The registration is gone; register again to resume watching.
+         *
+         * @param directory directory as registered by this listener
+         */
+        void directoryInvalid(Path directory);
+
+        /** periodic check; called every {@link #checkIntervalMilliseconds()}. */
+        void periodicCheck();
+
+        /** @return interval for periodicCheck; 0 or less for none. */
+        long checkIntervalMilliseconds();
+
+        /** @return logger for failures of this listener's callbacks. */
+        ConfigLoggingInterface getLogger();
+    }
+
+    // longest wait for events; also how late a newly added periodic check may start.
+    private static final long MAX_POLL_MILLISECONDS = 100;
+
+    private static SharedWatchRegistry shared; // guarded by class
+
+    private final WatchService                      watchService;
+    private final Map<Path, DirectoryWatch>         byPath;
+    private final Map<WatchKey, DirectoryWatch>     byKey;
+    private final List<PeriodicClient>              clients;
+    private int                                     references; // guarded by this
+    private volatile boolean                        closed;
+
+    private static final class Subscription
+    {
+        final Listener listener;
+        final Path     directory;
+
+        Subscription(Listener listener, Path directory)
+            {
+            this.listener = listener;
+            this.directory = directory;
+            }
+    }
+
+    // one per WatchKey; different paths to the same directory share the key.
+    private static final class DirectoryWatch
+    {
+        final WatchKey           key;
+        final List<Subscription> subscriptions = new ArrayList<>();
+
+        DirectoryWatch(WatchKey key)
+            {
+            this.key = key;
+            }
+    }
+
+    private static final class PeriodicClient
+    {
+        final Listener listener;
+        long           nextCheck;
+
+        PeriodicClient(Listener listener, long nextCheck)
+            {
+            this.listener = listener;
+            this.nextCheck = nextCheck;
+            }
+    }
+
+    /**
+     * get the shared registry, creating it if necessary. Each call must be matched by a {@link #release()}.
+     *
+     * @return the shared registry
+     * @throws IOException if no WatchService is available
+     */
+    static synchronized SharedWatchRegistry acquire()
+            throws IOException
+        {
+        if ((shared == null) || !shared.retain())
+            {
+            shared = new SharedWatchRegistry();
+            }
+        return shared;
+        }
+
+    /**
+     * create a registry, with a reference count of one. For the shared one, use {@link #acquire()}.
+     *
+     * @throws IOException if no WatchService is available
+     */
+    SharedWatchRegistry()
+            throws IOException
+        {
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.byPath = new HashMap<>();
+        this.byKey = new HashMap<>();
+        this.clients = new CopyOnWriteArrayList<>();
+        this.references = 1;
+        Thread dispatcher = new Thread(this::dispatch, "mConfig-FileWatch");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+        }
+
+    /**
+     * take another reference; to be matched by a {@link #release()}.
+     *
+     * @return false if the registry was closed already; then a new one is needed.
+     */
+    synchronized boolean retain()
+        {
+        if (closed)
+            {
+            return false;
+            }
+        references++;
+        return true;
+        }
+
+    /**
+     * give up one reference; the last one closes the registry.
+     *
+     * @throws IOException if closing the WatchService failed
+     */
+    void release()
+            throws IOException
+        {
+        synchronized (this)
+            {
+            if (closed || (--references > 0))
+                {
+                return;
+                }
+            closed = true;
+            byPath.clear();
+            byKey.clear();
+            }
+        clients.clear();
+        watchService.close(); // ends the dispatcher
+        return;
+        }
+
+    boolean isClosed() { return closed; }
+
+    /**
+     * watch a directory for a listener.
+     *
+     * @param directory existing directory
+     * @param listener  listener to notify
+     * @throws IOException on registration failure
+     * @throws ClosedWatchServiceException if the registry has been closed
+     */
+    synchronized void register(final Path directory, final Listener listener)
+            throws IOException
+        {
+        DirectoryWatch watch = byPath.get(directory);
+        if (watch == null)
+            {
+            WatchKey key = directory.register(watchService, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE);
+            watch = byKey.computeIfAbsent(key, DirectoryWatch::new);
+            byPath.put(directory, watch);
+            }
+        for (Subscription subscription : watch.subscriptions)
+            {
+            if ((subscription.listener == listener) && subscription.directory.equals(directory))
+                {
+                return; // registered already
+                }
+            }
+        watch.subscriptions.add(new Subscription(listener, directory));
+        return;
+        }
+
+    /**
+     * stop watching a directory for a listener. The directory watch is cancelled once no listener is left.
+     *
+     * @param directory directory as registered
+     * @param listener  listener
+     */
+    synchronized void unregister(final Path directory, final Listener listener)
+        {
+        DirectoryWatch watch = byPath.get(directory);
+        if (watch == null)
+            {
+            return;
+            }
+        watch.subscriptions.removeIf(s->(s.listener == listener) && s.directory.equals(directory));
+        if (watch.subscriptions.stream().noneMatch(s->s.directory.equals(directory)))
+            {
+            byPath.remove(directory);
+            }
+        if (watch.subscriptions.isEmpty())
+            {
+            byKey.remove(watch.key);
+            watch.key.cancel();
+            }
+        return;
+        }
+
+    /**
+     * have a listener's periodic check called by the dispatcher thread.
+     * The first check runs the next time the dispatcher wakes up, after {@value #MAX_POLL_MILLISECONDS} ms at most.
+     *
+     * @param listener listener
+     */
+    void addPeriodicCheck(final Listener listener)
+        {
+        if (listener.checkIntervalMilliseconds() > 0)
+            {
+            clients.add(new PeriodicClient(listener, System.currentTimeMillis()));
+            }
+        }
+
+    void removePeriodicCheck(final Listener listener)
+        {
+        clients.removeIf(c->c.listener == listener);
+        }
+
+    // for tests
+    synchronized int howManyDirectoriesAreRegistered() { return byPath.size(); }
+
+    private void dispatch()
+        {
+        while (!closed)
+            {
+            WatchKey key;
+            long timeout = runPeriodicChecks();
+            try
+                {
+                key = watchService.poll(timeout, TimeUnit.MILLISECONDS);
+                }
+            catch (InterruptedException|ClosedWatchServiceException ex)
+                {
+                break;
+                }
+            if (key != null)
+                {
+                deliver(key);
+                }
+            }
+        return;
+        }
+
+    // runs due checks; returns the time until the next one is due.
+    private long runPeriodicChecks()
+        {
+        long now = System.currentTimeMillis();
+        long wait = MAX_POLL_MILLISECONDS;
+        for (PeriodicClient client : clients)
+            {
+            if (now >= client.nextCheck)
+                {
+                try
+                    {
+                    client.listener.periodicCheck();
+                    }
+                catch (RuntimeException ex)
+                    {
+                    client.listener.getLogger().error("periodic file check failed", ex);
+                    }
+                client.nextCheck = now+client.listener.checkIntervalMilliseconds();
+                }
+            wait = Math.min(wait, client.nextCheck-now);
+            }
+        return Math.max(1, wait);
+        }
+
+    private void deliver(final WatchKey key)
+        {
+        List<WatchEvent<?>> events = key.pollEvents();
+        List<Subscription> subscriptions;
+        boolean valid;
+        synchronized (this)
+            {
+            DirectoryWatch watch = byKey.get(key);
+            subscriptions = (watch == null) ? Collections.emptyList() : new ArrayList<>(watch.subscriptions);
+            valid = key.reset();
+            if (!valid && (watch != null))
+                {
+                byKey.remove(key);
+                byPath.values().removeIf(w->w == watch);
+                }
+            }
+        for (WatchEvent<?> event : events)
+            {
+            if (!(event.context() instanceof Path))
+                {
+                continue; // OVERFLOW; nothing specific to report.
+                }
+            Path name = (Path) event.context();
+            for (Subscription subscription : subscriptions)
+                {
+                try
+                    {
+                    subscription.listener.directoryEvent(subscription.directory, event.kind(), subscription.directory.resolve(name));
+                    }
+                catch (RuntimeException ex)
+                    {
+                    subscription.listener.getLogger().error("file watch listener failed", ex);
+                    }
+                }
+            }
+        if (!valid)
+            {
+            for (Subscription subscription : subscriptions)
+                {
+                try
+                    {
+                    subscription.listener.directoryInvalid(subscription.directory);
+                    }
+                catch (RuntimeException ex)
+                    {
+                    subscription.listener.getLogger().error("file watch listener failed", ex);
+                    }
+                }
+            }
+        return;
+        }
+}
+//___EOF___
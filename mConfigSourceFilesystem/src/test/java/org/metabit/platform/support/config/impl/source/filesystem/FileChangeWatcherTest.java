@@ -320,7 +320,8 @@ scenarios for directory detection
         {
         ctx.getSettings().setInteger(ConfigFeature.UPDATE_CHECK_FREQUENCY_MS, 100);
 
-        final FileChangeWatcher fcw = new FileChangeWatcher(ctx);
+        final SharedWatchRegistry registry = new SharedWatchRegistry();
+        final FileChangeWatcher fcw = new FileChangeWatcher(ctx, registry);
 
         final Path dummyFile = testInstanceTempDir.resolve("dummy.txt");
 
@@ -329,15 +330,20 @@ scenarios for directory detection
         fcw.addFile(dummyFile, dummyLoc);
 
         TimeUnit.MILLISECONDS.sleep(500); // allow timer to tick and register the directory
+        assertEquals(1, registry.howManyDirectoriesAreRegistered());
 
         fcw.cleanup();
+        assertEquals(0, registry.howManyDirectoriesAreRegistered());
+        assertFalse(registry.isClosed());
+        registry.release(); // last reference
+        assertTrue(registry.isClosed());
 
-        final Field watchServiceField = FileChangeWatcher.class.getDeclaredField("watchService");
+        final Field watchServiceField = SharedWatchRegistry.class.getDeclaredField("watchService");
 
         watchServiceField.setAccessible(true);
 
         @SuppressWarnings("unchecked")
-        final WatchService ws = (WatchService) watchServiceField.get(fcw);
+        final WatchService ws = (WatchService) watchServiceField.get(registry);
 
         assertNotNull(ws);
 
@@ -348,5 +354,39 @@ scenarios for directory detection
         Files.delete(regDir);
         }
 
+    @Test
+    void testWatchersShareRegistrations()
+            throws IOException, InterruptedException
+        {
+        ctx.getSettings().setInteger(ConfigFeature.UPDATE_CHECK_FREQUENCY_MS, 100);
+        final SharedWatchRegistry registry = new SharedWatchRegistry();
+        final FileChangeWatcher fcw1 = new FileChangeWatcher(ctx, registry);
+        final FileChangeWatcher fcw2 = new FileChangeWatcher(ctx, registry);
+        Path sharedDir = Files.createDirectory(testInstanceTempDir.resolve("sharedDir"));
+        Path sharedFile = sharedDir.resolve("shared.properties");
+        fcw1.addFile(sharedFile, new ConfigLocationImpl(ConfigScope.APPLICATION, mockStorage, null, sharedFile));
+        fcw2.addFile(sharedFile, new ConfigLocationImpl(ConfigScope.APPLICATION, mockStorage, null, sharedFile));
+        assertEquals(1, registry.howManyDirectoriesAreRegistered(), "directory registered once");
+
+        Files.writeString(sharedFile, "a=1");
+        TimeUnit.MILLISECONDS.sleep(500);
+        assertTrue(fcw1.hasChanged(sharedFile));
+        assertTrue(fcw2.hasChanged(sharedFile));
+
+        fcw1.cleanup();
+        assertFalse(registry.isClosed());
+        assertEquals(1, registry.howManyDirectoriesAreRegistered(), "still in use by the second watcher");
+        Files.writeString(sharedFile, "a=2");
+        TimeUnit.MILLISECONDS.sleep(500);
+        assertTrue(fcw2.hasChanged(sharedFile));
+        fcw2.cleanup();
+        assertEquals(0, registry.howManyDirectoriesAreRegistered());
+        assertFalse(registry.isClosed());
+        registry.release();
+        assertTrue(registry.isClosed());
+        Files.delete(sharedFile);
+        Files.delete(sharedDir);
+        }
+
 
 }
\ No newline at end of file
@@ -0,0 +1,93 @@
+package org.metabit.platform.support.config.impl.source.filesystem;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.metabit.platform.support.config.impl.logging.ConsoleLogging;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileDiscoveryIndexTest
+{
+    private static final String SIGNATURE = "TOML[.toml];properties[.properties];";
+
+    @TempDir
+    Path tempDir;
+
+    private static long ageDirectory(Path dir) throws IOException
+        {
+        // recently modified directories are "racy", and not recorded.
+        Files.setLastModifiedTime(dir, FileTime.fromMillis(System.currentTimeMillis()-60_000));
+        return FileDiscoveryIndex.stamp(dir);
+        }
+
+    private FileDiscoveryIndex newIndex(Path indexFile, String signature)
+        {
+        return new FileDiscoveryIndex(indexFile, signature, new ConsoleLogging("FileDiscoveryIndexTest"));
+        }
+
+    @Test
+    void entriesSurviveRestartAndInvalidateOnDirectoryChange() throws IOException
+        {
+        Path configDir = Files.createDirectory(tempDir.resolve("etc"));
+        Files.writeString(configDir.resolve("network.toml"), "a = 1\n");
+        Path dotD = Files.createDirectory(configDir.resolve("network.d"));
+        Files.writeString(dotD.resolve("10-site.properties"), "b=2\n");
+        long dotDStamp = ageDirectory(dotD);
+        long dirStamp = ageDirectory(configDir);
+        Path missingDir = tempDir.resolve("does-not-exist");
+
+        Path indexFile = tempDir.resolve("cache").resolve("test.mconfig-index");
+        FileDiscoveryIndex index = newIndex(indexFile, SIGNATURE);
+        index.load();
+        index.record(configDir, "network", dirStamp, dotDStamp, List.of("network.toml"), List.of("10-site.properties"));
+        index.record(missingDir, "network", FileDiscoveryIndex.stamp(missingDir), FileDiscoveryIndex.stamp(missingDir.resolve("network.d")), List.of(), List.of());
+        index.save(null);
+
+        FileDiscoveryIndex reloaded = newIndex(indexFile, SIGNATURE);
+        reloaded.load();
+        assertEquals(2, reloaded.size());
+        FileDiscoveryIndex.Entry entry = reloaded.lookup(configDir, "network");
+        assertNotNull(entry);
+        assertEquals(List.of("network.toml"), entry.mainFiles);
+        assertEquals(List.of("10-site.properties"), entry.fragments);
+        assertNotNull(reloaded.lookup(missingDir, "network"), "missing directories are indexed, too");
+
+        // a new fragment changes the .d directory
+        Files.writeString(dotD.resolve("20-more.properties"), "c=3\n");
+        assertNull(reloaded.lookup(configDir, "network"));
+        // a directory coming into existence
+        Files.createDirectory(missingDir);
+        assertNull(reloaded.lookup(missingDir, "network"));
+        }
+
+    @Test
+    void racyDirectoriesAreNotRecorded() throws IOException
+        {
+        Path configDir = Files.createDirectory(tempDir.resolve("fresh"));
+        FileDiscoveryIndex index = newIndex(tempDir.resolve("racy.mconfig-index"), SIGNATURE);
+        index.record(configDir, "app", FileDiscoveryIndex.stamp(configDir), -1L, List.of(), List.of());
+        assertNull(index.lookup(configDir, "app"));
+        assertEquals(0, index.size());
+        }
+
+    @Test
+    void changedFormatsDiscardIndex() throws IOException
+        {
+        Path configDir = Files.createDirectory(tempDir.resolve("etc"));
+        long dirStamp = ageDirectory(configDir);
+        Path indexFile = tempDir.resolve("formats.mconfig-index");
+        FileDiscoveryIndex index = newIndex(indexFile, SIGNATURE);
+        index.record(configDir, "app", dirStamp, -1L, List.of("app.toml"), List.of());
+        index.save(null);
+
+        FileDiscoveryIndex withYaml = newIndex(indexFile, SIGNATURE+"YAML[.yaml, .yml];");
+        withYaml.load();
+        assertNull(withYaml.lookup(configDir, "app"));
+        }
+}
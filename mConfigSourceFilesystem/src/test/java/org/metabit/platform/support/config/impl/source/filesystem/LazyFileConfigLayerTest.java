@@ -0,0 +1,118 @@
+package org.metabit.platform.support.config.impl.source.filesystem;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.metabit.platform.support.config.ConfigCheckedException;
+import org.metabit.platform.support.config.ConfigEntry;
+import org.metabit.platform.support.config.ConfigLocation;
+import org.metabit.platform.support.config.ConfigScope;
+import org.metabit.platform.support.config.interfaces.ConfigFileFormatInterface;
+import org.metabit.platform.support.config.interfaces.ConfigLayerInterface;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class LazyFileConfigLayerTest
+{
+    private static final Path FILE = Path.of("/etc/app/app.toml");
+
+    private static ConfigLocation location()
+        {
+        ConfigLocation location = mock(ConfigLocation.class);
+        when(location.getScope()).thenReturn(ConfigScope.HOST);
+        return location;
+        }
+
+    @Test
+    void parsesOnFirstEntryAccessOnly()
+        {
+        ConfigLayerInterface parsed = mock(ConfigLayerInterface.class);
+        ConfigEntry entry = mock(ConfigEntry.class);
+        when(parsed.getEntry("a/b")).thenReturn(entry);
+        AtomicInteger parses = new AtomicInteger();
+        LazyFileConfigLayer layer = new LazyFileConfigLayer(location(), mock(ConfigFileFormatInterface.class), FILE, ()->
+            {
+            parses.incrementAndGet();
+            return parsed;
+            });
+
+        assertEquals(ConfigScope.HOST, layer.getScope());
+        assertEquals(FILE, layer.getSource().getStorageInstanceHandle());
+        assertEquals(0, layer.getPendingWriteCount());
+        assertFalse(layer.isLoaded());
+        assertEquals(0, parses.get(), "scope and source need no parsing");
+
+        assertSame(entry, layer.getEntry("a/b"));
+        assertNull(layer.getEntry("a/c"));
+        assertTrue(layer.isLoaded());
+        assertEquals(1, parses.get());
+        }
+
+    @Test
+    void entriesForWritingComeFromTheParsedLayer()
+        {
+        ConfigLayerInterface parsed = mock(ConfigLayerInterface.class);
+        ConfigEntry entry = mock(ConfigEntry.class);
+        when(parsed.getEntryForWriting("a/b")).thenReturn(entry);
+        LazyFileConfigLayer layer = new LazyFileConfigLayer(location(), mock(ConfigFileFormatInterface.class), FILE, ()->parsed);
+        assertSame(entry, layer.getEntryForWriting("a/b"));
+        verify(parsed, never()).getEntry("a/b");
+        }
+
+    @Test
+    void writeabilityNeedsNoParsing(@TempDir Path tempDir) throws Exception
+        {
+        Path file = Files.createFile(tempDir.resolve("app.toml"));
+        ConfigLocation location = location();
+        when(location.isWriteable()).thenReturn(true);
+        AtomicInteger parses = new AtomicInteger();
+        LazyFileConfigLayer layer = new LazyFileConfigLayer(location, mock(ConfigFileFormatInterface.class), file, ()->
+            {
+            parses.incrementAndGet();
+            return null;
+            });
+        assertTrue(layer.isWriteable());
+        assertFalse(new LazyFileConfigLayer(location(), mock(ConfigFileFormatInterface.class), file, ()->null).isWriteable(), "read-only location");
+        assertFalse(new LazyFileConfigLayer(location, mock(ConfigFileFormatInterface.class), FILE, ()->null).isWriteable(), "no such file");
+        assertEquals(0, parses.get());
+        assertFalse(layer.isLoaded());
+
+        layer.load();
+        assertFalse(layer.isWriteable(), "once parsed, the parsed layer answers; failed here");
+        }
+
+    @Test
+    void parseFailureActsAsEmptyLayer()
+        {
+        LazyFileConfigLayer layer = new LazyFileConfigLayer(location(), mock(ConfigFileFormatInterface.class), FILE, ()->null);
+        assertNull(layer.getEntry("a/b"));
+        assertNull(layer.getEntryForWriting("a/b"));
+        assertTrue(layer.isEmpty());
+        assertFalse(layer.isWriteable());
+        assertFalse(layer.tryToGetKeyIterator().hasNext());
+        assertThrows(ConfigCheckedException.class, ()->layer.writeEntry(mock(ConfigEntry.class)));
+        }
+
+    @Test
+    void prewarmLoadsInBackground() throws Exception
+        {
+        ConfigLayerInterface parsed = mock(ConfigLayerInterface.class);
+        AtomicInteger parses = new AtomicInteger();
+        LazyFileConfigLayer layer = new LazyFileConfigLayer(location(), mock(ConfigFileFormatInterface.class), FILE, ()->
+            {
+            parses.incrementAndGet();
+            return parsed;
+            });
+        CompletableFuture.runAsync(layer::load).get(10, TimeUnit.SECONDS);
+        assertTrue(layer.isLoaded());
+        layer.getEntry("a/b");
+        assertEquals(1, parses.get(), "a pre-warmed layer is not parsed again");
+        verify(parsed).getEntry("a/b");
+        }
+}
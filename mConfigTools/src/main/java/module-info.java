@@ -11,11 +11,13 @@ module mConfigTools.main
     requires metabit.mconfig.modules.jsonwithjackson;
     requires metabit.mconfig.modules.yamlwithjackson;
     requires metabit.mconfig.format.toml;
+    requires metabit.mconfig.format.snapshot;
     requires metabit.mconfig.util;
     requires metabit.mconfig.modules.mConfigLoggingSlf4j;
     requires info.picocli;
     requires tools.jackson.databind;
     requires tools.jackson.dataformat.yaml;
     requires tools.jackson.dataformat.toml;
+    uses org.metabit.platform.support.config.interfaces.ConfigFormatInterface;
     opens org.metabit.platform.support.config.tool to info.picocli;
     }
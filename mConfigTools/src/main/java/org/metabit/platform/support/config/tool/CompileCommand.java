@@ -0,0 +1,109 @@
+package org.metabit.platform.support.config.tool;
+
+import org.metabit.platform.support.config.ConfigLocation;
+import org.metabit.platform.support.config.ConfigScope;
+import org.metabit.platform.support.config.impl.ConfigFactorySettings;
+import org.metabit.platform.support.config.impl.ConfigLocationImpl;
+import org.metabit.platform.support.config.impl.format.snapshot.BinarySnapshotWriter;
+import org.metabit.platform.support.config.impl.logging.ConsoleLogging;
+import org.metabit.platform.support.config.impl.logging.NullLogging;
+import org.metabit.platform.support.config.interfaces.ConfigFileFormatInterface;
+import org.metabit.platform.support.config.interfaces.ConfigFormatInterface;
+import org.metabit.platform.support.config.interfaces.ConfigLayerInterface;
+import org.metabit.platform.support.config.interfaces.ConfigLoggingInterface;
+import org.metabit.platform.support.config.source.core.InMemoryLayerSource;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.ServiceLoader;
+import java.util.concurrent.Callable;
+
+/**
+ * compile configuration files into a binary snapshot.
+ */
+@Command(name = "compile", description = "Compile configuration files (TOML, YAML, JSON, properties, INI) into a binary snapshot.", mixinStandardHelpOptions = true)
+public class CompileCommand implements Callable<Integer>
+{
+    @CommandLine.Parameters(arity = "1..*", description = "Source files; later files override entries of earlier ones.")
+    private List<Path> sources;
+
+    @CommandLine.Option(names = {"-o", "--output"}, required = true, description = "Snapshot file to write, usually ending in .mcsnap")
+    private Path output;
+
+    @CommandLine.Option(names = {"-v", "--verbose"}, description = "Verbose output")
+    private boolean verbose;
+
+    @Override
+    public Integer call()
+        {
+        ConfigLoggingInterface logger = verbose ? new ConsoleLogging("mconfig-compile") : NullLogging.getSingletonInstance();
+        ConfigFactorySettings settings = new ConfigFactorySettings();
+        // only a placeholder; the location is needed to read a file, but no factory is involved.
+        InMemoryLayerSource storage = new InMemoryLayerSource(ConfigScope.APPLICATION);
+        BinarySnapshotWriter writer = new BinarySnapshotWriter();
+        try
+            {
+            for (Path source : sources)
+                {
+                File file = source.toFile();
+                if (!file.isFile())
+                    {
+                    System.err.println("Error: no such file: "+source);
+                    return 1;
+                    }
+                ConfigFileFormatInterface format = findFormat(file.getName(), settings, logger);
+                if (format == null)
+                    {
+                    System.err.println("Error: no format available for "+source);
+                    return 1;
+                    }
+                ConfigLocation location = new ConfigLocationImpl(ConfigScope.APPLICATION, storage, format, source);
+                ConfigLayerInterface layer = format.readFile(file, location);
+                if (layer == null)
+                    {
+                    System.err.println("Error: could not read "+source+" as "+format.getFormatID());
+                    return 1;
+                    }
+                int count = writer.putAll(layer);
+                if (verbose)
+                    {
+                    System.out.println(source+": "+count+" entries ("+format.getFormatID()+")");
+                    }
+                }
+            writer.write(output);
+            System.out.println("Compiled "+writer.size()+" entries into "+output);
+            return 0;
+            }
+        catch (Exception e)
+            {
+            System.err.println("Error: "+e.getMessage());
+            return 1;
+            }
+        }
+
+    // first available format claiming the file extension; the snapshot format itself is excluded.
+    static ConfigFileFormatInterface findFormat(String fileName, ConfigFactorySettings settings, ConfigLoggingInterface logger)
+        {
+        String name = fileName.toLowerCase(Locale.ROOT);
+        for (ConfigFormatInterface candidate : ServiceLoader.load(ConfigFormatInterface.class))
+            {
+            if (!(candidate instanceof ConfigFileFormatInterface) || candidate.getFormatID().equals("BinarySnapshot"))
+                {
+                continue;
+                }
+            ConfigFileFormatInterface format = (ConfigFileFormatInterface) candidate;
+            for (String extension : format.getFilenameExtensions())
+                {
+                if (name.endsWith(extension) && format.testComponent(settings, logger))
+                    {
+                    return format;
+                    }
+                }
+            }
+        return null;
+        }
+}
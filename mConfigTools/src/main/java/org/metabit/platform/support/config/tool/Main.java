@@ -26,6 +26,7 @@ import java.util.concurrent.Callable;
                 ValidateCommand.class,
                 SetCommand.class,
                 MonitorCommand.class,
+                CompileCommand.class,
                 CompletionCommand.class
         })
 public class Main implements Callable<Integer>
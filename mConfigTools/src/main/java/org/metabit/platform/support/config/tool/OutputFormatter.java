@@ -162,6 +162,35 @@ final class OutputFormatter
             }
         }
 
+    /**
+     * one line of CSV, quoted as RFC 4180 has it.
+     * fields containing a comma, a quote or a line break are put in quotes, with their quotes doubled.
+     *
+     * @param fields field values; null gives an empty field
+     * @return the line, without line terminator
+     */
+    static String csvLine(Object... fields)
+        {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < fields.length; i++)
+            {
+            if (i > 0)
+                {
+                line.append(',');
+                }
+            String field = (fields[i] == null) ? "" : String.valueOf(fields[i]);
+            if (field.indexOf(',') >= 0 || field.indexOf('"') >= 0 || field.indexOf('\r') >= 0 || field.indexOf('\n') >= 0)
+                {
+                line.append('"').append(field.replace("\"", "\"\"")).append('"');
+                }
+            else
+                {
+                line.append(field);
+                }
+            }
+        return line.toString();
+        }
+
     static Map<String, Object> newLinkedMap()
         {
         return new LinkedHashMap<>();
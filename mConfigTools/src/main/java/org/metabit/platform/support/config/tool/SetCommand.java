@@ -295,6 +295,7 @@ public class SetCommand implements Callable<Integer>
                             if (entry != null)
                                 {
                                 entry.setComment(comment);
+                                entry.putValue(convertedValue, targetType); // writes it back, with the comment
                                 flushed += lcfg.flush();
                                 }
                             }
@@ -2,6 +2,8 @@ package org.metabit.platform.support.config.tool;
 
 import org.metabit.platform.support.config.*;
 import org.metabit.platform.support.config.interfaces.ConfigEntrySpecification;
+import org.metabit.platform.support.config.schema.ConfigValidationReport;
+import org.metabit.platform.support.config.schema.ConfigValidator;
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.ParentCommand;
@@ -19,6 +21,9 @@ public class ValidateCommand implements Callable<Integer>
     @CommandLine.Parameters(index = "0", arity = "0..1", description = "Shortened syntax: [COMPANY:]APPLICATION[:CONFIGNAME]")
     private String shortened;
 
+    @CommandLine.Option(names = {"--parallel"}, description = "Validate every layer, not only the values in effect, in parallel; findings name the layer they come from.")
+    private boolean parallel;
+
     @CommandLine.Mixin
     public CommonOptions commonOptions = new CommonOptions();
 
@@ -42,6 +47,10 @@ public class ValidateCommand implements Callable<Integer>
                     System.out.println("Use 'propose-scheme' to generate a schema from current values.");
                     return 1;
                     }
+                if (parallel)
+                    {
+                    return printReport(ctx, ConfigValidator.parallel().validate(cfg));
+                    }
                 int errors = 0;
                 java.util.List<java.util.Map<String, Object>> errorList = new java.util.ArrayList<>();
 
@@ -139,4 +148,85 @@ public class ValidateCommand implements Callable<Integer>
             return 1;
             }
         }
+
+    private int printReport(Main.ConfigContext ctx, ConfigValidationReport report)
+        {
+        if (ctx.format == Main.OutputFormat.HUMAN)
+            {
+            for (ConfigValidationReport.LayerResult layer : report.getLayers())
+                {
+                if (!layer.isKeysAvailable())
+                    {
+                    if (ctx.verbose) System.out.println("["+layer.getScope()+"] "+layer.getLocation()+": entries cannot be listed, not checked");
+                    continue;
+                    }
+                if (ctx.verbose || !layer.getFindings().isEmpty())
+                    {
+                    System.out.println("["+layer.getScope()+"] "+layer.getLocation()+": "+layer.getCheckedEntries()+" entries, "+layer.getFindings().size()+" invalid");
+                    }
+                for (ConfigValidationReport.Finding finding : layer.getFindings())
+                    {
+                    System.err.println("  Validation failed for key: "+finding.getKey()+" (Value: "+finding.getValue()+"): "+finding.getMessage());
+                    }
+                }
+            if (report.isValid())
+                {
+                System.out.println("Configuration "+ctx.configName+" is valid ("+report.getCheckedEntryCount()+" entries in "+report.getLayers().size()+" layers).");
+                }
+            else
+                {
+                System.err.println("Configuration "+ctx.configName+" has "+report.getErrorCount()+" validation errors.");
+                }
+            }
+        else if (ctx.format == Main.OutputFormat.CSV)
+            {
+            System.out.println("Key,Value,Message,Scope,Location");
+            for (ConfigValidationReport.Finding finding : report.getFindings())
+                {
+                System.out.println(OutputFormatter.csvLine(finding.getKey(), finding.getValue(), finding.getMessage(), finding.getScope(), finding.getLocation()));
+                }
+            }
+        else
+            {
+            java.util.Map<String, Object> data = OutputFormatter.newLinkedMap();
+            data.put("config", ctx.configName);
+            data.put("valid", report.isValid());
+            data.put("checked", report.getCheckedEntryCount());
+            data.put("errors", report.getErrorCount());
+            java.util.List<java.util.Map<String, Object>> layers = OutputFormatter.newLinkedList();
+            for (ConfigValidationReport.LayerResult layer : report.getLayers())
+                {
+                java.util.Map<String, Object> layerData = OutputFormatter.newLinkedMap();
+                layerData.put("scope", String.valueOf(layer.getScope()));
+                layerData.put("location", layer.getLocation());
+                layerData.put("checked", layer.getCheckedEntries());
+                layerData.put("listable", layer.isKeysAvailable());
+                java.util.List<java.util.Map<String, Object>> findings = OutputFormatter.newLinkedList();
+                for (ConfigValidationReport.Finding finding : layer.getFindings())
+                    {
+                    java.util.Map<String, Object> error = OutputFormatter.newLinkedMap();
+                    error.put("key", finding.getKey());
+                    error.put("value", finding.getValue());
+                    error.put("message", finding.getMessage());
+                    findings.add(error);
+                    }
+                layerData.put("findings", findings);
+                layers.add(layerData);
+                }
+            data.put("layers", layers);
+            if (ctx.format == Main.OutputFormat.JSON)
+                {
+                System.out.println(OutputFormatter.toJson(data, commonOptions.whitesmiths));
+                }
+            else if (ctx.format == Main.OutputFormat.YAML)
+                {
+                System.out.print(OutputFormatter.toYaml(data, commonOptions.whitesmiths));
+                }
+            else
+                {
+                System.out.print(OutputFormatter.toToml(data, commonOptions.whitesmiths));
+                }
+            }
+        return report.isValid() ? 0 : 1;
+        }
 }
@@ -50,4 +50,34 @@ class CliParsingTest
         CommandLine.ParseResult tomlSub = tomlResult.subcommand();
         assertEquals(Main.OutputFormat.TOML, tomlSub.matchedOptionValue("-f", null));
         }
+
+    @Test
+    void testCompileParsing()
+    {
+        Main main = new Main();
+        CommandLine cmd = new CommandLine(main);
+
+        CommandLine.ParseResult result = cmd.parseArgs("compile", "a.toml", "b.yaml", "-o", "app.mcsnap");
+        CommandLine.ParseResult sub = result.subcommand();
+        assertNotNull(sub);
+        assertEquals("compile", sub.commandSpec().name());
+        java.util.List<java.nio.file.Path> sources = sub.matchedPositionalValue(0, null);
+        assertEquals(2, sources.size());
+        assertEquals(java.nio.file.Path.of("app.mcsnap"), sub.matchedOptionValue("-o", null));
+        }
+
+    @Test
+    void testValidateParallelParsing()
+    {
+        Main main = new Main();
+        CommandLine cmd = new CommandLine(main);
+        cmd.setCaseInsensitiveEnumValuesAllowed(true);
+
+        CommandLine.ParseResult result = cmd.parseArgs("validate", "myco:myapp:myconfig", "--parallel", "-f", "json");
+        CommandLine.ParseResult sub = result.subcommand();
+        assertNotNull(sub);
+        assertEquals("validate", sub.commandSpec().name());
+        assertTrue(sub.hasMatchedOption("--parallel"));
+        assertEquals(Main.OutputFormat.JSON, sub.matchedOptionValue("-f", null));
+        }
 }
@@ -0,0 +1,67 @@
+package org.metabit.platform.support.config.tool;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.metabit.platform.support.config.ConfigLocation;
+import org.metabit.platform.support.config.ConfigScope;
+import org.metabit.platform.support.config.impl.ConfigFactorySettings;
+import org.metabit.platform.support.config.impl.ConfigLocationImpl;
+import org.metabit.platform.support.config.impl.format.snapshot.BinarySnapshotFormat;
+import org.metabit.platform.support.config.impl.logging.NullLogging;
+import org.metabit.platform.support.config.interfaces.ConfigLayerInterface;
+import org.metabit.platform.support.config.source.core.InMemoryLayerSource;
+import picocli.CommandLine;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompileCommandTest
+{
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testCompileTomlAndProperties() throws Exception
+        {
+        Path toml = tempDir.resolve("base.toml");
+        Files.writeString(toml, "name = \"demo\"\n[server]\nport = 8080\nenabled = true\n");
+        Path properties = tempDir.resolve("site.properties");
+        Files.writeString(properties, "server/port=9090\n");
+        Path snapshot = tempDir.resolve("app.mcsnap");
+
+        int exitCode = new CommandLine(new Main()).execute("compile", toml.toString(), properties.toString(), "-o", snapshot.toString());
+        assertEquals(0, exitCode);
+        assertTrue(Files.isRegularFile(snapshot));
+
+        BinarySnapshotFormat format = new BinarySnapshotFormat();
+        format.testComponent(new ConfigFactorySettings(), NullLogging.getSingletonInstance());
+        ConfigLocation location = new ConfigLocationImpl(ConfigScope.APPLICATION, new InMemoryLayerSource(ConfigScope.APPLICATION), format, null);
+        ConfigLayerInterface layer = format.readFile(snapshot.toFile(), location);
+        assertNotNull(layer);
+        assertEquals("demo", layer.getEntry("name").getValueAsString());
+        assertEquals("9090", layer.getEntry("server/port").getValueAsString()); // later source wins
+        assertTrue(layer.getEntry("server/enabled").getValueAsBoolean());
+        }
+
+    @Test
+    void testMissingSourceFileFails()
+        {
+        Path snapshot = tempDir.resolve("app.mcsnap");
+        int exitCode = new CommandLine(new Main()).execute("compile", tempDir.resolve("missing.toml").toString(), "-o", snapshot.toString());
+        assertEquals(1, exitCode);
+        assertFalse(Files.exists(snapshot));
+        }
+
+    @Test
+    void testUnknownSourceFormatFails() throws Exception
+        {
+        Path unknown = tempDir.resolve("settings.unknownformat");
+        Files.writeString(unknown, "name = demo\n");
+        Path snapshot = tempDir.resolve("app.mcsnap");
+        int exitCode = new CommandLine(new Main()).execute("compile", unknown.toString(), "-o", snapshot.toString());
+        assertEquals(1, exitCode);
+        assertFalse(Files.exists(snapshot));
+        }
+}
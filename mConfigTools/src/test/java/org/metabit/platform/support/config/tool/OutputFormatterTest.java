@@ -4,6 +4,7 @@ import org.junit.jupiter.api.Test;
 
 import java.util.Map;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class OutputFormatterTest
@@ -29,4 +30,12 @@ class OutputFormatterTest
         assertTrue(toml.contains("alpha"));
         assertTrue(toml.contains("value"));
         }
+
+    @Test
+    void testCsvFieldsAreQuotedWhereNeeded()
+        {
+        assertEquals("plain,,42", OutputFormatter.csvLine("plain", null, 42));
+        assertEquals("\"a,b\",\"say \"\"hi\"\"\",\"two\nlines\",\"cr\rhere\"",
+                OutputFormatter.csvLine("a,b", "say \"hi\"", "two\nlines", "cr\rhere"));
+        }
 }